@@ -0,0 +1,160 @@
+package tech.ceesar.glamme.booking.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.booking.entity.StylistAvailability;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Availability for 10,000 stylists over a 90-day horizon. Each works five or six days a week with
+ * a lunch break and has up to two bookings per working day, about 950,000 bookings in all.
+ *
+ * <p>{@code freeWeek} lists a random stylist's free 60-minute slots over a random week from their
+ * {@link StylistCalendar}. {@code scanWeek} is the same query answered the way it would be without
+ * the calendar, checking every grid slot in working hours against all of the stylist's bookings.
+ * {@code bookAndCancel} places and releases one booking incrementally, and {@code buildCalendar}
+ * is the cold load of one stylist's 90 days.
+ *
+ * <p>Run with {@code ./gradlew :booking-service:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AvailabilityBenchmark {
+
+    private static final int STYLISTS = 10_000;
+    private static final int DAYS = 90;
+    private static final int SLOT_MINUTES = 30;
+    private static final int DURATION_MINUTES = 60;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<List<StylistAvailability>> rules;
+    private List<List<Booking>> bookings;
+    private StylistCalendar[] calendars;
+    private long bookingSequence;
+
+    @Setup
+    public void setUp() {
+        from = LocalDate.of(2030, 1, 7).atStartOfDay();
+        to = from.plusDays(DAYS);
+        rules = new ArrayList<>(STYLISTS);
+        bookings = new ArrayList<>(STYLISTS);
+        calendars = new StylistCalendar[STYLISTS];
+        for (int s = 0; s < STYLISTS; s++) {
+            List<StylistAvailability> stylistRules = weeklyRules(8 + random.nextInt(3), 5 + random.nextInt(2));
+            List<Booking> stylistBookings = bookings(stylistRules);
+            rules.add(stylistRules);
+            bookings.add(stylistBookings);
+            calendars[s] = StylistCalendar.build(from, to, stylistRules, List.of(), stylistBookings);
+        }
+    }
+
+    @Benchmark
+    public List<Long> freeWeek() {
+        long start = StylistCalendar.minutes(from.plusDays(random.nextInt(DAYS - 7)));
+        return calendars[random.nextInt(STYLISTS)].freeSlots(start, start + 7 * 24 * 60, DURATION_MINUTES, SLOT_MINUTES);
+    }
+
+    @Benchmark
+    public List<Long> scanWeek() {
+        int stylist = random.nextInt(STYLISTS);
+        LocalDate firstDay = from.toLocalDate().plusDays(random.nextInt(DAYS - 7));
+        List<Booking> stylistBookings = bookings.get(stylist);
+        List<Long> starts = new ArrayList<>();
+        for (LocalDate day = firstDay; day.isBefore(firstDay.plusDays(7)); day = day.plusDays(1)) {
+            for (StylistAvailability rule : rules.get(stylist)) {
+                if (!rule.getDayOfWeek().name().equals(day.getDayOfWeek().name())) {
+                    continue;
+                }
+                for (LocalDateTime slot = day.atTime(rule.getStartTime());
+                     !slot.plusMinutes(DURATION_MINUTES).isAfter(day.atTime(rule.getEndTime()));
+                     slot = slot.plusMinutes(SLOT_MINUTES)) {
+                    LocalDateTime slotEnd = slot.plusMinutes(DURATION_MINUTES);
+                    boolean taken = false;
+                    for (Booking booking : stylistBookings) {
+                        if (booking.getAppointmentDate().isBefore(slotEnd)
+                                && booking.getAppointmentDate().plusMinutes(booking.getDurationMinutes()).isAfter(slot)) {
+                            taken = true;
+                            break;
+                        }
+                    }
+                    if (!taken) {
+                        starts.add(StylistCalendar.minutes(slot));
+                    }
+                }
+            }
+        }
+        return starts;
+    }
+
+    @Benchmark
+    public boolean bookAndCancel() {
+        StylistCalendar calendar = calendars[random.nextInt(STYLISTS)];
+        long start = StylistCalendar.minutes(from.plusDays(random.nextInt(DAYS)).withHour(9 + random.nextInt(8)));
+        String bookingId = "bench-" + bookingSequence++;
+        calendar.place(bookingId, start, start + DURATION_MINUTES);
+        boolean free = calendar.isFree(start, start + SLOT_MINUTES);
+        calendar.release(bookingId);
+        return free;
+    }
+
+    @Benchmark
+    public StylistCalendar buildCalendar() {
+        int stylist = random.nextInt(STYLISTS);
+        return StylistCalendar.build(from, to, rules.get(stylist), List.of(), bookings.get(stylist));
+    }
+
+    private List<StylistAvailability> weeklyRules(int startHour, int workingDays) {
+        List<StylistAvailability> weekly = new ArrayList<>();
+        StylistAvailability.DayOfWeek[] days = StylistAvailability.DayOfWeek.values();
+        for (int d = 0; d < workingDays; d++) {
+            weekly.add(rule(days[d], LocalTime.of(startHour, 0), LocalTime.of(12, 30)));
+            weekly.add(rule(days[d], LocalTime.of(13, 30), LocalTime.of(startHour + 9, 0)));
+        }
+        return weekly;
+    }
+
+    private List<Booking> bookings(List<StylistAvailability> weekly) {
+        List<Booking> stylistBookings = new ArrayList<>();
+        for (LocalDate day = from.toLocalDate(); day.isBefore(to.toLocalDate()); day = day.plusDays(1)) {
+            for (StylistAvailability rule : weekly) {
+                if (rule.getDayOfWeek().name().equals(day.getDayOfWeek().name()) && random.nextInt(3) > 0) {
+                    LocalDateTime start = day.atTime(rule.getStartTime()).plusMinutes(SLOT_MINUTES * random.nextInt(4));
+                    stylistBookings.add(Booking.builder()
+                            .bookingId("BK" + bookingSequence++)
+                            .appointmentDate(start)
+                            .durationMinutes(SLOT_MINUTES * (1 + random.nextInt(4)))
+                            .status(Booking.Status.CONFIRMED)
+                            .build());
+                }
+            }
+        }
+        return stylistBookings;
+    }
+
+    private static StylistAvailability rule(StylistAvailability.DayOfWeek day, LocalTime start, LocalTime end) {
+        return StylistAvailability.builder()
+                .dayOfWeek(day)
+                .startTime(start)
+                .endTime(end)
+                .isAvailable(true)
+                .slotDurationMinutes(SLOT_MINUTES)
+                .build();
+    }
+}
@@ -9,6 +9,7 @@ import tech.ceesar.glamme.booking.dto.*;
 import tech.ceesar.glamme.booking.entity.Booking;
 import tech.ceesar.glamme.booking.service.BookingService;
 import tech.ceesar.glamme.booking.service.PaymentService;
+import tech.ceesar.glamme.booking.service.SlotUnavailableException;
 import tech.ceesar.glamme.booking.service.GoogleCalendarService;
 import tech.ceesar.glamme.common.dto.ApiResponse;
 
@@ -38,6 +39,10 @@ public class BookingController {
             String customerId = authentication.getName();
             BookingResponse response = bookingService.createBooking(customerId, request);
             return ResponseEntity.ok(ApiResponse.success(response, "Booking created successfully"));
+        } catch (SlotUnavailableException e) {
+            return ResponseEntity
+                    .status(409)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity
                     .status(400)
@@ -127,10 +132,11 @@ public class BookingController {
     public ResponseEntity<ApiResponse<List<TimeSlotResponse>>> getAvailableTimeSlots(
             @PathVariable String stylistId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Integer durationMinutes
     ) {
         try {
-            List<TimeSlotResponse> response = bookingService.getAvailableTimeSlots(stylistId, startDate, endDate);
+            List<TimeSlotResponse> response = bookingService.getAvailableTimeSlots(stylistId, startDate, endDate, durationMinutes);
             return ResponseEntity.ok(ApiResponse.success(response));
         } catch (Exception e) {
             return ResponseEntity
@@ -206,6 +212,10 @@ public class BookingController {
             String userId = authentication.getName();
             BookingResponse response = bookingService.rescheduleBooking(bookingId, userId, newDateTime);
             return ResponseEntity.ok(ApiResponse.success(response, "Booking rescheduled successfully"));
+        } catch (SlotUnavailableException e) {
+            return ResponseEntity
+                    .status(409)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity
                     .status(400)
@@ -275,13 +285,13 @@ public class BookingController {
      * Bulk update booking status
      */
     @PostMapping("/bulk/status")
-    public ResponseEntity<ApiResponse<List<BookingResponse>>> bulkUpdateStatus(
+    public ResponseEntity<ApiResponse<BulkStatusUpdateResponse>> bulkUpdateStatus(
             @RequestBody BulkStatusUpdateRequest request,
             Authentication authentication
     ) {
         try {
             String userId = authentication.getName();
-            List<BookingResponse> response = bookingService.bulkUpdateBookingStatus(request.getBookingIds(), request.getStatus(), userId);
+            BulkStatusUpdateResponse response = bookingService.bulkUpdateBookingStatus(request.getBookingIds(), request.getStatus(), userId);
             return ResponseEntity.ok(ApiResponse.success(response, "Bulk status update completed"));
         } catch (Exception e) {
             return ResponseEntity
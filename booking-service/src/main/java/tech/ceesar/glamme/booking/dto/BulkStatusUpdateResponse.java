@@ -0,0 +1,46 @@
+package tech.ceesar.glamme.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tech.ceesar.glamme.booking.entity.Booking;
+
+import java.util.List;
+
+/**
+ * Bulk status update response DTO, with one result per requested booking in request order
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateResponse {
+    private Booking.Status status;
+    private int requestedCount;
+    private int updatedCount;
+    private int rejectedCount;
+    private List<ItemResult> results;
+
+    public enum Outcome {
+        UPDATED,
+        NOT_FOUND,
+        UNAUTHORIZED,
+        INVALID_TRANSITION
+    }
+
+    /**
+     * What happened to one booking; {@code booking} is set only when it was updated
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private String bookingId;
+        private Outcome outcome;
+        private Booking.Status previousStatus;
+        private String message;
+        private BookingResponse booking;
+    }
+}
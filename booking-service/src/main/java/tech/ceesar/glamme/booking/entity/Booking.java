@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -13,7 +14,10 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        // Polled by AvailabilityEngine for bookings changed on other instances
+        @Index(name = "idx_bookings_updated_at", columnList = "updated_at")
+})
 @Data
 @Builder(toBuilder = true)
 @NoArgsConstructor
@@ -68,7 +72,9 @@ public class Booking {
     @Column(name = "special_requests", columnDefinition = "TEXT")
     private String specialRequests;
     
+    // Loaded for many bookings per query when a list of bookings is read
     @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 100)
     @CollectionTable(name = "booking_addons", joinColumns = @JoinColumn(name = "booking_id"))
     @Column(name = "addon")
     private Set<String> addons;
@@ -0,0 +1,46 @@
+package tech.ceesar.glamme.booking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Number and total price of one stylist's bookings in one status on one appointment day, kept
+ * current as bookings change
+ */
+@Entity
+@Table(name = "booking_daily_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_booking_daily_rollups_key",
+                columnNames = {"stylist_id", "booking_day", "status"}),
+        indexes = @Index(name = "idx_booking_daily_rollups_day", columnList = "booking_day"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stylist_id", nullable = false)
+    private String stylistId;
+
+    @Column(name = "booking_day", nullable = false)
+    private LocalDate bookingDay;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Booking.Status status;
+
+    @Column(name = "booking_count", nullable = false)
+    private Long bookingCount;
+
+    @Column(name = "price_total", precision = 14, scale = 2, nullable = false)
+    private BigDecimal priceTotal;
+}
@@ -10,7 +10,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "booking_reminders")
+@Table(name = "booking_reminders", indexes = {
+        @Index(name = "idx_booking_reminders_due", columnList = "status, scheduled_time"),
+        @Index(name = "idx_booking_reminders_booking", columnList = "booking_id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -62,7 +65,8 @@ public class BookingReminder {
     private LocalDateTime createdAt;
     
     public enum ReminderType {
-        BOOKING_CONFIRMATION, REMINDER_24H, REMINDER_2H, CANCELLATION_NOTICE, COMPLETION_FOLLOWUP
+        BOOKING_CONFIRMATION, REMINDER_24H, REMINDER_2H, CANCELLATION_NOTICE, COMPLETION_FOLLOWUP,
+        REMINDER_1H, PAYMENT_REMINDER, NO_SHOW_CHECK
     }
     
     public enum Status {
@@ -0,0 +1,46 @@
+package tech.ceesar.glamme.booking.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * One slot bucket of a stylist's time taken by a booking. The unique key on stylist and bucket
+ * start is what finally stops two bookings from overlapping.
+ */
+@Entity
+@Table(name = "booking_slot_claims",
+        uniqueConstraints = @UniqueConstraint(name = "uk_booking_slot_claims_slot", columnNames = {"stylist_id", "slot_start"}),
+        indexes = @Index(name = "idx_booking_slot_claims_booking", columnList = "booking_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingSlotClaim {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stylist_id", nullable = false)
+    private String stylistId;
+
+    @Column(name = "slot_start", nullable = false)
+    private LocalDateTime slotStart;
+
+    @Column(name = "booking_id", nullable = false)
+    private String bookingId;
+
+    // Token of the Redis hold the claim was made under, 0 if Redis was unavailable
+    @Column(name = "fence_token", nullable = false)
+    private Long fenceToken;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
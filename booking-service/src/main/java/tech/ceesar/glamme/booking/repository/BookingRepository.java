@@ -1,12 +1,16 @@
 package tech.ceesar.glamme.booking.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tech.ceesar.glamme.booking.entity.Booking;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +18,35 @@ import java.util.Optional;
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     
     Optional<Booking> findByBookingId(String bookingId);
+
+    List<Booking> findByBookingIdIn(Collection<String> bookingIds);
+
+    List<Booking> findByUpdatedAtGreaterThanEqual(LocalDateTime updatedAt);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.bookingId IN :bookingIds ORDER BY b.id")
+    List<Booking> findByBookingIdInForUpdate(@Param("bookingIds") Collection<String> bookingIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = :status, b.updatedAt = :updatedAt WHERE b.bookingId IN :bookingIds")
+    int updateStatus(@Param("bookingIds") Collection<String> bookingIds,
+                     @Param("status") Booking.Status status,
+                     @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = :status, b.cancellationReason = :reason, b.cancelledAt = :cancelledAt, " +
+           "b.updatedAt = :cancelledAt WHERE b.bookingId IN :bookingIds")
+    int updateStatusCancelled(@Param("bookingIds") Collection<String> bookingIds,
+                              @Param("status") Booking.Status status,
+                              @Param("reason") String reason,
+                              @Param("cancelledAt") LocalDateTime cancelledAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = :status, b.completedAt = :completedAt, b.updatedAt = :completedAt " +
+           "WHERE b.bookingId IN :bookingIds")
+    int updateStatusCompleted(@Param("bookingIds") Collection<String> bookingIds,
+                              @Param("status") Booking.Status status,
+                              @Param("completedAt") LocalDateTime completedAt);
     
     List<Booking> findByCustomerId(String customerId);
     
@@ -49,4 +82,9 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     
     @Query("SELECT b FROM Booking b WHERE b.confirmationCode = :confirmationCode")
     Optional<Booking> findByConfirmationCode(@Param("confirmationCode") String confirmationCode);
-}
\ No newline at end of file
+
+    @Query("SELECT b FROM Booking b WHERE b.status IN :statuses AND b.appointmentDate > :after " +
+           "AND NOT EXISTS (SELECT r.id FROM BookingReminder r WHERE r.bookingId = b.bookingId)")
+    List<Booking> findWithoutReminders(@Param("statuses") Collection<Booking.Status> statuses,
+                                       @Param("after") LocalDateTime after);
+}
@@ -32,6 +32,15 @@ public interface BookingTimeSlotRepository extends JpaRepository<BookingTimeSlot
             @Param("stylistId") String stylistId,
             @Param("startTime") LocalDateTime startTime);
 
+    /**
+     * Find time slots by stylist ID that overlap a time range, open or blocked
+     */
+    @Query("SELECT b FROM BookingTimeSlot b WHERE b.stylistId = :stylistId AND b.startTime < :endTime AND b.endTime > :startTime")
+    List<BookingTimeSlot> findOverlapping(
+            @Param("stylistId") String stylistId,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime);
+
     /**
      * Find time slots by stylist ID
      */
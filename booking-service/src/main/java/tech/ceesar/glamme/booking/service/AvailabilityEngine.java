@@ -0,0 +1,231 @@
+package tech.ceesar.glamme.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.booking.repository.BookingRepository;
+import tech.ceesar.glamme.booking.repository.BookingTimeSlotRepository;
+import tech.ceesar.glamme.booking.repository.StylistAvailabilityRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers "which slots of D minutes are free between T1 and T2" for a stylist from an in-memory
+ * {@link StylistCalendar}, in O(log n + k) for n free intervals and k slots returned.
+ *
+ * <p>A stylist's calendar is built on first use from their availability rules, time slots and
+ * bookings over the next {@code horizon-days}, then kept up to date as bookings are created,
+ * cancelled or rescheduled. Changes are applied when their transaction commits; a change that
+ * commits while a calendar is being loaded keeps that calendar from being cached, so it never
+ * misses one. Rule changes drop the stylist's calendar, and all calendars are dropped daily so
+ * the horizon moves forward.
+ *
+ * <p>Bookings changed by other instances or by background jobs are picked up by a periodic poll on
+ * {@code updated_at}, so loaded calendars lag them by about one poll interval. Rules and time slots
+ * changed elsewhere leave no such trail, so a calendar is also rebuilt once it is older than
+ * {@code max-age-minutes}. Either way a calendar can briefly be behind, so callers must still guard
+ * the booking itself.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AvailabilityEngine {
+
+    private final StylistAvailabilityRepository stylistAvailabilityRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingTimeSlotRepository bookingTimeSlotRepository;
+
+    @Value("${booking.availability.horizon-days:90}")
+    private int horizonDays;
+
+    @Value("${booking.scheduling.slot-duration-minutes:30}")
+    private int slotDurationMinutes;
+
+    @Value("${booking.scheduling.timezone:UTC}")
+    private String timezone;
+
+    @Value("${booking.availability.max-age-minutes:10}")
+    private long maxAgeMinutes;
+
+    @Value("${booking.availability.refresh-overlap-seconds:60}")
+    private long refreshOverlapSeconds;
+
+    private final ConcurrentHashMap<String, Cached> calendars = new ConcurrentHashMap<>();
+    // Changes applied per stylist, so a load that raced one is not cached
+    private final ConcurrentHashMap<String, Long> changes = new ConcurrentHashMap<>();
+
+    // Start of the last successful poll; no calendar was loaded before startup
+    private volatile LocalDateTime refreshedFrom = LocalDateTime.now();
+
+    private record Cached(StylistCalendar calendar, long loadedAt) {
+    }
+
+    public record FreeSlot(LocalDateTime startTime, LocalDateTime endTime) {
+    }
+
+    public record AvailabilityStats(int calendars, long freeIntervals) {
+    }
+
+    /**
+     * Free slots of the default slot duration, on the slot grid
+     */
+    public List<FreeSlot> findFreeSlots(String stylistId, LocalDateTime from, LocalDateTime to) {
+        return findFreeSlots(stylistId, from, to, slotDurationMinutes);
+    }
+
+    /**
+     * Free slots of {@code durationMinutes} starting on the slot grid and lying inside
+     * {@code [from, to)}; time before now or past the horizon is never free
+     */
+    public List<FreeSlot> findFreeSlots(String stylistId, LocalDateTime from, LocalDateTime to, int durationMinutes) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Slot duration must be positive");
+        }
+        LocalDateTime now = LocalDateTime.now(ZoneId.of(timezone));
+        long start = StylistCalendar.minutes(from.isAfter(now) ? from : now);
+        return calendar(stylistId)
+                .freeSlots(start, StylistCalendar.minutes(to), durationMinutes, slotDurationMinutes)
+                .stream()
+                .map(slot -> new FreeSlot(StylistCalendar.time(slot), StylistCalendar.time(slot + durationMinutes)))
+                .toList();
+    }
+
+    /**
+     * Whether the whole of {@code [start, start + durationMinutes)} is free for the stylist
+     */
+    public boolean isFree(String stylistId, LocalDateTime start, int durationMinutes) {
+        long from = StylistCalendar.minutes(start);
+        return calendar(stylistId).isFree(from, from + durationMinutes);
+    }
+
+    /**
+     * Places, moves or releases the booking's time once the current transaction commits
+     */
+    public void bookingChanged(Booking booking) {
+        String bookingId = booking.getBookingId();
+        String stylistId = booking.getStylistId();
+        boolean occupies = StylistCalendar.occupies(booking);
+        long start = occupies ? StylistCalendar.minutes(booking.getAppointmentDate()) : 0;
+        long end = occupies ? start + booking.getDurationMinutes() : 0;
+        afterCommit(() -> apply(stylistId, bookingId, occupies, start, end));
+    }
+
+    /**
+     * Drops the stylist's calendar once the current transaction commits; it is rebuilt on next use
+     */
+    public void rulesChanged(String stylistId) {
+        afterCommit(() -> {
+            changes.merge(stylistId, 1L, Long::sum);
+            calendars.remove(stylistId);
+        });
+    }
+
+    public AvailabilityStats getStats() {
+        long intervals = 0;
+        for (Cached cached : calendars.values()) {
+            intervals += cached.calendar().intervals();
+        }
+        return new AvailabilityStats(calendars.size(), intervals);
+    }
+
+    /**
+     * Drops every calendar shortly after midnight so the next use starts the horizon from today
+     */
+    @Scheduled(cron = "${booking.availability.roll-cron:0 5 0 * * *}", zone = "${booking.scheduling.timezone:UTC}")
+    public void roll() {
+        int dropped = calendars.size();
+        calendars.clear();
+        changes.clear();
+        log.info("Dropped {} stylist calendars for the new day", dropped);
+    }
+
+    /**
+     * Applies bookings updated since the previous poll to the loaded calendars. The window overlaps
+     * the previous one so late commits and clock skew are not missed; re-applying a booking is harmless.
+     */
+    @Scheduled(fixedDelayString = "${booking.availability.refresh-interval-ms:15000}")
+    public void refresh() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            for (Booking booking : bookingRepository.findByUpdatedAtGreaterThanEqual(
+                    refreshedFrom.minusSeconds(refreshOverlapSeconds))) {
+                boolean occupies = StylistCalendar.occupies(booking);
+                long start = occupies ? StylistCalendar.minutes(booking.getAppointmentDate()) : 0;
+                apply(booking.getStylistId(), booking.getBookingId(), occupies, start,
+                        occupies ? start + booking.getDurationMinutes() : 0);
+            }
+            refreshedFrom = startedAt;
+        } catch (Exception e) {
+            log.error("Failed to refresh stylist calendars", e);
+        }
+    }
+
+    private void apply(String stylistId, String bookingId, boolean occupies, long start, long end) {
+        changes.merge(stylistId, 1L, Long::sum);
+        Cached cached = calendars.get(stylistId);
+        if (cached == null) {
+            return;
+        }
+        if (occupies) {
+            cached.calendar().place(bookingId, start, end);
+        } else {
+            cached.calendar().release(bookingId);
+        }
+    }
+
+    private StylistCalendar calendar(String stylistId) {
+        Cached cached = calendars.get(stylistId);
+        if (cached != null) {
+            if (System.nanoTime() - cached.loadedAt() < TimeUnit.MINUTES.toNanos(maxAgeMinutes)) {
+                return cached.calendar();
+            }
+            calendars.remove(stylistId, cached);
+        }
+        long loadedAt = System.nanoTime();
+        Long seen = changes.get(stylistId);
+        LocalDateTime from = LocalDate.now(ZoneId.of(timezone)).atStartOfDay();
+        LocalDateTime to = from.plusDays(horizonDays);
+        StylistCalendar calendar = StylistCalendar.build(from, to,
+                stylistAvailabilityRepository.findByStylistId(stylistId),
+                bookingTimeSlotRepository.findOverlapping(stylistId, from, to),
+                // A day early for bookings that run into the horizon
+                bookingRepository.findByStylistIdAndAppointmentDateBetween(stylistId, from.minusDays(1), to));
+        if (!Objects.equals(seen, changes.get(stylistId))) {
+            return calendar;
+        }
+        Cached loaded = new Cached(calendar, loadedAt);
+        Cached raced = calendars.putIfAbsent(stylistId, loaded);
+        if (raced != null) {
+            return raced.calendar();
+        }
+        // A change that landed between the check and the put did not see this calendar
+        if (!Objects.equals(seen, changes.get(stylistId))) {
+            calendars.remove(stylistId, loaded);
+        }
+        return calendar;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,284 @@
+package tech.ceesar.glamme.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.common.service.RedisLockService;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Booking counts per stylist, status and appointment day, for analytics that must not load the
+ * bookings themselves.
+ *
+ * <p>Every booking change moves the booking from the rollup row of its old stylist, day and status
+ * to the row of its new ones, in the transaction that makes the change. A range is answered from
+ * the rollups for the whole days it covers and from one aggregate query over {@code bookings} for
+ * the part-days at either end, so the current day is always exact. When the application starts
+ * with an empty rollup table, one instance builds it from the bookings.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingRollupService {
+
+    // Creates a missing row without failing the caller's transaction if another one just did
+    private static final String ENSURE_SQL = "INSERT INTO booking_daily_rollups "
+            + "(stylist_id, booking_day, status, booking_count, price_total) VALUES (?, ?, ?, 0, 0) ON CONFLICT DO NOTHING";
+
+    private static final String ADD_SQL = "UPDATE booking_daily_rollups "
+            + "SET booking_count = booking_count + ?, price_total = price_total + ? "
+            + "WHERE stylist_id = ? AND booking_day = ? AND status = ?";
+
+    private static final String ROLLUP_SQL = "SELECT status, SUM(booking_count), SUM(price_total) "
+            + "FROM booking_daily_rollups WHERE 1 = 1";
+
+    private static final String LIVE_SQL = "SELECT status, COUNT(*), SUM(price) FROM bookings WHERE 1 = 1";
+
+    private static final String REBUILD_SQL = "INSERT INTO booking_daily_rollups "
+            + "(stylist_id, booking_day, status, booking_count, price_total) "
+            + "SELECT stylist_id, CAST(appointment_date AS DATE), status, COUNT(*), COALESCE(SUM(price), 0) "
+            + "FROM bookings GROUP BY stylist_id, CAST(appointment_date AS DATE), status";
+
+    private static final String REBUILD_LOCK = "booking:rollups:rebuild";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisLockService redisLockService;
+
+    /**
+     * The rollup row a booking counts towards, and the price it adds
+     */
+    public record Entry(String stylistId, LocalDate day, Booking.Status status, BigDecimal price) {
+
+        private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::stylistId)
+                .thenComparing(Entry::day).thenComparing(Entry::status);
+
+        /**
+         * The booking's entry as it stands, or null if it is not counted yet
+         */
+        public static Entry of(Booking booking) {
+            if (booking == null || booking.getStylistId() == null || booking.getAppointmentDate() == null
+                    || booking.getStatus() == null) {
+                return null;
+            }
+            return new Entry(booking.getStylistId(), booking.getAppointmentDate().toLocalDate(), booking.getStatus(),
+                    booking.getPrice() != null ? booking.getPrice() : BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Booking counts and price totals by status
+     */
+    public record Counts(Map<Booking.Status, Long> bookings, Map<Booking.Status, BigDecimal> prices) {
+
+        public static Counts empty() {
+            return new Counts(new EnumMap<>(Booking.Status.class), new EnumMap<>(Booking.Status.class));
+        }
+
+        public long total() {
+            return bookings.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long count(Booking.Status status) {
+            return bookings.getOrDefault(status, 0L);
+        }
+
+        public BigDecimal price(Booking.Status status) {
+            return prices.getOrDefault(status, BigDecimal.ZERO);
+        }
+
+        private void add(Booking.Status status, long count, BigDecimal price) {
+            bookings.merge(status, count, Long::sum);
+            prices.merge(status, price != null ? price : BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+
+    private record Window(LocalDateTime from, LocalDateTime to) {
+    }
+
+    // Change to one rollup row
+    private record Delta(long count, BigDecimal price) {
+
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, price.add(other.price));
+        }
+
+        boolean isZero() {
+            return count == 0 && price.signum() == 0;
+        }
+    }
+
+    /**
+     * Moves the booking from the rollup it counted towards before the change, null for a new
+     * booking, to the one it counts towards now. Must run in the transaction that saves the change.
+     */
+    public void bookingChanged(Entry before, Booking booking) {
+        Map<Entry, Delta> deltas = new TreeMap<>(Entry.ORDER);
+        addChange(deltas, before, Entry.of(booking));
+        apply(deltas);
+    }
+
+    /**
+     * {@link #bookingChanged} for many bookings at once, in one batch of statements. {@code before}
+     * holds each booking's entry before the change by booking id, with no entry for new bookings.
+     */
+    public void bookingsChanged(Map<String, Entry> before, Collection<Booking> bookings) {
+        Map<Entry, Delta> deltas = new TreeMap<>(Entry.ORDER);
+        for (Booking booking : bookings) {
+            addChange(deltas, before.get(booking.getBookingId()), Entry.of(booking));
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Counts of bookings with appointments in {@code [from, to)}, for one stylist or all of them
+     * when {@code stylistId} is null. Either bound may be null for an open range.
+     */
+    public Counts counts(String stylistId, LocalDateTime from, LocalDateTime to) {
+        Counts counts = Counts.empty();
+        if (from != null && to != null && !from.isBefore(to)) {
+            return counts;
+        }
+        LocalDate firstDay = from == null ? null
+                : from.equals(from.toLocalDate().atStartOfDay()) ? from.toLocalDate() : from.toLocalDate().plusDays(1);
+        LocalDate endDay = to == null ? null : to.toLocalDate();
+        if (firstDay != null && endDay != null && !firstDay.isBefore(endDay)) {
+            // Not one whole day in the range
+            addLive(counts, stylistId, List.of(new Window(from, to)));
+            return counts;
+        }
+
+        StringBuilder sql = new StringBuilder(ROLLUP_SQL);
+        List<Object> args = new ArrayList<>();
+        if (stylistId != null) {
+            sql.append(" AND stylist_id = ?");
+            args.add(stylistId);
+        }
+        if (firstDay != null) {
+            sql.append(" AND booking_day >= ?");
+            args.add(Date.valueOf(firstDay));
+        }
+        if (endDay != null) {
+            sql.append(" AND booking_day < ?");
+            args.add(Date.valueOf(endDay));
+        }
+        add(counts, sql.append(" GROUP BY status").toString(), args);
+
+        List<Window> partDays = new ArrayList<>(2);
+        if (firstDay != null && from.isBefore(firstDay.atStartOfDay())) {
+            partDays.add(new Window(from, firstDay.atStartOfDay()));
+        }
+        if (endDay != null && to.isAfter(endDay.atStartOfDay())) {
+            partDays.add(new Window(endDay.atStartOfDay(), to));
+        }
+        if (!partDays.isEmpty()) {
+            addLive(counts, stylistId, partDays);
+        }
+        return counts;
+    }
+
+    /**
+     * Builds the rollups from the bookings if there are none yet
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            if (!jdbcTemplate.queryForList("SELECT id FROM booking_daily_rollups LIMIT 1", Long.class).isEmpty()
+                    || !redisLockService.acquireLock(REBUILD_LOCK, UUID.randomUUID().toString(), Duration.ofMinutes(10))) {
+                return;
+            }
+            int rows = rebuild();
+            log.info("Built {} booking rollup rows from existing bookings", rows);
+        } catch (Exception e) {
+            log.warn("Booking rollup backfill skipped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces every rollup with counts taken from the bookings. Returns the number of rollup rows.
+     */
+    int rebuild() {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM booking_daily_rollups");
+            return jdbcTemplate.update(REBUILD_SQL);
+        });
+    }
+
+    private static void addChange(Map<Entry, Delta> deltas, Entry before, Entry after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        if (before != null) {
+            deltas.merge(before, new Delta(-1, before.price().negate()), Delta::plus);
+        }
+        if (after != null) {
+            deltas.merge(after, new Delta(1, after.price()), Delta::plus);
+        }
+    }
+
+    // Rows are always locked in the same order, so crossing changes cannot deadlock
+    private void apply(Map<Entry, Delta> deltas) {
+        List<Map.Entry<Entry, Delta>> rows = deltas.entrySet().stream()
+                .filter(row -> !row.getValue().isZero())
+                .toList();
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ENSURE_SQL, rows, rows.size(), (statement, row) -> {
+            statement.setString(1, row.getKey().stylistId());
+            statement.setDate(2, Date.valueOf(row.getKey().day()));
+            statement.setString(3, row.getKey().status().name());
+        });
+        jdbcTemplate.batchUpdate(ADD_SQL, rows, rows.size(), (statement, row) -> {
+            statement.setLong(1, row.getValue().count());
+            statement.setBigDecimal(2, row.getValue().price());
+            statement.setString(3, row.getKey().stylistId());
+            statement.setDate(4, Date.valueOf(row.getKey().day()));
+            statement.setString(5, row.getKey().status().name());
+        });
+    }
+
+    // One aggregate query over the bookings in the given windows
+    private void addLive(Counts counts, String stylistId, List<Window> windows) {
+        StringBuilder sql = new StringBuilder(LIVE_SQL);
+        List<Object> args = new ArrayList<>();
+        if (stylistId != null) {
+            sql.append(" AND stylist_id = ?");
+            args.add(stylistId);
+        }
+        List<String> ranges = new ArrayList<>(windows.size());
+        for (Window window : windows) {
+            ranges.add("(appointment_date >= ? AND appointment_date < ?)");
+            args.add(Timestamp.valueOf(window.from()));
+            args.add(Timestamp.valueOf(window.to()));
+        }
+        sql.append(" AND (").append(String.join(" OR ", ranges)).append(") GROUP BY status");
+        add(counts, sql.toString(), args);
+    }
+
+    private void add(Counts counts, String sql, List<Object> args) {
+        jdbcTemplate.query(sql, row -> {
+            counts.add(Booking.Status.valueOf(row.getString(1)), row.getLong(2), row.getBigDecimal(3));
+        }, args.toArray());
+    }
+}
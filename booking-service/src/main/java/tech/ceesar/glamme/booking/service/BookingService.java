@@ -1,16 +1,27 @@
 package tech.ceesar.glamme.booking.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import tech.ceesar.glamme.booking.dto.*;
 import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.booking.entity.StylistAvailability;
 import tech.ceesar.glamme.booking.repository.BookingRepository;
+import tech.ceesar.glamme.booking.repository.StylistAvailabilityRepository;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,10 +31,31 @@ public class BookingService {
 
     private final BookingRepository bookingRepository;
     private final ReminderService reminderService;
-
-    public BookingService(BookingRepository bookingRepository, ReminderService reminderService) {
+    private final StylistAvailabilityRepository stylistAvailabilityRepository;
+    private final AvailabilityEngine availabilityEngine;
+    private final SlotReservationService slotReservationService;
+    private final ReminderScheduler reminderScheduler;
+    private final BookingRollupService bookingRollupService;
+
+    @Value("${booking.scheduling.slot-duration-minutes:30}")
+    private int slotDurationMinutes;
+
+    @Value("${booking.bulk.max-items:1000}")
+    private int bulkMaxItems;
+
+    public BookingService(BookingRepository bookingRepository, ReminderService reminderService,
+                          StylistAvailabilityRepository stylistAvailabilityRepository,
+                          AvailabilityEngine availabilityEngine,
+                          SlotReservationService slotReservationService,
+                          ReminderScheduler reminderScheduler,
+                          BookingRollupService bookingRollupService) {
         this.bookingRepository = bookingRepository;
         this.reminderService = reminderService;
+        this.stylistAvailabilityRepository = stylistAvailabilityRepository;
+        this.availabilityEngine = availabilityEngine;
+        this.slotReservationService = slotReservationService;
+        this.reminderScheduler = reminderScheduler;
+        this.bookingRollupService = bookingRollupService;
     }
 
     public BookingResponse createBooking(String customerId, BookingRequest request) {
@@ -49,7 +81,13 @@ public class BookingService {
                 .confirmationSent(false)
                 .build();
 
+        // Fails with SlotUnavailableException if the stylist's time overlaps another booking
+        slotReservationService.claim(booking.getStylistId(), bookingId, booking.getAppointmentDate(),
+                durationOf(booking));
         booking = bookingRepository.save(booking);
+        bookingRollupService.bookingChanged(null, booking);
+        availabilityEngine.bookingChanged(booking);
+        reminderScheduler.bookingChanged(booking);
 
         // Send confirmation reminder
         reminderService.sendConfirmationReminder(booking);
@@ -73,9 +111,12 @@ public class BookingService {
             throw new RuntimeException("Booking is not pending confirmation");
         }
 
+        BookingRollupService.Entry before = BookingRollupService.Entry.of(booking);
         booking.setStatus(Booking.Status.CONFIRMED);
         booking.setConfirmationSent(true);
         booking = bookingRepository.save(booking);
+        bookingRollupService.bookingChanged(before, booking);
+        reminderScheduler.bookingChanged(booking);
 
         // Send booking update notification
         reminderService.sendBookingUpdateNotification(booking, "CONFIRMED");
@@ -102,10 +143,15 @@ public class BookingService {
             throw new RuntimeException("Cannot cancel completed booking");
         }
 
+        BookingRollupService.Entry before = BookingRollupService.Entry.of(booking);
         booking.setStatus(Booking.Status.CANCELLED);
         booking.setCancellationReason(reason);
         booking.setCancelledAt(LocalDateTime.now());
         booking = bookingRepository.save(booking);
+        bookingRollupService.bookingChanged(before, booking);
+        slotReservationService.releaseClaims(bookingId);
+        availabilityEngine.bookingChanged(booking);
+        reminderScheduler.bookingChanged(booking);
 
         // Send cancellation notification
         reminderService.sendCancellationNotification(booking);
@@ -128,9 +174,12 @@ public class BookingService {
             throw new RuntimeException("Booking must be confirmed to complete");
         }
 
+        BookingRollupService.Entry before = BookingRollupService.Entry.of(booking);
         booking.setStatus(Booking.Status.COMPLETED);
         booking.setCompletedAt(LocalDateTime.now());
         booking = bookingRepository.save(booking);
+        bookingRollupService.bookingChanged(before, booking);
+        reminderScheduler.bookingChanged(booking);
 
         // Send completion notification
         reminderService.sendCompletionNotification(booking);
@@ -157,22 +206,70 @@ public class BookingService {
     }
 
     public List<TimeSlotResponse> getAvailableTimeSlots(String stylistId, LocalDateTime startDate, LocalDateTime endDate) {
-        // Simplified implementation - return empty list for now
-        return List.of();
+        return getAvailableTimeSlots(stylistId, startDate, endDate, null);
+    }
+
+    /**
+     * Free slots of the given length (the default slot length when null) between two times
+     */
+    @Transactional(readOnly = true)
+    public List<TimeSlotResponse> getAvailableTimeSlots(String stylistId, LocalDateTime startDate, LocalDateTime endDate,
+                                                        Integer durationMinutes) {
+        if (!endDate.isAfter(startDate)) {
+            throw new RuntimeException("End date must be after start date");
+        }
+        int duration = durationMinutes != null ? durationMinutes : slotDurationMinutes;
+        return availabilityEngine.findFreeSlots(stylistId, startDate, endDate, duration).stream()
+                .map(slot -> TimeSlotResponse.builder()
+                        .stylistId(stylistId)
+                        .slotDate(slot.startTime().toLocalDate().atStartOfDay())
+                        .startTime(slot.startTime())
+                        .endTime(slot.endTime())
+                        .isAvailable(true)
+                        .durationMinutes(duration)
+                        .build())
+                .collect(Collectors.toList());
     }
 
+    /**
+     * Replaces the stylist's availability rule for one day of the week
+     */
     public AvailabilityResponse setStylistAvailability(String stylistId, AvailabilityRequest request) {
-        log.info("Setting availability for stylist: {} - simplified implementation", stylistId);
-        // Simplified implementation
-        return AvailabilityResponse.builder()
+        log.info("Setting {} availability for stylist: {}", request.getDayOfWeek(), stylistId);
+
+        if (request.getDayOfWeek() == null || request.getStartTime() == null || request.getEndTime() == null) {
+            throw new RuntimeException("Day of week, start time and end time are required");
+        }
+        if (request.getStartTime().equals(request.getEndTime())) {
+            throw new RuntimeException("Start and end time must differ");
+        }
+
+        stylistAvailabilityRepository.deleteAll(
+                stylistAvailabilityRepository.findByStylistIdAndDayOfWeek(stylistId, request.getDayOfWeek()));
+        StylistAvailability availability = stylistAvailabilityRepository.save(StylistAvailability.builder()
                 .stylistId(stylistId)
-                .build();
+                .dayOfWeek(request.getDayOfWeek())
+                .startTime(request.getStartTime())
+                .endTime(request.getEndTime())
+                .isAvailable(request.getIsAvailable() == null || request.getIsAvailable())
+                .slotDurationMinutes(request.getSlotDurationMinutes() != null
+                        ? request.getSlotDurationMinutes() : slotDurationMinutes)
+                .availableServices(request.getAvailableServices() != null
+                        ? new HashSet<>(request.getAvailableServices()) : null)
+                .maxBookingsPerSlot(request.getMaxBookingsPerSlot())
+                .breakDurationMinutes(request.getBreakDurationMinutes())
+                .notes(request.getNotes())
+                .build());
+        availabilityEngine.rulesChanged(stylistId);
+
+        return mapToAvailabilityResponse(availability);
     }
 
+    @Transactional(readOnly = true)
     public List<AvailabilityResponse> getStylistAvailability(String stylistId) {
-        log.info("Getting availability for stylist: {} - simplified implementation", stylistId);
-        // Simplified implementation
-        return List.of();
+        return stylistAvailabilityRepository.findByStylistId(stylistId).stream()
+                .map(this::mapToAvailabilityResponse)
+                .collect(Collectors.toList());
     }
 
     // ==================== Additional Service Methods ====================
@@ -190,9 +287,15 @@ public class BookingService {
             throw new RuntimeException("Unauthorized to reschedule this booking");
         }
 
+        slotReservationService.move(booking.getStylistId(), bookingId, newDateTime, durationOf(booking));
+        BookingRollupService.Entry before = BookingRollupService.Entry.of(booking);
         booking.setAppointmentDate(newDateTime);
         booking.setStatus(Booking.Status.CONFIRMED);
+        booking.setReminderSent(false);
         booking = bookingRepository.save(booking);
+        bookingRollupService.bookingChanged(before, booking);
+        availabilityEngine.bookingChanged(booking);
+        reminderScheduler.bookingChanged(booking);
 
         // Send booking update notification for reschedule
         reminderService.sendBookingUpdateNotification(booking, "RESCHEDULED");
@@ -202,23 +305,27 @@ public class BookingService {
     }
 
     /**
-     * Get booking statistics for a user
+     * Get booking statistics for a user, as the stylist of their bookings
      */
+    @Transactional(readOnly = true)
     public BookingStats getBookingStats(String userId) {
-        log.info("Getting booking statistics for user: {} - simplified implementation", userId);
+        LocalDateTime now = LocalDateTime.now();
+        BookingRollupService.Counts all = bookingRollupService.counts(userId, null, null);
+        BookingRollupService.Counts upcoming = bookingRollupService.counts(userId, now, null);
+        long totalBookings = all.total();
 
         return BookingStats.builder()
-                .totalBookings(0)
-                .pendingBookings(0)
-                .confirmedBookings(0)
-                .completedBookings(0)
-                .cancelledBookings(0)
-                .noShowBookings(0)
-                .upcomingBookings(0)
-                .pastBookings(0)
-                .completionRate(0.0)
-                .cancellationRate(0.0)
-                .noShowRate(0.0)
+                .totalBookings(totalBookings)
+                .pendingBookings(all.count(Booking.Status.PENDING))
+                .confirmedBookings(all.count(Booking.Status.CONFIRMED))
+                .completedBookings(all.count(Booking.Status.COMPLETED))
+                .cancelledBookings(all.count(Booking.Status.CANCELLED))
+                .noShowBookings(all.count(Booking.Status.NO_SHOW))
+                .upcomingBookings(upcoming.count(Booking.Status.PENDING) + upcoming.count(Booking.Status.CONFIRMED))
+                .pastBookings(totalBookings - upcoming.total())
+                .completionRate(percentage(all.count(Booking.Status.COMPLETED), totalBookings))
+                .cancellationRate(percentage(all.count(Booking.Status.CANCELLED), totalBookings))
+                .noShowRate(percentage(all.count(Booking.Status.NO_SHOW), totalBookings))
                 .build();
     }
 
@@ -263,113 +370,118 @@ public class BookingService {
     }
 
     /**
-     * Bulk update booking status
+     * Moves many bookings to one status in a single pass: the bookings are locked and loaded with
+     * one query, checked in memory, changed with one UPDATE, and notified about in one batch of
+     * events once the transaction commits. Each requested booking gets a result, in request order;
+     * bookings that cannot be changed are reported and left as they are.
      */
-    public List<BookingResponse> bulkUpdateBookingStatus(List<String> bookingIds, Booking.Status newStatus, String userId) {
-        List<BookingResponse> updatedBookings = new ArrayList<>();
-
-        for (String bookingId : bookingIds) {
-            try {
-                Booking booking = bookingRepository.findByBookingId(bookingId)
-                        .orElseThrow(() -> new RuntimeException("Booking not found: " + bookingId));
-
-                // Check authorization
-                if (!booking.getCustomerId().equals(userId) && !booking.getStylistId().equals(userId)) {
-                    log.warn("Unauthorized attempt to update booking {} by user {}", bookingId, userId);
-                    continue;
-                }
-
-                // Validate status transition
-                if (!isValidStatusTransition(booking.getStatus(), newStatus)) {
-                    log.warn("Invalid status transition from {} to {} for booking {}", booking.getStatus(), newStatus, bookingId);
-                    continue;
-                }
-
-                booking.setStatus(newStatus);
-                if (newStatus == Booking.Status.CANCELLED) {
-                    booking.setCancelledAt(LocalDateTime.now());
-                    booking.setCancellationReason("Bulk update by " + userId);
-                }
-
-                booking = bookingRepository.save(booking);
-                updatedBookings.add(mapToBookingResponse(booking));
-
-                log.info("Updated booking {} status to {} by user {}", bookingId, newStatus, userId);
-
-            } catch (Exception e) {
-                log.error("Failed to update booking {}: {}", bookingId, e.getMessage());
+    public BulkStatusUpdateResponse bulkUpdateBookingStatus(List<String> bookingIds, Booking.Status newStatus, String userId) {
+        if (newStatus == null) {
+            throw new RuntimeException("Target status is required");
+        }
+        List<String> requested = bookingIds == null ? List.of()
+                : bookingIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (requested.size() > bulkMaxItems) {
+            throw new RuntimeException("At most " + bulkMaxItems + " bookings can be updated at once");
+        }
+
+        Map<String, Booking> bookings = requested.isEmpty() ? Map.of()
+                : bookingRepository.findByBookingIdInForUpdate(requested).stream()
+                        .collect(Collectors.toMap(Booking::getBookingId, Function.identity()));
+        Map<String, BulkStatusUpdateResponse.ItemResult> rejected = new HashMap<>();
+        Map<String, BookingRollupService.Entry> before = new HashMap<>();
+        List<Booking> changed = new ArrayList<>();
+        for (String bookingId : requested) {
+            Booking booking = bookings.get(bookingId);
+            if (booking == null) {
+                rejected.put(bookingId, rejection(bookingId, null,
+                        BulkStatusUpdateResponse.Outcome.NOT_FOUND, "Booking not found"));
+            } else if (!booking.getCustomerId().equals(userId) && !booking.getStylistId().equals(userId)) {
+                log.warn("Unauthorized attempt to update booking {} by user {}", bookingId, userId);
+                rejected.put(bookingId, rejection(bookingId, booking.getStatus(),
+                        BulkStatusUpdateResponse.Outcome.UNAUTHORIZED, "Unauthorized to update this booking"));
+            } else if (!isValidStatusTransition(booking.getStatus(), newStatus)) {
+                rejected.put(bookingId, rejection(bookingId, booking.getStatus(),
+                        BulkStatusUpdateResponse.Outcome.INVALID_TRANSITION,
+                        "Cannot change status from " + booking.getStatus() + " to " + newStatus));
+            } else {
+                before.put(bookingId, BookingRollupService.Entry.of(booking));
+                changed.add(booking);
             }
         }
 
-        return updatedBookings;
+        if (!changed.isEmpty()) {
+            applyStatus(changed, newStatus, userId);
+            bookingRollupService.bookingsChanged(before, changed);
+            if (newStatus == Booking.Status.CANCELLED) {
+                slotReservationService.releaseClaims(changed.stream().map(Booking::getBookingId).toList());
+            }
+            changed.forEach(availabilityEngine::bookingChanged);
+            reminderScheduler.bookingsChanged(changed);
+            afterCommit(() -> reminderService.sendStatusNotifications(changed));
+        }
+        log.info("Bulk update to {} by user {}: {} of {} bookings updated", newStatus, userId,
+                changed.size(), requested.size());
+
+        List<BulkStatusUpdateResponse.ItemResult> results = new ArrayList<>(requested.size());
+        for (String bookingId : requested) {
+            BulkStatusUpdateResponse.ItemResult result = rejected.get(bookingId);
+            results.add(result != null ? result : BulkStatusUpdateResponse.ItemResult.builder()
+                    .bookingId(bookingId)
+                    .outcome(BulkStatusUpdateResponse.Outcome.UPDATED)
+                    .previousStatus(before.get(bookingId) != null ? before.get(bookingId).status() : null)
+                    .booking(mapToBookingResponse(bookings.get(bookingId)))
+                    .build());
+        }
+        return BulkStatusUpdateResponse.builder()
+                .status(newStatus)
+                .requestedCount(requested.size())
+                .updatedCount(changed.size())
+                .rejectedCount(rejected.size())
+                .results(results)
+                .build();
     }
 
     /**
      * Get booking analytics
      */
+    @Transactional(readOnly = true)
     public BookingAnalytics getBookingAnalytics(String stylistId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Booking> allBookings;
-
-        if (stylistId != null) {
-            allBookings = bookingRepository.findByStylistId(stylistId);
-        } else {
-            // For simplicity, get all bookings (in production, you'd want a more efficient query)
-            allBookings = bookingRepository.findAll();
-        }
-
-        // Filter by date range
-        List<Booking> bookings = allBookings.stream()
-                .filter(booking -> booking.getAppointmentDate().isAfter(startDate) &&
-                                 booking.getAppointmentDate().isBefore(endDate))
-                .collect(Collectors.toList());
+        BookingRollupService.Counts counts = bookingRollupService.counts(stylistId, startDate, endDate);
 
-        int totalBookings = bookings.size();
-        int confirmedBookings = (int) bookings.stream().filter(b -> b.getStatus() == Booking.Status.CONFIRMED).count();
-        int completedBookings = (int) bookings.stream().filter(b -> b.getStatus() == Booking.Status.COMPLETED).count();
-        int cancelledBookings = (int) bookings.stream().filter(b -> b.getStatus() == Booking.Status.CANCELLED).count();
-        int noShowBookings = (int) bookings.stream().filter(b -> b.getStatus() == Booking.Status.NO_SHOW).count();
+        int totalBookings = (int) counts.total();
+        int completedBookings = (int) counts.count(Booking.Status.COMPLETED);
+        int cancelledBookings = (int) counts.count(Booking.Status.CANCELLED);
+        int noShowBookings = (int) counts.count(Booking.Status.NO_SHOW);
 
-        BigDecimal totalRevenue = bookings.stream()
-                .filter(b -> b.getStatus() == Booking.Status.COMPLETED)
-                .map(Booking::getPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalRevenue = counts.price(Booking.Status.COMPLETED);
 
         BigDecimal averageBookingValue = totalBookings > 0 ?
-                totalRevenue.divide(BigDecimal.valueOf(totalBookings), 2, BigDecimal.ROUND_HALF_UP) :
+                totalRevenue.divide(BigDecimal.valueOf(totalBookings), 2, RoundingMode.HALF_UP) :
                 BigDecimal.ZERO;
 
-        double completionRate = totalBookings > 0 ? (double) completedBookings / totalBookings * 100 : 0;
-        double cancellationRate = totalBookings > 0 ? (double) cancelledBookings / totalBookings * 100 : 0;
-        double noShowRate = totalBookings > 0 ? (double) noShowBookings / totalBookings * 100 : 0;
-
         LocalDateTime now = LocalDateTime.now();
-        int upcomingBookings = (int) bookings.stream()
-                .filter(b -> b.getAppointmentDate().isAfter(now) && b.getStatus() == Booking.Status.CONFIRMED)
-                .count();
-
-        int todaysBookings = (int) bookings.stream()
-                .filter(b -> b.getAppointmentDate().toLocalDate().equals(now.toLocalDate()))
-                .count();
-
-        int weeklyBookings = (int) bookings.stream()
-                .filter(b -> b.getAppointmentDate().isAfter(now.minusWeeks(1)))
-                .count();
-
-        int monthlyBookings = (int) bookings.stream()
-                .filter(b -> b.getAppointmentDate().isAfter(now.minusMonths(1)))
-                .count();
+        LocalDateTime today = now.toLocalDate().atStartOfDay();
+        int upcomingBookings = (int) bookingRollupService.counts(stylistId, latest(startDate, now), endDate)
+                .count(Booking.Status.CONFIRMED);
+        int todaysBookings = (int) bookingRollupService.counts(stylistId, latest(startDate, today),
+                earliest(endDate, today.plusDays(1))).total();
+        int weeklyBookings = (int) bookingRollupService.counts(stylistId, latest(startDate, now.minusWeeks(1)), endDate)
+                .total();
+        int monthlyBookings = (int) bookingRollupService.counts(stylistId, latest(startDate, now.minusMonths(1)), endDate)
+                .total();
 
         return BookingAnalytics.builder()
                 .totalBookings(totalBookings)
-                .confirmedBookings(confirmedBookings)
+                .confirmedBookings((int) counts.count(Booking.Status.CONFIRMED))
                 .completedBookings(completedBookings)
                 .cancelledBookings(cancelledBookings)
                 .noShowBookings(noShowBookings)
                 .totalRevenue(totalRevenue)
                 .averageBookingValue(averageBookingValue)
-                .completionRate(completionRate)
-                .cancellationRate(cancellationRate)
-                .noShowRate(noShowRate)
+                .completionRate(percentage(completedBookings, totalBookings))
+                .cancellationRate(percentage(cancelledBookings, totalBookings))
+                .noShowRate(percentage(noShowBookings, totalBookings))
                 .upcomingBookings(upcomingBookings)
                 .todaysBookings(todaysBookings)
                 .weeklyBookings(weeklyBookings)
@@ -409,6 +521,55 @@ public class BookingService {
 
     // ==================== Helper Methods ====================
 
+    // One UPDATE for all the bookings; the loaded copies are detached by it and brought up to date
+    private void applyStatus(List<Booking> bookings, Booking.Status newStatus, String userId) {
+        List<String> bookingIds = bookings.stream().map(Booking::getBookingId).toList();
+        LocalDateTime now = LocalDateTime.now();
+        String reason = "Bulk update by " + userId;
+        int updated = switch (newStatus) {
+            case CANCELLED -> bookingRepository.updateStatusCancelled(bookingIds, newStatus, reason, now);
+            case COMPLETED -> bookingRepository.updateStatusCompleted(bookingIds, newStatus, now);
+            default -> bookingRepository.updateStatus(bookingIds, newStatus, now);
+        };
+        if (updated != bookingIds.size()) {
+            throw new RuntimeException("Bookings changed during bulk update, please retry");
+        }
+        for (Booking booking : bookings) {
+            booking.setStatus(newStatus);
+            booking.setUpdatedAt(now);
+            if (newStatus == Booking.Status.CANCELLED) {
+                booking.setCancellationReason(reason);
+                booking.setCancelledAt(now);
+            } else if (newStatus == Booking.Status.COMPLETED) {
+                booking.setCompletedAt(now);
+            }
+        }
+    }
+
+    private static BulkStatusUpdateResponse.ItemResult rejection(String bookingId, Booking.Status status,
+                                                                 BulkStatusUpdateResponse.Outcome outcome, String message) {
+        return BulkStatusUpdateResponse.ItemResult.builder()
+                .bookingId(bookingId)
+                .outcome(outcome)
+                .previousStatus(status)
+                .message(message)
+                .build();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+
     private String generateBookingId() {
         return "BK" + System.currentTimeMillis() + (int) (Math.random() * 1000);
     }
@@ -417,6 +578,42 @@ public class BookingService {
         return String.format("%06d", (int) (Math.random() * 1000000));
     }
 
+    private AvailabilityResponse mapToAvailabilityResponse(StylistAvailability availability) {
+        return AvailabilityResponse.builder()
+                .id(availability.getId())
+                .stylistId(availability.getStylistId())
+                .dayOfWeek(availability.getDayOfWeek())
+                .startTime(availability.getStartTime())
+                .endTime(availability.getEndTime())
+                .isAvailable(availability.getIsAvailable())
+                .slotDurationMinutes(availability.getSlotDurationMinutes())
+                .availableServices(availability.getAvailableServices() != null
+                        ? new ArrayList<>(availability.getAvailableServices()) : null)
+                .maxBookingsPerSlot(availability.getMaxBookingsPerSlot())
+                .breakDurationMinutes(availability.getBreakDurationMinutes())
+                .notes(availability.getNotes())
+                .createdAt(availability.getCreatedAt())
+                .updatedAt(availability.getUpdatedAt())
+                .build();
+    }
+
+    private static double percentage(long part, long total) {
+        return total > 0 ? (double) part / total * 100 : 0;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isAfter(a) ? b : a;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+
+    // Bookings without a duration hold one default slot
+    private int durationOf(Booking booking) {
+        return booking.getDurationMinutes() != null ? booking.getDurationMinutes() : slotDurationMinutes;
+    }
+
     private BookingResponse mapToBookingResponse(Booking booking) {
         return BookingResponse.builder()
                 .id(booking.getId())
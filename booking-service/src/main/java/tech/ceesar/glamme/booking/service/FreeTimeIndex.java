@@ -0,0 +1,83 @@
+package tech.ceesar.glamme.booking.service;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A set of minutes kept as disjoint, non-adjacent half-open intervals {@code [start, end)} in a
+ * tree keyed by start. Adding merges with neighbours and removing splits, both in O(log n) plus
+ * the intervals touched; visiting the intervals that overlap a window is O(log n + k).
+ *
+ * <p>Not thread-safe; {@link StylistCalendar} guards it.
+ */
+final class FreeTimeIndex {
+
+    interface IntervalVisitor {
+        void visit(long start, long end);
+    }
+
+    private final TreeMap<Long, Long> intervals = new TreeMap<>();
+
+    void add(long start, long end) {
+        if (start >= end) {
+            return;
+        }
+        // Absorb an interval that ends at or after our start, then every one starting inside
+        Map.Entry<Long, Long> before = intervals.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        NavigableMap<Long, Long> covered = intervals.subMap(start, true, end, true);
+        if (!covered.isEmpty()) {
+            end = Math.max(end, covered.lastEntry().getValue());
+            covered.clear();
+        }
+        intervals.put(start, end);
+    }
+
+    void remove(long start, long end) {
+        if (start >= end) {
+            return;
+        }
+        Map.Entry<Long, Long> before = intervals.lowerEntry(start);
+        if (before != null && before.getValue() > start) {
+            intervals.put(before.getKey(), start);
+            if (before.getValue() > end) {
+                intervals.put(end, before.getValue());
+                return;
+            }
+        }
+        NavigableMap<Long, Long> covered = intervals.subMap(start, true, end, false);
+        if (!covered.isEmpty()) {
+            long lastEnd = covered.lastEntry().getValue();
+            covered.clear();
+            if (lastEnd > end) {
+                intervals.put(end, lastEnd);
+            }
+        }
+    }
+
+    boolean contains(long start, long end) {
+        Map.Entry<Long, Long> holder = intervals.floorEntry(start);
+        return holder != null && holder.getValue() >= end;
+    }
+
+    /**
+     * Calls {@code visitor} with the part of each interval that lies inside {@code [from, to)}, in order
+     */
+    void forEachIn(long from, long to, IntervalVisitor visitor) {
+        Map.Entry<Long, Long> before = intervals.lowerEntry(from);
+        if (before != null && before.getValue() > from) {
+            visitor.visit(from, Math.min(before.getValue(), to));
+        }
+        for (Map.Entry<Long, Long> interval : intervals.subMap(from, true, to, false).entrySet()) {
+            visitor.visit(interval.getKey(), Math.min(interval.getValue(), to));
+        }
+    }
+
+    int size() {
+        return intervals.size();
+    }
+}
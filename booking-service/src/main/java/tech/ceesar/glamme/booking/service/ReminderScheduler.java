@@ -0,0 +1,302 @@
+package tech.ceesar.glamme.booking.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.booking.entity.BookingReminder;
+import tech.ceesar.glamme.booking.repository.BookingRepository;
+import tech.ceesar.glamme.common.service.RedisLockService;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fires timed booking reminders at their due time.
+ *
+ * <p>{@code booking_reminders} is the queue: each reminder is a row keyed on {@code scheduled_time},
+ * written in the same transaction as the booking change that planned it. One timer per instance
+ * sleeps until the earliest open row is due, then claims due rows in batches with
+ * {@code FOR UPDATE SKIP LOCKED}, so instances share the work without sending a reminder twice.
+ * Rows move through the states of {@link tech.ceesar.glamme.booking.repository.BookingReminderRepository}:
+ * a PENDING row that fails becomes FAILED and is due again after a growing delay, until
+ * {@code max-retries}. Reminders planned on this instance wake its timer once their transaction
+ * commits; the timer also looks at the table every {@code idle-poll-seconds} for reminders planned
+ * elsewhere or left behind by an instance that stopped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReminderScheduler {
+
+    private static final String INSERT_SQL = "INSERT INTO booking_reminders (booking_id, reminder_type, scheduled_time, "
+            + "status, delivery_method, retry_count, created_at) VALUES (?, ?, ?, 'PENDING', ?, 0, ?)";
+
+    private static final String CANCEL_OPEN_SQL = "UPDATE booking_reminders SET status = 'CANCELLED' "
+            + "WHERE booking_id = ? AND status IN ('PENDING', 'FAILED')";
+
+    private static final String OPEN = "(status = 'PENDING' OR (status = 'FAILED' AND COALESCE(retry_count, 0) < ?))";
+
+    private static final String CLAIM_SQL = "SELECT id, booking_id, reminder_type, retry_count FROM booking_reminders "
+            + "WHERE scheduled_time <= ? AND " + OPEN + " ORDER BY scheduled_time LIMIT ? FOR UPDATE";
+
+    private static final String NEXT_DUE_SQL = "SELECT MIN(scheduled_time) FROM booking_reminders WHERE " + OPEN;
+
+    private static final String SENT_SQL = "UPDATE booking_reminders SET status = 'SENT', sent_at = ? WHERE id = ?";
+
+    private static final String SKIPPED_SQL = "UPDATE booking_reminders SET status = 'CANCELLED' WHERE id = ?";
+
+    private static final String FAILED_SQL = "UPDATE booking_reminders SET status = 'FAILED', "
+            + "retry_count = COALESCE(retry_count, 0) + 1, error_message = ?, scheduled_time = ? WHERE id = ?";
+
+    private static final String BACKFILL_LOCK = "booking:reminders:backfill";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingRepository bookingRepository;
+    private final ReminderService reminderService;
+    private final RedisLockService redisLockService;
+
+    @Value("${booking.reminders.batch-size:100}")
+    private int batchSize;
+
+    @Value("${booking.reminders.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${booking.reminders.retry-delay-seconds:60}")
+    private long retryDelaySeconds;
+
+    @Value("${booking.reminders.idle-poll-seconds:30}")
+    private long idlePollSeconds;
+
+    // Lets several instances dispatch at once; turn off on databases without SKIP LOCKED
+    @Value("${booking.reminders.skip-locked:true}")
+    private boolean skipLocked;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reminder-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean started;
+    private ScheduledFuture<?> wake;
+    private LocalDateTime wakeTime;
+
+    private record Claimed(long id, String bookingId, BookingReminder.ReminderType type, int retryCount) {
+    }
+
+    private record Batch(int claimed, int sent) {
+    }
+
+    /**
+     * Replans the booking's reminders for its current state in the current transaction. Reminders
+     * already sent stay sent; open ones are replaced, or just cancelled once the booking is over.
+     */
+    public void bookingChanged(Booking booking) {
+        bookingsChanged(List.of(booking));
+    }
+
+    /**
+     * {@link #bookingChanged} for many bookings at once, in one batch of statements per step
+     */
+    public void bookingsChanged(Collection<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(CANCEL_OPEN_SQL, bookings, batchSize,
+                (statement, booking) -> statement.setString(1, booking.getBookingId()));
+        LocalDateTime planned = LocalDateTime.now();
+        List<BookingReminder> reminders = bookings.stream()
+                .filter(booking -> booking.getStatus() == Booking.Status.PENDING
+                        || booking.getStatus() == Booking.Status.CONFIRMED)
+                .flatMap(booking -> reminderService.planReminders(booking, planned).stream())
+                .toList();
+        if (reminders.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(planned);
+        jdbcTemplate.batchUpdate(INSERT_SQL, reminders, batchSize, (statement, reminder) -> {
+            statement.setString(1, reminder.getBookingId());
+            statement.setString(2, reminder.getReminderType().name());
+            statement.setTimestamp(3, Timestamp.valueOf(reminder.getScheduledTime()));
+            statement.setString(4, reminder.getDeliveryMethod().name());
+            statement.setTimestamp(5, now);
+        });
+        LocalDateTime first = reminders.stream().map(BookingReminder::getScheduledTime)
+                .min(LocalDateTime::compareTo).orElseThrow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeAt(first);
+                }
+            });
+        } else {
+            wakeAt(first);
+        }
+    }
+
+    /**
+     * Plans reminders for upcoming bookings made before this scheduler existed, then starts the timer
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            backfill();
+        } catch (Exception e) {
+            log.warn("Reminder backfill skipped: {}", e.getMessage());
+        }
+        synchronized (this) {
+            started = true;
+        }
+        wakeAt(LocalDateTime.now());
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Sends every reminder that is due, batch by batch. Returns the number sent.
+     */
+    int dispatch() {
+        int sent = 0;
+        Batch batch = new Batch(batchSize, 0);
+        while (batch.claimed() == batchSize) {
+            batch = transactionTemplate.execute(status -> dispatchBatch());
+            sent += batch.sent();
+        }
+        return sent;
+    }
+
+    /**
+     * Earliest due time of an open reminder, or null if there is none
+     */
+    LocalDateTime nextDue() {
+        Timestamp due = jdbcTemplate.queryForObject(NEXT_DUE_SQL, Timestamp.class, maxRetries);
+        return due != null ? due.toLocalDateTime() : null;
+    }
+
+    // Keeps the earliest of the requested wake-ups; nothing runs before the application is ready
+    private synchronized void wakeAt(LocalDateTime due) {
+        if (!started || timer.isShutdown() || (wake != null && !wakeTime.isAfter(due))) {
+            return;
+        }
+        if (wake != null) {
+            wake.cancel(false);
+        }
+        wakeTime = due;
+        long delay = Math.max(0, Duration.between(LocalDateTime.now(), due).toMillis());
+        try {
+            wake = timer.schedule(this::tick, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            wake = null;
+            log.warn("Reminder timer not scheduled: {}", e.getMessage());
+        }
+    }
+
+    private void tick() {
+        synchronized (this) {
+            wake = null;
+            wakeTime = null;
+        }
+        LocalDateTime next = LocalDateTime.now().plusSeconds(idlePollSeconds);
+        try {
+            dispatch();
+            LocalDateTime due = nextDue();
+            if (due != null && due.isBefore(next)) {
+                next = due;
+            }
+        } catch (Exception e) {
+            // Waits for the idle poll rather than spinning on a batch that cannot commit
+            log.error("Failed to dispatch booking reminders", e);
+        }
+        wakeAt(next);
+    }
+
+    /**
+     * Claims the next due batch, sends it and settles the rows
+     */
+    private Batch dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Claimed> due = jdbcTemplate.query(skipLocked ? CLAIM_SQL + " SKIP LOCKED" : CLAIM_SQL,
+                (row, n) -> new Claimed(row.getLong("id"), row.getString("booking_id"),
+                        BookingReminder.ReminderType.valueOf(row.getString("reminder_type")), row.getInt("retry_count")),
+                Timestamp.valueOf(now), maxRetries, batchSize);
+        if (due.isEmpty()) {
+            return new Batch(0, 0);
+        }
+
+        Map<String, Booking> bookings = bookingRepository.findByBookingIdIn(
+                        due.stream().map(Claimed::bookingId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Booking::getBookingId, Function.identity(), (first, second) -> first));
+        List<Object[]> sent = new ArrayList<>();
+        List<Object[]> skipped = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        for (Claimed reminder : due) {
+            try {
+                Booking booking = bookings.get(reminder.bookingId());
+                if (booking != null && reminderService.deliver(reminder.type(), booking)) {
+                    sent.add(new Object[]{Timestamp.valueOf(now), reminder.id()});
+                } else {
+                    skipped.add(new Object[]{reminder.id()});
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to send {} reminder for booking {}: {}", reminder.type(), reminder.bookingId(), e.getMessage());
+                long delay = retryDelaySeconds << Math.min(reminder.retryCount(), 20);
+                failed.add(new Object[]{String.valueOf(e.getMessage()), Timestamp.valueOf(now.plusSeconds(delay)), reminder.id()});
+            }
+        }
+        settle(SENT_SQL, sent);
+        settle(SKIPPED_SQL, skipped);
+        settle(FAILED_SQL, failed);
+        if (!sent.isEmpty()) {
+            log.info("Sent {} of {} due booking reminders", sent.size(), due.size());
+        }
+        return new Batch(due.size(), sent.size());
+    }
+
+    private void settle(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+
+    // One instance per deployment window plans the legacy bookings; the lock is left to expire
+    private void backfill() {
+        if (!redisLockService.acquireLock(BACKFILL_LOCK, UUID.randomUUID().toString(), Duration.ofMinutes(10))) {
+            return;
+        }
+        int planned = transactionTemplate.execute(status -> {
+            List<Booking> bookings = bookingRepository.findWithoutReminders(
+                    List.of(Booking.Status.PENDING, Booking.Status.CONFIRMED), LocalDateTime.now().minusHours(1));
+            bookingsChanged(bookings);
+            return bookings.size();
+        });
+        if (planned > 0) {
+            log.info("Planned reminders for {} existing bookings", planned);
+        }
+    }
+}
@@ -2,76 +2,117 @@ package tech.ceesar.glamme.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.booking.entity.BookingReminder;
 import tech.ceesar.glamme.booking.repository.BookingRepository;
+import tech.ceesar.glamme.common.event.EventPublisher;
 import tech.ceesar.glamme.common.service.EventService;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Service for managing booking reminders and notifications
+ * Service for managing booking reminders and notifications.
+ * Timed reminders are planned here and fired at their due time by {@link ReminderScheduler}.
  */
 @Service
 @Slf4j
 public class ReminderService {
 
+    private static final int FINAL_REMINDER_HOURS_BEFORE = 1;
+    private static final int PAYMENT_REMINDER_HOURS_BEFORE = 48;
+    private static final int NO_SHOW_GRACE_MINUTES = 30;
+
     private final BookingRepository bookingRepository;
     private final EventService eventService;
+    private final BookingRollupService bookingRollupService;
+
+    @Value("${booking.notifications.reminder-hours-before:24}")
+    private int reminderHoursBefore = 24;
 
-    public ReminderService(BookingRepository bookingRepository, EventService eventService) {
+    public ReminderService(BookingRepository bookingRepository, EventService eventService,
+                           BookingRollupService bookingRollupService) {
         this.bookingRepository = bookingRepository;
         this.eventService = eventService;
+        this.bookingRollupService = bookingRollupService;
     }
 
     /**
-     * Send reminder for booking 24 hours before appointment
+     * Timed reminders for a booking in its current state that fall due after {@code now}
      */
-    @Scheduled(fixedRate = 3600000) // Run every hour
-    public void send24HourReminders() {
-        log.info("Checking for bookings requiring 24-hour reminders");
-
-        LocalDateTime targetTime = LocalDateTime.now().plusHours(24);
-        LocalDateTime windowStart = targetTime.minusMinutes(30);
-        LocalDateTime windowEnd = targetTime.plusMinutes(30);
-
-        List<Booking> bookings = bookingRepository.findByAppointmentDateBetween(windowStart, windowEnd);
-
-        for (Booking booking : bookings) {
-            if (!booking.getReminderSent() && booking.getStatus() == Booking.Status.CONFIRMED) {
-                sendReminder(booking, "24_HOUR");
-                booking.setReminderSent(true);
-                bookingRepository.save(booking);
-            }
+    public List<BookingReminder> planReminders(Booking booking, LocalDateTime now) {
+        LocalDateTime appointment = booking.getAppointmentDate();
+        List<BookingReminder> reminders = new ArrayList<>();
+        if (appointment.minusHours(reminderHoursBefore).isAfter(now)) {
+            reminders.add(reminder(booking, BookingReminder.ReminderType.REMINDER_24H,
+                    appointment.minusHours(reminderHoursBefore)));
         }
-
-        log.info("Sent 24-hour reminders for {} bookings", bookings.size());
+        if (appointment.minusHours(FINAL_REMINDER_HOURS_BEFORE).isAfter(now)) {
+            reminders.add(reminder(booking, BookingReminder.ReminderType.REMINDER_1H,
+                    appointment.minusHours(FINAL_REMINDER_HOURS_BEFORE)));
+        }
+        if (booking.getPaymentStatus() == Booking.PaymentStatus.PENDING && appointment.isAfter(now)) {
+            // Inside the window already: remind straight away
+            LocalDateTime due = appointment.minusHours(PAYMENT_REMINDER_HOURS_BEFORE);
+            reminders.add(reminder(booking, BookingReminder.ReminderType.PAYMENT_REMINDER, due.isAfter(now) ? due : now));
+        }
+        if (appointment.plusMinutes(NO_SHOW_GRACE_MINUTES).isAfter(now)) {
+            reminders.add(reminder(booking, BookingReminder.ReminderType.NO_SHOW_CHECK,
+                    appointment.plusMinutes(NO_SHOW_GRACE_MINUTES)));
+        }
+        return reminders;
     }
 
     /**
-     * Send reminder for booking 1 hour before appointment
+     * Sends a due reminder if it still applies to the booking; returns false if it no longer does
      */
-    @Scheduled(fixedRate = 900000) // Run every 15 minutes
-    public void send1HourReminders() {
-        log.info("Checking for bookings requiring 1-hour reminders");
-
-        LocalDateTime targetTime = LocalDateTime.now().plusHours(1);
-        LocalDateTime windowStart = targetTime.minusMinutes(15);
-        LocalDateTime windowEnd = targetTime.plusMinutes(15);
-
-        List<Booking> bookings = bookingRepository.findByAppointmentDateBetween(windowStart, windowEnd);
-
-        for (Booking booking : bookings) {
-            if (!booking.getConfirmationSent() && booking.getStatus() == Booking.Status.CONFIRMED) {
+    public boolean deliver(BookingReminder.ReminderType type, Booking booking) {
+        LocalDateTime now = LocalDateTime.now();
+        if (booking.getStatus() != Booking.Status.CONFIRMED) {
+            return false;
+        }
+        boolean upcoming = booking.getAppointmentDate().isAfter(now);
+        switch (type) {
+            case REMINDER_24H -> {
+                if (!upcoming) {
+                    return false;
+                }
+                sendReminder(booking, "24_HOUR");
+                booking.setReminderSent(true);
+                bookingRepository.save(booking);
+            }
+            case REMINDER_1H -> {
+                if (!upcoming) {
+                    return false;
+                }
                 sendReminder(booking, "1_HOUR");
-                booking.setConfirmationSent(true);
+            }
+            case PAYMENT_REMINDER -> {
+                if (!upcoming || booking.getPaymentStatus() != Booking.PaymentStatus.PENDING) {
+                    return false;
+                }
+                sendPaymentReminder(booking);
+            }
+            case NO_SHOW_CHECK -> {
+                if (booking.getAppointmentDate().isAfter(now.minusMinutes(NO_SHOW_GRACE_MINUTES))) {
+                    return false;
+                }
+                BookingRollupService.Entry before = BookingRollupService.Entry.of(booking);
+                booking.setStatus(Booking.Status.NO_SHOW);
                 bookingRepository.save(booking);
+                bookingRollupService.bookingChanged(before, booking);
+                sendNoShowNotification(booking);
+                log.info("Marked booking as no-show: {}", booking.getBookingId());
+            }
+            default -> {
+                return false;
             }
         }
-
-        log.info("Sent 1-hour reminders for {} bookings", bookings.size());
+        return true;
     }
 
     /**
@@ -100,15 +141,7 @@ public class ReminderService {
     public void sendBookingUpdateNotification(Booking booking, String updateType) {
         log.info("Sending {} update notification for booking: {}", updateType, booking.getBookingId());
 
-        eventService.publishEvent("glamme-bus", "booking-service", "booking.update_notification", java.util.Map.of(
-                "bookingId", booking.getBookingId(),
-                "customerId", booking.getCustomerId(),
-                "stylistId", booking.getStylistId(),
-                "appointmentDate", booking.getAppointmentDate().toString(),
-                "serviceName", booking.getServiceName(),
-                "updateType", updateType,
-                "status", booking.getStatus().toString()
-        ));
+        eventService.publishEvent("glamme-bus", "booking-service", "booking.update_notification", updateDetail(booking, updateType));
 
         log.info("Update notification sent for booking: {}", booking.getBookingId());
     }
@@ -119,15 +152,7 @@ public class ReminderService {
     public void sendCancellationNotification(Booking booking) {
         log.info("Sending cancellation notification for booking: {}", booking.getBookingId());
 
-        eventService.publishEvent("glamme-bus", "booking-service", "booking.cancellation_notification", java.util.Map.of(
-                "bookingId", booking.getBookingId(),
-                "customerId", booking.getCustomerId(),
-                "stylistId", booking.getStylistId(),
-                "appointmentDate", booking.getAppointmentDate().toString(),
-                "serviceName", booking.getServiceName(),
-                "cancellationReason", booking.getCancellationReason(),
-                "cancelledAt", booking.getCancelledAt().toString()
-        ));
+        eventService.publishEvent("glamme-bus", "booking-service", "booking.cancellation_notification", cancellationDetail(booking));
 
         log.info("Cancellation notification sent for booking: {}", booking.getBookingId());
     }
@@ -138,43 +163,11 @@ public class ReminderService {
     public void sendCompletionNotification(Booking booking) {
         log.info("Sending completion notification for booking: {}", booking.getBookingId());
 
-        eventService.publishEvent("glamme-bus", "booking-service", "booking.completion_notification", java.util.Map.of(
-                "bookingId", booking.getBookingId(),
-                "customerId", booking.getCustomerId(),
-                "stylistId", booking.getStylistId(),
-                "appointmentDate", booking.getAppointmentDate().toString(),
-                "serviceName", booking.getServiceName(),
-                "completedAt", booking.getCompletedAt().toString(),
-                "price", booking.getPrice().toString()
-        ));
+        eventService.publishEvent("glamme-bus", "booking-service", "booking.completion_notification", completionDetail(booking));
 
         log.info("Completion notification sent for booking: {}", booking.getBookingId());
     }
 
-    /**
-     * Send payment reminder for pending payments
-     */
-    @Scheduled(fixedRate = 21600000) // Run every 6 hours
-    public void sendPaymentReminders() {
-        log.info("Checking for bookings requiring payment reminders");
-
-        // Find bookings that are pending payment and appointment is within 48 hours
-        LocalDateTime cutoffTime = LocalDateTime.now().plusHours(48);
-
-        List<Booking> pendingBookings = bookingRepository.findByAppointmentDateBetween(
-                LocalDateTime.now(), cutoffTime);
-
-        for (Booking booking : pendingBookings) {
-            if (booking.getPaymentStatus() == Booking.PaymentStatus.PENDING &&
-                booking.getStatus() == Booking.Status.CONFIRMED) {
-
-                sendPaymentReminder(booking);
-            }
-        }
-
-        log.info("Sent payment reminders for {} pending bookings", pendingBookings.size());
-    }
-
     /**
      * Send payment reminder
      */
@@ -200,14 +193,7 @@ public class ReminderService {
     public void sendNoShowNotification(Booking booking) {
         log.info("Sending no-show notification for booking: {}", booking.getBookingId());
 
-        eventService.publishEvent("glamme-bus", "booking-service", "booking.no_show_notification", java.util.Map.of(
-                "bookingId", booking.getBookingId(),
-                "customerId", booking.getCustomerId(),
-                "stylistId", booking.getStylistId(),
-                "appointmentDate", booking.getAppointmentDate().toString(),
-                "serviceName", booking.getServiceName(),
-                "scheduledTime", booking.getAppointmentDate().toString()
-        ));
+        eventService.publishEvent("glamme-bus", "booking-service", "booking.no_show_notification", noShowDetail(booking));
 
         log.info("No-show notification sent for booking: {}", booking.getBookingId());
     }
@@ -218,18 +204,37 @@ public class ReminderService {
     public void sendFeedbackRequest(Booking booking) {
         log.info("Sending feedback request for booking: {}", booking.getBookingId());
 
-        eventService.publishEvent("glamme-bus", "booking-service", "booking.feedback_request", java.util.Map.of(
-                "bookingId", booking.getBookingId(),
-                "customerId", booking.getCustomerId(),
-                "stylistId", booking.getStylistId(),
-                "appointmentDate", booking.getAppointmentDate().toString(),
-                "serviceName", booking.getServiceName(),
-                "completedAt", booking.getCompletedAt().toString()
-        ));
+        eventService.publishEvent("glamme-bus", "booking-service", "booking.feedback_request", feedbackDetail(booking));
 
         log.info("Feedback request sent for booking: {}", booking.getBookingId());
     }
 
+    /**
+     * Sends the notification for each booking's new status as one batch of events, for status
+     * changes applied to many bookings at once
+     */
+    public void sendStatusNotifications(List<Booking> bookings) {
+        List<EventPublisher.OutgoingEvent> events = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            switch (booking.getStatus()) {
+                case CONFIRMED -> events.add(new EventPublisher.OutgoingEvent("booking.update_notification",
+                        updateDetail(booking, "CONFIRMED")));
+                case CANCELLED -> events.add(new EventPublisher.OutgoingEvent("booking.cancellation_notification",
+                        cancellationDetail(booking)));
+                case COMPLETED -> {
+                    events.add(new EventPublisher.OutgoingEvent("booking.completion_notification", completionDetail(booking)));
+                    events.add(new EventPublisher.OutgoingEvent("booking.feedback_request", feedbackDetail(booking)));
+                }
+                case NO_SHOW -> events.add(new EventPublisher.OutgoingEvent("booking.no_show_notification",
+                        noShowDetail(booking)));
+                default -> {
+                }
+            }
+        }
+        int sent = eventService.publishEvents("glamme-bus", "booking-service", events);
+        log.info("Sent {} of {} status notifications for {} bookings", sent, events.size(), bookings.size());
+    }
+
     /**
      * Generic reminder sending method
      */
@@ -250,31 +255,73 @@ public class ReminderService {
         log.info("{} reminder sent for booking: {}", reminderType, booking.getBookingId());
     }
 
-    /**
-     * Check for expired bookings and mark as no-show
-     */
-    @Scheduled(fixedRate = 1800000) // Run every 30 minutes
-    public void processExpiredBookings() {
-        log.info("Checking for expired bookings");
-
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(30);
-
-        List<Booking> expiredBookings = bookingRepository.findByAppointmentDateBetween(
-                cutoffTime.minusHours(24), cutoffTime);
+    private static BookingReminder reminder(Booking booking, BookingReminder.ReminderType type, LocalDateTime due) {
+        return BookingReminder.builder()
+                .bookingId(booking.getBookingId())
+                .reminderType(type)
+                .scheduledTime(due)
+                .status(BookingReminder.Status.PENDING)
+                .deliveryMethod(type == BookingReminder.ReminderType.NO_SHOW_CHECK
+                        ? BookingReminder.DeliveryMethod.IN_APP : BookingReminder.DeliveryMethod.PUSH_NOTIFICATION)
+                .retryCount(0)
+                .build();
+    }
 
-        for (Booking booking : expiredBookings) {
-            if (booking.getStatus() == Booking.Status.CONFIRMED &&
-                booking.getAppointmentDate().isBefore(cutoffTime)) {
+    private static Map<String, Object> updateDetail(Booking booking, String updateType) {
+        return Map.of(
+                "bookingId", booking.getBookingId(),
+                "customerId", booking.getCustomerId(),
+                "stylistId", booking.getStylistId(),
+                "appointmentDate", booking.getAppointmentDate().toString(),
+                "serviceName", booking.getServiceName(),
+                "updateType", updateType,
+                "status", booking.getStatus().toString()
+        );
+    }
 
-                booking.setStatus(Booking.Status.NO_SHOW);
-                bookingRepository.save(booking);
+    private static Map<String, Object> cancellationDetail(Booking booking) {
+        return Map.of(
+                "bookingId", booking.getBookingId(),
+                "customerId", booking.getCustomerId(),
+                "stylistId", booking.getStylistId(),
+                "appointmentDate", booking.getAppointmentDate().toString(),
+                "serviceName", booking.getServiceName(),
+                "cancellationReason", booking.getCancellationReason(),
+                "cancelledAt", booking.getCancelledAt().toString()
+        );
+    }
 
-                sendNoShowNotification(booking);
+    private static Map<String, Object> completionDetail(Booking booking) {
+        return Map.of(
+                "bookingId", booking.getBookingId(),
+                "customerId", booking.getCustomerId(),
+                "stylistId", booking.getStylistId(),
+                "appointmentDate", booking.getAppointmentDate().toString(),
+                "serviceName", booking.getServiceName(),
+                "completedAt", booking.getCompletedAt().toString(),
+                "price", booking.getPrice().toString()
+        );
+    }
 
-                log.info("Marked booking as no-show: {}", booking.getBookingId());
-            }
-        }
+    private static Map<String, Object> noShowDetail(Booking booking) {
+        return Map.of(
+                "bookingId", booking.getBookingId(),
+                "customerId", booking.getCustomerId(),
+                "stylistId", booking.getStylistId(),
+                "appointmentDate", booking.getAppointmentDate().toString(),
+                "serviceName", booking.getServiceName(),
+                "scheduledTime", booking.getAppointmentDate().toString()
+        );
+    }
 
-        log.info("Processed {} expired bookings", expiredBookings.size());
+    private static Map<String, Object> feedbackDetail(Booking booking) {
+        return Map.of(
+                "bookingId", booking.getBookingId(),
+                "customerId", booking.getCustomerId(),
+                "stylistId", booking.getStylistId(),
+                "appointmentDate", booking.getAppointmentDate().toString(),
+                "serviceName", booking.getServiceName(),
+                "completedAt", booking.getCompletedAt().toString()
+        );
     }
 }
@@ -0,0 +1,163 @@
+package tech.ceesar.glamme.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.ceesar.glamme.common.service.RedisLockService;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reserves a stylist's time for a booking without a global lock.
+ *
+ * <p>A booking's time is cut into fixed buckets on a {@code bucket-minutes} grid. The buckets are
+ * first held in Redis, all or none, under a per-stylist fencing token, so competing requests for
+ * the same stylist fail fast while requests for other stylists never meet. The hold lasts until
+ * the booking's transaction completes. Inside that transaction each bucket is claimed with a row
+ * in {@code booking_slot_claims}, whose unique key on stylist and bucket is the final guard: if a
+ * hold expired, or Redis was unreachable, a second claim on a bucket fails and that booking rolls
+ * back. Releases only delete holds still carrying their own token, so a holder that outlived its
+ * hold cannot free someone else's.
+ *
+ * <p>Bookings sharing a bucket contend even if their minutes do not overlap, so the bucket should
+ * divide the slot length.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotReservationService {
+
+    private static final String INSERT_SQL = "INSERT INTO booking_slot_claims (stylist_id, slot_start, booking_id, fence_token, created_at) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String DELETE_SQL = "DELETE FROM booking_slot_claims WHERE booking_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RedisLockService redisLockService;
+
+    @Value("${booking.reservation.bucket-minutes:15}")
+    private int bucketMinutes;
+
+    @Value("${booking.reservation.hold-seconds:30}")
+    private long holdSeconds;
+
+    /**
+     * Claims the stylist's time for the booking in the current transaction.
+     * Throws {@link SlotUnavailableException} if any of it is held or claimed by another booking.
+     */
+    public void claim(String stylistId, String bookingId, LocalDateTime start, int durationMinutes) {
+        List<LocalDateTime> buckets = buckets(start, durationMinutes);
+        List<String> lockKeys = new ArrayList<>(buckets.size());
+        for (LocalDateTime bucket : buckets) {
+            // The hash tag keeps one stylist's keys in one cluster slot, as the script needs
+            lockKeys.add("booking:{" + stylistId + "}:" + bucket);
+        }
+        long token = redisLockService.acquireFencedLocks("booking:{" + stylistId + "}", lockKeys,
+                Duration.ofSeconds(holdSeconds));
+        if (token == 0) {
+            throw new SlotUnavailableException("Time slot is being booked by someone else");
+        }
+        if (token < 0) {
+            log.warn("Booking {} for stylist {} is relying on the slot key alone", bookingId, stylistId);
+        }
+
+        try {
+            insertClaims(stylistId, bookingId, buckets, Math.max(token, 0));
+        } catch (DuplicateKeyException e) {
+            release(lockKeys, token);
+            throw new SlotUnavailableException("Time slot is already booked");
+        } catch (RuntimeException e) {
+            release(lockKeys, token);
+            throw e;
+        }
+        releaseAfterCompletion(lockKeys, token);
+    }
+
+    /**
+     * Moves the booking's claim to a new time in the current transaction; the old time is kept if
+     * the new one is taken and the transaction rolls back
+     */
+    public void move(String stylistId, String bookingId, LocalDateTime start, int durationMinutes) {
+        releaseClaims(bookingId);
+        claim(stylistId, bookingId, start, durationMinutes);
+    }
+
+    /**
+     * Gives the booking's time back in the current transaction
+     */
+    public void releaseClaims(String bookingId) {
+        jdbcTemplate.update(DELETE_SQL, bookingId);
+    }
+
+    /**
+     * Gives the time of each of the bookings back in the current transaction, in one batch
+     */
+    public void releaseClaims(Collection<String> bookingIds) {
+        if (bookingIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(DELETE_SQL, bookingIds, bookingIds.size(),
+                (statement, bookingId) -> statement.setString(1, bookingId));
+    }
+
+    /**
+     * Starts of the buckets covering {@code [start, start + durationMinutes)}
+     */
+    List<LocalDateTime> buckets(LocalDateTime start, int durationMinutes) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Booking duration must be positive");
+        }
+        LocalDateTime end = start.plusMinutes(durationMinutes);
+        LocalDateTime bucket = start.withSecond(0).withNano(0)
+                .minusMinutes(Math.floorMod(start.getHour() * 60 + start.getMinute(), bucketMinutes));
+        List<LocalDateTime> buckets = new ArrayList<>();
+        for (; bucket.isBefore(end); bucket = bucket.plusMinutes(bucketMinutes)) {
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    private void insertClaims(String stylistId, String bookingId, List<LocalDateTime> buckets, long token) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, buckets, buckets.size(), (statement, bucket) -> {
+            statement.setString(1, stylistId);
+            statement.setTimestamp(2, Timestamp.valueOf(bucket));
+            statement.setString(3, bookingId);
+            statement.setLong(4, token);
+            statement.setTimestamp(5, now);
+        });
+    }
+
+    // Keeps the hold until the claim is committed or rolled back
+    private void releaseAfterCompletion(List<String> lockKeys, long token) {
+        if (token <= 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(lockKeys, token);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(lockKeys, token);
+            }
+        });
+    }
+
+    private void release(List<String> lockKeys, long token) {
+        if (token > 0) {
+            redisLockService.releaseFencedLocks(lockKeys, token);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package tech.ceesar.glamme.booking.service;
+
+/**
+ * The requested time overlaps a booking that is being made or already exists
+ */
+public class SlotUnavailableException extends RuntimeException {
+
+    public SlotUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,172 @@
+package tech.ceesar.glamme.booking.service;
+
+import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.booking.entity.BookingTimeSlot;
+import tech.ceesar.glamme.booking.entity.StylistAvailability;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * One stylist's time over a fixed horizon, in minutes since the epoch of the scheduling time zone.
+ *
+ * <p>{@code open} is working time: the weekly availability rules expanded over the horizon, plus
+ * time slots opened by hand and minus the ones blocked. {@code free} is open time not taken by a
+ * booking. Placing or releasing a booking only touches the minutes it covers; a released booking
+ * gives back the part of its time that is open and not covered by another booking.
+ */
+final class StylistCalendar {
+
+    private record Span(long start, long end) {
+    }
+
+    private final long from;
+    private final long to;
+    private final FreeTimeIndex open = new FreeTimeIndex();
+    private final FreeTimeIndex free = new FreeTimeIndex();
+    private final Map<String, Span> bookings = new HashMap<>();
+    // Booking ids by start minute, to find the bookings overlapping released time
+    private final TreeMap<Long, Set<String>> bookingStarts = new TreeMap<>();
+    private long longestBooking;
+
+    private StylistCalendar(long from, long to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    static StylistCalendar build(LocalDateTime from, LocalDateTime to, List<StylistAvailability> rules,
+                                 List<BookingTimeSlot> slots, List<Booking> bookings) {
+        StylistCalendar calendar = new StylistCalendar(minutes(from), minutes(to));
+        // From the day before, for rules that run past midnight
+        for (LocalDate day = from.toLocalDate().minusDays(1); day.isBefore(to.toLocalDate().plusDays(1)); day = day.plusDays(1)) {
+            for (StylistAvailability rule : rules) {
+                if (Boolean.TRUE.equals(rule.getIsAvailable()) && rule.getDayOfWeek().name().equals(day.getDayOfWeek().name())) {
+                    calendar.openRule(day, rule, true);
+                }
+            }
+            for (StylistAvailability rule : rules) {
+                if (Boolean.FALSE.equals(rule.getIsAvailable()) && rule.getDayOfWeek().name().equals(day.getDayOfWeek().name())) {
+                    calendar.openRule(day, rule, false);
+                }
+            }
+        }
+        for (BookingTimeSlot slot : slots) {
+            if (Boolean.TRUE.equals(slot.getIsAvailable())) {
+                calendar.openClipped(minutes(slot.getStartTime()), minutes(slot.getEndTime()), true);
+            }
+        }
+        for (BookingTimeSlot slot : slots) {
+            if (!Boolean.TRUE.equals(slot.getIsAvailable())) {
+                calendar.openClipped(minutes(slot.getStartTime()), minutes(slot.getEndTime()), false);
+            }
+        }
+        calendar.open.forEachIn(calendar.from, calendar.to, calendar.free::add);
+        for (Booking booking : bookings) {
+            if (occupies(booking)) {
+                calendar.place(booking.getBookingId(), minutes(booking.getAppointmentDate()),
+                        minutes(booking.getAppointmentDate()) + booking.getDurationMinutes());
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * Whether a booking in this state keeps its time
+     */
+    static boolean occupies(Booking booking) {
+        return booking.getStatus() != Booking.Status.CANCELLED && booking.getStatus() != Booking.Status.NO_SHOW
+                && booking.getAppointmentDate() != null && booking.getDurationMinutes() != null;
+    }
+
+    static long minutes(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    static LocalDateTime time(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Takes the booking's time, moving it if the booking was already placed elsewhere
+     */
+    synchronized void place(String bookingId, long start, long end) {
+        release(bookingId);
+        Span span = new Span(start, end);
+        bookings.put(bookingId, span);
+        bookingStarts.computeIfAbsent(start, minute -> new HashSet<>()).add(bookingId);
+        longestBooking = Math.max(longestBooking, end - start);
+        free.remove(start, end);
+    }
+
+    synchronized void release(String bookingId) {
+        Span span = bookings.remove(bookingId);
+        if (span == null) {
+            return;
+        }
+        Set<String> sameStart = bookingStarts.get(span.start());
+        sameStart.remove(bookingId);
+        if (sameStart.isEmpty()) {
+            bookingStarts.remove(span.start());
+        }
+        open.forEachIn(span.start(), span.end(), free::add);
+        // Time still taken by overlapping bookings stays taken
+        for (Set<String> ids : bookingStarts.subMap(span.start() - longestBooking, false, span.end(), false).values()) {
+            for (String id : ids) {
+                Span other = bookings.get(id);
+                if (other.end() > span.start()) {
+                    free.remove(Math.max(other.start(), span.start()), Math.min(other.end(), span.end()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts of the free slots of {@code duration} minutes inside {@code [start, end)}, on a grid of
+     * {@code step} minutes
+     */
+    synchronized List<Long> freeSlots(long start, long end, int duration, int step) {
+        List<Long> starts = new ArrayList<>();
+        free.forEachIn(Math.max(start, from), Math.min(end, to), (freeFrom, freeTo) -> {
+            for (long slot = -Math.floorDiv(-freeFrom, step) * step; slot + duration <= freeTo; slot += step) {
+                starts.add(slot);
+            }
+        });
+        return starts;
+    }
+
+    synchronized boolean isFree(long start, long end) {
+        return free.contains(start, end);
+    }
+
+    synchronized int intervals() {
+        return free.size();
+    }
+
+    private void openRule(LocalDate day, StylistAvailability rule, boolean available) {
+        LocalDateTime start = day.atTime(rule.getStartTime());
+        LocalDateTime end = day.atTime(rule.getEndTime());
+        if (!end.isAfter(start)) {
+            // Runs past midnight
+            end = end.plusDays(1);
+        }
+        openClipped(minutes(start), minutes(end), available);
+    }
+
+    private void openClipped(long start, long end, boolean available) {
+        start = Math.max(start, from);
+        end = Math.min(end, to);
+        if (available) {
+            open.add(start, end);
+        } else {
+            open.remove(start, end);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package tech.ceesar.glamme.booking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.booking.entity.BookingTimeSlot;
+import tech.ceesar.glamme.booking.entity.StylistAvailability;
+import tech.ceesar.glamme.booking.repository.BookingRepository;
+import tech.ceesar.glamme.booking.repository.BookingTimeSlotRepository;
+import tech.ceesar.glamme.booking.repository.StylistAvailabilityRepository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AvailabilityEngineTest {
+
+    private static final String STYLIST = "stylist-1";
+
+    private StylistAvailabilityRepository stylistAvailabilityRepository;
+    private BookingRepository bookingRepository;
+    private BookingTimeSlotRepository bookingTimeSlotRepository;
+    private AvailabilityEngine engine;
+    private LocalDate monday;
+
+    @BeforeEach
+    void setUp() {
+        stylistAvailabilityRepository = mock(StylistAvailabilityRepository.class);
+        bookingRepository = mock(BookingRepository.class);
+        bookingTimeSlotRepository = mock(BookingTimeSlotRepository.class);
+        engine = new AvailabilityEngine(stylistAvailabilityRepository, bookingRepository, bookingTimeSlotRepository);
+        ReflectionTestUtils.setField(engine, "horizonDays", 90);
+        ReflectionTestUtils.setField(engine, "slotDurationMinutes", 30);
+        ReflectionTestUtils.setField(engine, "timezone", "UTC");
+        ReflectionTestUtils.setField(engine, "maxAgeMinutes", 10L);
+        ReflectionTestUtils.setField(engine, "refreshOverlapSeconds", 60L);
+        monday = LocalDate.now(ZoneOffset.UTC).plusDays(7).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    void findFreeSlots_subtractsBookingsAndBlockedSlotsFromTheWeeklyRules() {
+        when(stylistAvailabilityRepository.findByStylistId(STYLIST)).thenReturn(List.of(
+                rule(StylistAvailability.DayOfWeek.MONDAY, 9, 12, true),
+                rule(StylistAvailability.DayOfWeek.MONDAY, 13, 17, true),
+                rule(StylistAvailability.DayOfWeek.TUESDAY, 9, 17, true)));
+        when(bookingTimeSlotRepository.findOverlapping(eq(STYLIST), any(), any())).thenReturn(List.of(
+                BookingTimeSlot.builder().stylistId(STYLIST).isAvailable(false)
+                        .startTime(monday.atTime(15, 0)).endTime(monday.atTime(17, 0)).build()));
+        when(bookingRepository.findByStylistIdAndAppointmentDateBetween(eq(STYLIST), any(), any())).thenReturn(List.of(
+                booking("b1", monday.atTime(10, 0), 60, Booking.Status.CONFIRMED),
+                booking("b2", monday.atTime(13, 0), 30, Booking.Status.CANCELLED)));
+
+        List<AvailabilityEngine.FreeSlot> slots = engine.findFreeSlots(STYLIST, monday.atStartOfDay(),
+                monday.plusDays(1).atStartOfDay(), 60);
+
+        // 9-10 and 11-12 in the morning; 13-15 in the afternoon on the half-hour grid
+        assertEquals(List.of(monday.atTime(9, 0), monday.atTime(11, 0), monday.atTime(13, 0),
+                        monday.atTime(13, 30), monday.atTime(14, 0)),
+                slots.stream().map(AvailabilityEngine.FreeSlot::startTime).toList());
+        assertTrue(engine.isFree(STYLIST, monday.atTime(11, 0), 60));
+        assertFalse(engine.isFree(STYLIST, monday.atTime(9, 30), 60));
+        assertFalse(engine.isFree(STYLIST, monday.atTime(12, 0), 30));
+    }
+
+    @Test
+    void bookingChanges_updateALoadedCalendarWithoutReloading() {
+        when(stylistAvailabilityRepository.findByStylistId(STYLIST))
+                .thenReturn(List.of(rule(StylistAvailability.DayOfWeek.MONDAY, 9, 12, true)));
+        LocalDateTime from = monday.atStartOfDay();
+        LocalDateTime to = monday.plusDays(1).atStartOfDay();
+        assertEquals(6, engine.findFreeSlots(STYLIST, from, to).size());
+
+        Booking booking = booking("b1", monday.atTime(9, 30), 60, Booking.Status.PENDING);
+        engine.bookingChanged(booking);
+        assertEquals(List.of(monday.atTime(9, 0), monday.atTime(10, 30), monday.atTime(11, 0), monday.atTime(11, 30)),
+                engine.findFreeSlots(STYLIST, from, to).stream().map(AvailabilityEngine.FreeSlot::startTime).toList());
+
+        // Rescheduled: the old time comes back and the new time is taken
+        booking.setAppointmentDate(monday.atTime(11, 0));
+        engine.bookingChanged(booking);
+        assertTrue(engine.isFree(STYLIST, monday.atTime(9, 0), 120));
+        assertFalse(engine.isFree(STYLIST, monday.atTime(11, 0), 30));
+
+        booking.setStatus(Booking.Status.CANCELLED);
+        engine.bookingChanged(booking);
+        assertEquals(6, engine.findFreeSlots(STYLIST, from, to).size());
+        verify(stylistAvailabilityRepository, times(1)).findByStylistId(STYLIST);
+        assertEquals(1, engine.getStats().calendars());
+
+        engine.rulesChanged(STYLIST);
+        assertEquals(0, engine.getStats().calendars());
+    }
+
+    @Test
+    void refresh_appliesBookingsChangedOnOtherInstances() {
+        when(stylistAvailabilityRepository.findByStylistId(STYLIST))
+                .thenReturn(List.of(rule(StylistAvailability.DayOfWeek.MONDAY, 9, 12, true)));
+        assertTrue(engine.isFree(STYLIST, monday.atTime(9, 0), 60));
+
+        Booking booking = booking("b1", monday.atTime(9, 0), 60, Booking.Status.CONFIRMED);
+        when(bookingRepository.findByUpdatedAtGreaterThanEqual(any())).thenReturn(List.of(booking));
+        engine.refresh();
+        assertFalse(engine.isFree(STYLIST, monday.atTime(9, 0), 30));
+
+        // Polled again inside the overlap window, then cancelled elsewhere
+        engine.refresh();
+        assertFalse(engine.isFree(STYLIST, monday.atTime(9, 0), 30));
+        booking.setStatus(Booking.Status.CANCELLED);
+        engine.refresh();
+        assertTrue(engine.isFree(STYLIST, monday.atTime(9, 0), 60));
+        verify(stylistAvailabilityRepository, times(1)).findByStylistId(STYLIST);
+    }
+
+    @Test
+    void refresh_keepsAFailedWindowForTheNextPoll() {
+        LocalDateTime before = (LocalDateTime) ReflectionTestUtils.getField(engine, "refreshedFrom");
+        when(bookingRepository.findByUpdatedAtGreaterThanEqual(any())).thenThrow(new IllegalStateException("db down"));
+
+        engine.refresh();
+
+        assertEquals(before, ReflectionTestUtils.getField(engine, "refreshedFrom"));
+    }
+
+    @Test
+    void calendar_isRebuiltOnceOlderThanTheMaximumAge() {
+        when(stylistAvailabilityRepository.findByStylistId(STYLIST))
+                .thenReturn(List.of(rule(StylistAvailability.DayOfWeek.MONDAY, 9, 12, true)));
+        assertTrue(engine.isFree(STYLIST, monday.atTime(9, 0), 60));
+        assertTrue(engine.isFree(STYLIST, monday.atTime(10, 0), 60));
+        verify(stylistAvailabilityRepository, times(1)).findByStylistId(STYLIST);
+
+        // Rules changed on another instance show up once the calendar expires
+        when(stylistAvailabilityRepository.findByStylistId(STYLIST))
+                .thenReturn(List.of(rule(StylistAvailability.DayOfWeek.MONDAY, 10, 12, true)));
+        ReflectionTestUtils.setField(engine, "maxAgeMinutes", 0L);
+
+        assertFalse(engine.isFree(STYLIST, monday.atTime(9, 0), 60));
+        verify(stylistAvailabilityRepository, times(2)).findByStylistId(STYLIST);
+    }
+
+    @Test
+    void incrementalUpdates_matchARebuildFromScratch() {
+        LocalDateTime from = monday.atStartOfDay();
+        LocalDateTime to = from.plusDays(14);
+        List<StylistAvailability> rules = List.of(
+                rule(StylistAvailability.DayOfWeek.MONDAY, 9, 17, true),
+                rule(StylistAvailability.DayOfWeek.WEDNESDAY, 10, 20, true),
+                rule(StylistAvailability.DayOfWeek.WEDNESDAY, 12, 13, false),
+                rule(StylistAvailability.DayOfWeek.FRIDAY, 20, 2, true));
+        StylistCalendar calendar = StylistCalendar.build(from, to, rules, List.of(), List.of());
+        List<Booking> bookings = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(11);
+
+        for (int step = 0; step < 2_000; step++) {
+            if (bookings.isEmpty() || random.nextInt(3) > 0) {
+                // Overlaps are allowed here: the calendar must cope with bookings made before it checked them
+                Booking booking = booking("b" + step, from.plusMinutes(15L * random.nextInt(14 * 96)),
+                        15 * (1 + random.nextInt(12)), Booking.Status.CONFIRMED);
+                bookings.add(booking);
+                calendar.place(booking.getBookingId(), StylistCalendar.minutes(booking.getAppointmentDate()),
+                        StylistCalendar.minutes(booking.getAppointmentDate()) + booking.getDurationMinutes());
+            } else {
+                Booking released = bookings.remove(random.nextInt(bookings.size()));
+                calendar.release(released.getBookingId());
+            }
+            if (step % 100 == 0) {
+                assertEquals(slots(StylistCalendar.build(from, to, rules, List.of(), bookings), from, to),
+                        slots(calendar, from, to), "after step " + step);
+            }
+        }
+    }
+
+    private static List<Long> slots(StylistCalendar calendar, LocalDateTime from, LocalDateTime to) {
+        return calendar.freeSlots(StylistCalendar.minutes(from), StylistCalendar.minutes(to), 15, 15);
+    }
+
+    private static StylistAvailability rule(StylistAvailability.DayOfWeek day, int startHour, int endHour, boolean available) {
+        return StylistAvailability.builder()
+                .stylistId(STYLIST)
+                .dayOfWeek(day)
+                .startTime(LocalTime.of(startHour, 0))
+                .endTime(LocalTime.of(endHour, 0))
+                .isAvailable(available)
+                .slotDurationMinutes(30)
+                .build();
+    }
+
+    private static Booking booking(String bookingId, LocalDateTime start, int minutes, Booking.Status status) {
+        return Booking.builder()
+                .bookingId(bookingId)
+                .stylistId(STYLIST)
+                .appointmentDate(start)
+                .durationMinutes(minutes)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,206 @@
+package tech.ceesar.glamme.booking.service;
+
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.common.service.RedisLockService;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BookingRollupServiceTest {
+
+    private static final LocalDateTime START = LocalDate.of(2030, 5, 1).atStartOfDay();
+    private static final List<String> STYLISTS = List.of("s1", "s2", "s3");
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private BookingRollupService rollups;
+
+    @BeforeEach
+    void setUp() {
+        // The upsert relies on ON CONFLICT, which H2 understands in PostgreSQL mode
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE bookings (booking_id VARCHAR(64) PRIMARY KEY, stylist_id VARCHAR(64) NOT NULL, "
+                + "appointment_date TIMESTAMP NOT NULL, status VARCHAR(16) NOT NULL, price NUMERIC(10, 2) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE booking_daily_rollups (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "stylist_id VARCHAR(64) NOT NULL, booking_day DATE NOT NULL, status VARCHAR(16) NOT NULL, "
+                + "booking_count BIGINT NOT NULL, price_total NUMERIC(14, 2) NOT NULL, "
+                + "CONSTRAINT uk_booking_daily_rollups_key UNIQUE (stylist_id, booking_day, status))");
+        rollups = new BookingRollupService(jdbcTemplate, transactionTemplate, mock(RedisLockService.class));
+    }
+
+    @AfterEach
+    void shutdown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void counts_addWholeDaysFromRollupsToPartDaysFromBookings() {
+        Booking early = save(null, booking("b1", "s1", START.plusHours(9), Booking.Status.CONFIRMED, "50.00"));
+        save(null, booking("b2", "s1", START.plusDays(1).plusHours(10), Booking.Status.COMPLETED, "80.00"));
+        save(null, booking("b3", "s1", START.plusDays(2).plusHours(15), Booking.Status.COMPLETED, "70.00"));
+        save(null, booking("b4", "s2", START.plusDays(1).plusHours(11), Booking.Status.CANCELLED, "40.00"));
+
+        BookingRollupService.Counts s1 = rollups.counts("s1", START.plusHours(12), START.plusDays(2).plusHours(16));
+        assertEquals(2, s1.count(Booking.Status.COMPLETED));
+        assertEquals(0, s1.count(Booking.Status.CONFIRMED));
+        assertEquals(0, new BigDecimal("150.00").compareTo(s1.price(Booking.Status.COMPLETED)));
+
+        BookingRollupService.Counts all = rollups.counts(null, START, null);
+        assertEquals(4, all.total());
+        assertEquals(1, all.count(Booking.Status.CANCELLED));
+        // Inside one day, from the bookings alone
+        assertEquals(1, rollups.counts("s1", START.plusHours(8), START.plusHours(10)).total());
+        assertEquals(0, rollups.counts("s1", START.plusHours(10), START.plusHours(8)).total());
+
+        // Cancelling moves the booking between status rows of the same day
+        BookingRollupService.Entry before = BookingRollupService.Entry.of(early);
+        early.setStatus(Booking.Status.CANCELLED);
+        save(before, early);
+        assertEquals(2, rollups.counts(null, null, null).count(Booking.Status.CANCELLED));
+        assertEquals(0, rollups.counts("s1", START, START.plusDays(1)).count(Booking.Status.CONFIRMED));
+    }
+
+    @Test
+    void incrementalUpdates_matchARebuildAndDirectAggregates() {
+        SplittableRandom random = new SplittableRandom(7);
+        List<Booking> bookings = new ArrayList<>();
+        Booking.Status[] statuses = Booking.Status.values();
+        for (int step = 0; step < 600; step++) {
+            if (bookings.isEmpty() || random.nextInt(3) == 0) {
+                bookings.add(save(null, booking("b" + step, STYLISTS.get(random.nextInt(STYLISTS.size())),
+                        START.plusMinutes(15L * random.nextInt(10 * 96)), Booking.Status.PENDING,
+                        (20 + random.nextInt(200)) + ".50")));
+            } else {
+                Booking booking = bookings.get(random.nextInt(bookings.size()));
+                BookingRollupService.Entry before = BookingRollupService.Entry.of(booking);
+                if (random.nextBoolean()) {
+                    booking.setStatus(statuses[random.nextInt(statuses.length)]);
+                } else {
+                    booking.setAppointmentDate(START.plusMinutes(15L * random.nextInt(10 * 96)));
+                }
+                save(before, booking);
+            }
+        }
+
+        for (int query = 0; query < 200; query++) {
+            String stylistId = random.nextInt(4) == 0 ? null : STYLISTS.get(random.nextInt(STYLISTS.size()));
+            LocalDateTime from = START.plusMinutes(random.nextInt(12 * 24 * 60)).minusDays(1);
+            LocalDateTime to = from.plusMinutes(random.nextInt(5 * 24 * 60));
+            assertEquals(direct(stylistId, from, to), normalize(rollups.counts(stylistId, from, to)),
+                    "stylist " + stylistId + " from " + from + " to " + to);
+        }
+
+        Map<String, String> incremental = rollupRows();
+        rollups.rebuild();
+        assertEquals(rollupRows(), incremental);
+    }
+
+    @Test
+    void bulkChanges_matchARebuild() {
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            bookings.add(save(null, booking("b" + i, STYLISTS.get(i % STYLISTS.size()), START.plusHours(5L * i),
+                    i % 4 == 0 ? Booking.Status.CONFIRMED : Booking.Status.PENDING, (30 + i) + ".00")));
+        }
+
+        // Several bookings leave and join the same rows in one batch
+        Map<String, BookingRollupService.Entry> before = new HashMap<>();
+        List<Booking> cancelled = bookings.subList(0, 30);
+        for (Booking booking : cancelled) {
+            before.put(booking.getBookingId(), BookingRollupService.Entry.of(booking));
+            booking.setStatus(Booking.Status.CANCELLED);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            cancelled.forEach(booking -> jdbcTemplate.update("UPDATE bookings SET status = ? WHERE booking_id = ?",
+                    booking.getStatus().name(), booking.getBookingId()));
+            rollups.bookingsChanged(before, cancelled);
+        });
+
+        assertEquals(30, rollups.counts(null, null, null).count(Booking.Status.CANCELLED));
+        Map<String, String> incremental = rollupRows();
+        rollups.rebuild();
+        assertEquals(rollupRows(), incremental);
+    }
+
+    private Booking save(BookingRollupService.Entry before, Booking booking) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (before == null) {
+                jdbcTemplate.update("INSERT INTO bookings VALUES (?, ?, ?, ?, ?)", booking.getBookingId(),
+                        booking.getStylistId(), Timestamp.valueOf(booking.getAppointmentDate()),
+                        booking.getStatus().name(), booking.getPrice());
+            } else {
+                jdbcTemplate.update("UPDATE bookings SET appointment_date = ?, status = ? WHERE booking_id = ?",
+                        Timestamp.valueOf(booking.getAppointmentDate()), booking.getStatus().name(), booking.getBookingId());
+            }
+            rollups.bookingChanged(before, booking);
+        });
+        return booking;
+    }
+
+    private Map<Booking.Status, String> direct(String stylistId, LocalDateTime from, LocalDateTime to) {
+        Map<Booking.Status, String> counts = new TreeMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*), SUM(price) FROM bookings WHERE appointment_date >= ? "
+                        + "AND appointment_date < ? AND stylist_id LIKE ? GROUP BY status",
+                row -> {
+                    counts.put(Booking.Status.valueOf(row.getString(1)),
+                            row.getLong(2) + "/" + row.getBigDecimal(3).stripTrailingZeros().toPlainString());
+                },
+                Timestamp.valueOf(from), Timestamp.valueOf(to), stylistId != null ? stylistId : "%");
+        return counts;
+    }
+
+    private static Map<Booking.Status, String> normalize(BookingRollupService.Counts counts) {
+        Map<Booking.Status, String> normalized = new TreeMap<>();
+        counts.bookings().forEach((status, count) -> {
+            if (count > 0) {
+                normalized.put(status, count + "/" + counts.price(status).stripTrailingZeros().toPlainString());
+            }
+        });
+        return normalized;
+    }
+
+    // Rows that count something, as "stylist day status" -> "count/price"
+    private Map<String, String> rollupRows() {
+        Map<String, String> rows = new HashMap<>();
+        jdbcTemplate.query("SELECT stylist_id, booking_day, status, booking_count, price_total FROM booking_daily_rollups "
+                + "WHERE booking_count <> 0", row -> {
+            rows.put(row.getString(1) + " " + row.getDate(2) + " " + row.getString(3),
+                    row.getLong(4) + "/" + row.getBigDecimal(5).stripTrailingZeros().toPlainString());
+        });
+        return rows;
+    }
+
+    private static Booking booking(String bookingId, String stylistId, LocalDateTime appointment,
+                                   Booking.Status status, String price) {
+        return Booking.builder()
+                .bookingId(bookingId)
+                .stylistId(stylistId)
+                .appointmentDate(appointment)
+                .status(status)
+                .price(new BigDecimal(price))
+                .build();
+    }
+}
@@ -6,20 +6,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import tech.ceesar.glamme.booking.dto.*;
 import tech.ceesar.glamme.booking.entity.Booking;
 import tech.ceesar.glamme.booking.repository.BookingRepository;
+import tech.ceesar.glamme.booking.repository.StylistAvailabilityRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +37,21 @@ class BookingServiceTest {
     @Mock
     private ReminderService reminderService;
 
+    @Mock
+    private StylistAvailabilityRepository stylistAvailabilityRepository;
+
+    @Mock
+    private AvailabilityEngine availabilityEngine;
+
+    @Mock
+    private SlotReservationService slotReservationService;
+
+    @Mock
+    private ReminderScheduler reminderScheduler;
+
+    @Mock
+    private BookingRollupService bookingRollupService;
+
     @InjectMocks
     private BookingService bookingService;
 
@@ -367,19 +388,29 @@ class BookingServiceTest {
     void getBookingStats_Success() {
         // Arrange
         String userId = "user-123";
+        BookingRollupService.Counts all = BookingRollupService.Counts.empty();
+        all.bookings().putAll(Map.of(Booking.Status.PENDING, 1L, Booking.Status.CONFIRMED, 2L,
+                Booking.Status.COMPLETED, 5L, Booking.Status.CANCELLED, 2L));
+        BookingRollupService.Counts upcoming = BookingRollupService.Counts.empty();
+        upcoming.bookings().putAll(Map.of(Booking.Status.PENDING, 1L, Booking.Status.CONFIRMED, 2L));
+        when(bookingRollupService.counts(userId, null, null)).thenReturn(all);
+        when(bookingRollupService.counts(eq(userId), any(LocalDateTime.class), isNull())).thenReturn(upcoming);
 
         // Act
         BookingStats result = bookingService.getBookingStats(userId);
 
         // Assert
         assertNotNull(result);
-        assertEquals(0, result.getTotalBookings());
-        assertEquals(0, result.getPendingBookings());
-        assertEquals(0, result.getConfirmedBookings());
-        assertEquals(0, result.getCompletedBookings());
-        assertEquals(0, result.getCancelledBookings());
-        assertEquals(0.0, result.getCompletionRate());
-        assertEquals(0.0, result.getCancellationRate());
+        assertEquals(10, result.getTotalBookings());
+        assertEquals(1, result.getPendingBookings());
+        assertEquals(2, result.getConfirmedBookings());
+        assertEquals(5, result.getCompletedBookings());
+        assertEquals(2, result.getCancelledBookings());
+        assertEquals(3, result.getUpcomingBookings());
+        assertEquals(7, result.getPastBookings());
+        assertEquals(50.0, result.getCompletionRate());
+        assertEquals(20.0, result.getCancellationRate());
+        verify(bookingRepository, never()).findAll();
     }
 
     @Test
@@ -468,17 +499,23 @@ class BookingServiceTest {
     }
 
     @Test
-    void getAvailableTimeSlots_ReturnsEmptyList() {
+    void getAvailableTimeSlots_MapsFreeSlots() {
         // Arrange
-        LocalDateTime startDate = LocalDateTime.now();
+        LocalDateTime startDate = LocalDateTime.of(2030, 5, 6, 0, 0);
         LocalDateTime endDate = startDate.plusDays(1);
+        LocalDateTime slotStart = startDate.withHour(10);
+        when(availabilityEngine.findFreeSlots(stylistId, startDate, endDate, 60))
+                .thenReturn(List.of(new AvailabilityEngine.FreeSlot(slotStart, slotStart.plusHours(1))));
 
         // Act
-        List<TimeSlotResponse> result = bookingService.getAvailableTimeSlots(stylistId, startDate, endDate);
+        List<TimeSlotResponse> result = bookingService.getAvailableTimeSlots(stylistId, startDate, endDate, 60);
 
         // Assert
-        assertNotNull(result);
-        assertTrue(result.isEmpty()); // Current implementation returns empty list
+        assertEquals(1, result.size());
+        assertEquals(slotStart, result.get(0).getStartTime());
+        assertEquals(slotStart.plusHours(1), result.get(0).getEndTime());
+        assertEquals(startDate, result.get(0).getSlotDate());
+        assertEquals(60, result.get(0).getDurationMinutes());
     }
 
     @Test
@@ -556,4 +593,56 @@ class BookingServiceTest {
 
         verify(bookingRepository, never()).save(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void bulkUpdateBookingStatus_ReportsEachBookingAndUpdatesInOneStatement() {
+        // Arrange
+        ReflectionTestUtils.setField(bookingService, "bulkMaxItems", 1000);
+        Booking completed = sampleBooking.toBuilder().bookingId("booking-done").status(Booking.Status.COMPLETED).build();
+        Booking foreign = sampleBooking.toBuilder().bookingId("booking-other")
+                .customerId("customer-other").stylistId("stylist-other").build();
+        when(bookingRepository.findByBookingIdInForUpdate(List.of("booking-123", "booking-done", "booking-other", "missing")))
+                .thenReturn(List.of(sampleBooking, completed, foreign));
+        when(bookingRepository.updateStatusCancelled(eq(List.of("booking-123")), eq(Booking.Status.CANCELLED),
+                eq("Bulk update by " + customerId), any(LocalDateTime.class))).thenReturn(1);
+
+        // Act
+        BulkStatusUpdateResponse result = bookingService.bulkUpdateBookingStatus(
+                List.of("booking-123", "booking-done", "booking-123", "booking-other", "missing"),
+                Booking.Status.CANCELLED, customerId);
+
+        // Assert
+        assertEquals(4, result.getRequestedCount());
+        assertEquals(1, result.getUpdatedCount());
+        assertEquals(3, result.getRejectedCount());
+        assertEquals(List.of(BulkStatusUpdateResponse.Outcome.UPDATED, BulkStatusUpdateResponse.Outcome.INVALID_TRANSITION,
+                        BulkStatusUpdateResponse.Outcome.UNAUTHORIZED, BulkStatusUpdateResponse.Outcome.NOT_FOUND),
+                result.getResults().stream().map(BulkStatusUpdateResponse.ItemResult::getOutcome).toList());
+        BulkStatusUpdateResponse.ItemResult updated = result.getResults().get(0);
+        assertEquals(Booking.Status.PENDING, updated.getPreviousStatus());
+        assertEquals(Booking.Status.CANCELLED, updated.getBooking().getStatus());
+        assertNotNull(sampleBooking.getCancelledAt());
+        assertNull(result.getResults().get(1).getBooking());
+        assertEquals(Booking.Status.COMPLETED, result.getResults().get(1).getPreviousStatus());
+
+        verify(bookingRepository, never()).findByBookingId(anyString());
+        verify(bookingRepository, never()).save(any());
+        verify(bookingRollupService).bookingsChanged(anyMap(), eq(List.of(sampleBooking)));
+        verify(slotReservationService).releaseClaims(List.of("booking-123"));
+        verify(reminderScheduler).bookingsChanged(List.of(sampleBooking));
+        verify(reminderService).sendStatusNotifications(List.of(sampleBooking));
+        verify(reminderService, never()).sendCancellationNotification(any());
+    }
+
+    @Test
+    void bulkUpdateBookingStatus_TooManyBookings_ThrowsException() {
+        // Arrange
+        ReflectionTestUtils.setField(bookingService, "bulkMaxItems", 2);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () ->
+            bookingService.bulkUpdateBookingStatus(List.of("b1", "b2", "b3"), Booking.Status.CONFIRMED, customerId));
+
+        verifyNoInteractions(bookingRepository);
+    }
+}
@@ -0,0 +1,191 @@
+package tech.ceesar.glamme.booking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.booking.entity.Booking;
+import tech.ceesar.glamme.booking.repository.BookingRepository;
+import tech.ceesar.glamme.common.service.EventService;
+import tech.ceesar.glamme.common.service.RedisLockService;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReminderSchedulerTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private BookingRepository bookingRepository;
+    private EventService eventService;
+    private ReminderScheduler scheduler;
+    private Map<String, Booking> bookings;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE booking_reminders (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "booking_id VARCHAR(64) NOT NULL, reminder_type VARCHAR(32) NOT NULL, scheduled_time TIMESTAMP NOT NULL, "
+                + "status VARCHAR(16) NOT NULL, sent_at TIMESTAMP, delivery_method VARCHAR(32) NOT NULL, "
+                + "recipient_email VARCHAR(255), recipient_phone VARCHAR(32), message_content CLOB, error_message CLOB, "
+                + "retry_count INT, created_at TIMESTAMP NOT NULL)");
+        bookingRepository = mock(BookingRepository.class);
+        eventService = mock(EventService.class);
+        bookings = new ConcurrentHashMap<>();
+        when(bookingRepository.findByBookingIdIn(any())).thenAnswer(invocation -> ((Collection<String>) invocation.getArgument(0))
+                .stream().map(bookings::get).filter(Objects::nonNull).toList());
+
+        scheduler = new ReminderScheduler(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(database)),
+                bookingRepository, new ReminderService(bookingRepository, eventService, mock(BookingRollupService.class)), mock(RedisLockService.class));
+        ReflectionTestUtils.setField(scheduler, "batchSize", 2);
+        ReflectionTestUtils.setField(scheduler, "maxRetries", 3);
+        ReflectionTestUtils.setField(scheduler, "retryDelaySeconds", 60L);
+        ReflectionTestUtils.setField(scheduler, "idlePollSeconds", 30L);
+        // H2 has no SKIP LOCKED
+        ReflectionTestUtils.setField(scheduler, "skipLocked", false);
+    }
+
+    @AfterEach
+    void shutdown() {
+        scheduler.stop();
+        database.shutdown();
+    }
+
+    @Test
+    void bookingChanges_replanOpenReminders() {
+        Booking booking = booking("b1", LocalDateTime.now().plusDays(3), Booking.PaymentStatus.PENDING);
+
+        scheduler.bookingChanged(booking);
+        assertEquals(Map.of("PENDING", 4L), statuses());
+
+        // Rescheduled inside the payment window: the payment reminder is due straight away
+        booking.setAppointmentDate(LocalDateTime.now().plusHours(30));
+        scheduler.bookingChanged(booking);
+        assertEquals(Map.of("PENDING", 4L, "CANCELLED", 4L), statuses());
+        assertFalse(scheduler.nextDue().isAfter(LocalDateTime.now()));
+
+        booking.setStatus(Booking.Status.CANCELLED);
+        scheduler.bookingChanged(booking);
+        assertEquals(Map.of("CANCELLED", 8L), statuses());
+        assertNull(scheduler.nextDue());
+    }
+
+    @Test
+    void dispatch_sendsDueRemindersOnceAndDropsOnesThatNoLongerApply() {
+        LocalDateTime past = LocalDateTime.now().minusMinutes(1);
+        booking("b1", LocalDateTime.now().plusHours(2), Booking.PaymentStatus.CAPTURED);
+        booking("b2", LocalDateTime.now().plusHours(2), Booking.PaymentStatus.PENDING).setStatus(Booking.Status.CANCELLED);
+        insert("b1", "REMINDER_24H", past);
+        insert("b1", "NO_SHOW_CHECK", past);
+        insert("b2", "PAYMENT_REMINDER", past);
+        insert("missing", "REMINDER_1H", past);
+        insert("b1", "REMINDER_1H", LocalDateTime.now().plusHours(1));
+
+        assertEquals(1, scheduler.dispatch());
+        assertEquals(Map.of("SENT", 1L, "CANCELLED", 3L, "PENDING", 1L), statuses());
+        assertTrue(bookings.get("b1").getReminderSent());
+        verify(eventService).publishEvent(eq("glamme-bus"), eq("booking-service"), eq("booking.reminder"),
+                argThat(detail -> "24_HOUR".equals(detail.get("reminderType"))));
+
+        assertEquals(0, scheduler.dispatch());
+        verify(eventService, times(1)).publishEvent(any(), any(), any(), anyMap());
+    }
+
+    @Test
+    void failedReminders_areRetriedLaterUntilMaxRetries() {
+        // The reminder event cannot be built without a location
+        booking("b1", LocalDateTime.now().plusHours(2), Booking.PaymentStatus.CAPTURED).setLocationAddress(null);
+        insert("b1", "REMINDER_1H", LocalDateTime.now().minusMinutes(1));
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            assertEquals(0, scheduler.dispatch());
+            Map<String, Object> row = jdbcTemplate.queryForMap("SELECT status, retry_count, scheduled_time FROM booking_reminders");
+            assertEquals("FAILED", row.get("STATUS"));
+            assertEquals(attempt, row.get("RETRY_COUNT"));
+            LocalDateTime retryAt = ((Timestamp) row.get("SCHEDULED_TIME")).toLocalDateTime();
+            assertTrue(retryAt.isAfter(LocalDateTime.now().plusSeconds(60L << (attempt - 1)).minusSeconds(5)));
+            // Not due again until the delay has passed, and never once the retries are used up
+            assertEquals(attempt < 3 ? retryAt : null, scheduler.nextDue());
+            jdbcTemplate.update("UPDATE booking_reminders SET scheduled_time = ?",
+                    Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)));
+        }
+
+        assertEquals(0, scheduler.dispatch());
+        assertNull(scheduler.nextDue());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT retry_count FROM booking_reminders", Integer.class));
+    }
+
+    @Test
+    void timer_firesAReminderWithinSecondsOfItsDueTime() {
+        AtomicReference<LocalDateTime> firedAt = new AtomicReference<>();
+        doAnswer(invocation -> {
+            firedAt.set(LocalDateTime.now());
+            return null;
+        }).when(eventService).publishEvent(any(), any(), eq("booking.reminder"), anyMap());
+        scheduler.start();
+
+        Booking booking = booking("b1", LocalDateTime.now().plusHours(1).plusSeconds(1), Booking.PaymentStatus.CAPTURED);
+        scheduler.bookingChanged(booking);
+
+        verify(eventService, timeout(5_000)).publishEvent(any(), any(), eq("booking.reminder"), anyMap());
+        LocalDateTime due = booking.getAppointmentDate().minusHours(1);
+        assertFalse(firedAt.get().isBefore(due));
+        assertTrue(Duration.between(due, firedAt.get()).toMillis() < 2_000);
+    }
+
+    private Booking booking(String bookingId, LocalDateTime appointment, Booking.PaymentStatus paymentStatus) {
+        Booking booking = Booking.builder()
+                .bookingId(bookingId)
+                .customerId("customer-1")
+                .stylistId("stylist-1")
+                .serviceName("Braids")
+                .appointmentDate(appointment)
+                .durationMinutes(60)
+                .price(new BigDecimal("80.00"))
+                .status(Booking.Status.CONFIRMED)
+                .paymentStatus(paymentStatus)
+                .locationAddress("1 Main St")
+                .confirmationCode("ABC123")
+                .reminderSent(false)
+                .build();
+        bookings.put(bookingId, booking);
+        return booking;
+    }
+
+    private void insert(String bookingId, String type, LocalDateTime due) {
+        jdbcTemplate.update("INSERT INTO booking_reminders (booking_id, reminder_type, scheduled_time, status, "
+                + "delivery_method, retry_count, created_at) VALUES (?, ?, ?, 'PENDING', 'PUSH_NOTIFICATION', 0, ?)",
+                bookingId, type, Timestamp.valueOf(due), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private Map<String, Long> statuses() {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM booking_reminders GROUP BY status",
+                row -> {
+                    counts.put(row.getString(1), row.getLong(2));
+                });
+        return counts;
+    }
+}
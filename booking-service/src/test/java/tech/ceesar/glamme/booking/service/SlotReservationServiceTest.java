@@ -0,0 +1,208 @@
+package tech.ceesar.glamme.booking.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.common.service.RedisLockService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotReservationServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 3, 4, 0, 0);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private InMemoryLocks locks;
+    private SlotReservationService reservations;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        jdbcTemplate.execute("CREATE TABLE booking_slot_claims (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "stylist_id VARCHAR(64) NOT NULL, slot_start TIMESTAMP NOT NULL, booking_id VARCHAR(64) NOT NULL, "
+                + "fence_token BIGINT NOT NULL, created_at TIMESTAMP NOT NULL, "
+                + "CONSTRAINT uk_booking_slot_claims_slot UNIQUE (stylist_id, slot_start))");
+        jdbcTemplate.execute("CREATE TABLE bookings (booking_id VARCHAR(64) PRIMARY KEY, stylist_id VARCHAR(64) NOT NULL, "
+                + "appointment_date TIMESTAMP NOT NULL, duration_minutes INT NOT NULL)");
+        locks = new InMemoryLocks();
+        reservations = new SlotReservationService(jdbcTemplate, locks);
+        ReflectionTestUtils.setField(reservations, "bucketMinutes", 15);
+        ReflectionTestUtils.setField(reservations, "holdSeconds", 30L);
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void concurrentBookingsForOneStylist_neverOverlap() throws Exception {
+        int booked = runLoad(16, 200);
+
+        assertTrue(booked > 0);
+        assertNoOverlaps(booked);
+        // Every hold was given back once its transaction completed
+        assertTrue(locks.held.isEmpty());
+    }
+
+    @Test
+    void withoutRedis_theSlotKeyAloneKeepsBookingsApart() throws Exception {
+        locks.unavailable = true;
+
+        int booked = runLoad(16, 200);
+
+        assertTrue(booked > 0);
+        assertNoOverlaps(booked);
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM booking_slot_claims WHERE fence_token <> 0", Integer.class));
+    }
+
+    @Test
+    void claimsAreReleasedAndMoved() {
+        transactionTemplate.executeWithoutResult(status ->
+                reservations.claim("s1", "b1", DAY.withHour(10), 60));
+        assertThrows(SlotUnavailableException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                reservations.claim("s1", "b2", DAY.withHour(10).plusMinutes(45), 30)));
+        // Another stylist's time is independent
+        transactionTemplate.executeWithoutResult(status ->
+                reservations.claim("s2", "b3", DAY.withHour(10), 60));
+
+        // A failed move keeps the old time
+        transactionTemplate.executeWithoutResult(status ->
+                reservations.claim("s1", "b4", DAY.withHour(12), 30));
+        assertThrows(SlotUnavailableException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                reservations.move("s1", "b1", DAY.withHour(12), 60)));
+        assertEquals(4, claims("b1"));
+
+        transactionTemplate.executeWithoutResult(status -> reservations.move("s1", "b1", DAY.withHour(14), 30));
+        assertEquals(2, claims("b1"));
+        transactionTemplate.executeWithoutResult(status -> reservations.claim("s1", "b2", DAY.withHour(10), 60));
+
+        transactionTemplate.executeWithoutResult(status -> reservations.releaseClaims("b1"));
+        assertEquals(0, claims("b1"));
+        assertEquals(List.of(DAY.withHour(9).plusMinutes(45), DAY.withHour(10), DAY.withHour(10).plusMinutes(15)),
+                reservations.buckets(DAY.withHour(9).plusMinutes(50), 40));
+    }
+
+    /**
+     * Fires booking attempts for one stylist from many threads; returns how many succeeded
+     */
+    private int runLoad(int threads, int attemptsPerThread) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger sequence = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            workers.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    String bookingId = "BK" + sequence.incrementAndGet();
+                    // 09:00-18:00 on a 15-minute grid, 15 to 120 minutes long
+                    LocalDateTime appointment = DAY.withHour(9).plusMinutes(15L * random.nextInt(36));
+                    int duration = 15 * (1 + random.nextInt(8));
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            reservations.claim("stylist-1", bookingId, appointment, duration);
+                            jdbcTemplate.update("INSERT INTO bookings VALUES (?, ?, ?, ?)",
+                                    bookingId, "stylist-1", appointment, duration);
+                        });
+                        booked.incrementAndGet();
+                    } catch (SlotUnavailableException e) {
+                        // Lost the race for this time; a customer would pick another slot
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+        return booked.get();
+    }
+
+    private void assertNoOverlaps(int booked) {
+        List<long[]> spans = jdbcTemplate.query("SELECT appointment_date, duration_minutes FROM bookings ORDER BY appointment_date",
+                (row, n) -> {
+                    long start = row.getTimestamp(1).toLocalDateTime().toEpochSecond(java.time.ZoneOffset.UTC) / 60;
+                    return new long[]{start, start + row.getInt(2)};
+                });
+        assertEquals(booked, spans.size());
+        for (int i = 1; i < spans.size(); i++) {
+            assertTrue(spans.get(i)[0] >= spans.get(i - 1)[1], "bookings " + (i - 1) + " and " + i + " overlap");
+        }
+    }
+
+    private int claims(String bookingId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_slot_claims WHERE booking_id = ?",
+                Integer.class, bookingId);
+    }
+
+    /**
+     * Same contract as the Redis scripts: all-or-none acquire and token-checked release
+     */
+    private static final class InMemoryLocks extends RedisLockService {
+
+        private final Map<String, Long> held = new HashMap<>();
+        private final Map<String, Long> fences = new HashMap<>();
+        private volatile boolean unavailable;
+
+        InMemoryLocks() {
+            super(null);
+        }
+
+        @Override
+        public synchronized long acquireFencedLocks(String fenceKey, List<String> lockKeys, Duration lockDuration) {
+            if (unavailable) {
+                return -1;
+            }
+            for (String key : lockKeys) {
+                if (held.containsKey(key)) {
+                    return 0;
+                }
+            }
+            long token = fences.merge(fenceKey, 1L, Long::sum);
+            lockKeys.forEach(key -> held.put(key, token));
+            return token;
+        }
+
+        @Override
+        public synchronized int releaseFencedLocks(List<String> lockKeys, long token) {
+            int released = 0;
+            for (String key : lockKeys) {
+                if (held.remove(key, token)) {
+                    released++;
+                }
+            }
+            return released;
+        }
+    }
+}
@@ -1,8 +1,57 @@
 package tech.ceesar.glamme.common.config;
 
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
+/**
+ * Configuration properties for the buffered EventBridge publisher.
+ * EventPublisher itself is handled by its @Component annotation.
+ */
+@Data
 @Configuration
+@ConfigurationProperties(prefix = "glamme.events.publisher")
 public class EventBridgeConfig {
-    // EventPublisher is now handled by @Component annotation
+
+    /**
+     * Events held in the buffer waiting for a dispatcher
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * How long a producer waits for room when the buffer is full before the event is dropped
+     */
+    private Duration offerTimeout = Duration.ofMillis(50);
+
+    /**
+     * Entries per PutEvents request (EventBridge allows up to 10)
+     */
+    private int maxBatchEntries = 10;
+
+    /**
+     * Total entry size per PutEvents request (EventBridge allows up to 256 KB)
+     */
+    private int maxBatchBytes = 256 * 1024;
+
+    /**
+     * Threads draining the buffer and sending PutEvents requests
+     */
+    private int dispatcherThreads = 2;
+
+    /**
+     * Attempts per entry, including the first one. Only entries EventBridge reports as failed are retried.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Delay before the first retry, doubled on each further attempt
+     */
+    private Duration retryBackoff = Duration.ofMillis(100);
+
+    /**
+     * Time allowed on shutdown to send whatever is still buffered
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
 }
@@ -0,0 +1,53 @@
+package tech.ceesar.glamme.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the background CloudWatch metrics publisher
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "glamme.metrics")
+public class MetricsPublisherConfig {
+
+    /**
+     * Local stub mode: aggregated batches are logged instead of sent to CloudWatch (offline runs and tests)
+     */
+    private boolean stub = false;
+
+    /**
+     * How often aggregated metrics are flushed to CloudWatch
+     */
+    private Duration flushInterval = Duration.ofMinutes(1);
+
+    /**
+     * Maximum number of datums sent in a single PutMetricData request (CloudWatch allows up to 1000)
+     */
+    private int maxDatumsPerRequest = 1_000;
+
+    /**
+     * Maximum number of distinct metric series (namespace + name + unit + dimensions) aggregated
+     * between flushes. Samples for new series beyond this limit are dropped.
+     */
+    private int maxSeries = 10_000;
+
+    /**
+     * Number of threads sending PutMetricData requests
+     */
+    private int senderThreads = 2;
+
+    /**
+     * Requests allowed to wait for a sender thread. When CloudWatch is slow and this fills up,
+     * further batches are dropped rather than queued.
+     */
+    private int maxPendingRequests = 8;
+
+    /**
+     * Upper bound for a single PutMetricData call, including SDK retries
+     */
+    private Duration requestTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,59 @@
+package tech.ceesar.glamme.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the in-process (L1) tier in front of Redis
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "glamme.cache.near")
+public class NearCacheConfig {
+
+    /**
+     * Enable/disable the near cache. When disabled every lookup goes straight to Redis.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Redis pub/sub channel used to invalidate entries on other nodes
+     */
+    private String invalidationChannel = "glamme:cache:invalidate";
+
+    /**
+     * How often hit/miss/eviction counters are exported to CloudWatch
+     */
+    private Duration metricsInterval = Duration.ofMinutes(1);
+
+    /**
+     * Key prefixes that are held locally, each with its own limits (e.g. "products:", "ride:").
+     * Keys that match no prefix are never cached in-process.
+     */
+    private Map<String, Tier> prefixes = new LinkedHashMap<>();
+
+    @Data
+    public static class Tier {
+
+        /**
+         * Maximum number of entries held for this prefix
+         */
+        private long maximumSize = 1_000;
+
+        /**
+         * Time an entry may be served locally after it was loaded from Redis
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+
+        /**
+         * Hand every caller its own copy of the value, for prefixes whose values callers modify.
+         * Entries are then held serialized and deserialized on each hit.
+         */
+        private boolean copyOnRead = false;
+    }
+}
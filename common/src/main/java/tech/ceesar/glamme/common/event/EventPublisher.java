@@ -1,41 +1,105 @@
 package tech.ceesar.glamme.common.event;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
 import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+import tech.ceesar.glamme.common.config.EventBridgeConfig;
+import tech.ceesar.glamme.common.service.aws.CloudWatchMetricsService;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class EventPublisher {
 
+    private static final String METRICS_NAMESPACE = "GlamMe/Events";
+    private static final long POLL_INTERVAL_MS = 200;
+    // Size EventBridge charges for the Time field of an entry
+    private static final int TIME_FIELD_BYTES = 14;
+    private static final Set<String> RETRYABLE_ERRORS = Set.of("InternalFailure", "ThrottlingException");
+
     private final EventBridgeClient eventBridgeClient;
+    private final EventBridgeConfig config;
+    private final CloudWatchMetricsService metricsService;
 
     @Value("${aws.eventbridge.bus-name:glamme-bus}")
     private String eventBusName;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private BlockingQueue<Pending> buffer;
+    private ExecutorService dispatchers;
+    private volatile boolean running;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        buffer = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        dispatchers = Executors.newFixedThreadPool(config.getDispatcherThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "event-publisher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < config.getDispatcherThreads(); i++) {
+            dispatchers.execute(this::dispatch);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatchers == null) {
+            return;
+        }
+        // Dispatchers keep draining until the buffer is empty
+        running = false;
+        dispatchers.shutdown();
+        try {
+            if (!dispatchers.awaitTermination(config.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Event publisher stopped with {} events still buffered", buffer.size());
+                dispatchers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dispatchers.shutdownNow();
+        }
+    }
+
+    /**
+     * Publish one event with its own PutEvents call. Always synchronous and throws when the call fails;
+     * callers that can tolerate a dropped event opt into {@link #publishEventAsync} instead.
+     */
     public void publishEvent(String detailType, Object detail, Map<String, String> additionalSourceAttributes) {
         try {
-            String detailJson = objectMapper.writeValueAsString(detail);
-            String source = "glamme." + getServiceName();
-
-            PutEventsRequestEntry entry = PutEventsRequestEntry.builder()
-                    .eventBusName(eventBusName)
-                    .source(source)
-                    .detailType(detailType)
-                    .detail(detailJson)
-                    .time(Instant.now())
-                    .build();
+            PutEventsRequestEntry entry = buildEntry(detailType, detail);
 
             PutEventsRequest request = PutEventsRequest.builder()
                     .entries(entry)
@@ -46,7 +110,7 @@ public class EventPublisher {
             if (response.failedEntryCount() > 0) {
                 log.error("Failed to publish event: {}", response.entries().get(0).errorMessage());
             } else {
-                log.debug("Successfully published event: {} with detail: {}", detailType, detailJson);
+                log.debug("Successfully published event: {} with detail: {}", detailType, entry.detail());
             }
 
         } catch (Exception e) {
@@ -59,9 +123,240 @@ public class EventPublisher {
         publishEvent(detailType, detail, Map.of());
     }
 
+    /**
+     * Queue an event for a batched PutEvents call. Waits up to the configured offer timeout when the
+     * buffer is full; returns false if the event was dropped.
+     */
+    public boolean publishEventAsync(String detailType, Object detail, Map<String, String> additionalSourceAttributes) {
+        try {
+            PutEventsRequestEntry entry = buildEntry(detailType, detail);
+            int size = entrySize(entry);
+            if (size > config.getMaxBatchBytes()) {
+                log.error("Event {} is {} bytes, larger than a PutEvents request allows", detailType, size);
+                failed.increment();
+                return false;
+            }
+            if (buffer == null || !buffer.offer(new Pending(entry, size),
+                    config.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                dropped.increment();
+                metricsService.publishMetric(METRICS_NAMESPACE, "EventsDropped", 1.0, StandardUnit.COUNT,
+                        Map.of("EventBus", eventBusName));
+                log.warn("Event buffer full, dropped event: {}", detailType);
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+            return false;
+        } catch (Exception e) {
+            log.error("Error queueing event: {}", detailType, e);
+            failed.increment();
+            return false;
+        }
+    }
+
+    public boolean publishEventAsync(String detailType, Object detail) {
+        return publishEventAsync(detailType, detail, Map.of());
+    }
+
+    /**
+     * Publish events now, in as few PutEvents requests as the entry and size limits allow, retrying
+     * throttled entries. Returns one flag per event, true where EventBridge accepted it, so callers
+     * that must not lose events can keep and retry the rest.
+     */
+    public boolean[] publishBatch(List<OutgoingEvent> events) {
+        boolean[] accepted = new boolean[events.size()];
+        Map<Pending, Integer> positions = new IdentityHashMap<>();
+        Consumer<Pending> markAccepted = pending -> accepted[positions.get(pending)] = true;
+        List<Pending> batch = new ArrayList<>(config.getMaxBatchEntries());
+        int bytes = 0;
+        try {
+            for (int i = 0; i < events.size(); i++) {
+                OutgoingEvent event = events.get(i);
+                PutEventsRequestEntry entry;
+                try {
+                    entry = buildEntry(event.detailType(), event.detail());
+                } catch (Exception e) {
+                    failed.increment();
+                    log.error("Error building event: {}", event.detailType(), e);
+                    continue;
+                }
+                int size = entrySize(entry);
+                if (size > config.getMaxBatchBytes()) {
+                    failed.increment();
+                    log.error("Event {} is {} bytes, larger than a PutEvents request allows", event.detailType(), size);
+                    continue;
+                }
+                if (batch.size() == config.getMaxBatchEntries() || bytes + size > config.getMaxBatchBytes()) {
+                    send(batch, markAccepted);
+                    batch.clear();
+                    bytes = 0;
+                }
+                Pending pending = new Pending(entry, size);
+                positions.put(pending, i);
+                batch.add(pending);
+                bytes += size;
+            }
+            if (!batch.isEmpty()) {
+                send(batch, markAccepted);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return accepted;
+    }
+
+    /**
+     * Buffer depth and delivery counters since startup
+     */
+    public PublisherStats getStats() {
+        return new PublisherStats(buffer != null ? buffer.size() : 0, published.sum(), failed.sum(), dropped.sum());
+    }
+
+    public record PublisherStats(int queueDepth, long published, long failed, long dropped) {
+    }
+
+    /**
+     * One event for {@link #publishBatch}
+     */
+    public record OutgoingEvent(String detailType, Object detail) {
+    }
+
+    private PutEventsRequestEntry buildEntry(String detailType, Object detail) throws Exception {
+        String detailJson = objectMapper.writeValueAsString(detail);
+        String source = "glamme." + getServiceName();
+
+        return PutEventsRequestEntry.builder()
+                .eventBusName(eventBusName)
+                .source(source)
+                .detailType(detailType)
+                .detail(detailJson)
+                .time(Instant.now())
+                .build();
+    }
+
+    private void dispatch() {
+        List<Pending> batch = new ArrayList<>(config.getMaxBatchEntries());
+        Pending carry = null;
+        while (running || carry != null || !buffer.isEmpty()) {
+            Pending first;
+            try {
+                first = carry != null ? carry : buffer.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            carry = null;
+            if (first == null) {
+                continue;
+            }
+
+            // Pack whatever is already buffered, up to the PutEvents entry and size limits
+            batch.add(first);
+            int bytes = first.size();
+            Pending next;
+            while (batch.size() < config.getMaxBatchEntries() && (next = buffer.poll()) != null) {
+                if (bytes + next.size() > config.getMaxBatchBytes()) {
+                    carry = next;
+                    break;
+                }
+                batch.add(next);
+                bytes += next.size();
+            }
+
+            try {
+                send(batch, pending -> { });
+            } catch (Exception e) {
+                failed.add(batch.size());
+                log.error("Failed to dispatch {} events", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void send(List<Pending> batch, Consumer<Pending> onAccepted) throws InterruptedException {
+        long started = System.nanoTime();
+        List<Pending> remaining = batch;
+        for (int attempt = 1; !remaining.isEmpty(); attempt++) {
+            remaining = putEvents(remaining, attempt < config.getMaxAttempts(), onAccepted);
+            if (!remaining.isEmpty()) {
+                Thread.sleep(config.getRetryBackoff().toMillis() << (attempt - 1));
+            }
+        }
+
+        Map<String, String> dimensions = Map.of("EventBus", eventBusName);
+        metricsService.publishMetric(METRICS_NAMESPACE, "PutEventsFlushLatency",
+                (System.nanoTime() - started) / 1_000_000.0, StandardUnit.MILLISECONDS, dimensions);
+        metricsService.publishMetric(METRICS_NAMESPACE, "PutEventsBatchSize", batch.size(),
+                StandardUnit.COUNT, dimensions);
+        metricsService.recordQueueDepth("eventbridge:" + eventBusName, buffer != null ? buffer.size() : 0);
+    }
+
+    /**
+     * Send one PutEvents request, report the accepted entries and return the ones that should be retried
+     */
+    private List<Pending> putEvents(List<Pending> entries, boolean retryAllowed, Consumer<Pending> onAccepted) {
+        PutEventsResponse response;
+        try {
+            response = eventBridgeClient.putEvents(PutEventsRequest.builder()
+                    .entries(entries.stream().map(Pending::entry).toList())
+                    .build());
+        } catch (Exception e) {
+            if (retryAllowed) {
+                log.warn("PutEvents failed for {} events, retrying", entries.size(), e);
+                return entries;
+            }
+            failed.add(entries.size());
+            log.error("PutEvents failed for {} events", entries.size(), e);
+            return List.of();
+        }
+
+        if (response.failedEntryCount() == null || response.failedEntryCount() == 0) {
+            published.add(entries.size());
+            entries.forEach(onAccepted);
+            return List.of();
+        }
+
+        // Result entries line up with the request entries
+        List<Pending> retry = new ArrayList<>();
+        List<PutEventsResultEntry> results = response.entries();
+        for (int i = 0; i < entries.size(); i++) {
+            PutEventsResultEntry result = results.get(i);
+            if (result.errorCode() == null) {
+                published.increment();
+                onAccepted.accept(entries.get(i));
+            } else if (retryAllowed && RETRYABLE_ERRORS.contains(result.errorCode())) {
+                retry.add(entries.get(i));
+            } else {
+                failed.increment();
+                log.error("Failed to publish event: {} - {}", entries.get(i).entry().detailType(), result.errorMessage());
+            }
+        }
+        return retry;
+    }
+
+    private static int entrySize(PutEventsRequestEntry entry) {
+        int size = TIME_FIELD_BYTES;
+        size += utf8Length(entry.source());
+        size += utf8Length(entry.detailType());
+        size += utf8Length(entry.detail());
+        for (String resource : entry.resources()) {
+            size += utf8Length(resource);
+        }
+        return size;
+    }
+
+    private static int utf8Length(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+
     private String getServiceName() {
         // Extract service name from the current context
         String serviceName = System.getenv("SERVICE_NAME");
         return serviceName != null ? serviceName : "unknown-service";
     }
+
+    private record Pending(PutEventsRequestEntry entry, int size) {
+    }
 }
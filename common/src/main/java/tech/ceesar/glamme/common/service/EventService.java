@@ -5,6 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import tech.ceesar.glamme.common.event.EventPublisher;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -88,4 +90,40 @@ public class EventService {
             log.error("Failed to publish event: {} from source: {}", eventType, source, e);
         }
     }
+
+    /**
+     * Publish several events from one source in as few PutEvents requests as possible. Returns the
+     * number EventBridge accepted.
+     */
+    public int publishEvents(String busName, String source, List<EventPublisher.OutgoingEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        try {
+            List<EventPublisher.OutgoingEvent> sourced = events.stream()
+                    .map(event -> new EventPublisher.OutgoingEvent(event.detailType(), withSource(event.detail(), source)))
+                    .toList();
+            int accepted = 0;
+            for (boolean flag : eventPublisher.publishBatch(sourced)) {
+                accepted += flag ? 1 : 0;
+            }
+            if (accepted < events.size()) {
+                log.error("Failed to publish {} of {} events from source: {}", events.size() - accepted, events.size(), source);
+            }
+            return accepted;
+        } catch (Exception e) {
+            log.error("Failed to publish {} events from source: {}", events.size(), source, e);
+            return 0;
+        }
+    }
+
+    // Tags map details with their source, as publishEvent does
+    private static Object withSource(Object detail, String source) {
+        if (!(detail instanceof Map<?, ?> data)) {
+            return detail;
+        }
+        Map<Object, Object> eventData = new HashMap<>(data);
+        eventData.put("source", source);
+        return eventData;
+    }
 }
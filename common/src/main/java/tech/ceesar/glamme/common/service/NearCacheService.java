@@ -0,0 +1,312 @@
+package tech.ceesar.glamme.common.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+import org.springframework.util.PatternMatchUtils;
+import tech.ceesar.glamme.common.config.NearCacheConfig;
+import tech.ceesar.glamme.common.service.aws.CloudWatchMetricsService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process (L1) tier in front of Redis for hot, rarely changing keys.
+ *
+ * Entries only ever hold values read back from Redis, never the instance a caller passed to
+ * {@code set}, and every write invalidates the key locally and on other nodes over Redis pub/sub.
+ * Values are shared between callers unless the prefix is configured with {@code copy-on-read}, so
+ * prefixes whose values callers modify must set it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NearCacheService implements MessageListener {
+
+    private static final char KEY = 'K';
+    private static final char PATTERN = 'P';
+
+    private final NearCacheConfig config;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final CloudWatchMetricsService metricsService;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    // Bumped before every invalidation so a Redis read that raced with a write is not kept locally
+    private final AtomicLong generation = new AtomicLong();
+    private final List<Tier> tiers = new ArrayList<>();
+    private RedisMessageListenerContainer listenerContainer;
+    private ScheduledExecutorService metricsExporter;
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled() || config.getPrefixes().isEmpty()) {
+            return;
+        }
+
+        config.getPrefixes().forEach((prefix, settings) -> tiers.add(new Tier(prefix, Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfterWrite(settings.getTtl())
+                .recordStats()
+                .build(), settings.isCopyOnRead())));
+        // Longest prefix wins when prefixes overlap
+        tiers.sort(Comparator.comparingInt((Tier tier) -> tier.prefix().length()).reversed());
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener(this, new ChannelTopic(config.getInvalidationChannel()));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        metricsExporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "near-cache-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = config.getMetricsInterval().toMillis();
+        metricsExporter.scheduleAtFixedRate(this::exportMetrics, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        log.info("Near cache enabled for prefixes: {}", config.getPrefixes().keySet());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (metricsExporter != null) {
+            metricsExporter.shutdown();
+            exportMetrics();
+        }
+        if (listenerContainer != null) {
+            try {
+                listenerContainer.destroy();
+            } catch (Exception e) {
+                log.warn("Failed to stop near cache invalidation listener", e);
+            }
+        }
+    }
+
+    /**
+     * Get a locally held value
+     */
+    public <T> Optional<T> get(String key, Class<T> type) {
+        Tier tier = tierFor(key);
+        if (tier == null) {
+            return Optional.empty();
+        }
+        Object value = tier.cache().getIfPresent(key);
+        if (value instanceof Serialized serialized) {
+            try {
+                value = redisTemplate.getValueSerializer().deserialize(serialized.bytes());
+            } catch (Exception e) {
+                log.warn("Near cache cannot read copy for key: {}", key, e);
+                tier.cache().invalidate(key);
+                return Optional.empty();
+            }
+        }
+        return type.isInstance(value) ? Optional.of(type.cast(value)) : Optional.empty();
+    }
+
+    /**
+     * Invalidation generation to capture before reading a value from Redis
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Hold a value read from Redis, unless an invalidation happened since {@code readGeneration}
+     */
+    @SuppressWarnings("unchecked")
+    public void put(String key, Object value, long readGeneration) {
+        Tier tier = tierFor(key);
+        if (tier == null || value == null || generation.get() != readGeneration) {
+            return;
+        }
+        Object entry = value;
+        if (tier.copyOnRead()) {
+            try {
+                entry = new Serialized(((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value));
+            } catch (Exception e) {
+                log.warn("Near cache cannot copy value for key: {}", key, e);
+                return;
+            }
+        }
+        tier.cache().put(key, entry);
+        if (generation.get() != readGeneration) {
+            // An invalidation landed while we were storing; it may have missed this entry
+            tier.cache().invalidate(key);
+        }
+    }
+
+    /**
+     * Drop a key on this node and every other node
+     */
+    public void invalidate(String key) {
+        Tier tier = tierFor(key);
+        if (tier == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        tier.cache().invalidate(key);
+        publish(KEY, key);
+    }
+
+    /**
+     * Drop all keys matching a Redis glob pattern ('*' wildcards) on this node and every other node
+     */
+    public void invalidatePattern(String pattern) {
+        if (tiers.isEmpty()) {
+            return;
+        }
+        invalidateLocalPattern(pattern);
+        publish(PATTERN, pattern);
+    }
+
+    /**
+     * Invalidation broadcast from another node
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.length() < separator + 3 || body.startsWith(nodeId + "|")) {
+            return;
+        }
+        char type = body.charAt(separator + 1);
+        String target = body.substring(separator + 3);
+        if (type == KEY) {
+            Tier tier = tierFor(target);
+            if (tier != null) {
+                generation.incrementAndGet();
+                tier.cache().invalidate(target);
+            }
+        } else if (type == PATTERN) {
+            invalidateLocalPattern(target);
+        }
+    }
+
+    /**
+     * Current hit/miss/eviction counters per prefix
+     */
+    public Map<String, TierStats> getStats() {
+        Map<String, TierStats> stats = new HashMap<>();
+        tiers.forEach(tier -> {
+            CacheStats current = tier.cache().stats();
+            stats.put(tier.prefix(), new TierStats(current.hitCount(), current.missCount(),
+                    current.evictionCount(), tier.cache().estimatedSize()));
+        });
+        return stats;
+    }
+
+    public record TierStats(long hits, long misses, long evictions, long size) {
+    }
+
+    private void invalidateLocalPattern(String pattern) {
+        generation.incrementAndGet();
+        for (Tier tier : tiers) {
+            tier.cache().asMap().keySet().removeIf(key -> PatternMatchUtils.simpleMatch(pattern, key));
+        }
+    }
+
+    private void publish(char type, String target) {
+        try {
+            byte[] channel = config.getInvalidationChannel().getBytes(StandardCharsets.UTF_8);
+            byte[] message = (nodeId + "|" + type + "|" + target).getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, message));
+        } catch (Exception e) {
+            // Other nodes fall back to the tier TTL
+            log.error("Failed to publish near cache invalidation for: {}", target, e);
+        }
+    }
+
+    private Tier tierFor(String key) {
+        for (Tier tier : tiers) {
+            if (key.startsWith(tier.prefix())) {
+                return tier;
+            }
+        }
+        return null;
+    }
+
+    private void exportMetrics() {
+        for (Tier tier : tiers) {
+            try {
+                CacheStats current = tier.cache().stats();
+                CacheStats delta = current.minus(tier.exported());
+                tier.setExported(current);
+
+                String cacheName = "near:" + tier.prefix();
+                if (delta.hitCount() > 0) {
+                    metricsService.recordCacheHits(cacheName, delta.hitCount());
+                }
+                if (delta.missCount() > 0) {
+                    metricsService.recordCacheMisses(cacheName, delta.missCount());
+                }
+                if (delta.evictionCount() > 0) {
+                    metricsService.recordCacheEvictions(cacheName, delta.evictionCount());
+                }
+            } catch (Exception e) {
+                log.error("Failed to export near cache metrics for prefix: {}", tier.prefix(), e);
+            }
+        }
+    }
+
+    // Entry of a copy-on-read tier
+    private record Serialized(byte[] bytes) {
+    }
+
+    private static final class Tier {
+        private final String prefix;
+        private final Cache<String, Object> cache;
+        private final boolean copyOnRead;
+        private volatile CacheStats exported = CacheStats.empty();
+
+        private Tier(String prefix, Cache<String, Object> cache, boolean copyOnRead) {
+            this.prefix = prefix;
+            this.cache = cache;
+            this.copyOnRead = copyOnRead;
+        }
+
+        boolean copyOnRead() {
+            return copyOnRead;
+        }
+
+        String prefix() {
+            return prefix;
+        }
+
+        Cache<String, Object> cache() {
+            return cache;
+        }
+
+        CacheStats exported() {
+            return exported;
+        }
+
+        void setExported(CacheStats exported) {
+            this.exported = exported;
+        }
+    }
+}
@@ -10,6 +10,8 @@ import org.opensearch.client.opensearch._types.SortOrder;
 import org.opensearch.client.opensearch._types.mapping.Property;
 import org.opensearch.client.opensearch._types.query_dsl.*;
 import org.opensearch.client.opensearch.core.*;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
 import org.opensearch.client.opensearch.core.search.Hit;
 import org.opensearch.client.opensearch.indices.CreateIndexRequest;
 import org.opensearch.client.opensearch.indices.DeleteIndexRequest;
@@ -17,6 +19,7 @@ import org.opensearch.client.opensearch.indices.ExistsRequest;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -301,6 +304,38 @@ public class OpenSearchService {
         return successCount;
     }
 
+    /**
+     * Apply partial updates to many documents in one bulk request. Returns the number of
+     * documents updated; documents that failed are logged and skipped.
+     */
+    public int bulkUpdate(String indexName, Map<String, Map<String, Object>> partialDocuments) {
+        if (partialDocuments.isEmpty()) {
+            return 0;
+        }
+        try {
+            List<BulkOperation> operations = new ArrayList<>(partialDocuments.size());
+            partialDocuments.forEach((documentId, fields) -> operations.add(new BulkOperation.Builder()
+                    .update(u -> u.index(indexName).id(documentId).document(fields))
+                    .build()));
+
+            BulkResponse response = openSearchClient.bulk(new BulkRequest.Builder().operations(operations).build());
+            int failed = 0;
+            for (BulkResponseItem item : response.items()) {
+                if (item.error() != null) {
+                    failed++;
+                    log.warn("Failed to update document {} in index {}: {}", item.id(), indexName, item.error().reason());
+                }
+            }
+
+            log.debug("Bulk updated {} documents in index {}", partialDocuments.size() - failed, indexName);
+            return partialDocuments.size() - failed;
+
+        } catch (Exception e) {
+            log.error("Failed to bulk update {} documents in index: {}", partialDocuments.size(), indexName, e);
+            return 0;
+        }
+    }
+
     /**
      * Get search suggestions (autocomplete)
      */
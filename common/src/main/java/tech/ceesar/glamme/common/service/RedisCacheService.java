@@ -3,10 +3,19 @@ package tech.ceesar.glamme.common.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -16,8 +25,25 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class RedisCacheService {
 
+    private static final String TAG_PREFIX = "tag:";
+    private static final int SCAN_COUNT = 1000;
+    private static final int UNLINK_BATCH_SIZE = 500;
+
+    /**
+     * Register a key in a tag set and make sure the set lives at least as long as the entry.
+     * KEYS[1] = tag set, ARGV[1] = cached key, ARGV[2] = entry TTL (ms)
+     */
+    private static final byte[] TAG_SCRIPT = """
+            redis.call('SADD', KEYS[1], ARGV[1])
+            if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[2]) then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
     private final RedisTemplate<String, Object> redisTemplate;
     private final ObjectMapper objectMapper;
+    private final NearCacheService nearCache;
 
     /**
      * Cache a value with default TTL (1 hour)
@@ -32,26 +58,64 @@ public class RedisCacheService {
     public void set(String key, Object value, Duration ttl) {
         try {
             redisTemplate.opsForValue().set(key, value, ttl);
+            nearCache.invalidate(key);
             log.debug("Cached key: {} with TTL: {}s", key, ttl.getSeconds());
         } catch (Exception e) {
             log.error("Failed to cache key: {}", key, e);
         }
     }
 
+    /**
+     * Cache a value and register it under one or more tags so it can be invalidated with {@link #invalidateTag}
+     */
+    @SuppressWarnings("unchecked")
+    public void set(String key, Object value, Duration ttl, String... tags) {
+        if (tags.length == 0) {
+            set(key, value, ttl);
+            return;
+        }
+        try {
+            byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+            byte[] rawValue = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+            byte[] rawTtl = String.valueOf(ttl.toMillis()).getBytes(StandardCharsets.UTF_8);
+
+            // Value and tag registrations go out in a single round trip
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().pSetEx(rawKey, ttl.toMillis(), rawValue);
+                for (String tag : tags) {
+                    connection.scriptingCommands().eval(TAG_SCRIPT, ReturnType.INTEGER, 1,
+                            tagKey(tag).getBytes(StandardCharsets.UTF_8), rawKey, rawTtl);
+                }
+                return null;
+            });
+            nearCache.invalidate(key);
+            log.debug("Cached key: {} with TTL: {}s and tags: {}", key, ttl.getSeconds(), tags);
+        } catch (Exception e) {
+            log.error("Failed to cache key: {}", key, e);
+        }
+    }
+
     /**
      * Get cached value
      */
     @SuppressWarnings("unchecked")
     public <T> Optional<T> get(String key, Class<T> type) {
+        Optional<T> local = nearCache.get(key, type);
+        if (local.isPresent()) {
+            return local;
+        }
         try {
+            long generation = nearCache.generation();
             Object value = redisTemplate.opsForValue().get(key);
             if (value != null) {
                 if (type.isInstance(value)) {
+                    nearCache.put(key, value, generation);
                     return Optional.of((T) value);
                 } else {
                     // Try to deserialize if it's a JSON string
                     String jsonValue = value.toString();
                     T deserialized = objectMapper.readValue(jsonValue, type);
+                    nearCache.put(key, deserialized, generation);
                     return Optional.of(deserialized);
                 }
             }
@@ -67,6 +131,7 @@ public class RedisCacheService {
     public void delete(String key) {
         try {
             redisTemplate.delete(key);
+            nearCache.invalidate(key);
             log.debug("Deleted cache key: {}", key);
         } catch (Exception e) {
             log.error("Failed to delete cache key: {}", key, e);
@@ -102,7 +167,9 @@ public class RedisCacheService {
      */
     public Long increment(String key) {
         try {
-            return redisTemplate.opsForValue().increment(key);
+            Long value = redisTemplate.opsForValue().increment(key);
+            nearCache.invalidate(key);
+            return value;
         } catch (Exception e) {
             log.error("Failed to increment key: {}", key, e);
             return 0L;
@@ -150,7 +217,7 @@ public class RedisCacheService {
      */
     public void cacheUserSession(String userId, Object sessionData, Duration ttl) {
         String key = "session:" + userId;
-        set(key, sessionData, ttl);
+        set(key, sessionData, ttl, userTag(userId));
     }
 
     /**
@@ -182,7 +249,7 @@ public class RedisCacheService {
      */
     public void cacheStylistData(String stylistId, Object stylistData) {
         String key = "stylist:" + stylistId;
-        set(key, stylistData, Duration.ofHours(6)); // Cache for 6 hours
+        set(key, stylistData, Duration.ofHours(6), stylistTag(stylistId)); // Cache for 6 hours
     }
 
     /**
@@ -210,33 +277,107 @@ public class RedisCacheService {
     }
 
     /**
-     * Clear all cache for a pattern
+     * Clear all cache for a pattern.
+     *
+     * Walks the keyspace incrementally with SCAN and unlinks matches in batches, so Redis is never
+     * blocked for a full KEYS walk. Prefer {@link #invalidateTag} for anything that can be tagged.
      */
     public void clearCachePattern(String pattern) {
         try {
-            Set<String> keys = redisTemplate.keys(pattern);
-            if (!keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("Cleared {} cache keys matching pattern: {}", keys.size(), pattern);
+            Long cleared = redisTemplate.execute((RedisCallback<Long>) connection -> {
+                long count = 0;
+                List<byte[]> batch = new ArrayList<>(UNLINK_BATCH_SIZE);
+                ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+                try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                    while (cursor.hasNext()) {
+                        batch.add(cursor.next());
+                        if (batch.size() == UNLINK_BATCH_SIZE) {
+                            count += unlink(connection, batch);
+                        }
+                    }
+                }
+                return count + unlink(connection, batch);
+            });
+            if (cleared != null && cleared > 0) {
+                log.info("Cleared {} cache keys matching pattern: {}", cleared, pattern);
             }
+            nearCache.invalidatePattern(pattern);
         } catch (Exception e) {
             log.error("Failed to clear cache pattern: {}", pattern, e);
         }
     }
 
+    /**
+     * Delete every entry registered under a tag, and the tag itself
+     */
+    public void invalidateTag(String tag) {
+        String tagKey = tagKey(tag);
+        try {
+            List<String> invalidated = new ArrayList<>();
+            redisTemplate.execute((RedisCallback<Long>) connection -> {
+                byte[] rawTagKey = tagKey.getBytes(StandardCharsets.UTF_8);
+                List<byte[]> batch = new ArrayList<>(UNLINK_BATCH_SIZE);
+                ScanOptions options = ScanOptions.scanOptions().count(SCAN_COUNT).build();
+                try (Cursor<byte[]> cursor = connection.setCommands().sScan(rawTagKey, options)) {
+                    while (cursor.hasNext()) {
+                        byte[] member = cursor.next();
+                        batch.add(member);
+                        invalidated.add(new String(member, StandardCharsets.UTF_8));
+                        if (batch.size() == UNLINK_BATCH_SIZE) {
+                            unlink(connection, batch);
+                        }
+                    }
+                }
+                unlink(connection, batch);
+                return connection.keyCommands().unlink(rawTagKey);
+            });
+            invalidated.forEach(nearCache::invalidate);
+            log.info("Invalidated {} cache keys tagged: {}", invalidated.size(), tag);
+        } catch (Exception e) {
+            log.error("Failed to invalidate cache tag: {}", tag, e);
+        }
+    }
+
     /**
      * Clear all user-related cache
      */
     public void clearUserCache(String userId) {
-        clearCachePattern("session:" + userId);
-        clearCachePattern("user:" + userId + "*");
+        delete("session:" + userId);
+        invalidateTag(userTag(userId));
     }
 
     /**
      * Clear all stylist-related cache
      */
     public void clearStylistCache(String stylistId) {
-        clearCachePattern("stylist:" + stylistId);
-        clearCachePattern("matching:stylist:" + stylistId + "*");
+        delete("stylist:" + stylistId);
+        invalidateTag(stylistTag(stylistId));
+    }
+
+    /**
+     * Tag for entries that must be dropped when a user changes
+     */
+    public static String userTag(String userId) {
+        return "user:" + userId;
+    }
+
+    /**
+     * Tag for entries that must be dropped when a stylist changes
+     */
+    public static String stylistTag(String stylistId) {
+        return "stylist:" + stylistId;
+    }
+
+    private static String tagKey(String tag) {
+        return TAG_PREFIX + tag;
+    }
+
+    private static long unlink(RedisConnection connection, List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Long unlinked = connection.keyCommands().unlink(keys.toArray(new byte[0][]));
+        keys.clear();
+        return unlinked != null ? unlinked : 0;
     }
 }
@@ -2,10 +2,14 @@ package tech.ceesar.glamme.common.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -13,6 +17,37 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class RedisLockService {
 
+    /**
+     * Takes every key or none. KEYS[1] is the fencing counter, the rest are the locks;
+     * ARGV[1] is the lock duration in ms. Returns the new fencing token, or 0 if a lock was held.
+     */
+    private static final String ACQUIRE_FENCED_SCRIPT = """
+            for i = 2, #KEYS do
+                if redis.call('EXISTS', KEYS[i]) == 1 then
+                    return 0
+                end
+            end
+            local token = redis.call('INCR', KEYS[1])
+            for i = 2, #KEYS do
+                redis.call('SET', KEYS[i], token, 'PX', ARGV[1])
+            end
+            return token
+            """;
+
+    /**
+     * Deletes the locks still holding the token ARGV[1] and returns how many
+     */
+    private static final String RELEASE_FENCED_SCRIPT = """
+            local released = 0
+            for i = 1, #KEYS do
+                if redis.call('GET', KEYS[i]) == ARGV[1] then
+                    redis.call('DEL', KEYS[i])
+                    released = released + 1
+                end
+            end
+            return released
+            """;
+
     private final RedisTemplate<String, Object> redisTemplate;
 
     /**
@@ -140,6 +175,55 @@ public class RedisLockService {
         }
     }
 
+    /**
+     * Acquire several locks atomically, all or none, under a fencing token drawn from
+     * {@code fenceKey}. Tokens only grow, so a holder whose locks expired can be told apart from
+     * the one that took them next. Returns the token, 0 if any lock is held, or -1 if Redis could
+     * not be reached.
+     */
+    public long acquireFencedLocks(String fenceKey, List<String> lockKeys, Duration lockDuration) {
+        try {
+            byte[][] keysAndArgs = new byte[lockKeys.size() + 2][];
+            keysAndArgs[0] = ("lock:fence:" + fenceKey).getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < lockKeys.size(); i++) {
+                keysAndArgs[i + 1] = ("lock:" + lockKeys.get(i)).getBytes(StandardCharsets.UTF_8);
+            }
+            keysAndArgs[keysAndArgs.length - 1] = String.valueOf(lockDuration.toMillis()).getBytes(StandardCharsets.UTF_8);
+            Long token = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                    .eval(ACQUIRE_FENCED_SCRIPT.getBytes(StandardCharsets.UTF_8), ReturnType.INTEGER,
+                            lockKeys.size() + 1, keysAndArgs));
+            if (token == null || token == 0) {
+                log.debug("Failed to acquire fenced locks: {} (already held)", lockKeys);
+                return 0;
+            }
+            return token;
+        } catch (Exception e) {
+            log.error("Error acquiring fenced locks: {}", lockKeys, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Release the locks still held under the token; ones that expired and were taken by another
+     * holder are left alone
+     */
+    public int releaseFencedLocks(List<String> lockKeys, long token) {
+        try {
+            byte[][] keysAndArgs = new byte[lockKeys.size() + 1][];
+            for (int i = 0; i < lockKeys.size(); i++) {
+                keysAndArgs[i] = ("lock:" + lockKeys.get(i)).getBytes(StandardCharsets.UTF_8);
+            }
+            keysAndArgs[lockKeys.size()] = String.valueOf(token).getBytes(StandardCharsets.UTF_8);
+            Long released = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                    .eval(RELEASE_FENCED_SCRIPT.getBytes(StandardCharsets.UTF_8), ReturnType.INTEGER,
+                            lockKeys.size(), keysAndArgs));
+            return released != null ? released.intValue() : 0;
+        } catch (Exception e) {
+            log.error("Error releasing fenced locks: {}", lockKeys, e);
+            return 0;
+        }
+    }
+
     @FunctionalInterface
     public interface LockOperation<T> {
         T execute();
@@ -2,54 +2,244 @@ package tech.ceesar.glamme.common.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RedisRateLimitService {
 
+    /**
+     * Single server-side script for both algorithms so a check is one atomic round trip. Every limit
+     * is checked before any is recorded, and a request is recorded against all of its limits or
+     * against none, so a caller stopped by one limit does not use up the others.
+     *
+     * KEYS    = one key per limit
+     * ARGV    = cost (1 = consume, 0 = peek), request token, then algorithm ("log" | "gcra"),
+     *           max requests and window (ms) for each key in turn
+     * Returns {allowed (1/0), remaining, retry-after (ms)} for each key in turn
+     *
+     * Time comes from the Redis server clock so app nodes with skewed clocks share one window. The
+     * keys of one call must be served by one Redis node, as the single-node cache is.
+     */
+    private static final String RATE_LIMIT_SCRIPT = """
+            local cost = tonumber(ARGV[1])
+            local token = ARGV[2]
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+            local checks = {}
+            local allAllowed = true
+            for i, key in ipairs(KEYS) do
+                local algorithm = ARGV[i * 3]
+                local limit = tonumber(ARGV[i * 3 + 1])
+                local window = tonumber(ARGV[i * 3 + 2])
+                local check = {key = key, algorithm = algorithm, limit = limit, window = window}
+
+                if algorithm == 'log' then
+                    redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+                    check.count = redis.call('ZCARD', key)
+                    check.allowed = check.count + cost <= limit
+                    if not check.allowed then
+                        local oldest = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+                        check.retry = window
+                        if oldest[2] then
+                            check.retry = tonumber(oldest[2]) + window - now
+                        end
+                    end
+                else
+                    -- GCRA: a token bucket of size 'limit' refilled evenly over 'window'
+                    local tat = tonumber(redis.call('GET', key) or now)
+                    if tat < now then
+                        tat = now
+                    end
+                    if limit <= 0 then
+                        -- Nothing is ever allowed; report when the bucket is next full
+                        check.allowed = false
+                        check.retry = tat - now
+                    else
+                        check.interval = window / limit
+                        check.newTat = tat + check.interval * cost
+                        check.allowAt = check.newTat - window
+                        check.allowed = check.allowAt <= now
+                        if not check.allowed then
+                            check.retry = math.ceil(check.allowAt - now)
+                        end
+                    end
+                end
+                allAllowed = allAllowed and check.allowed
+                checks[i] = check
+            end
+
+            local results = {}
+            for i, check in ipairs(checks) do
+                local remaining = 0
+                if check.allowed then
+                    if check.algorithm == 'log' then
+                        remaining = check.limit - check.count
+                        if allAllowed and cost > 0 then
+                            redis.call('ZADD', check.key, now, time[1] .. '.' .. time[2] .. ':' .. token .. ':' .. i)
+                            redis.call('PEXPIRE', check.key, check.window)
+                            remaining = remaining - cost
+                        end
+                    else
+                        remaining = math.floor((now - check.allowAt) / check.interval)
+                        if allAllowed and cost > 0 then
+                            redis.call('SET', check.key, tostring(check.newTat), 'PX', math.ceil(check.newTat - now))
+                        else
+                            remaining = remaining + cost
+                        end
+                    end
+                end
+                results[#results + 1] = check.allowed and 1 or 0
+                results[#results + 1] = remaining
+                results[#results + 1] = math.max(check.retry or 0, 0)
+            end
+            return results
+            """;
+
+    private static final DefaultRedisScript<List> SCRIPT = new DefaultRedisScript<>(RATE_LIMIT_SCRIPT, List.class);
+
     private final RedisTemplate<String, Object> redisTemplate;
 
     /**
-     * Check if request is allowed based on rate limit
+     * Rate limiting algorithms supported by the script
      */
-    public boolean isAllowed(String key, int maxRequests, Duration window) {
-        try {
-            String redisKey = "ratelimit:" + key;
-            long currentTime = Instant.now().getEpochSecond();
-            long windowSeconds = window.getSeconds();
+    public enum Algorithm {
+        /** Exact count of requests in the trailing window, one ZSET member per request */
+        SLIDING_WINDOW_LOG,
+        /** Generic cell rate algorithm: O(1) memory token bucket allowing bursts of up to maxRequests */
+        GCRA
+    }
 
-            // Use Redis sorted set to track requests within the time window
-            redisTemplate.opsForZSet().add(redisKey, String.valueOf(currentTime), currentTime);
+    /**
+     * A single limit to evaluate
+     */
+    public record Limit(String key, int maxRequests, Duration window, Algorithm algorithm) {
+        public Limit(String key, int maxRequests, Duration window) {
+            this(key, maxRequests, window, Algorithm.SLIDING_WINDOW_LOG);
+        }
+    }
 
-            // Remove old entries outside the time window
-            redisTemplate.opsForZSet().removeRangeByScore(redisKey, 0, currentTime - windowSeconds);
+    /**
+     * Outcome of a rate limit check
+     */
+    public record Decision(boolean allowed, long remaining, Duration retryAfter) {
+        static Decision allow(int maxRequests) {
+            return new Decision(true, maxRequests, Duration.ZERO);
+        }
+    }
 
-            // Set expiration on the key
-            redisTemplate.expire(redisKey, windowSeconds, TimeUnit.SECONDS);
+    /**
+     * Check if request is allowed based on rate limit
+     */
+    public boolean isAllowed(String key, int maxRequests, Duration window) {
+        return isAllowed(key, maxRequests, window, Algorithm.SLIDING_WINDOW_LOG);
+    }
 
-            // Count requests in current window
-            Long requestCount = redisTemplate.opsForZSet().zCard(redisKey);
+    /**
+     * Check if request is allowed using the given algorithm
+     */
+    public boolean isAllowed(String key, int maxRequests, Duration window, Algorithm algorithm) {
+        return tryAcquire(new Limit(key, maxRequests, window, algorithm)).allowed();
+    }
 
-            boolean allowed = requestCount != null && requestCount <= maxRequests;
+    /**
+     * Consume one request from a limit
+     */
+    public Decision tryAcquire(Limit limit) {
+        return tryAcquireAll(List.of(limit)).get(0);
+    }
 
-            if (!allowed) {
-                log.warn("Rate limit exceeded for key: {}, requests: {}/{}", key, requestCount, maxRequests);
+    /**
+     * Consume one request from every limit, or from none of them if any limit is exhausted, in a
+     * single atomic script call. The request is allowed only if every decision allows it.
+     */
+    public List<Decision> tryAcquireAll(List<Limit> limits) {
+        List<Decision> decisions = evaluate(limits, 1);
+        for (int i = 0; i < limits.size(); i++) {
+            if (!decisions.get(i).allowed()) {
+                Limit limit = limits.get(i);
+                log.warn("Rate limit exceeded for key: {}, limit: {}/{}s", limit.key(), limit.maxRequests(),
+                        limit.window().getSeconds());
             }
+        }
+        return decisions;
+    }
 
-            return allowed;
-
+    private List<Decision> evaluate(List<Limit> limits, int cost) {
+        try {
+            try {
+                return toDecisions(limits, run(limits, cost, true));
+            } catch (Exception e) {
+                if (!isNoScript(e)) {
+                    throw e;
+                }
+                // Script cache was flushed (e.g. failover): EVAL the body, which also re-caches it
+                return toDecisions(limits, run(limits, cost, false));
+            }
         } catch (Exception e) {
-            log.error("Error checking rate limit for key: {}", key, e);
+            log.error("Error checking rate limit for keys: {}", limits.stream().map(Limit::key).toList(), e);
             // Allow request on error to avoid blocking legitimate traffic
-            return true;
+            return limits.stream().map(limit -> Decision.allow(limit.maxRequests())).toList();
+        }
+    }
+
+    private List<Object> run(List<Limit> limits, int cost, boolean cached) {
+        byte[][] keysAndArgs = new byte[limits.size() * 4 + 2][];
+        for (int i = 0; i < limits.size(); i++) {
+            Limit limit = limits.get(i);
+            keysAndArgs[i] = bytes(redisKey(limit));
+            int arg = limits.size() + 2 + i * 3;
+            keysAndArgs[arg] = bytes(limit.algorithm() == Algorithm.GCRA ? "gcra" : "log");
+            keysAndArgs[arg + 1] = bytes(String.valueOf(Math.max(limit.maxRequests(), 0)));
+            keysAndArgs[arg + 2] = bytes(String.valueOf(limit.window().toMillis()));
+        }
+        keysAndArgs[limits.size()] = bytes(String.valueOf(cost));
+        // Unique per request so concurrent hits in the same microsecond are all counted
+        keysAndArgs[limits.size() + 1] = bytes(Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        return redisTemplate.execute((RedisCallback<List<Object>>) connection -> cached
+                ? connection.scriptingCommands().evalSha(SCRIPT.getSha1(), ReturnType.MULTI, limits.size(), keysAndArgs)
+                : connection.scriptingCommands().eval(bytes(RATE_LIMIT_SCRIPT), ReturnType.MULTI, limits.size(), keysAndArgs));
+    }
+
+    private static List<Decision> toDecisions(List<Limit> limits, List<Object> results) {
+        List<Decision> decisions = new ArrayList<>(limits.size());
+        for (int i = 0; i < limits.size(); i++) {
+            decisions.add(new Decision(
+                    ((Number) results.get(i * 3)).longValue() == 1L,
+                    ((Number) results.get(i * 3 + 1)).longValue(),
+                    Duration.ofMillis(((Number) results.get(i * 3 + 2)).longValue())));
+        }
+        return decisions;
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String redisKey(Limit limit) {
+        // GCRA state is a plain string, so it must not share a key with the ZSET log
+        return limit.algorithm() == Algorithm.GCRA ? "ratelimit:gcra:" + limit.key() : "ratelimit:" + limit.key();
     }
 
     /**
@@ -84,50 +274,15 @@ public class RedisRateLimitService {
      * Get remaining requests for a key
      */
     public long getRemainingRequests(String key, int maxRequests, Duration window) {
-        try {
-            String redisKey = "ratelimit:" + key;
-            long currentTime = Instant.now().getEpochSecond();
-            long windowSeconds = window.getSeconds();
-
-            // Clean up old entries
-            redisTemplate.opsForZSet().removeRangeByScore(redisKey, 0, currentTime - windowSeconds);
-
-            Long requestCount = redisTemplate.opsForZSet().zCard(redisKey);
-            long count = requestCount != null ? requestCount : 0;
-
-            return Math.max(0, maxRequests - count);
-
-        } catch (Exception e) {
-            log.error("Error getting remaining requests for key: {}", key, e);
-            return maxRequests;
-        }
+        return evaluate(List.of(new Limit(key, maxRequests, window)), 0).get(0).remaining();
     }
 
     /**
-     * Get time until reset for a key
+     * Get time until the oldest request in the window expires for a key
      */
     public Duration getTimeUntilReset(String key, Duration window) {
-        try {
-            String redisKey = "ratelimit:" + key;
-            long currentTime = Instant.now().getEpochSecond();
-            long windowSeconds = window.getSeconds();
-
-            // Get the oldest timestamp in the current window
-            Object oldestTimestamp = redisTemplate.opsForZSet().range(redisKey, 0, 0).stream().findFirst().orElse(null);
-
-            if (oldestTimestamp != null) {
-                long oldest = Long.parseLong(oldestTimestamp.toString());
-                long resetTime = oldest + windowSeconds;
-                long secondsUntilReset = resetTime - currentTime;
-                return Duration.ofSeconds(Math.max(0, secondsUntilReset));
-            }
-
-            return Duration.ZERO;
-
-        } catch (Exception e) {
-            log.error("Error getting time until reset for key: {}", key, e);
-            return Duration.ZERO;
-        }
+        // A zero-size peek reports how long until the oldest logged request leaves the window
+        return evaluate(List.of(new Limit(key, 0, window)), 0).get(0).retryAfter();
     }
 
     /**
@@ -135,8 +290,7 @@ public class RedisRateLimitService {
      */
     public void clearRateLimit(String key) {
         try {
-            String redisKey = "ratelimit:" + key;
-            redisTemplate.delete(redisKey);
+            redisTemplate.delete(List.of("ratelimit:" + key, "ratelimit:gcra:" + key));
             log.info("Cleared rate limit for key: {}", key);
         } catch (Exception e) {
             log.error("Error clearing rate limit for key: {}", key, e);
@@ -181,21 +335,15 @@ public class RedisRateLimitService {
     }
 
     /**
-     * Check API endpoint rate limit
+     * Check API endpoint rate limit: user, IP and endpoint limits in one round trip, counted against
+     * all three only when all three allow the request
      */
     public boolean checkApiRateLimit(String endpoint, String userId, String ipAddress) {
-        // Check user limit (most permissive)
-        if (!isAllowedByUser(userId, RateLimits.USER_MAX_REQUESTS, RateLimits.USER_WINDOW)) {
-            return false;
-        }
-
-        // Check IP limit (more restrictive)
-        if (!isAllowedByIp(ipAddress, RateLimits.IP_MAX_REQUESTS, RateLimits.IP_WINDOW)) {
-            return false;
-        }
-
-        // Check endpoint specific limit
-        return isAllowedByEndpoint(endpoint, RateLimits.API_MAX_REQUESTS, RateLimits.API_WINDOW);
+        return tryAcquireAll(List.of(
+                new Limit("user:" + userId, RateLimits.USER_MAX_REQUESTS, RateLimits.USER_WINDOW),
+                new Limit("ip:" + ipAddress, RateLimits.IP_MAX_REQUESTS, RateLimits.IP_WINDOW),
+                new Limit("endpoint:" + endpoint, RateLimits.API_MAX_REQUESTS, RateLimits.API_WINDOW)
+        )).stream().allMatch(Decision::allowed);
     }
 
     /**
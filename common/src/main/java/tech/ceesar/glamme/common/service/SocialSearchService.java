@@ -172,6 +172,22 @@ public class SocialSearchService {
         return false;
     }
 
+    /**
+     * Update engagement metrics for many posts in one bulk request, without reading them first.
+     * Keys are post ids; returns the number of posts updated.
+     */
+    public int updatePostMetrics(Map<String, PostMetrics> metrics) {
+        Map<String, Map<String, Object>> updates = new HashMap<>();
+        metrics.forEach((postId, m) -> updates.put(postId, Map.of(
+                "likesCount", m.likesCount(),
+                "commentsCount", m.commentsCount(),
+                "sharesCount", m.sharesCount())));
+        return openSearchService.bulkUpdate(POSTS_INDEX, updates);
+    }
+
+    public record PostMetrics(long likesCount, long commentsCount, long sharesCount) {
+    }
+
     /**
      * Get post by ID
      */
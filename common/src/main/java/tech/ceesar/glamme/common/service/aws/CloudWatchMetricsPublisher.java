@@ -0,0 +1,306 @@
+package tech.ceesar.glamme.common.service.aws;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+import tech.ceesar.glamme.common.config.MetricsPublisherConfig;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates metric samples in memory and publishes them to CloudWatch in the background.
+ *
+ * Recording a sample only touches a per-series accumulator (adders and CAS-updated min/max), so
+ * request threads never wait on AWS. Every flush interval each series is rolled into one
+ * {@link StatisticSet} datum and sent in PutMetricData batches of up to 1000 datums. If CloudWatch
+ * is slow and the send queue is full, the batch is dropped and counted instead of blocking the flusher.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CloudWatchMetricsPublisher {
+
+    // Series that saw no samples for this many flushes are forgotten
+    private static final int IDLE_FLUSHES_BEFORE_EVICTION = 5;
+
+    private final MetricsPublisherConfig config;
+    private final CloudWatchClient cloudWatchClient;
+
+    private final Map<SeriesKey, Accumulator> series = new ConcurrentHashMap<>();
+    private final AtomicLong datumsPublished = new AtomicLong();
+    private final AtomicLong datumsDropped = new AtomicLong();
+    private final LongAdder samplesDropped = new LongAdder();
+    private ScheduledExecutorService flusher;
+    private ThreadPoolExecutor senders;
+
+    @PostConstruct
+    public void start() {
+        senders = new ThreadPoolExecutor(config.getSenderThreads(), config.getSenderThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.getMaxPendingRequests()),
+                runnable -> daemon(runnable, "cloudwatch-metrics-sender"));
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "cloudwatch-metrics-flusher"));
+        long intervalMillis = config.getFlushInterval().toMillis();
+        flusher.scheduleAtFixedRate(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        if (config.isStub()) {
+            log.info("CloudWatch metrics publisher running in local stub mode");
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(config.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            flush();
+            senders.shutdown();
+            senders.awaitTermination(config.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add a sample to its series; published with the next flush
+     */
+    public void record(String namespace, String metricName, double value,
+                       StandardUnit unit, Map<String, String> dimensions) {
+        if (!Double.isFinite(value)) {
+            // CloudWatch rejects NaN and infinite values
+            samplesDropped.increment();
+            return;
+        }
+        SeriesKey key = new SeriesKey(namespace, metricName, unit, dimensions != null ? dimensions : Map.of());
+        while (true) {
+            Accumulator accumulator = series.get(key);
+            if (accumulator == null) {
+                if (series.size() >= config.getMaxSeries()) {
+                    samplesDropped.increment();
+                    return;
+                }
+                SeriesKey owned = key.copy();
+                accumulator = series.computeIfAbsent(owned, k -> new Accumulator());
+            }
+            if (accumulator.add(value)) {
+                return;
+            }
+            // The flusher retired this accumulator as idle; retry against a fresh one
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Roll every series into a datum and hand the batches to the sender threads
+     */
+    public void flush() {
+        Instant timestamp = Instant.now();
+        Map<String, List<MetricDatum>> byNamespace = new HashMap<>();
+
+        series.forEach((key, accumulator) -> {
+            StatisticSet statistics = accumulator.drain();
+            if (statistics == null) {
+                // Retiring fails while a sample is being added, so no writer can land in an evicted accumulator
+                if (++accumulator.idleFlushes < IDLE_FLUSHES_BEFORE_EVICTION || !accumulator.retire()) {
+                    return;
+                }
+                series.remove(key, accumulator);
+                // Pick up anything recorded between the drain and the retirement
+                statistics = accumulator.drain();
+                if (statistics == null) {
+                    return;
+                }
+            } else {
+                accumulator.idleFlushes = 0;
+            }
+            byNamespace.computeIfAbsent(key.namespace(), namespace -> new ArrayList<>())
+                    .add(key.toDatum(statistics, timestamp));
+        });
+
+        int batchSize = config.getMaxDatumsPerRequest();
+        byNamespace.forEach((namespace, datums) -> {
+            for (int from = 0; from < datums.size(); from += batchSize) {
+                submit(namespace, datums.subList(from, Math.min(from + batchSize, datums.size())));
+            }
+        });
+    }
+
+    /**
+     * Publisher counters since startup
+     */
+    public PublisherStats getStats() {
+        return new PublisherStats(series.size(), datumsPublished.get(), datumsDropped.get(),
+                samplesDropped.sum(), senders != null ? senders.getQueue().size() : 0);
+    }
+
+    public record PublisherStats(int series, long datumsPublished, long datumsDropped,
+                                 long samplesDropped, int pendingRequests) {
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush CloudWatch metrics", e);
+        }
+    }
+
+    private void submit(String namespace, List<MetricDatum> datums) {
+        PutMetricDataRequest request = PutMetricDataRequest.builder()
+                .namespace(namespace)
+                .metricData(datums)
+                .overrideConfiguration(override -> override.apiCallTimeout(config.getRequestTimeout()))
+                .build();
+        try {
+            senders.execute(() -> send(request));
+        } catch (RejectedExecutionException e) {
+            datumsDropped.addAndGet(datums.size());
+            log.warn("CloudWatch publisher backlogged, dropped {} datums for namespace: {}", datums.size(), namespace);
+        }
+    }
+
+    private void send(PutMetricDataRequest request) {
+        int size = request.metricData().size();
+        try {
+            if (config.isStub()) {
+                log.info("[stub] PutMetricData namespace: {} datums: {}", request.namespace(), size);
+                request.metricData().forEach(datum -> log.debug("[stub] {}", datum));
+            } else {
+                cloudWatchClient.putMetricData(request);
+            }
+            datumsPublished.addAndGet(size);
+            log.debug("Published {} metrics to namespace: {}", size, request.namespace());
+        } catch (Exception e) {
+            datumsDropped.addAndGet(size);
+            log.error("Failed to publish {} metrics to namespace: {}", size, request.namespace(), e);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private record SeriesKey(String namespace, String metricName, StandardUnit unit, Map<String, String> dimensions) {
+
+        SeriesKey copy() {
+            return new SeriesKey(namespace, metricName, unit, Map.copyOf(dimensions));
+        }
+
+        MetricDatum toDatum(StatisticSet statistics, Instant timestamp) {
+            return MetricDatum.builder()
+                    .metricName(metricName)
+                    .unit(unit)
+                    .statisticValues(statistics)
+                    .timestamp(timestamp)
+                    .dimensions(dimensions.entrySet().stream()
+                            .map(entry -> Dimension.builder()
+                                    .name(entry.getKey())
+                                    .value(entry.getValue())
+                                    .build())
+                            .toList())
+                    .build();
+        }
+    }
+
+    /**
+     * Lock-free running statistics for one series. The count is bumped last on write and read first on
+     * drain, so a sample that straddles a flush lands whole in one of the two intervals for count, and
+     * at worst its sum/min/max are reported one interval apart.
+     *
+     * Writers register in {@code writers} around each add. The flusher retires an idle accumulator by
+     * swinging that counter from 0 to -1, after which adds are refused and the caller moves on to a
+     * new accumulator, so a sample is never added to one that has already been evicted and drained.
+     */
+    private static final class Accumulator {
+        private static final long POSITIVE_INFINITY = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        private static final long NEGATIVE_INFINITY = Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY);
+
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final AtomicLong min = new AtomicLong(POSITIVE_INFINITY);
+        private final AtomicLong max = new AtomicLong(NEGATIVE_INFINITY);
+        // Samples being added right now, or -1 once retired
+        private final AtomicInteger writers = new AtomicInteger();
+        // Only touched by the flusher thread
+        private int idleFlushes;
+
+        boolean add(double value) {
+            int active;
+            do {
+                active = writers.get();
+                if (active < 0) {
+                    return false;
+                }
+            } while (!writers.compareAndSet(active, active + 1));
+            try {
+                accumulate(value);
+            } finally {
+                writers.decrementAndGet();
+            }
+            return true;
+        }
+
+        boolean retire() {
+            return writers.compareAndSet(0, -1);
+        }
+
+        private void accumulate(double value) {
+            sum.add(value);
+            long bits = Double.doubleToRawLongBits(value);
+            long current;
+            while (value < Double.longBitsToDouble(current = min.get()) && !min.compareAndSet(current, bits)) {
+                // retry
+            }
+            while (value > Double.longBitsToDouble(current = max.get()) && !max.compareAndSet(current, bits)) {
+                // retry
+            }
+            count.increment();
+        }
+
+        StatisticSet drain() {
+            long samples = count.sumThenReset();
+            if (samples == 0) {
+                return null;
+            }
+            double total = sum.sumThenReset();
+            double average = total / samples;
+            double minimum = Double.longBitsToDouble(min.getAndSet(POSITIVE_INFINITY));
+            double maximum = Double.longBitsToDouble(max.getAndSet(NEGATIVE_INFINITY));
+            return StatisticSet.builder()
+                    .sampleCount((double) samples)
+                    .sum(total)
+                    // Keep the set consistent if a straddling sample's min/max went to the previous interval
+                    .minimum(Math.min(minimum, average))
+                    .maximum(Math.max(maximum, average))
+                    .build();
+        }
+    }
+}
@@ -3,18 +3,20 @@ package tech.ceesar.glamme.common.service.aws;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
-import software.amazon.awssdk.services.cloudwatch.model.*;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 
-import java.time.Instant;
 import java.util.Map;
 
+/**
+ * Metric recording API used across services. Samples are aggregated by {@link CloudWatchMetricsPublisher}
+ * and published in the background, so none of these calls block on CloudWatch.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CloudWatchMetricsService {
 
-    private final CloudWatchClient cloudWatchClient;
+    private final CloudWatchMetricsPublisher publisher;
 
     /**
      * Publish a single metric
@@ -29,32 +31,10 @@ public class CloudWatchMetricsService {
     public void publishMetric(String namespace, String metricName, double value,
                             StandardUnit unit, Map<String, String> dimensions) {
         try {
-            MetricDatum.Builder metricBuilder = MetricDatum.builder()
-                    .metricName(metricName)
-                    .value(value)
-                    .unit(unit)
-                    .timestamp(Instant.now());
-
-            if (dimensions != null && !dimensions.isEmpty()) {
-                metricBuilder.dimensions(dimensions.entrySet().stream()
-                        .map(entry -> Dimension.builder()
-                                .name(entry.getKey())
-                                .value(entry.getValue())
-                                .build())
-                        .toList());
-            }
-
-            PutMetricDataRequest request = PutMetricDataRequest.builder()
-                    .namespace(namespace)
-                    .metricData(metricBuilder.build())
-                    .build();
-
-            cloudWatchClient.putMetricData(request);
-
-            log.debug("Published metric: {} to namespace: {} with value: {}", metricName, namespace, value);
-
+            publisher.record(namespace, metricName, value, unit, dimensions);
+            log.debug("Recorded metric: {} to namespace: {} with value: {}", metricName, namespace, value);
         } catch (Exception e) {
-            log.error("Failed to publish metric: {}", metricName, e);
+            log.error("Failed to record metric: {}", metricName, e);
         }
     }
 
@@ -70,40 +50,7 @@ public class CloudWatchMetricsService {
      */
     public void publishMetrics(String namespace, Map<String, Double> metrics,
                              StandardUnit unit, Map<String, String> dimensions) {
-        try {
-            var metricData = metrics.entrySet().stream()
-                    .map(entry -> {
-                        MetricDatum.Builder metricBuilder = MetricDatum.builder()
-                                .metricName(entry.getKey())
-                                .value(entry.getValue())
-                                .unit(unit)
-                                .timestamp(Instant.now());
-
-                        if (dimensions != null && !dimensions.isEmpty()) {
-                            metricBuilder.dimensions(dimensions.entrySet().stream()
-                                    .map(dim -> Dimension.builder()
-                                            .name(dim.getKey())
-                                            .value(dim.getValue())
-                                            .build())
-                                    .toList());
-                        }
-
-                        return metricBuilder.build();
-                    })
-                    .toList();
-
-            PutMetricDataRequest request = PutMetricDataRequest.builder()
-                    .namespace(namespace)
-                    .metricData(metricData)
-                    .build();
-
-            cloudWatchClient.putMetricData(request);
-
-            log.debug("Published {} metrics to namespace: {}", metrics.size(), namespace);
-
-        } catch (Exception e) {
-            log.error("Failed to publish batch metrics", e);
-        }
+        metrics.forEach((metricName, value) -> publishMetric(namespace, metricName, value, unit, dimensions));
     }
 
     /**
@@ -194,12 +141,25 @@ public class CloudWatchMetricsService {
     }
 
     public void recordCacheHit(String cacheName) {
-        publishMetric("GlamMe/Cache", "CacheHits", 1.0, StandardUnit.COUNT,
-                     Map.of("CacheName", cacheName));
+        recordCacheHits(cacheName, 1);
     }
 
     public void recordCacheMiss(String cacheName) {
-        publishMetric("GlamMe/Cache", "CacheMisses", 1.0, StandardUnit.COUNT,
+        recordCacheMisses(cacheName, 1);
+    }
+
+    public void recordCacheHits(String cacheName, long count) {
+        publishMetric("GlamMe/Cache", "CacheHits", count, StandardUnit.COUNT,
+                     Map.of("CacheName", cacheName));
+    }
+
+    public void recordCacheMisses(String cacheName, long count) {
+        publishMetric("GlamMe/Cache", "CacheMisses", count, StandardUnit.COUNT,
+                     Map.of("CacheName", cacheName));
+    }
+
+    public void recordCacheEvictions(String cacheName, long count) {
+        publishMetric("GlamMe/Cache", "CacheEvictions", count, StandardUnit.COUNT,
                      Map.of("CacheName", cacheName));
     }
 
@@ -0,0 +1,208 @@
+package tech.ceesar.glamme.common.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+import tech.ceesar.glamme.common.config.EventBridgeConfig;
+import tech.ceesar.glamme.common.service.aws.CloudWatchMetricsService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EventPublisherTest {
+
+    private EventBridgeClient eventBridgeClient;
+    private CloudWatchMetricsService metricsService;
+    private EventBridgeConfig config;
+    private List<PutEventsRequest> requests;
+    private EventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        eventBridgeClient = mock(EventBridgeClient.class);
+        metricsService = mock(CloudWatchMetricsService.class);
+        config = new EventBridgeConfig();
+        config.setRetryBackoff(Duration.ofMillis(1));
+        requests = new CopyOnWriteArrayList<>();
+        respondWith(entry -> null);
+
+        publisher = new EventPublisher(eventBridgeClient, config, metricsService);
+        ReflectionTestUtils.setField(publisher, "eventBusName", "test-bus");
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.stop();
+    }
+
+    @Test
+    void publishEvent_sendsImmediatelyAndThrowsWhenPutEventsFails() {
+        publisher.publishEvent("BookingCreated", Map.of("bookingId", 1));
+
+        assertEquals(1, requests.size());
+        PutEventsRequestEntry entry = requests.get(0).entries().get(0);
+        assertEquals("test-bus", entry.eventBusName());
+        assertEquals("BookingCreated", entry.detailType());
+        assertEquals("{\"bookingId\":1}", entry.detail());
+
+        when(eventBridgeClient.putEvents(any(PutEventsRequest.class))).thenThrow(new IllegalStateException("down"));
+        RuntimeException thrown = assertThrows(RuntimeException.class,
+                () -> publisher.publishEvent("BookingCreated", Map.of("bookingId", 2)));
+        assertEquals("Failed to publish event", thrown.getMessage());
+    }
+
+    @Test
+    void publishBatch_packsAtMostTenEntriesPerRequest() {
+        boolean[] accepted = publisher.publishBatch(events(25, "x"));
+
+        assertEquals(List.of(10, 10, 5), requests.stream().map(request -> request.entries().size()).toList());
+        for (boolean flag : accepted) {
+            assertTrue(flag);
+        }
+        assertEquals(25, publisher.getStats().published());
+    }
+
+    @Test
+    void publishBatch_splitsRequestsAtTheSizeLimitAndRejectsOversizedEvents() {
+        String detail = "y".repeat(100);
+        config.setMaxBatchBytes(450);
+        List<EventPublisher.OutgoingEvent> events = new ArrayList<>(events(5, detail));
+        // Larger than a whole request, never sent
+        events.add(2, new EventPublisher.OutgoingEvent("Huge", "z".repeat(500)));
+
+        boolean[] accepted = publisher.publishBatch(events);
+
+        // Each entry is a little over 100 bytes once source, detail type and time are counted
+        assertEquals(List.of(3, 2), requests.stream().map(request -> request.entries().size()).toList());
+        assertArrayEquals(new boolean[]{true, true, false, true, true, true}, accepted);
+        assertTrue(requests.stream().flatMap(request -> request.entries().stream())
+                .noneMatch(entry -> entry.detailType().equals("Huge")));
+        assertEquals(1, publisher.getStats().failed());
+    }
+
+    @Test
+    void publishBatch_retriesOnlyThrottledAndInternalFailures() {
+        List<String> firstAttemptErrors = new ArrayList<>(List.of("", "ThrottlingException", "ValidationException", "InternalFailure"));
+        respondWith(entry -> requests.size() == 1
+                ? emptyToNull(firstAttemptErrors.get(Integer.parseInt(entry.detail().replace("\"", "").substring(1))))
+                : null);
+
+        boolean[] accepted = publisher.publishBatch(IntStream.range(0, 4)
+                .mapToObj(i -> new EventPublisher.OutgoingEvent("Event", "e" + i))
+                .toList());
+
+        assertArrayEquals(new boolean[]{true, true, false, true}, accepted);
+        assertEquals(2, requests.size());
+        assertEquals(List.of("\"e1\"", "\"e3\""), requests.get(1).entries().stream().map(PutEventsRequestEntry::detail).toList());
+        assertEquals(3, publisher.getStats().published());
+        assertEquals(1, publisher.getStats().failed());
+    }
+
+    @Test
+    void publishBatch_givesUpAfterMaxAttempts() {
+        config.setMaxAttempts(2);
+        respondWith(entry -> "ThrottlingException");
+
+        boolean[] accepted = publisher.publishBatch(events(1, "x"));
+
+        assertFalse(accepted[0]);
+        assertEquals(2, requests.size());
+        assertEquals(1, publisher.getStats().failed());
+    }
+
+    @Test
+    void publishEventAsync_buffersEventsAndDispatchesThemInBatches() throws InterruptedException {
+        config.setDispatcherThreads(1);
+        publisher.start();
+
+        for (int i = 0; i < 25; i++) {
+            assertTrue(publisher.publishEventAsync("RideLocation", Map.of("seq", i)));
+        }
+        publisher.stop();
+
+        assertEquals(25, publisher.getStats().published());
+        assertEquals(25, requests.stream().mapToInt(request -> request.entries().size()).sum());
+        assertTrue(requests.stream().allMatch(request -> request.entries().size() <= 10));
+        assertEquals(0, publisher.getStats().queueDepth());
+        verify(metricsService, atLeastOnce()).publishMetric(eq("GlamMe/Events"), eq("PutEventsBatchSize"),
+                anyDouble(), any(), eq(Map.of("EventBus", "test-bus")));
+    }
+
+    @Test
+    void publishEventAsync_dropsEventsWhenTheBufferIsFull() throws InterruptedException {
+        config.setDispatcherThreads(1);
+        config.setQueueCapacity(1);
+        config.setOfferTimeout(Duration.ofMillis(1));
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(eventBridgeClient.putEvents(any(PutEventsRequest.class))).thenAnswer(invocation -> {
+            sending.countDown();
+            release.await();
+            PutEventsRequest request = invocation.getArgument(0);
+            requests.add(request);
+            return PutEventsResponse.builder().failedEntryCount(0).build();
+        });
+        publisher.start();
+
+        assertTrue(publisher.publishEventAsync("RideLocation", 1));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        // The dispatcher is busy, one event fits in the buffer and the next is dropped
+        assertTrue(publisher.publishEventAsync("RideLocation", 2));
+        assertFalse(publisher.publishEventAsync("RideLocation", 3));
+        assertEquals(1, publisher.getStats().dropped());
+        verify(metricsService).publishMetric(eq("GlamMe/Events"), eq("EventsDropped"), eq(1.0), any(), any());
+
+        release.countDown();
+        publisher.stop();
+        assertEquals(2, publisher.getStats().published());
+    }
+
+    /**
+     * Answer every PutEvents call with one result per entry; the function returns the error code, or null on success
+     */
+    private void respondWith(Function<PutEventsRequestEntry, String> errorCode) {
+        when(eventBridgeClient.putEvents(any(PutEventsRequest.class))).thenAnswer(invocation -> {
+            PutEventsRequest request = invocation.getArgument(0);
+            requests.add(request);
+            List<PutEventsResultEntry> results = new ArrayList<>();
+            int failures = 0;
+            for (PutEventsRequestEntry entry : request.entries()) {
+                String code = errorCode.apply(entry);
+                if (code == null) {
+                    results.add(PutEventsResultEntry.builder().eventId("id").build());
+                } else {
+                    failures++;
+                    results.add(PutEventsResultEntry.builder().errorCode(code).errorMessage(code).build());
+                }
+            }
+            return PutEventsResponse.builder().failedEntryCount(failures).entries(results).build();
+        });
+    }
+
+    private static List<EventPublisher.OutgoingEvent> events(int count, String detail) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new EventPublisher.OutgoingEvent("Event", detail))
+                .toList();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
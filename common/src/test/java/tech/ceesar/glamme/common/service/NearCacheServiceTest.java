@@ -0,0 +1,176 @@
+package tech.ceesar.glamme.common.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+import tech.ceesar.glamme.common.config.NearCacheConfig;
+import tech.ceesar.glamme.common.service.aws.CloudWatchMetricsService;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class NearCacheServiceTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private final List<NearCacheService> nodes = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(NearCacheService::stop);
+    }
+
+    @Test
+    void sharedTier_holdsValuesOnlyUnderConfiguredPrefixes() {
+        NearCacheService node = node();
+        Ride ride = new Ride("REQUESTED");
+
+        node.put("products:1", ride, node.generation());
+        node.put("orders:1", ride, node.generation());
+
+        assertSame(ride, node.get("products:1", Ride.class).orElseThrow());
+        assertTrue(node.get("orders:1", Ride.class).isEmpty());
+        assertTrue(node.get("products:1", String.class).isEmpty());
+        assertEquals(1, node.getStats().get("products:").size());
+    }
+
+    @Test
+    void copyOnReadTier_handsEveryCallerItsOwnCopy() {
+        NearCacheService node = node();
+        node.put("ride:1", new Ride("REQUESTED"), node.generation());
+
+        Ride first = node.get("ride:1", Ride.class).orElseThrow();
+        first.setStatus("COMPLETED");
+
+        Ride second = node.get("ride:1", Ride.class).orElseThrow();
+        assertNotSame(first, second);
+        assertEquals("REQUESTED", second.getStatus());
+    }
+
+    @Test
+    void readThatRacedWithAnInvalidation_isNotKept() {
+        NearCacheService node = node();
+        long readGeneration = node.generation();
+
+        node.invalidate("products:1");
+        node.put("products:1", new Ride("STALE"), readGeneration);
+
+        assertTrue(node.get("products:1", Ride.class).isEmpty());
+        node.put("products:1", new Ride("FRESH"), node.generation());
+        assertEquals("FRESH", node.get("products:1", Ride.class).orElseThrow().getStatus());
+    }
+
+    @Test
+    void invalidations_reachOtherNodes() throws InterruptedException {
+        NearCacheService writer = node();
+        NearCacheService reader = node();
+        reader.put("products:1", new Ride("A"), reader.generation());
+        reader.put("products:list:1", new Ride("B"), reader.generation());
+        reader.put("products:list:2", new Ride("C"), reader.generation());
+        long before = reader.generation();
+
+        writer.invalidate("products:1");
+        awaitEmpty(reader, "products:1");
+        assertTrue(reader.generation() > before);
+
+        writer.invalidatePattern("products:list:*");
+        awaitEmpty(reader, "products:list:1");
+        awaitEmpty(reader, "products:list:2");
+    }
+
+    @Test
+    void cacheReaders_cannotChangeWhatOthersReadFromACopyOnReadPrefix() {
+        RedisCacheService cacheService = new RedisCacheService(redisTemplate, new ObjectMapper(), node());
+        cacheService.set("ride:42", new Ride("REQUESTED"), Duration.ofMinutes(1));
+
+        // Loads the near cache, then modifies the value before writing it back, as RideService does
+        Ride ride = cacheService.get("ride:42", Ride.class).orElseThrow();
+        ride.setStatus("ACCEPTED");
+        assertEquals("REQUESTED", cacheService.get("ride:42", Ride.class).orElseThrow().getStatus());
+
+        cacheService.set("ride:42", ride, Duration.ofMinutes(1));
+        assertEquals("ACCEPTED", cacheService.get("ride:42", Ride.class).orElseThrow().getStatus());
+    }
+
+    private NearCacheService node() {
+        NearCacheConfig config = new NearCacheConfig();
+        config.setEnabled(true);
+        config.setInvalidationChannel("test:cache:invalidate");
+        NearCacheConfig.Tier shared = new NearCacheConfig.Tier();
+        NearCacheConfig.Tier copied = new NearCacheConfig.Tier();
+        copied.setCopyOnRead(true);
+        config.setPrefixes(Map.of("products:", shared, "ride:", copied));
+
+        NearCacheService node = new NearCacheService(config, redisTemplate, connectionFactory,
+                mock(CloudWatchMetricsService.class));
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static void awaitEmpty(NearCacheService node, String key) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (node.get(key, Ride.class).isPresent()) {
+            assertTrue(System.currentTimeMillis() < deadline, "invalidation of " + key + " never arrived");
+            Thread.sleep(10);
+        }
+    }
+
+    public static class Ride {
+        private String status;
+
+        public Ride() {
+        }
+
+        Ride(String status) {
+            this.status = status;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+    }
+}
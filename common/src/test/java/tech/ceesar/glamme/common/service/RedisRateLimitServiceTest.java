@@ -0,0 +1,154 @@
+package tech.ceesar.glamme.common.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisRateLimitServiceTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private RedisRateLimitService rateLimits;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        rateLimits = new RedisRateLimitService(redisTemplate);
+    }
+
+    @Test
+    void slidingWindowLog_allowsUpToTheLimitAndReportsWhenTheOldestRequestLeaves() {
+        Duration window = Duration.ofSeconds(10);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimits.isAllowed("log", 3, window));
+        }
+        assertEquals(0, rateLimits.getRemainingRequests("log", 3, window));
+
+        RedisRateLimitService.Decision denied = rateLimits.tryAcquire(new RedisRateLimitService.Limit("log", 3, window));
+        assertFalse(denied.allowed());
+        assertTrue(denied.retryAfter().compareTo(Duration.ZERO) > 0 && denied.retryAfter().compareTo(window) <= 0);
+        // Denied requests are not logged
+        assertEquals(3L, redisTemplate.opsForZSet().zCard("ratelimit:log"));
+        assertTrue(rateLimits.getTimeUntilReset("log", window).compareTo(Duration.ZERO) > 0);
+
+        rateLimits.clearRateLimit("log");
+        assertEquals(3, rateLimits.getRemainingRequests("log", 3, window));
+        assertEquals(Duration.ZERO, rateLimits.getTimeUntilReset("log", window));
+    }
+
+    @Test
+    void gcra_allowsABurstThenRefillsEvenly() throws InterruptedException {
+        RedisRateLimitService.Limit limit = new RedisRateLimitService.Limit("gcra", 5, Duration.ofMillis(500),
+                RedisRateLimitService.Algorithm.GCRA);
+        for (int i = 0; i < 5; i++) {
+            RedisRateLimitService.Decision decision = rateLimits.tryAcquire(limit);
+            assertTrue(decision.allowed());
+            assertEquals(4 - i, decision.remaining());
+        }
+        RedisRateLimitService.Decision denied = rateLimits.tryAcquire(limit);
+        assertFalse(denied.allowed());
+        // One request is refilled every 100ms
+        assertTrue(denied.retryAfter().toMillis() > 0 && denied.retryAfter().toMillis() <= 100);
+
+        Thread.sleep(denied.retryAfter().toMillis() + 20);
+        assertTrue(rateLimits.tryAcquire(limit).allowed());
+        assertFalse(rateLimits.tryAcquire(limit).allowed());
+    }
+
+    @Test
+    void gcra_withNoRequestsAllowed_deniesWithoutFailing() {
+        RedisRateLimitService.Decision decision = rateLimits.tryAcquire(new RedisRateLimitService.Limit("closed", 0,
+                Duration.ofSeconds(1), RedisRateLimitService.Algorithm.GCRA));
+        assertFalse(decision.allowed());
+        assertEquals(0, decision.remaining());
+        assertEquals(Duration.ZERO, decision.retryAfter());
+    }
+
+    @Test
+    void tryAcquireAll_recordsAgainstNoLimitWhenOneDenies() {
+        Duration window = Duration.ofMinutes(1);
+        List<RedisRateLimitService.Limit> limits = List.of(
+                new RedisRateLimitService.Limit("user:u1", 1, window),
+                new RedisRateLimitService.Limit("ip:10.0.0.1", 10, window),
+                new RedisRateLimitService.Limit("endpoint:/api", 10, window, RedisRateLimitService.Algorithm.GCRA));
+
+        assertTrue(rateLimits.tryAcquireAll(limits).stream().allMatch(RedisRateLimitService.Decision::allowed));
+        for (int i = 0; i < 5; i++) {
+            List<RedisRateLimitService.Decision> decisions = rateLimits.tryAcquireAll(limits);
+            assertFalse(decisions.get(0).allowed());
+            assertTrue(decisions.get(1).allowed());
+            assertTrue(decisions.get(2).allowed());
+        }
+
+        // Only the first request used the shared IP and endpoint budgets
+        assertEquals(9, rateLimits.getRemainingRequests("ip:10.0.0.1", 10, window));
+        assertEquals(9, rateLimits.tryAcquire(new RedisRateLimitService.Limit("endpoint:/api", 10, window,
+                RedisRateLimitService.Algorithm.GCRA)).remaining() + 1);
+    }
+
+    @Test
+    void checkApiRateLimit_blockedUserLeavesTheSharedLimitsAlone() {
+        for (int i = 0; i < RedisRateLimitService.RateLimits.USER_MAX_REQUESTS; i++) {
+            redisTemplate.opsForZSet().add("ratelimit:user:heavy", "seed-" + i, System.currentTimeMillis());
+        }
+
+        assertFalse(rateLimits.checkApiRateLimit("/api/feed", "heavy", "10.0.0.2"));
+        assertEquals(RedisRateLimitService.RateLimits.IP_MAX_REQUESTS, rateLimits.getRemainingRequests("ip:10.0.0.2",
+                RedisRateLimitService.RateLimits.IP_MAX_REQUESTS, RedisRateLimitService.RateLimits.IP_WINDOW));
+        assertTrue(rateLimits.checkApiRateLimit("/api/feed", "light", "10.0.0.2"));
+        assertEquals(RedisRateLimitService.RateLimits.IP_MAX_REQUESTS - 1, rateLimits.getRemainingRequests("ip:10.0.0.2",
+                RedisRateLimitService.RateLimits.IP_MAX_REQUESTS, RedisRateLimitService.RateLimits.IP_WINDOW));
+    }
+
+    @Test
+    void flushedScriptCache_fallsBackToEval() {
+        assertTrue(rateLimits.isAllowed("flush", 2, Duration.ofMinutes(1)));
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.scriptingCommands().scriptFlush();
+        }
+
+        assertTrue(rateLimits.isAllowed("flush", 2, Duration.ofMinutes(1)));
+        assertFalse(rateLimits.isAllowed("flush", 2, Duration.ofMinutes(1)));
+    }
+}
@@ -0,0 +1,240 @@
+package tech.ceesar.glamme.common.service.aws;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataResponse;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+import tech.ceesar.glamme.common.config.MetricsPublisherConfig;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CloudWatchMetricsPublisherTest {
+
+    private MetricsPublisherConfig config;
+    private CloudWatchClient cloudWatchClient;
+    private List<PutMetricDataRequest> sent;
+    private CloudWatchMetricsPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        config = new MetricsPublisherConfig();
+        // Flushes are driven by the tests
+        config.setFlushInterval(Duration.ofHours(1));
+        config.setSenderThreads(1);
+        cloudWatchClient = mock(CloudWatchClient.class);
+        sent = new CopyOnWriteArrayList<>();
+        when(cloudWatchClient.putMetricData(any(PutMetricDataRequest.class))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return PutMetricDataResponse.builder().build();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.stop();
+        }
+    }
+
+    @Test
+    void flush_rollsEachSeriesIntoOneStatisticSet() throws InterruptedException {
+        start();
+        publisher.record("Glamme/Rides", "Latency", 10, StandardUnit.MILLISECONDS, Map.of("api", "match"));
+        publisher.record("Glamme/Rides", "Latency", 30, StandardUnit.MILLISECONDS, Map.of("api", "match"));
+        publisher.record("Glamme/Rides", "Latency", 20, StandardUnit.MILLISECONDS, Map.of("api", "match"));
+        publisher.record("Glamme/Rides", "Latency", 5, StandardUnit.MILLISECONDS, Map.of("api", "quote"));
+        publisher.record("Glamme/Bookings", "Created", 1, StandardUnit.COUNT, null);
+        // Not publishable
+        publisher.record("Glamme/Rides", "Latency", Double.NaN, StandardUnit.MILLISECONDS, Map.of("api", "match"));
+
+        publisher.flush();
+        awaitPublished(3);
+
+        assertEquals(2, sent.size());
+        PutMetricDataRequest rides = request("Glamme/Rides");
+        assertEquals(2, rides.metricData().size());
+        StatisticSet match = datum(rides, "match").statisticValues();
+        assertEquals(3.0, match.sampleCount());
+        assertEquals(60.0, match.sum());
+        assertEquals(10.0, match.minimum());
+        assertEquals(30.0, match.maximum());
+        assertEquals(1.0, datum(rides, "quote").statisticValues().sampleCount());
+        assertEquals(1, request("Glamme/Bookings").metricData().size());
+
+        CloudWatchMetricsPublisher.PublisherStats stats = publisher.getStats();
+        assertEquals(3, stats.datumsPublished());
+        assertEquals(1, stats.samplesDropped());
+
+        // Nothing new recorded, nothing sent
+        publisher.flush();
+        assertEquals(0, publisher.getStats().pendingRequests());
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void flush_splitsNamespacesIntoRequestsOfAtMostOneThousandDatums() throws InterruptedException {
+        start();
+        for (int i = 0; i < 2_500; i++) {
+            publisher.record("Glamme/Load", "Requests", 1, StandardUnit.COUNT, Map.of("shard", String.valueOf(i)));
+        }
+
+        publisher.flush();
+        awaitPublished(2_500);
+
+        assertEquals(List.of(1_000, 1_000, 500), sent.stream().map(request -> request.metricData().size()).toList());
+        assertEquals(2_500, publisher.getStats().datumsPublished());
+    }
+
+    @Test
+    void flush_dropsBatchesWhenTheSendQueueIsFull() throws InterruptedException {
+        config.setMaxDatumsPerRequest(1);
+        config.setMaxPendingRequests(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cloudWatchClient.putMetricData(any(PutMetricDataRequest.class))).thenAnswer(invocation -> {
+            blocked.countDown();
+            release.await();
+            sent.add(invocation.getArgument(0));
+            return PutMetricDataResponse.builder().build();
+        });
+        start();
+
+        publisher.record("Glamme/Load", "Requests", 1, StandardUnit.COUNT, Map.of("shard", "0"));
+        publisher.flush();
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        // One waits in the queue, the other two are dropped without blocking the flusher
+        for (int i = 1; i <= 3; i++) {
+            publisher.record("Glamme/Load", "Requests", 1, StandardUnit.COUNT, Map.of("shard", String.valueOf(i)));
+        }
+        publisher.flush();
+        assertEquals(2, publisher.getStats().datumsDropped());
+
+        release.countDown();
+        awaitPublished(2);
+        assertEquals(2, sent.size());
+        assertEquals(2, publisher.getStats().datumsPublished());
+    }
+
+    @Test
+    void stubMode_logsBatchesWithoutCallingCloudWatch() throws InterruptedException {
+        config.setStub(true);
+        start();
+        publisher.record("Glamme/Rides", "Latency", 10, StandardUnit.MILLISECONDS, Map.of());
+
+        publisher.flush();
+        awaitPublished(1);
+
+        verifyNoInteractions(cloudWatchClient);
+        assertEquals(1, publisher.getStats().datumsPublished());
+    }
+
+    @Test
+    void idleSeriesAreEvictedAndRecreatedOnTheNextSample() throws InterruptedException {
+        config.setMaxSeries(1);
+        start();
+        publisher.record("Glamme/Rides", "Latency", 10, StandardUnit.MILLISECONDS, Map.of("api", "match"));
+        publisher.flush();
+        for (int i = 0; i < 5; i++) {
+            publisher.flush();
+        }
+        assertEquals(0, publisher.getStats().series());
+
+        // The evicted series freed its slot
+        publisher.record("Glamme/Rides", "Latency", 20, StandardUnit.MILLISECONDS, Map.of("api", "quote"));
+        assertEquals(1, publisher.getStats().series());
+        publisher.flush();
+        awaitPublished(2);
+        assertEquals(2, sent.size());
+        assertEquals(0, publisher.getStats().samplesDropped());
+    }
+
+    @Test
+    void samplesRecordedWhileSeriesAreEvictedAreNotLost() throws InterruptedException {
+        config.setMaxPendingRequests(10_000);
+        start();
+        int writers = 4;
+        int bursts = 200;
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                publisher.flush();
+            }
+        });
+        flusher.start();
+
+        Thread[] threads = new Thread[writers];
+        for (int t = 0; t < writers; t++) {
+            threads[t] = new Thread(() -> {
+                for (int burst = 0; burst < bursts; burst++) {
+                    publisher.record("Glamme/Load", "Requests", 1, StandardUnit.COUNT, Map.of());
+                    // Let the series go idle so the flusher keeps evicting it
+                    try {
+                        Thread.sleep(0, 200_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        running.set(false);
+        flusher.join();
+        publisher.flush();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (samplesSent() < writers * bursts && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(writers * bursts, samplesSent());
+        assertEquals(0, publisher.getStats().datumsDropped());
+    }
+
+    private void start() {
+        publisher = new CloudWatchMetricsPublisher(config, cloudWatchClient);
+        publisher.start();
+    }
+
+    private void awaitPublished(long datums) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (publisher.getStats().datumsPublished() < datums) {
+            assertTrue(System.nanoTime() < deadline, "datums were not published");
+            Thread.sleep(5);
+        }
+    }
+
+    private double samplesSent() {
+        return sent.stream()
+                .flatMap(request -> request.metricData().stream())
+                .mapToDouble(datum -> datum.statisticValues().sampleCount())
+                .sum();
+    }
+
+    private PutMetricDataRequest request(String namespace) {
+        return sent.stream().filter(request -> request.namespace().equals(namespace)).findFirst().orElseThrow();
+    }
+
+    private static MetricDatum datum(PutMetricDataRequest request, String api) {
+        return request.metricData().stream()
+                .filter(datum -> datum.dimensions().stream().anyMatch(d -> d.value().equals(api)))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,131 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.common.service.CacheService;
+import tech.ceesar.glamme.matching.entity.CustomerPreference;
+import tech.ceesar.glamme.matching.entity.Stylist;
+import tech.ceesar.glamme.matching.repository.CustomerPreferenceRepository;
+import tech.ceesar.glamme.matching.repository.StylistRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Top 20 recommendations for one customer out of 50,000 stylists spread over a metro area about
+ * 110 km across.
+ *
+ * <p>{@code indexed} is {@link MatchingAlgorithmService#findMatchingStylists} over the
+ * {@link StylistCandidateIndex}. {@code fullScan} scores every stylist with
+ * {@link MatchingAlgorithmService#calculateMatchScore} and sorts, as a baseline.
+ * {@code focused} searches 15 km for two specialties in a price range; {@code open} uses the
+ * default 50 km radius with no specialty or price preference, so nearly every stylist is a
+ * candidate and scoring crosses {@code parallel-threshold} onto the fork-join pool.
+ *
+ * <p>Run with {@code ./gradlew :matching-service:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CandidateIndexBenchmark {
+
+    private static final int STYLISTS = 50_000;
+    private static final int TOP = 20;
+
+    @Param({"focused", "open"})
+    private String query;
+
+    private MatchingAlgorithmService matchingAlgorithmService;
+    private List<Stylist> stylists;
+    private CustomerPreference preferences;
+
+    @Setup
+    public void setUp() {
+        StylistCandidateIndex index = new StylistCandidateIndex(Mockito.mock(StylistRepository.class));
+        ReflectionTestUtils.setField(index, "cellDegrees", 0.1);
+        ReflectionTestUtils.setField(index, "defaultRadiusKm", 50);
+        // A real EloRatingService: a mock's invocation bookkeeping would dominate the per-stylist cost
+        EloRatingService eloRatingService = new EloRatingService(Mockito.mock(StylistRepository.class),
+                Mockito.mock(CacheService.class), Mockito.mock(JdbcTemplate.class), Mockito.mock(TransactionTemplate.class),
+                Mockito.mock(StylistSnapshotStore.class));
+        matchingAlgorithmService = new MatchingAlgorithmService(eloRatingService, index,
+                Mockito.mock(CustomerPreferenceRepository.class), Mockito.mock(StylistRecommendationStore.class));
+        ReflectionTestUtils.setField(matchingAlgorithmService, "parallelThreshold", 16384);
+
+        SplittableRandom random = new SplittableRandom(17);
+        Stylist.Specialty[] specialties = Stylist.Specialty.values();
+        stylists = new ArrayList<>(STYLISTS);
+        for (int i = 0; i < STYLISTS; i++) {
+            Set<Stylist.Specialty> offered = EnumSet.noneOf(Stylist.Specialty.class);
+            for (int s = 1 + random.nextInt(3); s > 0; s--) {
+                offered.add(specialties[random.nextInt(specialties.length)]);
+            }
+            int minPrice = random.nextInt(20, 250);
+            Stylist stylist = Stylist.builder()
+                    .id("stylist-" + i)
+                    // Coordinates come back from the numeric columns at scale 8
+                    .latitude(BigDecimal.valueOf(39.74 + random.nextDouble(-0.5, 0.5)).setScale(8, RoundingMode.HALF_UP))
+                    .longitude(BigDecimal.valueOf(-104.99 + random.nextDouble(-0.65, 0.65)).setScale(8, RoundingMode.HALF_UP))
+                    .priceRangeMin(BigDecimal.valueOf(minPrice))
+                    .priceRangeMax(BigDecimal.valueOf(minPrice + random.nextInt(10, 100)))
+                    .averageRating(BigDecimal.valueOf(random.nextInt(300, 501), 2))
+                    .yearsExperience(random.nextInt(15))
+                    .specialties(offered)
+                    .isVerified(random.nextBoolean())
+                    .isActive(true)
+                    .build();
+            stylists.add(stylist);
+            index.apply(stylist);
+        }
+
+        CustomerPreference.CustomerPreferenceBuilder builder = CustomerPreference.builder()
+                .customerId("customer")
+                .latitude(BigDecimal.valueOf(39.70))
+                .longitude(BigDecimal.valueOf(-104.95))
+                .preferVerified(true);
+        preferences = "focused".equals(query)
+                ? builder.maxDistanceKm(15)
+                        .preferredSpecialties(Set.of(Stylist.Specialty.HAIR_COLORING, Stylist.Specialty.BRIDAL))
+                        .priceRangeMin(BigDecimal.valueOf(60)).priceRangeMax(BigDecimal.valueOf(140))
+                        .build()
+                : builder.build();
+    }
+
+    @Benchmark
+    public List<Stylist> indexed() {
+        return matchingAlgorithmService.findMatchingStylists(preferences, TOP);
+    }
+
+    @Benchmark
+    public List<Stylist> fullScan() {
+        double[] scores = new double[stylists.size()];
+        for (int i = 0; i < scores.length; i++) {
+            Stylist stylist = stylists.get(i);
+            scores[i] = matchingAlgorithmService.calculateMatchScore(
+                    preferences.getCustomerId(), stylist.getId(), preferences, stylist);
+        }
+        return IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+                .limit(TOP)
+                .map(stylists::get)
+                .toList();
+    }
+}
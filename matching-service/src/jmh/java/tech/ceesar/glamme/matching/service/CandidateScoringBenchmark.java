@@ -0,0 +1,100 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.ceesar.glamme.matching.dto.MatchingRequest;
+import tech.ceesar.glamme.matching.dto.StylistDto;
+import tech.ceesar.glamme.matching.entity.Stylist;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring one customer against every candidate stylist and keeping the best 50.
+ *
+ * <p>{@code perStylist} is the previous approach: a {@link StylistDto} and a
+ * {@link ScoringService#calculateCustomerScore} call per stylist, then a full sort.
+ * {@code columnar} scores a {@link StylistColumns} snapshot and selects with
+ * {@link ScoringService#topK}; above {@code parallel-threshold} the scoring is split across
+ * the fork-join pool.
+ *
+ * <p>Run with {@code ./gradlew :matching-service:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CandidateScoringBenchmark {
+
+    private static final int TOP = 50;
+
+    @Param({"2000", "50000"})
+    private int stylists;
+
+    private ScoringService scoringService;
+    private List<StylistDto> dtos;
+    private StylistColumns columns;
+    private MatchingRequest request;
+
+    @Setup
+    public void setUp() {
+        scoringService = new ScoringService(Mockito.mock(EloRatingService.class));
+        ReflectionTestUtils.setField(scoringService, "eloWeight", 0.4);
+        ReflectionTestUtils.setField(scoringService, "distanceWeight", 0.3);
+        ReflectionTestUtils.setField(scoringService, "priceWeight", 0.2);
+        ReflectionTestUtils.setField(scoringService, "availabilityWeight", 0.1);
+        ReflectionTestUtils.setField(scoringService, "parallelThreshold", 16384);
+
+        SplittableRandom random = new SplittableRandom(11);
+        List<Stylist> population = new ArrayList<>(stylists);
+        for (int i = 0; i < stylists; i++) {
+            population.add(Stylist.builder()
+                    .id("stylist-" + i)
+                    .latitude(BigDecimal.valueOf(40 + random.nextDouble(-1, 1)))
+                    .longitude(BigDecimal.valueOf(-105 + random.nextDouble(-1, 1)))
+                    .hourlyRate(BigDecimal.valueOf(random.nextInt(20, 200)))
+                    .eloRating(random.nextInt(800, 2400))
+                    .isAvailable(random.nextBoolean())
+                    .build());
+        }
+        dtos = population.stream()
+                .map(s -> StylistDto.builder().id(s.getId()).latitude(s.getLatitude()).longitude(s.getLongitude())
+                        .hourlyRate(s.getHourlyRate()).eloRating(s.getEloRating()).isAvailable(s.getIsAvailable())
+                        .build())
+                .toList();
+        columns = StylistColumns.of(population.stream().map(s -> StylistSnapshot.of(s, 0)).toList());
+        request = MatchingRequest.builder().customerId("customer")
+                .customerLatitude(BigDecimal.valueOf(40.05)).customerLongitude(BigDecimal.valueOf(-104.95))
+                .maxDistance(60).budgetMin(BigDecimal.valueOf(40)).budgetMax(BigDecimal.valueOf(150))
+                .build();
+    }
+
+    @Benchmark
+    public List<String> perStylist() {
+        return dtos.stream()
+                .map(dto -> {
+                    dto.setMatchScore(scoringService.calculateCustomerScore(dto, request));
+                    return dto;
+                })
+                .sorted(Comparator.comparingDouble(StylistDto::getMatchScore).reversed())
+                .limit(TOP)
+                .map(StylistDto::getId)
+                .toList();
+    }
+
+    @Benchmark
+    public int[] columnar() {
+        return ScoringService.topK(scoringService.scoreAll(columns, request), TOP);
+    }
+}
@@ -0,0 +1,79 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch stable matching at 1k customers × 1k stylists and 10k × 2k.
+ *
+ * <p>{@code match} is the deferred acceptance run alone over prebuilt preference arrays;
+ * {@code rankAndMatch} also builds the preference lists and ranks from the score matrix, which is
+ * what {@link GaleShapleyService#performBatchMatching} does after scoring. Scores mix a shared
+ * stylist quality with a per-pair fit, and about a fifth of the pairs fail the customer's budget
+ * or distance filters, so preference lists are long, correlated and incomplete as they are in
+ * production.
+ *
+ * <p>Run with {@code ./gradlew :matching-service:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StableMatcherBenchmark {
+
+    @Param({"1000x1000", "10000x2000"})
+    private String size;
+
+    @Param({"5"})
+    private int capacity;
+
+    private double[][] scores;
+    private int[][] customerPreferences;
+    private int[][] stylistRanks;
+    private int[] capacities;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        int customers = Integer.parseInt(dimensions[0]);
+        int stylists = Integer.parseInt(dimensions[1]);
+
+        SplittableRandom random = new SplittableRandom(42);
+        double[] quality = new double[stylists];
+        for (int s = 0; s < stylists; s++) {
+            quality[s] = random.nextDouble(100);
+        }
+        scores = new double[customers][stylists];
+        for (int c = 0; c < customers; c++) {
+            for (int s = 0; s < stylists; s++) {
+                scores[c][s] = random.nextInt(5) == 0 ? Double.NaN : 0.6 * quality[s] + 0.4 * random.nextDouble(100);
+            }
+        }
+
+        customerPreferences = StableMatcher.preferencesFromScores(scores);
+        stylistRanks = StableMatcher.ranksFromScores(scores, stylists);
+        capacities = new int[stylists];
+        Arrays.fill(capacities, capacity);
+    }
+
+    @Benchmark
+    public int[] match() {
+        return StableMatcher.match(customerPreferences, stylistRanks, capacities);
+    }
+
+    @Benchmark
+    public int[] rankAndMatch() {
+        int[][] preferences = StableMatcher.preferencesFromScores(scores);
+        int[][] ranks = StableMatcher.ranksFromScores(scores, capacities.length);
+        return StableMatcher.match(preferences, ranks, capacities);
+    }
+}
@@ -0,0 +1,39 @@
+package tech.ceesar.glamme.matching.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Match ids come from the pooled {@code matches_seq} sequence. Rows written before it existed took
+ * their ids from the column's identity, so on startup the sequence is moved past the highest id in
+ * use. It only ever moves forward.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MatchSequenceAligner {
+
+    // Past the highest id plus one allocation, whichever end of a block the optimizer hands out first
+    private static final String ALIGN_SQL = """
+            SELECT setval('matches_seq', m.max_id + 50)
+            FROM (SELECT COALESCE(MAX(id), 0) AS max_id FROM matches) m, matches_seq s
+            WHERE s.last_value < m.max_id + 50
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void align() {
+        try {
+            jdbcTemplate.query(ALIGN_SQL, row -> {
+                log.info("Moved matches_seq to {}", row.getLong(1));
+            });
+        } catch (Exception e) {
+            log.warn("Could not align matches_seq with existing match ids: {}", e.getMessage());
+        }
+    }
+}
@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "stylists")
+@Table(name = "stylists", indexes = {
+        @Index(name = "idx_stylists_location", columnList = "latitude, longitude"),
+        @Index(name = "idx_stylists_hourly_rate", columnList = "hourly_rate")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -90,7 +93,8 @@ public class Stylist {
     @Column(name = "total_reviews")
     private Integer totalReviews;
     
-    @Column(name = "elo_rating")
+    // Seeded on insert; after that EloUpdateEngine is the only writer, so saving a stale entity cannot undo a match
+    @Column(name = "elo_rating", updatable = false)
     private Integer eloRating;
     
     @Column(name = "is_verified")
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 import tech.ceesar.glamme.matching.entity.Stylist;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,12 +17,8 @@ public interface StylistRepository extends JpaRepository<Stylist, String> {
     List<Stylist> findByIsActiveTrue();
     
     List<Stylist> findByIsActiveTrueAndIsVerifiedTrue();
-    
-    @Query("SELECT s FROM Stylist s WHERE s.isActive = true AND " +
-           "ST_DWithin(ST_Point(s.longitude, s.latitude), ST_Point(:longitude, :latitude), :distanceKm * 1000)")
-    List<Stylist> findNearbyStylists(@Param("latitude") BigDecimal latitude, 
-                                   @Param("longitude") BigDecimal longitude, 
-                                   @Param("distanceKm") Double distanceKm);
+
+    List<Stylist> findByUpdatedAtGreaterThanEqual(LocalDateTime updatedAt);
     
     @Query("SELECT s FROM Stylist s WHERE s.isActive = true AND " +
            "s.priceRangeMin <= :maxPrice AND s.priceRangeMax >= :minPrice")
@@ -53,6 +50,19 @@ public interface StylistRepository extends JpaRepository<Stylist, String> {
     @Query("SELECT s FROM Stylist s WHERE s.isActive = true AND s.isVerified = true AND s.isAvailable = true")
     List<Stylist> findByIsAvailableTrueAndIsVerifiedTrue();
     
+    // Ids of matchable stylists within a bounding box and hourly rate range, each skipped when its bounds are null;
+    // callers refine to the exact radius
+    @Query("SELECT s.id FROM Stylist s WHERE s.isActive = true AND s.isVerified = true AND s.isAvailable = true AND " +
+           "(:minLatitude IS NULL OR (s.latitude BETWEEN :minLatitude AND :maxLatitude AND " +
+           "s.longitude BETWEEN :minLongitude AND :maxLongitude)) AND " +
+           "(:minRate IS NULL OR s.hourlyRate BETWEEN :minRate AND :maxRate)")
+    List<String> findAvailableIdsInArea(@Param("minLatitude") BigDecimal minLatitude,
+                                        @Param("maxLatitude") BigDecimal maxLatitude,
+                                        @Param("minLongitude") BigDecimal minLongitude,
+                                        @Param("maxLongitude") BigDecimal maxLongitude,
+                                        @Param("minRate") BigDecimal minRate,
+                                        @Param("maxRate") BigDecimal maxRate);
+
     @Query("SELECT COUNT(s) FROM Stylist s WHERE s.isActive = true")
     long countActiveStylists();
     
@@ -63,4 +73,22 @@ public interface StylistRepository extends JpaRepository<Stylist, String> {
     @Query("SELECT s FROM Stylist s WHERE s.isActive = true AND " +
            "EXISTS (SELECT sp FROM s.specialties sp WHERE LOWER(sp) LIKE LOWER(CONCAT('%', :specialty, '%')))")
     List<Stylist> findBySpecialtiesContainingIgnoreCase(@Param("specialty") String specialty);
+
+    // Hairstyle search with the customer's area, price overlap and minimum rating pushed down; a null bound
+    // skips its check, and stylists without prices or a rating pass those checks
+    @Query("SELECT s FROM Stylist s WHERE s.isActive = true AND " +
+           "EXISTS (SELECT sp FROM s.specialties sp WHERE LOWER(sp) LIKE LOWER(CONCAT('%', :specialty, '%'))) AND " +
+           "(:minLatitude IS NULL OR (s.latitude BETWEEN :minLatitude AND :maxLatitude AND " +
+           "s.longitude BETWEEN :minLongitude AND :maxLongitude)) AND " +
+           "(:minPrice IS NULL OR :maxPrice IS NULL OR s.priceRangeMin IS NULL OR s.priceRangeMax IS NULL OR " +
+           "(s.priceRangeMin <= :maxPrice AND s.priceRangeMax >= :minPrice)) AND " +
+           "(:minRating IS NULL OR s.averageRating IS NULL OR s.averageRating >= :minRating)")
+    List<Stylist> findBySpecialtyInArea(@Param("specialty") String specialty,
+                                        @Param("minLatitude") BigDecimal minLatitude,
+                                        @Param("maxLatitude") BigDecimal maxLatitude,
+                                        @Param("minLongitude") BigDecimal minLongitude,
+                                        @Param("maxLongitude") BigDecimal maxLongitude,
+                                        @Param("minPrice") BigDecimal minPrice,
+                                        @Param("maxPrice") BigDecimal maxPrice,
+                                        @Param("minRating") BigDecimal minRating);
 }
\ No newline at end of file
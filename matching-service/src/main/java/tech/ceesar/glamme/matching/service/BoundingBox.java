@@ -0,0 +1,48 @@
+package tech.ceesar.glamme.matching.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Latitude/longitude rectangle used to prefilter stylists in SQL before the exact radius check.
+ * It always contains the circle it was built from, so the refinement can only remove rows.
+ */
+public record BoundingBox(BigDecimal minLatitude, BigDecimal maxLatitude,
+                          BigDecimal minLongitude, BigDecimal maxLongitude) {
+
+    public static final BoundingBox WORLD = new BoundingBox(
+            BigDecimal.valueOf(-90), BigDecimal.valueOf(90), BigDecimal.valueOf(-180), BigDecimal.valueOf(180));
+
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    public static BoundingBox around(double latitude, double longitude, double radiusKm) {
+        double latitudeDelta = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double minLatitude = latitude - latitudeDelta;
+        double maxLatitude = latitude + latitudeDelta;
+        if (minLatitude <= -90 || maxLatitude >= 90) {
+            // The circle covers a pole, so every longitude is in range
+            return new BoundingBox(BigDecimal.valueOf(Math.max(minLatitude, -90)),
+                    BigDecimal.valueOf(Math.min(maxLatitude, 90)), WORLD.minLongitude, WORLD.maxLongitude);
+        }
+
+        // Widest longitude span of the circle, at its latitude furthest from the equator
+        double longitudeDelta = Math.toDegrees(Math.asin(Math.min(1, Math.sin(radiusKm / EARTH_RADIUS_KM)
+                / Math.cos(Math.toRadians(latitude)))));
+        double minLongitude = longitude - longitudeDelta;
+        double maxLongitude = longitude + longitudeDelta;
+        if (minLongitude < -180 || maxLongitude > 180) {
+            // Crossing the antimeridian; one range cannot express the wrap, so take all longitudes
+            minLongitude = -180;
+            maxLongitude = 180;
+        }
+        return new BoundingBox(BigDecimal.valueOf(minLatitude), BigDecimal.valueOf(maxLatitude),
+                BigDecimal.valueOf(minLongitude), BigDecimal.valueOf(maxLongitude));
+    }
+
+    /**
+     * Smallest box containing both
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(minLatitude.min(other.minLatitude), maxLatitude.max(other.maxLatitude),
+                minLongitude.min(other.minLongitude), maxLongitude.max(other.maxLongitude));
+    }
+}
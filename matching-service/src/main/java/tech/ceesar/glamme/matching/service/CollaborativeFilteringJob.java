@@ -0,0 +1,196 @@
+package tech.ceesar.glamme.matching.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.common.service.RedisLockService;
+import tech.ceesar.glamme.matching.entity.Match;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Builds item-item collaborative filtering over match history and publishes it through
+ * {@link StylistRecommendationStore}.
+ *
+ * <p>Each interaction is an event that only ever adds weight: a customer asking for a stylist, a
+ * direct booking, or a stylist accepting. The job keeps the {@link InteractionMatrix} in memory and
+ * each run streams only the events stamped since its watermark, then recomputes the neighbour lists
+ * of the stylists those events can have moved, in parallel. A Redis lock keeps runs from overlapping
+ * across instances.
+ *
+ * <p>The watermark the published sets are current to lives in Redis with them. The matrix itself is
+ * not stored: it is derived from the matches table, so an instance whose matrix lags that watermark
+ * (after a restart, or because another instance ran last) replays the missing events into it without
+ * republishing anything, then carries on incrementally. Only that replay reads from the beginning after
+ * a restart; the Redis writes stay proportional to what changed. If the watermark is missing the
+ * published sets cannot be trusted either, and the run is a full rebuild.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CollaborativeFilteringJob {
+
+    private static final String LOCK_KEY = "matching:collaborative-filtering";
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // A request shows interest, an acceptance or a direct booking shows a completed pairing
+    private static final double REQUEST_WEIGHT = 1.0;
+    private static final double ACCEPTED_WEIGHT = 2.0;
+    private static final double BOOKING_WEIGHT = 3.0;
+    // Matches the system proposed on its own say nothing about the customer
+    private static final Set<String> CUSTOMER_INITIATED = Set.of(
+            Match.MatchType.MANUAL.name(), Match.MatchType.IMAGE_BASED.name(),
+            Match.MatchType.HAIRSTYLE_QUERY.name(), Match.MatchType.DIRECT.name());
+
+    private static final String INTERACTIONS_SQL = """
+            SELECT customer_id, stylist_id, match_type, status, created_at, responded_at
+            FROM matches
+            WHERE (created_at >= ? AND created_at < ?) OR (responded_at >= ? AND responded_at < ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisLockService redisLockService;
+    private final StylistRecommendationStore recommendationStore;
+
+    @Value("${matching.recommendation.neighbors:50}")
+    private int neighbors;
+
+    @Value("${matching.recommendation.history-size:20}")
+    private int historySize;
+
+    // Events younger than this are left for the next run, so rows still committing are not skipped
+    @Value("${matching.recommendation.settle-seconds:60}")
+    private long settleSeconds;
+
+    @Value("${matching.recommendation.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${matching.recommendation.lock-ttl-minutes:30}")
+    private long lockTtlMinutes;
+
+    private InteractionMatrix matrix = new InteractionMatrix();
+    private LocalDateTime watermark = BEGINNING;
+
+    @Scheduled(fixedDelayString = "${matching.recommendation.refresh-interval-ms:300000}")
+    public void run() {
+        String owner = UUID.randomUUID().toString();
+        if (!redisLockService.acquireLock(LOCK_KEY, owner, Duration.ofMinutes(lockTtlMinutes))) {
+            return;
+        }
+        try {
+            refresh(LocalDateTime.now().minusSeconds(settleSeconds));
+        } catch (Exception e) {
+            log.error("Collaborative filtering refresh failed", e);
+        } finally {
+            redisLockService.releaseLock(LOCK_KEY, owner);
+        }
+    }
+
+    /**
+     * Applies the events in [watermark, until), recomputes what they touched and publishes it
+     */
+    synchronized void refresh(LocalDateTime until) {
+        long started = System.nanoTime();
+        Optional<LocalDateTime> published = recommendationStore.watermark();
+        if (published.isEmpty()) {
+            matrix = new InteractionMatrix();
+            watermark = BEGINNING;
+        }
+        LocalDateTime end;
+        int events;
+        try {
+            if (published.isPresent() && published.get().isAfter(watermark)) {
+                // Those events are already published, so they only need to reach this matrix
+                int replayed = stream(watermark, published.get());
+                matrix.clearChanges();
+                watermark = published.get();
+                log.info("Collaborative filtering: replayed {} published events up to {}", replayed, watermark);
+            }
+            end = until.isAfter(watermark) ? until : watermark;
+            events = stream(watermark, end);
+        } catch (RuntimeException e) {
+            // Part of the window may already be applied, and a retry would count it twice; rebuild instead
+            matrix = new InteractionMatrix();
+            watermark = BEGINNING;
+            throw e;
+        }
+        watermark = end;
+
+        BitSet affected = matrix.affectedStylists();
+        Map<String, List<InteractionMatrix.ScoredStylist>> similar = affected.stream().parallel()
+                .boxed()
+                .collect(Collectors.toMap(matrix::stylistId, stylist -> matrix.similarTo(stylist, neighbors)));
+        Map<String, List<InteractionMatrix.ScoredStylist>> histories = new LinkedHashMap<>();
+        matrix.changedCustomers().stream().forEach(customer -> histories.put(matrix.customerId(customer),
+                matrix.history(customer).stream().limit(historySize).toList()));
+
+        recommendationStore.saveSimilar(similar);
+        recommendationStore.saveHistory(histories);
+        // Kept until published, so a failed write is redone by the next run
+        matrix.clearChanges();
+        recommendationStore.saveWatermark(end);
+
+        log.info("Collaborative filtering: {} events, {} stylists and {} customers republished in {} ms",
+                events, similar.size(), histories.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private int stream(LocalDateTime from, LocalDateTime until) {
+        Timestamp start = Timestamp.valueOf(from);
+        Timestamp end = Timestamp.valueOf(until);
+        int[] events = {0};
+        // Inside a transaction so the driver streams rows in fetch-size batches instead of buffering them all
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INTERACTIONS_SQL);
+            statement.setFetchSize(fetchSize);
+            statement.setTimestamp(1, start);
+            statement.setTimestamp(2, end);
+            statement.setTimestamp(3, start);
+            statement.setTimestamp(4, end);
+            return statement;
+        }, (ResultSet row) -> {
+            events[0] += apply(row, start, end);
+        }));
+        return events[0];
+    }
+
+    private int apply(ResultSet row, Timestamp start, Timestamp end) throws SQLException {
+        String customerId = row.getString("customer_id");
+        String stylistId = row.getString("stylist_id");
+        String matchType = row.getString("match_type");
+        int events = 0;
+        // One row can carry two events: its creation and its response
+        if (inWindow(row.getTimestamp("created_at"), start, end) && CUSTOMER_INITIATED.contains(matchType)) {
+            matrix.add(customerId, stylistId,
+                    Match.MatchType.DIRECT.name().equals(matchType) ? BOOKING_WEIGHT : REQUEST_WEIGHT);
+            events++;
+        }
+        if (inWindow(row.getTimestamp("responded_at"), start, end)
+                && Match.Status.ACCEPTED.name().equals(row.getString("status"))) {
+            matrix.add(customerId, stylistId, ACCEPTED_WEIGHT);
+            events++;
+        }
+        return events;
+    }
+
+    private static boolean inWindow(Timestamp timestamp, Timestamp start, Timestamp end) {
+        return timestamp != null && !timestamp.before(start) && timestamp.before(end);
+    }
+}
@@ -1,16 +1,29 @@
 package tech.ceesar.glamme.matching.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import tech.ceesar.glamme.common.service.CacheService;
 import tech.ceesar.glamme.matching.entity.Stylist;
 import tech.ceesar.glamme.matching.repository.StylistRepository;
 
 import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Elo ratings for stylists. Match outcomes are written behind through an {@link EloUpdateEngine}:
+ * {@link #updateEloRating} only queues the outcome, and a scheduled flush applies each stylist's
+ * outcomes in order and stores the results in batches.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -18,6 +31,9 @@ public class EloRatingService {
 
     private final StylistRepository stylistRepository;
     private final CacheService cacheService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StylistSnapshotStore stylistSnapshots;
 
     @Value("${matching.algorithm.elo.initial-rating:1200}")
     private int initialRating;
@@ -31,35 +47,65 @@ public class EloRatingService {
     @Value("${matching.algorithm.elo.max-rating:3000}")
     private int maxRating;
 
+    @Value("${matching.algorithm.elo.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${matching.algorithm.elo.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    private EloUpdateEngine updateEngine;
+
+    @PostConstruct
+    public void start() {
+        updateEngine = new EloUpdateEngine(jdbcTemplate, transactionTemplate, this::nextRating,
+                initialRating, writerThreads, flushBatchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        updateEngine.close();
+    }
+
+    /**
+     * Queue a match outcome for the stylist once the surrounding transaction commits
+     */
     public void updateEloRating(String stylistId, boolean won, String opponentId) {
-        try {
-            Stylist stylist = stylistRepository.findById(stylistId)
-                    .orElseThrow(() -> new RuntimeException("Stylist not found: " + stylistId));
+        int opponentRating = getOpponentRating(opponentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    updateEngine.submit(stylistId, won, opponentRating);
+                }
+            });
+        } else {
+            updateEngine.submit(stylistId, won, opponentRating);
+        }
+    }
 
-            int currentRating = stylist.getEloRating() != null ? stylist.getEloRating() : initialRating;
-            int opponentRating = getOpponentRating(opponentId);
-            
-            double expectedScore = calculateExpectedScore(currentRating, opponentRating);
-            double actualScore = won ? 1.0 : 0.0;
-            
-            int newRating = calculateNewRating(currentRating, expectedScore, actualScore);
-            newRating = Math.max(minRating, Math.min(maxRating, newRating));
-            
-            stylist.setEloRating(newRating);
-            stylistRepository.save(stylist);
-            
-            // Update cache
-            String cacheKey = "stylist:elo:" + stylistId;
-            cacheService.set(cacheKey, newRating, Duration.ofHours(1));
-            
-            log.info("Updated Elo rating for stylist {}: {} -> {} (won: {})", 
-                    stylistId, currentRating, newRating, won);
-            
-        } catch (Exception e) {
-            log.error("Failed to update Elo rating for stylist: {}", stylistId, e);
+    /**
+     * Store the queued outcomes and refresh the cached ratings and snapshots they changed
+     */
+    @Scheduled(fixedDelayString = "${matching.algorithm.elo.flush-interval-ms:1000}")
+    public void flush() {
+        Map<String, Integer> written = updateEngine.flush();
+        written.forEach((stylistId, rating) ->
+                cacheService.set("stylist:elo:" + stylistId, rating, Duration.ofHours(1)));
+        stylistSnapshots.updateEloRatings(written);
+        if (!written.isEmpty()) {
+            log.debug("Flushed Elo ratings for {} stylists", written.size());
         }
     }
 
+    /**
+     * The stylist's rating after one match against an opponent, within the configured bounds
+     */
+    int nextRating(int currentRating, int opponentRating, boolean won) {
+        double expectedScore = calculateExpectedScore(currentRating, opponentRating);
+        int newRating = calculateNewRating(currentRating, expectedScore, won ? 1.0 : 0.0);
+        return Math.max(minRating, Math.min(maxRating, newRating));
+    }
+
     public int getEloRating(String stylistId) {
         try {
             String cacheKey = "stylist:elo:" + stylistId;
@@ -113,13 +159,11 @@ public class EloRatingService {
 
     public void initializeEloRating(String stylistId) {
         try {
-            Stylist stylist = stylistRepository.findById(stylistId)
-                    .orElseThrow(() -> new RuntimeException("Stylist not found: " + stylistId));
-            
-            if (stylist.getEloRating() == null) {
-                stylist.setEloRating(initialRating);
-                stylistRepository.save(stylist);
-                
+            // Conditional, so it never overwrites a rating a flush stored meanwhile
+            int updated = jdbcTemplate.update("UPDATE stylists SET elo_rating = ? WHERE id = ? AND elo_rating IS NULL",
+                    initialRating, stylistId);
+
+            if (updated > 0) {
                 String cacheKey = "stylist:elo:" + stylistId;
                 cacheService.set(cacheKey, initialRating, Duration.ofHours(1));
                 
@@ -0,0 +1,215 @@
+package tech.ceesar.glamme.matching.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind Elo updates with a single writer per stylist.
+ *
+ * <p>Stylists are spread over a fixed set of stripes, each a single-threaded executor that alone
+ * owns the pending outcomes of its stylists, so a stylist's outcomes are applied in the order they
+ * were submitted without locks. A flush runs on every stripe: it loads the stored ratings of the
+ * stylists it has not seen yet in one query, folds their outcomes on top, and writes the results
+ * as batched {@code UPDATE}s, one transaction per batch.
+ *
+ * <p>Each {@code UPDATE} only applies if the stored rating is still the one the outcomes were folded
+ * onto. If another instance (or an admin edit) changed it in the meantime, the stylist keeps its
+ * outcomes and the next flush replays them on the new rating, so no update is lost or counted twice.
+ * Outcomes not yet flushed live only in memory.
+ */
+@Slf4j
+final class EloUpdateEngine {
+
+    /**
+     * The rating after one match against an opponent
+     */
+    interface RatingRule {
+        int next(int current, int opponentRating, boolean won);
+    }
+
+    private record Outcome(boolean won, int opponentRating) {
+    }
+
+    // A null base is a stylist without a stored rating, folded from the initial one
+    private record Write(String stylistId, Integer base, int rating) {
+    }
+
+    private static final String LOAD_SQL = "SELECT id, elo_rating FROM stylists WHERE id IN (%s)";
+
+    private static final String UPDATE_SQL = """
+            UPDATE stylists SET elo_rating = ?, updated_at = ?
+            WHERE id = ? AND elo_rating IS NOT DISTINCT FROM ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RatingRule rule;
+    private final int initialRating;
+    private final int batchSize;
+    private final Stripe[] stripes;
+
+    EloUpdateEngine(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, RatingRule rule,
+                    int initialRating, int stripes, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.rule = rule;
+        this.initialRating = initialRating;
+        this.batchSize = batchSize;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe("elo-writer-" + i);
+        }
+    }
+
+    /**
+     * Queues a match outcome for the stylist; it is written by a later {@link #flush()}
+     */
+    void submit(String stylistId, boolean won, int opponentRating) {
+        Stripe stripe = stripes[Math.floorMod(stylistId.hashCode(), stripes.length)];
+        Outcome outcome = new Outcome(won, opponentRating);
+        stripe.executor.execute(() -> stripe.record(stylistId, outcome));
+    }
+
+    /**
+     * Writes the outcomes queued so far on every stripe and waits for it.
+     * Returns the ratings written; stylists whose write failed or conflicted are retried next time.
+     */
+    Map<String, Integer> flush() {
+        List<Future<Map<String, Integer>>> flushes = new ArrayList<>(stripes.length);
+        for (Stripe stripe : stripes) {
+            flushes.add(stripe.executor.submit(stripe::flush));
+        }
+        Map<String, Integer> written = new HashMap<>();
+        for (Future<Map<String, Integer>> flush : flushes) {
+            try {
+                written.putAll(flush.get());
+            } catch (ExecutionException e) {
+                log.error("Failed to flush Elo ratings", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Flushes what is queued and stops the writers
+     */
+    void close() {
+        Map<String, Integer> written = flush();
+        log.info("Flushed {} Elo ratings on shutdown", written.size());
+        for (Stripe stripe : stripes) {
+            stripe.executor.shutdown();
+        }
+        try {
+            for (Stripe stripe : stripes) {
+                stripe.executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Stripe {
+
+        private final ExecutorService executor;
+        // Only touched from the executor's thread
+        private final Map<String, List<Outcome>> outcomes = new HashMap<>();
+        private final Map<String, Integer> baseRatings = new HashMap<>();
+
+        private Stripe(String name) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void record(String stylistId, Outcome outcome) {
+            outcomes.computeIfAbsent(stylistId, id -> new ArrayList<>()).add(outcome);
+        }
+
+        private Map<String, Integer> flush() {
+            if (outcomes.isEmpty()) {
+                return Map.of();
+            }
+            loadBaseRatings();
+
+            List<Write> writes = new ArrayList<>(outcomes.size());
+            outcomes.forEach((stylistId, queued) -> {
+                Integer base = baseRatings.get(stylistId);
+                int rating = base != null ? base : initialRating;
+                for (Outcome outcome : queued) {
+                    rating = rule.next(rating, outcome.opponentRating(), outcome.won());
+                }
+                writes.add(new Write(stylistId, base, rating));
+            });
+
+            Map<String, Integer> written = new HashMap<>();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int from = 0; from < writes.size(); from += batchSize) {
+                List<Write> batch = writes.subList(from, Math.min(from + batchSize, writes.size()));
+                int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(),
+                        (statement, write) -> {
+                            statement.setInt(1, write.rating());
+                            statement.setTimestamp(2, now);
+                            statement.setString(3, write.stylistId());
+                            statement.setObject(4, write.base(), Types.INTEGER);
+                        })[0]);
+                for (int i = 0; i < batch.size(); i++) {
+                    Write write = batch.get(i);
+                    // Cleared batch by batch, so a later failing batch does not replay an earlier one
+                    baseRatings.remove(write.stylistId());
+                    if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                        outcomes.remove(write.stylistId());
+                        written.put(write.stylistId(), write.rating());
+                    }
+                }
+            }
+            int conflicts = writes.size() - written.size();
+            if (conflicts > 0) {
+                log.info("{} Elo ratings changed underneath their pending outcomes; replaying next flush", conflicts);
+            }
+            return written;
+        }
+
+        private void loadBaseRatings() {
+            List<String> missing = new ArrayList<>();
+            outcomes.keySet().forEach(stylistId -> {
+                if (!baseRatings.containsKey(stylistId)) {
+                    missing.add(stylistId);
+                }
+            });
+            for (int from = 0; from < missing.size(); from += batchSize) {
+                List<String> ids = missing.subList(from, Math.min(from + batchSize, missing.size()));
+                jdbcTemplate.query(LOAD_SQL.formatted(String.join(",", Collections.nCopies(ids.size(), "?"))),
+                        row -> {
+                            baseRatings.put(row.getString("id"), row.getObject("elo_rating", Integer.class));
+                        }, ids.toArray());
+            }
+            for (String stylistId : missing) {
+                if (!baseRatings.containsKey(stylistId)) {
+                    log.warn("Dropping {} Elo outcomes for unknown stylist: {}",
+                            outcomes.remove(stylistId).size(), stylistId);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package tech.ceesar.glamme.matching.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.common.event.EventPublisher;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transactional outbox for events that must follow a database change.
+ *
+ * <p>{@link #addAll} writes the events to {@code outbox_events} in the caller's transaction, so they
+ * exist exactly when the change does. Once that transaction commits, a relay thread claims pending
+ * rows, sends them to EventBridge in as few batched requests as possible and deletes the ones that
+ * were accepted; the rest stay for the next run. A periodic poll picks up whatever an earlier relay
+ * or another instance left behind, which makes delivery at-least-once.
+ *
+ * <p>An event rejected {@code max-attempts} times, or whose payload cannot be read back at all, is
+ * parked: it stays in the table for inspection but is no longer claimed, so it cannot hold up the
+ * events behind it. Setting {@code attempts} below the cap puts it back in line.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventOutbox {
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events (detail_type, payload, attempts, created_at) "
+            + "VALUES (?, ?, 0, ?)";
+
+    private static final String CLAIM_SQL = "SELECT id, detail_type, payload, attempts FROM outbox_events "
+            + "WHERE id > ? AND attempts < ? ORDER BY id LIMIT ? FOR UPDATE";
+
+    private static final String DELETE_SQL = "DELETE FROM outbox_events WHERE id IN (%s)";
+
+    private static final String RETRY_SQL = "UPDATE outbox_events SET attempts = attempts + 1 WHERE id IN (%s)";
+
+    private static final String PARK_SQL = "UPDATE outbox_events SET attempts = ? WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    @Value("${matching.outbox.relay-batch-size:500}")
+    private int relayBatchSize;
+
+    @Value("${matching.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    // Lets several instances relay at once; turn off on databases without SKIP LOCKED
+    @Value("${matching.outbox.skip-locked:true}")
+    private boolean skipLocked;
+
+    private final AtomicBoolean relayQueued = new AtomicBoolean();
+    private final ExecutorService relayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public record OutboxEntry(String detailType, Map<String, Object> detail) {
+    }
+
+    private record Batch(int claimed, int published, long lastId) {
+    }
+
+    /**
+     * Stores events to be published once the current transaction commits. Must be called inside
+     * that transaction; without one the events are stored and left to the next poll.
+     */
+    public void addAll(List<OutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, relayBatchSize, (statement, entry) -> {
+            statement.setString(1, entry.detailType());
+            statement.setString(2, toJson(entry.detail()));
+            statement.setTimestamp(3, now);
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    triggerRelay();
+                }
+            });
+        }
+    }
+
+    /**
+     * Relays events left pending by failed sends, crashes or other instances
+     */
+    @Scheduled(fixedDelayString = "${matching.outbox.poll-interval-ms:5000}")
+    public void poll() {
+        triggerRelay();
+    }
+
+    /**
+     * Publishes pending events batch by batch, oldest first, until every event that was pending when
+     * the run started has been tried once. Returns the number of events published.
+     */
+    int relay() {
+        int relayed = 0;
+        Batch batch = new Batch(relayBatchSize, 0, 0);
+        while (batch.claimed() == relayBatchSize) {
+            long afterId = batch.lastId();
+            batch = transactionTemplate.execute(status -> relayBatch(afterId));
+            relayed += batch.published();
+        }
+        return relayed;
+    }
+
+    @PreDestroy
+    public void stop() {
+        relayExecutor.shutdown();
+        try {
+            relayExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Commits that land while a relay is queued are covered by it, so at most one waits
+    private void triggerRelay() {
+        if (!relayQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            relayExecutor.execute(() -> {
+                relayQueued.set(false);
+                try {
+                    relay();
+                } catch (Exception e) {
+                    log.error("Failed to relay outbox events", e);
+                }
+            });
+        } catch (Exception e) {
+            relayQueued.set(false);
+            log.warn("Outbox relay not started: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Claims the next batch after the given id, publishes it and settles the rows
+     */
+    private Batch relayBatch(long afterId) {
+        long[] lastId = {afterId};
+        List<Long> ids = new ArrayList<>();
+        List<Integer> attempts = new ArrayList<>();
+        List<EventPublisher.OutgoingEvent> events = new ArrayList<>();
+        List<Long> unreadable = new ArrayList<>();
+        jdbcTemplate.query(skipLocked ? CLAIM_SQL + " SKIP LOCKED" : CLAIM_SQL, row -> {
+            long id = row.getLong("id");
+            lastId[0] = id;
+            try {
+                events.add(new EventPublisher.OutgoingEvent(row.getString("detail_type"), fromJson(row.getString("payload"))));
+                ids.add(id);
+                attempts.add(row.getInt("attempts"));
+            } catch (IllegalStateException e) {
+                log.error("Parking outbox event {}: {}", id, e.getCause().getMessage());
+                unreadable.add(id);
+            }
+        }, afterId, maxAttempts, relayBatchSize);
+        int claimed = ids.size() + unreadable.size();
+        if (claimed == 0) {
+            return new Batch(0, 0, afterId);
+        }
+        // Retrying cannot make a payload readable
+        updateIn(PARK_SQL, unreadable, maxAttempts);
+        if (ids.isEmpty()) {
+            return new Batch(claimed, 0, lastId[0]);
+        }
+
+        boolean[] accepted = eventPublisher.publishBatch(events);
+        List<Long> published = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        int parked = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            (accepted[i] ? published : failed).add(ids.get(i));
+            if (!accepted[i] && attempts.get(i) + 1 >= maxAttempts) {
+                parked++;
+                log.error("Parking outbox event {} ({}) after {} rejected attempts",
+                        ids.get(i), events.get(i).detailType(), maxAttempts);
+            }
+        }
+        updateIn(DELETE_SQL, published);
+        updateIn(RETRY_SQL, failed);
+        if (failed.size() > parked) {
+            log.warn("{} of {} outbox events were not published; retrying on the next run",
+                    failed.size() - parked, ids.size());
+        }
+        return new Batch(claimed, published.size(), lastId[0]);
+    }
+
+    private void updateIn(String sql, List<Long> ids, Object... leading) {
+        if (!ids.isEmpty()) {
+            List<Object> args = new ArrayList<>(List.of(leading));
+            args.addAll(ids);
+            jdbcTemplate.update(sql.formatted(String.join(",", Collections.nCopies(ids.size(), "?"))), args.toArray());
+        }
+    }
+
+    private String toJson(Map<String, Object> detail) {
+        try {
+            return objectMapper.writeValueAsString(detail);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Event detail is not serializable", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, new TypeReference<>() { });
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable outbox payload", e);
+        }
+    }
+}
@@ -4,11 +4,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import tech.ceesar.glamme.matching.dto.MatchDto;
 import tech.ceesar.glamme.matching.dto.MatchingRequest;
-import tech.ceesar.glamme.matching.dto.StylistDto;
 import tech.ceesar.glamme.matching.entity.Match;
-import tech.ceesar.glamme.matching.entity.Stylist;
 import tech.ceesar.glamme.matching.repository.MatchRepository;
 import tech.ceesar.glamme.matching.repository.StylistRepository;
 
@@ -24,255 +23,178 @@ public class GaleShapleyService {
     private final StylistRepository stylistRepository;
     private final MatchRepository matchRepository;
     private final ScoringService scoringService;
+    private final TransactionTemplate transactionTemplate;
+    private final EventOutbox eventOutbox;
+    private final StylistSnapshotStore stylistSnapshots;
 
-    @Value("${matching.algorithm.gale-shapley.max-iterations:100}")
-    private int maxIterations;
+    // Customers a stylist can take in one matching round
+    @Value("${matching.algorithm.gale-shapley.stylist-capacity:5}")
+    private int stylistCapacity;
 
-    @Value("${matching.algorithm.gale-shapley.convergence-threshold:0.01}")
-    private double convergenceThreshold;
+    @Value("${matching.algorithm.gale-shapley.preference-list-size:50}")
+    private int preferenceListSize;
 
     public List<MatchDto> performStableMatching(MatchingRequest request) {
+        return performBatchMatching(List.of(request));
+    }
+
+    /**
+     * Match a batch of customers against all available stylists at once, each stylist taking up
+     * to {@code stylist-capacity} customers. Customers rank stylists by their match score and
+     * stylists rank customers by the same fit; stylists outside a customer's budget or distance
+     * are not acceptable to that customer.
+     */
+    public List<MatchDto> performBatchMatching(List<MatchingRequest> requests) {
         try {
-            log.info("Performing stable matching for customer: {}", request.getCustomerId());
-            
-            // Get available stylists
-            List<Stylist> availableStylists = getAvailableStylists(request);
-            
+            log.info("Performing stable matching for {} customers", requests.size());
+
+            // Intern ids: customers and stylists are referred to by list position from here on
+            List<MatchingRequest> customers = new ArrayList<>(requests.stream()
+                    .collect(Collectors.toMap(MatchingRequest::getCustomerId, r -> r, (a, b) -> a, LinkedHashMap::new))
+                    .values());
+            List<StylistSnapshot> availableStylists = findCandidates(customers);
+
             if (availableStylists.isEmpty()) {
-                log.warn("No available stylists found for customer: {}", request.getCustomerId());
+                log.warn("No available stylists found for {} customers", customers.size());
                 return Collections.emptyList();
             }
-            
-            // Create preference lists
-            Map<String, List<String>> customerPreferences = createCustomerPreferences(request, availableStylists);
-            Map<String, List<String>> stylistPreferences = createStylistPreferences(availableStylists, request);
-            
-            // Run Gale-Shapley algorithm
-            Map<String, String> matches = runGaleShapleyAlgorithm(customerPreferences, stylistPreferences);
-            
-            // Convert to MatchDto objects
-            List<MatchDto> matchDtos = convertToMatchDtos(matches, request.getCustomerId());
-            
+
+            double[][] scores = scoreMatrix(customers, StylistColumns.of(availableStylists));
+            // Customers propose down their best few acceptable stylists only
+            int[][] customerPreferences = new int[scores.length][];
+            for (int c = 0; c < scores.length; c++) {
+                customerPreferences[c] = ScoringService.topK(scores[c], preferenceListSize);
+            }
+            int[][] stylistRanks = StableMatcher.ranksFromScores(scores, availableStylists.size());
+            int[] capacities = new int[availableStylists.size()];
+            Arrays.fill(capacities, stylistCapacity);
+
+            int[] assignment = StableMatcher.match(customerPreferences, stylistRanks, capacities);
+
+            List<MatchDto> matchDtos = new ArrayList<>();
+            for (int c = 0; c < assignment.length; c++) {
+                if (assignment[c] != StableMatcher.UNMATCHED) {
+                    matchDtos.add(toMatchDto(customers.get(c).getCustomerId(),
+                            availableStylists.get(assignment[c]).getId()));
+                }
+            }
+
             // Save matches to database
             saveMatches(matchDtos);
-            
-            log.info("Generated {} stable matches for customer: {}", matchDtos.size(), request.getCustomerId());
+
+            log.info("Generated {} stable matches for {} customers", matchDtos.size(), customers.size());
             return matchDtos;
-            
+
         } catch (Exception e) {
-            log.error("Failed to perform stable matching for customer: {}", request.getCustomerId(), e);
+            log.error("Failed to perform stable matching for {} customers", requests.size(), e);
             return Collections.emptyList();
         }
     }
 
-    private List<Stylist> getAvailableStylists(MatchingRequest request) {
-        List<Stylist> stylists = stylistRepository.findByIsAvailableTrueAndIsVerifiedTrue();
-        
-        // Apply filters
-        if (request.getBudgetMin() != null && request.getBudgetMax() != null) {
-            stylists = stylists.stream()
-                    .filter(s -> s.getHourlyRate() != null && 
-                               s.getHourlyRate().compareTo(request.getBudgetMin()) >= 0 &&
-                               s.getHourlyRate().compareTo(request.getBudgetMax()) <= 0)
-                    .collect(Collectors.toList());
+    /**
+     * Available stylists that could pass at least one customer's filters. The budget range and a
+     * bounding box around each customer's radius are applied in the query, widened to cover the
+     * whole batch; the exact per-customer checks happen in scoring. Only ids come from the query,
+     * the profiles from the snapshot store.
+     */
+    private List<StylistSnapshot> findCandidates(List<MatchingRequest> customers) {
+        BoundingBox area = null;
+        BigDecimal minRate = null;
+        BigDecimal maxRate = null;
+        boolean everyoneHasArea = true;
+        boolean everyoneHasBudget = true;
+        for (MatchingRequest request : customers) {
+            if (request.getMaxDistance() != null && request.getCustomerLatitude() != null && request.getCustomerLongitude() != null) {
+                BoundingBox box = BoundingBox.around(request.getCustomerLatitude().doubleValue(),
+                        request.getCustomerLongitude().doubleValue(), request.getMaxDistance());
+                area = area == null ? box : area.union(box);
+            } else {
+                everyoneHasArea = false;
+            }
+            if (request.getBudgetMin() != null && request.getBudgetMax() != null) {
+                minRate = minRate == null ? request.getBudgetMin() : minRate.min(request.getBudgetMin());
+                maxRate = maxRate == null ? request.getBudgetMax() : maxRate.max(request.getBudgetMax());
+            } else {
+                everyoneHasBudget = false;
+            }
         }
-        
-        if (request.getMaxDistance() != null && request.getCustomerLatitude() != null && request.getCustomerLongitude() != null) {
-            stylists = stylists.stream()
-                    .filter(s -> s.getLatitude() != null && s.getLongitude() != null &&
-                               calculateDistance(request.getCustomerLatitude(), request.getCustomerLongitude(),
-                                               s.getLatitude(), s.getLongitude()) <= request.getMaxDistance())
-                    .collect(Collectors.toList());
+        // A customer without a filter accepts stylists the others would exclude
+        if (!everyoneHasArea) {
+            area = null;
         }
-        
-        return stylists;
-    }
-
-    private Map<String, List<String>> createCustomerPreferences(MatchingRequest request, List<Stylist> stylists) {
-        Map<String, List<String>> preferences = new HashMap<>();
-        
-        // Score and rank stylists for the customer
-        List<StylistDto> scoredStylists = stylists.stream()
-                .map(stylist -> {
-                    StylistDto dto = convertToStylistDto(stylist);
-                    double score = scoringService.calculateCustomerScore(dto, request);
-                    dto.setMatchScore(score);
-                    return dto;
-                })
-                .sorted((a, b) -> Double.compare(b.getMatchScore(), a.getMatchScore()))
-                .collect(Collectors.toList());
-        
-        List<String> stylistIds = scoredStylists.stream()
-                .map(StylistDto::getId)
-                .collect(Collectors.toList());
-        
-        preferences.put(request.getCustomerId(), stylistIds);
-        
-        return preferences;
-    }
-
-    private Map<String, List<String>> createStylistPreferences(List<Stylist> stylists, MatchingRequest request) {
-        Map<String, List<String>> preferences = new HashMap<>();
-        
-        for (Stylist stylist : stylists) {
-            // For simplicity, rank customers by their potential value to the stylist
-            // In a real implementation, this would consider stylist preferences
-            List<String> customerRanking = Arrays.asList(request.getCustomerId());
-            preferences.put(stylist.getId(), customerRanking);
+        if (!everyoneHasBudget) {
+            minRate = null;
+            maxRate = null;
         }
-        
-        return preferences;
-    }
 
-    private Map<String, String> runGaleShapleyAlgorithm(Map<String, List<String>> customerPreferences, 
-                                                       Map<String, List<String>> stylistPreferences) {
-        Map<String, String> matches = new HashMap<>();
-        Map<String, String> stylistMatches = new HashMap<>();
-        Map<String, Integer> customerProposalIndex = new HashMap<>();
-        
-        // Initialize proposal indices
-        for (String customer : customerPreferences.keySet()) {
-            customerProposalIndex.put(customer, 0);
-        }
-        
-        int iterations = 0;
-        boolean stable = false;
-        
-        while (!stable && iterations < maxIterations) {
-            stable = true;
-            iterations++;
-            
-            for (String customer : customerPreferences.keySet()) {
-                if (matches.containsKey(customer)) {
-                    continue; // Customer already matched
-                }
-                
-                List<String> preferences = customerPreferences.get(customer);
-                int proposalIndex = customerProposalIndex.get(customer);
-                
-                if (proposalIndex < preferences.size()) {
-                    String proposedStylist = preferences.get(proposalIndex);
-                    
-                    if (!stylistMatches.containsKey(proposedStylist)) {
-                        // Stylist is free, accept proposal
-                        matches.put(customer, proposedStylist);
-                        stylistMatches.put(proposedStylist, customer);
-                    } else {
-                        // Stylist is matched, check if this customer is preferred
-                        String currentCustomer = stylistMatches.get(proposedStylist);
-                        List<String> stylistPrefs = stylistPreferences.get(proposedStylist);
-                        
-                        if (isPreferred(stylistPrefs, customer, currentCustomer)) {
-                            // Replace current match
-                            matches.remove(currentCustomer);
-                            matches.put(customer, proposedStylist);
-                            stylistMatches.put(proposedStylist, customer);
-                            customerProposalIndex.put(currentCustomer, customerProposalIndex.get(currentCustomer) + 1);
-                        } else {
-                            // Reject proposal
-                            customerProposalIndex.put(customer, proposalIndex + 1);
-                        }
-                    }
-                    
-                    stable = false;
-                }
-            }
-        }
-        
-        log.info("Gale-Shapley algorithm completed in {} iterations", iterations);
-        return matches;
+        List<String> ids = stylistRepository.findAvailableIdsInArea(
+                area != null ? area.minLatitude() : null, area != null ? area.maxLatitude() : null,
+                area != null ? area.minLongitude() : null, area != null ? area.maxLongitude() : null,
+                minRate, maxRate);
+        Map<String, StylistSnapshot> snapshots = stylistSnapshots.getAll(ids);
+        return ids.stream()
+                .map(snapshots::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
-    private boolean isPreferred(List<String> preferences, String customer1, String customer2) {
-        int index1 = preferences.indexOf(customer1);
-        int index2 = preferences.indexOf(customer2);
-        
-        if (index1 == -1) return false;
-        if (index2 == -1) return true;
-        
-        return index1 < index2;
+    /**
+     * Customer × stylist match scores; {@code NaN} where the stylist fails the customer's filters
+     */
+    private double[][] scoreMatrix(List<MatchingRequest> customers, StylistColumns stylists) {
+        double[][] scores = new double[customers.size()][];
+        for (int c = 0; c < customers.size(); c++) {
+            scores[c] = scoringService.scoreCandidates(stylists, customers.get(c));
+        }
+        return scores;
     }
 
-    private List<MatchDto> convertToMatchDtos(Map<String, String> matches, String customerId) {
-        List<MatchDto> matchDtos = new ArrayList<>();
-        
-        for (Map.Entry<String, String> entry : matches.entrySet()) {
-            String customer = entry.getKey();
-            String stylist = entry.getValue();
-            
-            if (customer.equals(customerId)) {
-                MatchDto matchDto = MatchDto.builder()
-                        .customerId(customer)
-                        .stylistId(stylist)
-                        .status(Match.Status.PENDING)
-                        .algorithm(Match.Algorithm.GALE_SHAPLEY)
-                        .matchScore(100.0) // Perfect match in stable matching
-                        .matchReason("Stable matching algorithm")
-                        .build();
-                
-                matchDtos.add(matchDto);
-            }
-        }
-        
-        return matchDtos;
+    private MatchDto toMatchDto(String customerId, String stylistId) {
+        return MatchDto.builder()
+                .customerId(customerId)
+                .stylistId(stylistId)
+                .status(Match.Status.PENDING)
+                .algorithm(Match.Algorithm.GALE_SHAPLEY)
+                .matchScore(100.0) // Perfect match in stable matching
+                .matchReason("Stable matching algorithm")
+                .build();
     }
 
+    /**
+     * Inserts the matches as JDBC batches and stages one match.created event per match in the same
+     * transaction; the events are published together once it commits
+     */
     private void saveMatches(List<MatchDto> matchDtos) {
+        if (matchDtos.isEmpty()) {
+            return;
+        }
+        List<Match> matches = new ArrayList<>(matchDtos.size());
         for (MatchDto matchDto : matchDtos) {
-            Match match = Match.builder()
+            matches.add(Match.builder()
                     .customerId(matchDto.getCustomerId())
                     .stylistId(matchDto.getStylistId())
                     .matchScore(matchDto.getMatchScore())
                     .matchReason(matchDto.getMatchReason())
                     .status(matchDto.getStatus())
                     .algorithm(matchDto.getAlgorithm())
-                    .build();
-            
-            matchRepository.save(match);
+                    .build());
         }
-    }
 
-    private StylistDto convertToStylistDto(Stylist stylist) {
-        return StylistDto.builder()
-                .id(stylist.getId())
-                .businessName(stylist.getBusinessName())
-                .description(stylist.getDescription())
-                .phoneNumber(stylist.getPhoneNumber())
-                .email(stylist.getEmail())
-                .address(stylist.getAddress())
-                .latitude(stylist.getLatitude())
-                .longitude(stylist.getLongitude())
-                .serviceRadius(stylist.getServiceRadius())
-                .hourlyRate(stylist.getHourlyRate())
-                .experienceYears(stylist.getExperienceYears())
-                .certification(stylist.getCertification())
-                .portfolioUrl(stylist.getPortfolioUrl())
-                .profileImageUrl(stylist.getProfileImageUrl())
-                .isVerified(stylist.getIsVerified())
-                .isAvailable(stylist.getIsAvailable())
-                .rating(stylist.getRating())
-                .reviewCount(stylist.getReviewCount())
-                .eloRating(stylist.getEloRating())
-                .specialties(stylist.getSpecialties())
-                .services(stylist.getServices())
-                .createdAt(stylist.getCreatedAt())
-                .updatedAt(stylist.getUpdatedAt())
-                .build();
-    }
-
-    private double calculateDistance(BigDecimal lat1, BigDecimal lng1, BigDecimal lat2, BigDecimal lng2) {
-        // Haversine formula for calculating distance between two points
-        final int R = 6371; // Radius of the earth in km
-        
-        double latDistance = Math.toRadians(lat2.doubleValue() - lat1.doubleValue());
-        double lngDistance = Math.toRadians(lng2.doubleValue() - lng1.doubleValue());
-        
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1.doubleValue())) * Math.cos(Math.toRadians(lat2.doubleValue()))
-                * Math.sin(lngDistance / 2) * Math.sin(lngDistance / 2);
-        
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c;
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Match> saved = matchRepository.saveAll(matches);
+            List<EventOutbox.OutboxEntry> events = new ArrayList<>(saved.size());
+            for (int i = 0; i < saved.size(); i++) {
+                Match match = saved.get(i);
+                matchDtos.get(i).setId(match.getId());
+                events.add(new EventOutbox.OutboxEntry("match.created", Map.of(
+                        "matchId", match.getId(),
+                        "customerId", match.getCustomerId(),
+                        "stylistId", match.getStylistId(),
+                        "matchScore", match.getMatchScore(),
+                        "source", "matching-service"
+                )));
+            }
+            eventOutbox.addAll(events);
+        });
     }
 }
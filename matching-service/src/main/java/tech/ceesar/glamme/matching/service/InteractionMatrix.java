@@ -0,0 +1,165 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.apache.commons.math3.util.OpenIntToDoubleHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse customer x stylist matrix of implicit feedback, with item-item cosine similarity over it.
+ *
+ * <p>Customer and stylist ids are interned to ints, and the matrix is kept in both orientations as
+ * primitive int-to-double maps, so the stylists that share a customer with a given stylist are found
+ * without scanning the matrix. Stylists whose similarities may have moved since the last
+ * {@link #clearChanges()} are tracked, so a job only has to recompute those.
+ *
+ * <p>Writes are single-threaded; {@link #similarTo} may run in parallel once writes have stopped.
+ */
+final class InteractionMatrix {
+
+    /**
+     * A stylist with a similarity, or with a customer's weight in {@link #history}
+     */
+    record ScoredStylist(String stylistId, double score) {
+    }
+
+    private final Map<String, Integer> customerIndex = new HashMap<>();
+    private final Map<String, Integer> stylistIndex = new HashMap<>();
+    private final List<String> customerIds = new ArrayList<>();
+    private final List<String> stylistIds = new ArrayList<>();
+    // customer -> (stylist -> weight) and stylist -> (customer -> weight)
+    private final List<OpenIntToDoubleHashMap> byCustomer = new ArrayList<>();
+    private final List<OpenIntToDoubleHashMap> byStylist = new ArrayList<>();
+    private double[] squaredNorms = new double[16];
+
+    private final BitSet changedCustomers = new BitSet();
+    private final BitSet changedStylists = new BitSet();
+
+    /**
+     * Adds weight to a customer's interaction with a stylist
+     */
+    void add(String customerId, String stylistId, double weight) {
+        int customer = customerIndex.computeIfAbsent(customerId, id -> {
+            customerIds.add(id);
+            byCustomer.add(new OpenIntToDoubleHashMap(0.0));
+            return customerIds.size() - 1;
+        });
+        int stylist = stylistIndex.computeIfAbsent(stylistId, id -> {
+            stylistIds.add(id);
+            byStylist.add(new OpenIntToDoubleHashMap(0.0));
+            if (stylistIds.size() > squaredNorms.length) {
+                squaredNorms = Arrays.copyOf(squaredNorms, squaredNorms.length * 2);
+            }
+            return stylistIds.size() - 1;
+        });
+
+        double previous = byStylist.get(stylist).get(customer);
+        double updated = previous + weight;
+        byStylist.get(stylist).put(customer, updated);
+        byCustomer.get(customer).put(stylist, updated);
+        squaredNorms[stylist] += updated * updated - previous * previous;
+        changedCustomers.set(customer);
+        changedStylists.set(stylist);
+    }
+
+    /**
+     * Stylists whose neighbour lists may differ since the last clear: every changed stylist and every
+     * stylist sharing a customer with one, since a changed vector moves both sides of each cosine
+     */
+    BitSet affectedStylists() {
+        BitSet affected = (BitSet) changedStylists.clone();
+        for (int stylist = changedStylists.nextSetBit(0); stylist >= 0;
+             stylist = changedStylists.nextSetBit(stylist + 1)) {
+            OpenIntToDoubleHashMap.Iterator customers = byStylist.get(stylist).iterator();
+            while (customers.hasNext()) {
+                customers.advance();
+                OpenIntToDoubleHashMap.Iterator coRated = byCustomer.get(customers.key()).iterator();
+                while (coRated.hasNext()) {
+                    coRated.advance();
+                    affected.set(coRated.key());
+                }
+            }
+        }
+        return affected;
+    }
+
+    BitSet changedCustomers() {
+        return (BitSet) changedCustomers.clone();
+    }
+
+    void clearChanges() {
+        changedCustomers.clear();
+        changedStylists.clear();
+    }
+
+    /**
+     * The {@code k} stylists most similar to {@code stylist} by cosine over customer weights, best first
+     */
+    List<ScoredStylist> similarTo(int stylist, int k) {
+        OpenIntToDoubleHashMap dots = new OpenIntToDoubleHashMap(0.0);
+        OpenIntToDoubleHashMap.Iterator customers = byStylist.get(stylist).iterator();
+        while (customers.hasNext()) {
+            customers.advance();
+            double weight = customers.value();
+            OpenIntToDoubleHashMap.Iterator coRated = byCustomer.get(customers.key()).iterator();
+            while (coRated.hasNext()) {
+                coRated.advance();
+                if (coRated.key() != stylist) {
+                    dots.put(coRated.key(), dots.get(coRated.key()) + weight * coRated.value());
+                }
+            }
+        }
+
+        int[] others = new int[dots.size()];
+        double[] similarities = new double[dots.size()];
+        double norm = Math.sqrt(squaredNorms[stylist]);
+        int n = 0;
+        OpenIntToDoubleHashMap.Iterator products = dots.iterator();
+        while (products.hasNext()) {
+            products.advance();
+            others[n] = products.key();
+            similarities[n++] = products.value() / (norm * Math.sqrt(squaredNorms[products.key()]));
+        }
+
+        int[] top = ScoringService.topK(similarities, k);
+        List<ScoredStylist> neighbors = new ArrayList<>(top.length);
+        for (int i : top) {
+            neighbors.add(new ScoredStylist(stylistIds.get(others[i]), similarities[i]));
+        }
+        return neighbors;
+    }
+
+    /**
+     * A customer's stylists and weights, strongest first
+     */
+    List<ScoredStylist> history(int customer) {
+        List<ScoredStylist> history = new ArrayList<>(byCustomer.get(customer).size());
+        OpenIntToDoubleHashMap.Iterator stylists = byCustomer.get(customer).iterator();
+        while (stylists.hasNext()) {
+            stylists.advance();
+            history.add(new ScoredStylist(stylistIds.get(stylists.key()), stylists.value()));
+        }
+        history.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return history;
+    }
+
+    String stylistId(int stylist) {
+        return stylistIds.get(stylist);
+    }
+
+    String customerId(int customer) {
+        return customerIds.get(customer);
+    }
+
+    int stylistCount() {
+        return stylistIds.size();
+    }
+
+    int customerCount() {
+        return customerIds.size();
+    }
+}
@@ -2,13 +2,19 @@ package tech.ceesar.glamme.matching.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import tech.ceesar.glamme.matching.entity.CustomerPreference;
 import tech.ceesar.glamme.matching.entity.Match;
 import tech.ceesar.glamme.matching.entity.Stylist;
+import tech.ceesar.glamme.matching.repository.CustomerPreferenceRepository;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * Service for matching algorithms between customers and stylists
@@ -19,6 +25,12 @@ import java.util.Map;
 public class MatchingAlgorithmService {
 
     private final EloRatingService eloRatingService;
+    private final StylistCandidateIndex candidateIndex;
+    private final CustomerPreferenceRepository customerPreferenceRepository;
+    private final StylistRecommendationStore recommendationStore;
+
+    @Value("${matching.scoring.parallel-threshold:16384}")
+    private int parallelThreshold;
 
     /**
      * Calculate match score between a customer and stylist
@@ -150,20 +162,44 @@ public class MatchingAlgorithmService {
      * Get recommended stylists for a customer
      */
     public List<String> getRecommendedStylistIds(String customerId, int limit) {
-        // This would implement collaborative filtering or other recommendation algorithms
-        // For now, return empty list - to be implemented based on business requirements
         log.info("Getting recommended stylists for customer: {}", customerId);
-        return List.of();
+        // Stylists similar to the ones this customer already chose, then preference matches for the rest
+        Set<String> recommended = new LinkedHashSet<>(recommendationStore.recommend(customerId, limit));
+        if (recommended.size() < limit) {
+            customerPreferenceRepository.findByCustomerId(customerId).ifPresent(preferences -> {
+                for (Stylist stylist : findMatchingStylists(preferences, limit)) {
+                    if (recommended.size() >= limit) {
+                        break;
+                    }
+                    recommended.add(stylist.getId());
+                }
+            });
+        }
+        return List.copyOf(recommended);
     }
 
     /**
-     * Find matching stylists based on customer preferences
+     * Find matching stylists based on customer preferences, best match first
      */
     public List<Stylist> findMatchingStylists(CustomerPreference preferences, int limit) {
-        // This is a placeholder implementation
-        // In a real implementation, this would use sophisticated matching algorithms
-        log.info("Finding matching stylists for customer preferences, limit: {}", limit);
-        return List.of(); // Return empty list for now
+        List<Stylist> candidates = candidateIndex.findCandidates(preferences);
+
+        double[] scores = new double[candidates.size()];
+        IntStream indices = IntStream.range(0, scores.length);
+        // A wide search over a dense area can return most of the metro; split that across the common pool
+        if (scores.length >= parallelThreshold) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> scores[i] = calculateMatchScore(preferences.getCustomerId(),
+                candidates.get(i).getId(), preferences, candidates.get(i)));
+
+        int[] top = ScoringService.topK(scores, limit);
+        List<Stylist> matches = new ArrayList<>(top.length);
+        for (int index : top) {
+            matches.add(candidates.get(index));
+        }
+        log.debug("Ranked {} candidate stylists, returning {}", candidates.size(), matches.size());
+        return matches;
     }
 
     /**
@@ -171,7 +207,7 @@ public class MatchingAlgorithmService {
      */
     public void updateEloRating(String stylistId, boolean accepted, String customerId) {
         log.info("Updating Elo rating for stylist {} based on match acceptance: {}", stylistId, accepted);
-        // This would integrate with EloRatingService
+        eloRatingService.updateEloRating(stylistId, accepted, customerId);
     }
 
     /**
@@ -2,6 +2,7 @@ package tech.ceesar.glamme.matching.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tech.ceesar.glamme.common.dto.PagedResponse;
@@ -18,6 +19,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,17 +33,23 @@ public class MatchingService {
     private final MatchRepository matchRepository;
     private final MatchingAlgorithmService matchingAlgorithmService;
     private final EventService eventService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final StylistSnapshotStore stylistSnapshots;
 
     public MatchingService(StylistRepository stylistRepository,
                           CustomerPreferenceRepository customerPreferenceRepository,
                           MatchRepository matchRepository,
                           MatchingAlgorithmService matchingAlgorithmService,
-                          EventService eventService) {
+                          EventService eventService,
+                          ApplicationEventPublisher applicationEventPublisher,
+                          StylistSnapshotStore stylistSnapshots) {
         this.stylistRepository = stylistRepository;
         this.customerPreferenceRepository = customerPreferenceRepository;
         this.matchRepository = matchRepository;
         this.matchingAlgorithmService = matchingAlgorithmService;
         this.eventService = eventService;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.stylistSnapshots = stylistSnapshots;
     }
 
     public StylistResponse onboardStylist(String userId, StylistOnboardingRequest request) {
@@ -79,6 +87,7 @@ public class MatchingService {
                 .build();
 
         stylist = stylistRepository.save(stylist);
+        applicationEventPublisher.publishEvent(new StylistChangedEvent(stylist));
 
         // Publish stylist onboarding event
         eventService.publishEvent("glamme-bus", "matching-service", "stylist.onboarded", Map.of(
@@ -122,6 +131,7 @@ public class MatchingService {
         stylist.setLastActive(LocalDateTime.now());
 
         stylist = stylistRepository.save(stylist);
+        applicationEventPublisher.publishEvent(new StylistChangedEvent(stylist));
 
         log.info("Successfully updated stylist profile: {}", userId);
         return mapToStylistResponse(stylist);
@@ -179,14 +189,18 @@ public class MatchingService {
         CustomerPreference preferences = customerPreferenceRepository.findByCustomerId(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer preferences not found"));
 
-        List<Stylist> matchingStylists = matchingAlgorithmService.findMatchingStylists(preferences, size * 2);
+        // Ranked best first, so only the pages up to this one are needed
+        List<Stylist> matchingStylists = matchingAlgorithmService.findMatchingStylists(preferences, (page + 1) * size);
 
         // Calculate pagination
-        int start = page * size;
+        int start = Math.min(page * size, matchingStylists.size());
         int end = Math.min(start + size, matchingStylists.size());
-        List<Stylist> pagedStylists = matchingStylists.subList(start, end);
+        List<String> pagedIds = matchingStylists.subList(start, end).stream().map(Stylist::getId).toList();
 
-        List<StylistResponse> stylistResponses = pagedStylists.stream()
+        Map<String, StylistSnapshot> snapshots = stylistSnapshots.getAll(pagedIds);
+        List<StylistResponse> stylistResponses = pagedIds.stream()
+                .map(snapshots::get)
+                .filter(Objects::nonNull)
                 .map(this::mapToStylistResponse)
                 .collect(Collectors.toList());
 
@@ -201,7 +215,7 @@ public class MatchingService {
     public MatchResponse createMatch(String customerId, MatchRequest request) {
         log.info("Creating match for customer: {} with stylist: {}", customerId, request.getStylistId());
 
-        Stylist stylist = stylistRepository.findById(request.getStylistId())
+        StylistSnapshot stylist = stylistSnapshots.get(request.getStylistId())
                 .orElseThrow(() -> new RuntimeException("Stylist not found"));
 
         // Check if match already exists
@@ -216,7 +230,6 @@ public class MatchingService {
         CustomerPreference preferences = customerPreferenceRepository.findByCustomerId(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer preferences not found"));
 
-        List<Stylist> stylists = List.of(stylist);
         List<Stylist> matchingStylists = matchingAlgorithmService.findMatchingStylists(preferences, 1);
         double matchScore = matchingStylists.isEmpty() ? 0.5 : 0.8; // Simplified scoring
 
@@ -282,28 +295,24 @@ public class MatchingService {
                 "accepted", accepted
         ));
 
-        Stylist stylist = stylistRepository.findById(stylistId).orElse(null);
         log.info("Successfully processed match response: {}", matchId);
-        return mapToMatchResponse(match, stylist);
+        return mapToMatchResponse(match, stylistSnapshots.get(stylistId).orElse(null));
     }
 
     public List<MatchResponse> getCustomerMatches(String customerId) {
         List<Match> matches = matchRepository.findByCustomerIdOrderByMatchScoreDesc(customerId);
+        Map<String, StylistSnapshot> stylists = stylistSnapshots.getAll(
+                matches.stream().map(Match::getStylistId).toList());
         return matches.stream()
-                .map(match -> {
-                    Stylist stylist = stylistRepository.findById(match.getStylistId()).orElse(null);
-                    return mapToMatchResponse(match, stylist);
-                })
+                .map(match -> mapToMatchResponse(match, stylists.get(match.getStylistId())))
                 .collect(Collectors.toList());
     }
 
     public List<MatchResponse> getStylistMatches(String stylistId) {
         List<Match> matches = matchRepository.findByStylistIdOrderByCreatedAtDesc(stylistId);
+        StylistSnapshot stylist = matches.isEmpty() ? null : stylistSnapshots.get(stylistId).orElse(null);
         return matches.stream()
-                .map(match -> {
-                    Stylist stylist = stylistRepository.findById(stylistId).orElse(null);
-                    return mapToMatchResponse(match, stylist);
-                })
+                .map(match -> mapToMatchResponse(match, stylist))
                 .collect(Collectors.toList());
     }
 
@@ -334,7 +343,12 @@ public class MatchingService {
         log.info("Successfully cancelled match: {}", matchId);
     }
 
+    // Entities already in hand (just saved, or from a search query) are mapped through a throwaway snapshot
     private StylistResponse mapToStylistResponse(Stylist stylist) {
+        return mapToStylistResponse(StylistSnapshot.of(stylist, 0));
+    }
+
+    private StylistResponse mapToStylistResponse(StylistSnapshot stylist) {
         return StylistResponse.builder()
                 .id(stylist.getId())
                 .businessName(stylist.getBusinessName())
@@ -350,7 +364,7 @@ public class MatchingService {
                 .website(stylist.getWebsite())
                 .instagramHandle(stylist.getInstagramHandle())
                 .profileImageUrl(stylist.getProfileImageUrl())
-                .portfolioImages(stylist.getPortfolioImages())
+                .portfolioImages(toArray(stylist.getPortfolioImages()))
                 .specialties(stylist.getSpecialties())
                 .services(stylist.getServices())
                 .priceRangeMin(stylist.getPriceRangeMin())
@@ -361,14 +375,22 @@ public class MatchingService {
                 .isVerified(stylist.getIsVerified())
                 .isActive(stylist.getIsActive())
                 .yearsExperience(stylist.getYearsExperience())
-                .certifications(stylist.getCertifications())
-                .languages(stylist.getLanguages())
+                .certifications(toArray(stylist.getCertifications()))
+                .languages(toArray(stylist.getLanguages()))
                 .createdAt(stylist.getCreatedAt())
                 .lastActive(stylist.getLastActive())
                 .build();
     }
 
+    private static String[] toArray(List<String> values) {
+        return values != null ? values.toArray(String[]::new) : null;
+    }
+
     private MatchResponse mapToMatchResponse(Match match, Stylist stylist) {
+        return mapToMatchResponse(match, stylist != null ? StylistSnapshot.of(stylist, 0) : null);
+    }
+
+    private MatchResponse mapToMatchResponse(Match match, StylistSnapshot stylist) {
         MatchResponse.MatchResponseBuilder builder = MatchResponse.builder()
                 .id(match.getId())
                 .customerId(match.getCustomerId())
@@ -439,7 +461,7 @@ public class MatchingService {
             throw new RuntimeException("Stylist ID is required for direct booking");
         }
 
-        Stylist stylist = stylistRepository.findById(request.getStylistId())
+        StylistSnapshot stylist = stylistSnapshots.get(request.getStylistId())
                 .orElseThrow(() -> new RuntimeException("Stylist not found"));
 
         // Create match with high priority (direct booking)
@@ -519,49 +541,34 @@ public class MatchingService {
     }
 
     public List<Stylist> findStylistsByHairstyleQuery(String query, CustomerPreference preferences, int limit) {
-        // Find stylists whose specialties match the hairstyle query
-        List<Stylist> allStylists = stylistRepository.findBySpecialtiesContainingIgnoreCase(query);
+        // Specialty, price, rating and a bounding box around the customer are filtered in the query
+        BoundingBox area = hasSearchArea(preferences)
+                ? BoundingBox.around(preferences.getLatitude().doubleValue(), preferences.getLongitude().doubleValue(),
+                        preferences.getMaxDistanceKm())
+                : null;
+        List<Stylist> candidates = stylistRepository.findBySpecialtyInArea(query,
+                area != null ? area.minLatitude() : null, area != null ? area.maxLatitude() : null,
+                area != null ? area.minLongitude() : null, area != null ? area.maxLongitude() : null,
+                preferences.getPriceRangeMin(), preferences.getPriceRangeMax(), preferences.getMinRating());
         
-        if (allStylists.isEmpty()) {
+        if (candidates.isEmpty()) {
             // Fallback to general matching
             return matchingAlgorithmService.findMatchingStylists(preferences, limit);
         }
 
-        // Filter by location and other preferences
-        return allStylists.stream()
-                .filter(stylist -> matchesPreferences(stylist, preferences))
+        // Only the exact radius is left to check
+        return candidates.stream()
+                .filter(stylist -> !hasSearchArea(preferences) || calculateDistance(
+                        preferences.getLatitude().doubleValue(), preferences.getLongitude().doubleValue(),
+                        stylist.getLatitude().doubleValue(), stylist.getLongitude().doubleValue()
+                ) <= preferences.getMaxDistanceKm())
                 .limit(limit)
                 .collect(Collectors.toList());
     }
 
-    private boolean matchesPreferences(Stylist stylist, CustomerPreference preferences) {
-        // Distance check
-        if (preferences.getLatitude() != null && preferences.getLongitude() != null) {
-            double distance = calculateDistance(
-                    preferences.getLatitude().doubleValue(), preferences.getLongitude().doubleValue(),
-                    stylist.getLatitude().doubleValue(), stylist.getLongitude().doubleValue()
-            );
-            if (distance > preferences.getMaxDistanceKm()) {
-                return false;
-            }
-        }
-
-        // Price range check
-        if (stylist.getPriceRangeMin() != null && stylist.getPriceRangeMax() != null) {
-            if (stylist.getPriceRangeMin().compareTo(preferences.getPriceRangeMax()) > 0 ||
-                stylist.getPriceRangeMax().compareTo(preferences.getPriceRangeMin()) < 0) {
-                return false;
-            }
-        }
-
-        // Rating check
-        if (preferences.getMinRating() != null && stylist.getAverageRating() != null) {
-            if (stylist.getAverageRating().compareTo(preferences.getMinRating()) < 0) {
-                return false;
-            }
-        }
-
-        return true;
+    private boolean hasSearchArea(CustomerPreference preferences) {
+        return preferences.getLatitude() != null && preferences.getLongitude() != null
+                && preferences.getMaxDistanceKm() != null;
     }
 
     private MatchResponse createImageBasedMatch(ImageBasedMatchRequest request, Stylist stylist, 
@@ -9,6 +9,9 @@ import tech.ceesar.glamme.matching.dto.StylistDto;
 import tech.ceesar.glamme.matching.entity.Stylist;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 @Service
 @RequiredArgsConstructor
@@ -29,6 +32,13 @@ public class ScoringService {
     @Value("${matching.scoring.weights.availability:0.1}")
     private double availabilityWeight;
 
+    // Snapshots at least this large are scored in parallel
+    @Value("${matching.scoring.parallel-threshold:16384}")
+    private int parallelThreshold;
+
+    private static final int PARALLEL_CHUNK = 4096;
+    private static final double EARTH_RADIUS_KM = 6371;
+
     public double calculateCustomerScore(StylistDto stylist, MatchingRequest request) {
         try {
             double eloScore = calculateEloScore(stylist);
@@ -52,6 +62,215 @@ public class ScoringService {
         }
     }
 
+    /**
+     * Scores every stylist in the snapshot for the request, the same as
+     * {@link #calculateCustomerScore} per stylist but column by column. Large snapshots are split
+     * across the fork-join pool.
+     */
+    public double[] scoreAll(StylistColumns stylists, MatchingRequest request) {
+        return score(stylists, request, false);
+    }
+
+    /**
+     * Like {@link #scoreAll}, with {@code NaN} for stylists outside the request's budget range
+     * or maximum distance
+     */
+    public double[] scoreCandidates(StylistColumns stylists, MatchingRequest request) {
+        return score(stylists, request, true);
+    }
+
+    /**
+     * Indices of the {@code k} highest scores, best first, ignoring {@code NaN}. Keeps a
+     * k-element heap instead of sorting all scores; ties go to the lower index.
+     */
+    public static int[] topK(double[] scores, int k) {
+        int[] heap = new int[Math.max(0, Math.min(k, scores.length))];
+        int size = 0;
+        for (int i = 0; i < scores.length && heap.length > 0; i++) {
+            double score = scores[i];
+            if (Double.isNaN(score)) {
+                continue;
+            }
+            if (size < heap.length) {
+                // Sift up: the worst kept score stays on top
+                int j = size++;
+                while (j > 0 && ranksBelow(scores, i, heap[(j - 1) >>> 1])) {
+                    heap[j] = heap[(j - 1) >>> 1];
+                    j = (j - 1) >>> 1;
+                }
+                heap[j] = i;
+            } else if (score > scores[heap[0]]) {
+                int j = 0;
+                while (2 * j + 1 < size) {
+                    int child = 2 * j + 1;
+                    if (child + 1 < size && ranksBelow(scores, heap[child + 1], heap[child])) {
+                        child++;
+                    }
+                    if (!ranksBelow(scores, heap[child], i)) {
+                        break;
+                    }
+                    heap[j] = heap[child];
+                    j = child;
+                }
+                heap[j] = i;
+            }
+        }
+
+        // Drain worst first into the back of the result
+        int[] top = new int[size];
+        for (int n = size - 1; n >= 0; n--) {
+            top[n] = heap[0];
+            int last = heap[n];
+            int j = 0;
+            while (2 * j + 1 < n) {
+                int child = 2 * j + 1;
+                if (child + 1 < n && ranksBelow(scores, heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!ranksBelow(scores, heap[child], last)) {
+                    break;
+                }
+                heap[j] = heap[child];
+                j = child;
+            }
+            heap[j] = last;
+        }
+        return top;
+    }
+
+    // Whether stylist a comes after stylist b in the ranking
+    private static boolean ranksBelow(double[] scores, int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && a > b);
+    }
+
+    private double[] score(StylistColumns stylists, MatchingRequest request, boolean filter) {
+        BatchRequest batch = new BatchRequest(request, filter);
+        double[] scores = new double[stylists.size()];
+        if (stylists.size() < parallelThreshold) {
+            scoreRange(stylists, batch, scores, 0, stylists.size());
+        } else {
+            ForkJoinPool.commonPool().invoke(new ScoreTask(stylists, batch, scores, 0, stylists.size()));
+        }
+        return scores;
+    }
+
+    /**
+     * One scoring pass over {@code [from, to)}: a loop per component, then one to combine them,
+     * each over primitive columns with no calls or boxing the JIT has to see through
+     */
+    private void scoreRange(StylistColumns stylists, BatchRequest request, double[] scores, int from, int to) {
+        double[] distance = new double[to - from];
+        double[] price = new double[to - from];
+
+        // Distance
+        if (request.hasLocation) {
+            double[] lat = stylists.latitudeRadians;
+            double[] lng = stylists.longitudeRadians;
+            double[] cosLat = stylists.cosLatitude;
+            for (int i = from; i < to; i++) {
+                double sinLat = Math.sin((lat[i] - request.latitude) / 2);
+                double sinLng = Math.sin((lng[i] - request.longitude) / 2);
+                double a = sinLat * sinLat + request.cosLatitude * cosLat[i] * sinLng * sinLng;
+                // NaN for stylists without a location
+                distance[i - from] = EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+            }
+        } else {
+            Arrays.fill(distance, Double.NaN);
+        }
+
+        // Price
+        double[] rate = stylists.hourlyRate;
+        if (request.hasBudget) {
+            double span = request.budgetMax - request.budgetMin;
+            for (int i = from; i < to; i++) {
+                double r = rate[i];
+                double withinBudget = span > 0 ? 100 - ((r - request.budgetMin) / span) * 50 : 100.0;
+                price[i - from] = r < request.budgetMin ? 100.0 : r <= request.budgetMax ? withinBudget : 0.0;
+            }
+        }
+
+        // Combine
+        double[] elo = stylists.eloScore;
+        double[] availability = stylists.availabilityScore;
+        for (int i = from; i < to; i++) {
+            double d = distance[i - from];
+            double distanceScore = d != d ? 50.0 : d > request.maxDistance ? 0.0 : 100 - (d / request.maxDistance) * 100;
+            double r = rate[i];
+            double priceScore = !request.hasBudget || r != r ? 50.0 : price[i - from];
+            scores[i] = elo[i] * eloWeight + distanceScore * distanceWeight
+                    + priceScore * priceWeight + availability[i] * availabilityWeight;
+        }
+
+        // Filters
+        if (request.filter) {
+            for (int i = from; i < to; i++) {
+                double r = rate[i];
+                double d = distance[i - from];
+                boolean outsideBudget = request.hasBudget && (r != r || r < request.budgetMin || r > request.budgetMax);
+                boolean tooFar = request.filterDistance && (d != d || d > request.maxDistance);
+                if (outsideBudget || tooFar) {
+                    scores[i] = Double.NaN;
+                }
+            }
+        }
+    }
+
+    /**
+     * The request's fields unboxed once per batch
+     */
+    private static final class BatchRequest {
+        final boolean filter;
+        final boolean hasLocation;
+        final double latitude;
+        final double longitude;
+        final double cosLatitude;
+        final double maxDistance;
+        final boolean filterDistance;
+        final boolean hasBudget;
+        final double budgetMin;
+        final double budgetMax;
+
+        BatchRequest(MatchingRequest request, boolean filter) {
+            this.filter = filter;
+            hasLocation = request.getCustomerLatitude() != null && request.getCustomerLongitude() != null;
+            latitude = hasLocation ? Math.toRadians(request.getCustomerLatitude().doubleValue()) : 0;
+            longitude = hasLocation ? Math.toRadians(request.getCustomerLongitude().doubleValue()) : 0;
+            cosLatitude = Math.cos(latitude);
+            maxDistance = request.getMaxDistance() != null ? request.getMaxDistance() : 50;
+            filterDistance = hasLocation && request.getMaxDistance() != null;
+            hasBudget = request.getBudgetMin() != null && request.getBudgetMax() != null;
+            budgetMin = hasBudget ? request.getBudgetMin().doubleValue() : 0;
+            budgetMax = hasBudget ? request.getBudgetMax().doubleValue() : 0;
+        }
+    }
+
+    private final class ScoreTask extends RecursiveAction {
+        private final StylistColumns stylists;
+        private final BatchRequest request;
+        private final double[] scores;
+        private final int from;
+        private final int to;
+
+        ScoreTask(StylistColumns stylists, BatchRequest request, double[] scores, int from, int to) {
+            this.stylists = stylists;
+            this.request = request;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                scoreRange(stylists, request, scores, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreTask(stylists, request, scores, from, mid),
+                    new ScoreTask(stylists, request, scores, mid, to));
+        }
+    }
+
     public double calculateStylistScore(Stylist stylist, String customerId) {
         try {
             // For stylists, we might consider different factors
@@ -68,7 +287,11 @@ public class ScoringService {
     }
 
     private double calculateEloScore(StylistDto stylist) {
-        int eloRating = stylist.getEloRating() != null ? stylist.getEloRating() : 1200;
+        return eloScore(stylist.getEloRating());
+    }
+
+    static double eloScore(Integer rating) {
+        int eloRating = rating != null ? rating : 1200;
         
         // Normalize Elo rating to 0-100 scale
         // Assuming Elo ratings range from 100 to 3000
@@ -123,11 +346,15 @@ public class ScoringService {
     }
 
     private double calculateAvailabilityScore(StylistDto stylist) {
-        if (stylist.getIsAvailable() == null) {
+        return availabilityScore(stylist.getIsAvailable());
+    }
+
+    static double availabilityScore(Boolean available) {
+        if (available == null) {
             return 50.0; // Default score if availability is unknown
         }
         
-        return stylist.getIsAvailable() ? 100.0 : 0.0;
+        return available ? 100.0 : 0.0;
     }
 
     private double calculateRatingScore(Stylist stylist) {
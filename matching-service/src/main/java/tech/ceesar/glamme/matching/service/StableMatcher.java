@@ -0,0 +1,179 @@
+package tech.ceesar.glamme.matching.service;
+
+import java.util.Arrays;
+
+/**
+ * Customer-proposing deferred acceptance with stylist capacities (the hospitals/residents variant
+ * of Gale-Shapley) over interned ids.
+ *
+ * Customers and stylists are indices into the caller's lists. Preferences are plain int arrays:
+ * {@code customerPreferences[c]} lists acceptable stylists best first, and {@code stylistRanks[s][c]}
+ * is customer c's position in stylist s's order, so every comparison is a single array read.
+ * Each stylist keeps its accepted customers in a heap with the least preferred on top, so
+ * displacing one is O(log capacity). The whole run is O(total preference list length × log capacity).
+ */
+public final class StableMatcher {
+
+    public static final int UNMATCHED = -1;
+
+    /** Rank of a customer the stylist will not take */
+    public static final int UNACCEPTABLE = Integer.MAX_VALUE;
+
+    private StableMatcher() {
+    }
+
+    /**
+     * Match customers to stylists. The result maps each customer to a stylist index, or
+     * {@link #UNMATCHED}; no customer/stylist pair outside the result would both rather be together.
+     */
+    public static int[] match(int[][] customerPreferences, int[][] stylistRanks, int[] capacities) {
+        int customers = customerPreferences.length;
+        int stylists = stylistRanks.length;
+
+        int[] assignment = new int[customers];
+        Arrays.fill(assignment, UNMATCHED);
+        int[] nextProposal = new int[customers];
+
+        int[][] accepted = new int[stylists][];
+        int[] acceptedCount = new int[stylists];
+        for (int s = 0; s < stylists; s++) {
+            accepted[s] = new int[Math.max(0, capacities[s])];
+        }
+
+        int[] free = new int[customers];
+        int freeCount = 0;
+        for (int c = customers - 1; c >= 0; c--) {
+            free[freeCount++] = c;
+        }
+
+        while (freeCount > 0) {
+            int c = free[--freeCount];
+            int[] preferences = customerPreferences[c];
+
+            while (nextProposal[c] < preferences.length) {
+                int s = preferences[nextProposal[c]++];
+                int[] ranks = stylistRanks[s];
+                int rank = ranks[c];
+                int[] heap = accepted[s];
+                if (rank == UNACCEPTABLE || heap.length == 0) {
+                    continue;
+                }
+
+                if (acceptedCount[s] < heap.length) {
+                    siftUp(heap, acceptedCount[s]++, c, ranks);
+                    assignment[c] = s;
+                    break;
+                }
+
+                int worst = heap[0];
+                if (rank < ranks[worst]) {
+                    // Displace the least preferred customer, who goes back to proposing
+                    siftDown(heap, acceptedCount[s], c, ranks);
+                    assignment[c] = s;
+                    assignment[worst] = UNMATCHED;
+                    free[freeCount++] = worst;
+                    break;
+                }
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * Each customer's acceptable stylists, best first, from a customers × stylists score matrix
+     * where a higher score is better and {@code NaN} marks a stylist the customer will not take.
+     * Ties go to the lower stylist index.
+     */
+    public static int[][] preferencesFromScores(double[][] scores) {
+        int[][] preferences = new int[scores.length][];
+        for (int c = 0; c < scores.length; c++) {
+            double[] row = scores[c];
+            long[] keys = new long[row.length];
+            int acceptable = 0;
+            for (int s = 0; s < row.length; s++) {
+                if (!Double.isNaN(row[s])) {
+                    keys[acceptable++] = sortKey(row[s], s);
+                }
+            }
+            Arrays.sort(keys, 0, acceptable);
+            int[] order = new int[acceptable];
+            for (int i = 0; i < acceptable; i++) {
+                order[i] = (int) keys[i];
+            }
+            preferences[c] = order;
+        }
+        return preferences;
+    }
+
+    /**
+     * Each stylist's rank of every customer from the same score matrix read by column: a stylist
+     * prefers the customers it fits best. Customers with a {@code NaN} score are {@link #UNACCEPTABLE}.
+     */
+    public static int[][] ranksFromScores(double[][] scores, int stylists) {
+        int customers = scores.length;
+        int[][] ranks = new int[stylists][];
+        long[] keys = new long[customers];
+        for (int s = 0; s < stylists; s++) {
+            int acceptable = 0;
+            for (int c = 0; c < customers; c++) {
+                if (!Double.isNaN(scores[c][s])) {
+                    keys[acceptable++] = sortKey(scores[c][s], c);
+                }
+            }
+            Arrays.sort(keys, 0, acceptable);
+            int[] rank = new int[customers];
+            Arrays.fill(rank, UNACCEPTABLE);
+            for (int i = 0; i < acceptable; i++) {
+                rank[(int) keys[i]] = i;
+            }
+            ranks[s] = rank;
+        }
+        return ranks;
+    }
+
+    /**
+     * Packs a score and an index so that ascending long order is descending score, then ascending index
+     */
+    private static long sortKey(double score, int index) {
+        int bits = Float.floatToIntBits((float) score);
+        // Order-preserving map from float bits to an unsigned int, inverted for descending order
+        int ordered = bits >= 0 ? bits ^ Integer.MIN_VALUE : ~bits;
+        long descending = ~ordered & 0xFFFFFFFFL;
+        return (descending << 32) | index;
+    }
+
+    private static void siftUp(int[] heap, int i, int customer, int[] ranks) {
+        int rank = ranks[customer];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (ranks[heap[parent]] >= rank) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = customer;
+    }
+
+    /**
+     * Replace the top of the heap with {@code customer} and restore the order
+     */
+    private static void siftDown(int[] heap, int size, int customer, int[] ranks) {
+        int rank = ranks[customer];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && ranks[heap[right]] > ranks[heap[child]]) {
+                child = right;
+            }
+            if (rank >= ranks[heap[child]]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = customer;
+    }
+}
@@ -0,0 +1,322 @@
+package tech.ceesar.glamme.matching.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tech.ceesar.glamme.matching.entity.CustomerPreference;
+import tech.ceesar.glamme.matching.entity.Stylist;
+import tech.ceesar.glamme.matching.repository.StylistRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory candidate index over active stylists for preference-based recommendations.
+ *
+ * <p>Each located stylist is posted under every (geo cell, specialty, price bucket) key it covers,
+ * so a customer's search area, preferred specialties and price range become a bounded number of
+ * map lookups instead of a table scan. Candidates are then checked against the exact radius and
+ * price overlap; ranking is left to the caller.
+ *
+ * <p>Onboarding and profile updates are applied as soon as they commit. Changes made by other
+ * instances or by background jobs are picked up by a periodic poll on {@code updated_at}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StylistCandidateIndex {
+
+    /** Lower bounds of the price buckets; the last one is open-ended */
+    private static final int[] PRICE_BUCKET_FLOORS = {0, 25, 50, 75, 100, 150, 200, 300, 500};
+    private static final int UNPRICED = PRICE_BUCKET_FLOORS.length;
+    private static final int NO_SPECIALTY = Stylist.Specialty.values().length;
+    // Past this many cells a pass over every stylist is cheaper than the lookups
+    private static final int MAX_QUERY_CELLS = 2048;
+    private static final double EARTH_RADIUS_KM = 6371;
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final StylistRepository stylistRepository;
+
+    @Value("${matching.index.cell-degrees:0.1}")
+    private double cellDegrees;
+
+    @Value("${matching.algorithm.geo.max-distance-km:50}")
+    private int defaultRadiusKm;
+
+    @Value("${matching.index.refresh-overlap-seconds:60}")
+    private long refreshOverlapSeconds;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Entry[]> postings = new ConcurrentHashMap<>();
+
+    // Start of the last successful poll; null until the first full load
+    private volatile LocalDateTime refreshedFrom;
+
+    /**
+     * Active stylists that fall inside the customer's search area, share a preferred specialty and
+     * overlap the preferred price range. Filters the customer has not set are skipped; stylists
+     * without a location only match customers without one.
+     */
+    public List<Stylist> findCandidates(CustomerPreference preferences) {
+        long specialties = specialtyMask(preferences.getPreferredSpecialties());
+        Query query = new Query(preferences, specialties);
+        if (!query.located) {
+            return scan(query);
+        }
+
+        BoundingBox area = BoundingBox.around(preferences.getLatitude().doubleValue(),
+                preferences.getLongitude().doubleValue(), query.radiusKm);
+        int firstRow = row(area.minLatitude().doubleValue());
+        int lastRow = row(area.maxLatitude().doubleValue());
+        int firstColumn = column(area.minLongitude().doubleValue());
+        int lastColumn = column(area.maxLongitude().doubleValue());
+        if ((long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1) > MAX_QUERY_CELLS) {
+            return scan(query);
+        }
+        int firstBucket = query.minPrice != null ? priceBucket(query.minPrice) : 0;
+        int lastBucket = query.maxPrice != null ? priceBucket(query.maxPrice) : UNPRICED;
+
+        List<Stylist> candidates = new ArrayList<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                for (int token = 0; token <= NO_SPECIALTY; token++) {
+                    if ((specialties & (1L << token)) == 0) {
+                        continue;
+                    }
+                    for (int bucket = firstBucket; bucket <= UNPRICED; bucket++) {
+                        if (bucket > lastBucket && bucket != UNPRICED) {
+                            continue;
+                        }
+                        for (Entry entry : postings.getOrDefault(key(row, column, token, bucket), NO_ENTRIES)) {
+                            // A stylist is posted once per specialty and bucket; only take it under the
+                            // first of its keys this query visits
+                            if (token == Long.numberOfTrailingZeros(entry.specialties & specialties)
+                                    && bucket == Math.max(entry.firstBucket, firstBucket)
+                                    && query.accepts(entry)) {
+                                candidates.add(entry.stylist);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private List<Stylist> scan(Query query) {
+        List<Stylist> candidates = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if ((entry.specialties & query.specialties) != 0 && query.accepts(entry)) {
+                candidates.add(entry.stylist);
+            }
+        }
+        return candidates;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStylistChanged(StylistChangedEvent event) {
+        apply(event.stylist());
+    }
+
+    /**
+     * Loads every active stylist on the first run, then only the rows updated since the previous
+     * poll. The window overlaps the previous one so late commits and clock skew are not missed;
+     * re-applying an unchanged stylist is harmless.
+     */
+    @Scheduled(fixedDelayString = "${matching.index.refresh-interval-ms:30000}")
+    public void refresh() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            List<Stylist> changed = refreshedFrom == null
+                    ? stylistRepository.findByIsActiveTrue()
+                    : stylistRepository.findByUpdatedAtGreaterThanEqual(
+                            refreshedFrom.minusSeconds(refreshOverlapSeconds));
+            changed.forEach(this::apply);
+            if (refreshedFrom == null) {
+                log.info("Loaded {} stylists into the candidate index", entries.size());
+            }
+            refreshedFrom = startedAt;
+        } catch (Exception e) {
+            log.error("Failed to refresh the stylist candidate index", e);
+        }
+    }
+
+    /**
+     * Adds, moves or removes one stylist. Changes to the same stylist are serialized, and readers
+     * never see a half-updated posting list.
+     */
+    void apply(Stylist stylist) {
+        boolean active = Boolean.TRUE.equals(stylist.getIsActive());
+        entries.compute(stylist.getId(), (id, previous) -> {
+            if (previous != null) {
+                for (long key : previous.keys) {
+                    postings.computeIfPresent(key, (k, posted) -> without(posted, previous));
+                }
+            }
+            if (!active) {
+                return null;
+            }
+            Entry entry = entry(stylist);
+            for (long key : entry.keys) {
+                postings.merge(key, new Entry[]{entry}, StylistCandidateIndex::concat);
+            }
+            return entry;
+        });
+    }
+
+    private Entry entry(Stylist stylist) {
+        long specialties = 0;
+        if (stylist.getSpecialties() != null) {
+            for (Stylist.Specialty specialty : stylist.getSpecialties()) {
+                specialties |= 1L << specialty.ordinal();
+            }
+        }
+        if (specialties == 0) {
+            specialties = 1L << NO_SPECIALTY;
+        }
+
+        boolean priced = stylist.getPriceRangeMin() != null && stylist.getPriceRangeMax() != null;
+        if (stylist.getLatitude() == null || stylist.getLongitude() == null) {
+            return new Entry(stylist, specialties, priced, UNPRICED, null, new long[0]);
+        }
+
+        double latitude = stylist.getLatitude().doubleValue();
+        double longitude = stylist.getLongitude().doubleValue();
+        int row = row(latitude);
+        int column = column(longitude);
+        int firstBucket = priced ? priceBucket(stylist.getPriceRangeMin()) : UNPRICED;
+        int lastBucket = priced ? Math.max(firstBucket, priceBucket(stylist.getPriceRangeMax())) : UNPRICED;
+        long[] keys = new long[Long.bitCount(specialties) * (lastBucket - firstBucket + 1)];
+        int k = 0;
+        for (int token = 0; token <= NO_SPECIALTY; token++) {
+            if ((specialties & (1L << token)) != 0) {
+                for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                    keys[k++] = key(row, column, token, bucket);
+                }
+            }
+        }
+        return new Entry(stylist, specialties, priced, firstBucket, unitVector(latitude, longitude), keys);
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor((longitude + 180) / cellDegrees);
+    }
+
+    // Row-major cell number above 6 bits of specialty and 4 of bucket; dense, so the keys hash evenly
+    private long key(int row, int column, int token, int bucket) {
+        long columns = (long) Math.ceil(360 / cellDegrees) + 1;
+        return (row * columns + column) << 10 | (long) token << 4 | bucket;
+    }
+
+    /**
+     * Point on the unit sphere; the straight-line distance between two of these orders pairs the
+     * same way as the great-circle distance, without inverse trigonometry
+     */
+    private static double[] unitVector(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        return new double[]{Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    private static int priceBucket(BigDecimal price) {
+        double value = price.doubleValue();
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BUCKET_FLOORS.length && value >= PRICE_BUCKET_FLOORS[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static long specialtyMask(Set<Stylist.Specialty> specialties) {
+        if (specialties == null || specialties.isEmpty()) {
+            return (1L << (NO_SPECIALTY + 1)) - 1;
+        }
+        long mask = 0;
+        for (Stylist.Specialty specialty : specialties) {
+            mask |= 1L << specialty.ordinal();
+        }
+        return mask;
+    }
+
+    private static Entry[] concat(Entry[] posted, Entry[] added) {
+        Entry[] merged = Arrays.copyOf(posted, posted.length + added.length);
+        System.arraycopy(added, 0, merged, posted.length, added.length);
+        return merged;
+    }
+
+    private static Entry[] without(Entry[] posted, Entry removed) {
+        Entry[] kept = new Entry[posted.length];
+        int size = 0;
+        for (Entry entry : posted) {
+            if (entry != removed) {
+                kept[size++] = entry;
+            }
+        }
+        return size == 0 ? null : Arrays.copyOf(kept, size);
+    }
+
+    // position is null for stylists without a location
+    private record Entry(Stylist stylist, long specialties, boolean priced, int firstBucket, double[] position,
+                         long[] keys) {
+    }
+
+    /**
+     * The exact checks behind the coarse cell and bucket keys
+     */
+    private final class Query {
+        final long specialties;
+        final boolean located;
+        final double[] position;
+        final double radiusKm;
+        final double maxChordSquared;
+        final BigDecimal minPrice;
+        final BigDecimal maxPrice;
+
+        Query(CustomerPreference preferences, long specialties) {
+            this.specialties = specialties;
+            this.located = preferences.getLatitude() != null && preferences.getLongitude() != null;
+            this.position = located
+                    ? unitVector(preferences.getLatitude().doubleValue(), preferences.getLongitude().doubleValue())
+                    : null;
+            this.radiusKm = preferences.getMaxDistanceKm() != null ? preferences.getMaxDistanceKm() : defaultRadiusKm;
+            double chord = 2 * Math.sin(Math.min(radiusKm / EARTH_RADIUS_KM, Math.PI) / 2);
+            this.maxChordSquared = chord * chord;
+            boolean priced = preferences.getPriceRangeMin() != null && preferences.getPriceRangeMax() != null;
+            this.minPrice = priced ? preferences.getPriceRangeMin() : null;
+            this.maxPrice = priced ? preferences.getPriceRangeMax() : null;
+        }
+
+        boolean accepts(Entry entry) {
+            if (located && (entry.position == null || chordSquared(entry.position) > maxChordSquared)) {
+                return false;
+            }
+            Stylist stylist = entry.stylist;
+            return minPrice == null || !entry.priced
+                    || (stylist.getPriceRangeMax().compareTo(minPrice) >= 0
+                    && stylist.getPriceRangeMin().compareTo(maxPrice) <= 0);
+        }
+
+        private double chordSquared(double[] other) {
+            double dx = other[0] - position[0];
+            double dy = other[1] - position[1];
+            double dz = other[2] - position[2];
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package tech.ceesar.glamme.matching.service;
+
+import tech.ceesar.glamme.matching.entity.Stylist;
+
+/**
+ * Published after a stylist is onboarded or their profile changes, so in-memory views can update
+ */
+public record StylistChangedEvent(Stylist stylist) {
+}
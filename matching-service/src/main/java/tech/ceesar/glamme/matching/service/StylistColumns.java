@@ -0,0 +1,66 @@
+package tech.ceesar.glamme.matching.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Column-per-field snapshot of stylists for batch scoring in {@link ScoringService}.
+ *
+ * Everything a score needs is unboxed into primitive arrays once, with the request-independent
+ * parts (Elo and availability scores, latitude cosines) precomputed. Missing values are
+ * {@code NaN}. Index {@code i} in every column is the stylist at position {@code i} of the list
+ * the snapshot was built from.
+ */
+public final class StylistColumns {
+
+    final String[] ids;
+    final double[] latitudeRadians;
+    final double[] longitudeRadians;
+    final double[] cosLatitude;
+    final double[] hourlyRate;
+    final double[] eloScore;
+    final double[] availabilityScore;
+
+    private StylistColumns(int size) {
+        ids = new String[size];
+        latitudeRadians = new double[size];
+        longitudeRadians = new double[size];
+        cosLatitude = new double[size];
+        hourlyRate = new double[size];
+        eloScore = new double[size];
+        availabilityScore = new double[size];
+    }
+
+    public static StylistColumns of(List<StylistSnapshot> stylists) {
+        StylistColumns columns = new StylistColumns(stylists.size());
+        for (int i = 0; i < stylists.size(); i++) {
+            StylistSnapshot stylist = stylists.get(i);
+            columns.ids[i] = stylist.getId();
+            if (stylist.getLatitude() != null && stylist.getLongitude() != null) {
+                columns.latitudeRadians[i] = Math.toRadians(stylist.getLatitude().doubleValue());
+                columns.longitudeRadians[i] = Math.toRadians(stylist.getLongitude().doubleValue());
+                columns.cosLatitude[i] = Math.cos(columns.latitudeRadians[i]);
+            } else {
+                columns.latitudeRadians[i] = Double.NaN;
+                columns.longitudeRadians[i] = Double.NaN;
+                columns.cosLatitude[i] = Double.NaN;
+            }
+            columns.hourlyRate[i] = toDouble(stylist.getHourlyRate());
+            columns.eloScore[i] = ScoringService.eloScore(stylist.getEloRating());
+            columns.availabilityScore[i] = ScoringService.availabilityScore(stylist.getIsAvailable());
+        }
+        return columns;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public String id(int index) {
+        return ids[index];
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+}
@@ -1,6 +1,7 @@
 package tech.ceesar.glamme.matching.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -26,6 +27,7 @@ public class StylistOnboardingService {
     private final StylistRepository stylistRepository;
     private final ServiceOfferingRepository offeringRepository;
     private final AuthClient authClient;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     @Transactional
     public void onboardStylist(OnboardingStylistResuest req) {
@@ -60,6 +62,7 @@ public class StylistOnboardingService {
                 .languages(req.getLanguages())
                 .build();
         stylist = stylistRepository.save(stylist);
+        applicationEventPublisher.publishEvent(new StylistChangedEvent(stylist));
 
         // 2) Persist each offering
         for (var dto : req.getOfferings()) {
@@ -0,0 +1,153 @@
+package tech.ceesar.glamme.matching.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Redis side of collaborative filtering. {@link CollaborativeFilteringJob} writes each stylist's
+ * most similar stylists and each customer's interaction history as sorted sets; a recommendation is
+ * then one read for the history, one pipelined read for the neighbour lists, and a merge. Next to
+ * the sets it keeps the watermark they were published up to, which every instance of the job shares.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StylistRecommendationStore {
+
+    private static final String SIMILAR_PREFIX = "recommend:similar:";
+    private static final String HISTORY_PREFIX = "recommend:history:";
+    private static final String WATERMARK_KEY = "recommend:watermark";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${matching.recommendation.history-size:20}")
+    private int historySize;
+
+    /**
+     * Stylists the customer has not interacted with, ranked by the sum over their history of
+     * interaction weight times similarity. Empty for customers without history or when Redis is down.
+     */
+    public List<String> recommend(String customerId, int limit) {
+        try {
+            Set<Tuple> history = redisTemplate.execute((RedisCallback<Set<Tuple>>) connection -> connection
+                    .zSetCommands().zRevRangeWithScores(key(HISTORY_PREFIX, customerId), 0, historySize - 1));
+            if (history == null || history.isEmpty()) {
+                return List.of();
+            }
+
+            List<Tuple> seen = new ArrayList<>(history);
+            List<Object> neighbors = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Tuple stylist : seen) {
+                    connection.zSetCommands()
+                            .zRevRangeWithScores(key(SIMILAR_PREFIX, text(stylist.getValue())), 0, -1);
+                }
+                return null;
+            }, null);
+
+            Set<String> seenIds = new HashSet<>();
+            seen.forEach(stylist -> seenIds.add(text(stylist.getValue())));
+            Map<String, Double> scores = new HashMap<>();
+            for (int i = 0; i < seen.size(); i++) {
+                double weight = seen.get(i).getScore();
+                for (Object neighbor : (Collection<?>) neighbors.get(i)) {
+                    // Pipelined replies come back as typed tuples over the raw bytes
+                    ZSetOperations.TypedTuple<?> similar = (ZSetOperations.TypedTuple<?>) neighbor;
+                    String stylistId = text((byte[]) similar.getValue());
+                    if (!seenIds.contains(stylistId)) {
+                        scores.merge(stylistId, weight * similar.getScore(), Double::sum);
+                    }
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } catch (Exception e) {
+            log.error("Failed to read collaborative recommendations for customer: {}", customerId, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Replaces the stored neighbour lists of the given stylists; an empty list removes the key
+     */
+    void saveSimilar(Map<String, List<InteractionMatrix.ScoredStylist>> similar) {
+        replaceAll(SIMILAR_PREFIX, similar);
+    }
+
+    /**
+     * Replaces the stored histories of the given customers
+     */
+    void saveHistory(Map<String, List<InteractionMatrix.ScoredStylist>> histories) {
+        replaceAll(HISTORY_PREFIX, histories);
+    }
+
+    /**
+     * Time up to which the stored sets reflect every interaction; empty if nothing was ever published
+     */
+    Optional<LocalDateTime> watermark() {
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(raw(WATERMARK_KEY)));
+        return Optional.ofNullable(value).map(stored -> LocalDateTime.parse(text(stored)));
+    }
+
+    /**
+     * Records that everything before the given time has been published
+     */
+    void saveWatermark(LocalDateTime watermark) {
+        redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.stringCommands().set(raw(WATERMARK_KEY), raw(watermark.toString())));
+    }
+
+    // Each set is built under a staging key and renamed over the old one, so readers never see it half written
+    private void replaceAll(String prefix, Map<String, List<InteractionMatrix.ScoredStylist>> sets) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            sets.forEach((id, members) -> {
+                byte[] key = key(prefix, id);
+                if (members.isEmpty()) {
+                    connection.keyCommands().del(key);
+                    return;
+                }
+                byte[] staging = raw(prefix + "{" + id + "}:staging");
+                connection.keyCommands().del(staging);
+                for (InteractionMatrix.ScoredStylist member : members) {
+                    connection.zSetCommands().zAdd(staging, member.score(), raw(member.stylistId()));
+                }
+                connection.keyCommands().rename(staging, key);
+            });
+            return null;
+        }, null);
+    }
+
+    // Hash tag keeps a set and its staging key in one cluster slot for the rename
+    private static byte[] key(String prefix, String id) {
+        return raw(prefix + "{" + id + "}");
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
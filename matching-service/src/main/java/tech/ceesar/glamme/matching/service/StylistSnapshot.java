@@ -0,0 +1,145 @@
+package tech.ceesar.glamme.matching.service;
+
+import lombok.Builder;
+import lombok.Value;
+import tech.ceesar.glamme.matching.entity.Stylist;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable copy of a stylist's profile, detached from Hibernate, as kept by
+ * {@link StylistSnapshotStore}. Collections are unmodifiable copies, so a snapshot can be shared
+ * freely between threads; a change to the stylist produces a new snapshot with a higher
+ * {@code version}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class StylistSnapshot {
+
+    // Rough per-object costs for the memory estimate
+    private static final long BASE_BYTES = 320;
+    private static final long STRING_BYTES = 40;
+    private static final long ELEMENT_BYTES = 16;
+
+    long version;
+
+    String id;
+    String businessName;
+    String description;
+
+    BigDecimal latitude;
+    BigDecimal longitude;
+    String address;
+    String city;
+    String state;
+    String zipCode;
+
+    String phoneNumber;
+    String email;
+    String website;
+    String instagramHandle;
+
+    String profileImageUrl;
+    List<String> portfolioImages;
+
+    Set<Stylist.Specialty> specialties;
+    Set<Stylist.Service> services;
+
+    BigDecimal priceRangeMin;
+    BigDecimal priceRangeMax;
+    BigDecimal hourlyRate;
+    BigDecimal averageRating;
+    Integer totalReviews;
+    Integer eloRating;
+
+    Boolean isVerified;
+    Boolean isActive;
+    Boolean isAvailable;
+    Integer yearsExperience;
+
+    List<String> certifications;
+    List<String> languages;
+
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+    LocalDateTime lastActive;
+
+    public static StylistSnapshot of(Stylist stylist, long version) {
+        return StylistSnapshot.builder()
+                .version(version)
+                .id(stylist.getId())
+                .businessName(stylist.getBusinessName())
+                .description(stylist.getDescription())
+                .latitude(stylist.getLatitude())
+                .longitude(stylist.getLongitude())
+                .address(stylist.getAddress())
+                .city(stylist.getCity())
+                .state(stylist.getState())
+                .zipCode(stylist.getZipCode())
+                .phoneNumber(stylist.getPhoneNumber())
+                .email(stylist.getEmail())
+                .website(stylist.getWebsite())
+                .instagramHandle(stylist.getInstagramHandle())
+                .profileImageUrl(stylist.getProfileImageUrl())
+                .portfolioImages(copy(stylist.getPortfolioImages()))
+                .specialties(copy(stylist.getSpecialties()))
+                .services(copy(stylist.getServices()))
+                .priceRangeMin(stylist.getPriceRangeMin())
+                .priceRangeMax(stylist.getPriceRangeMax())
+                .hourlyRate(stylist.getHourlyRate())
+                .averageRating(stylist.getAverageRating())
+                .totalReviews(stylist.getTotalReviews())
+                .eloRating(stylist.getEloRating())
+                .isVerified(stylist.getIsVerified())
+                .isActive(stylist.getIsActive())
+                .isAvailable(stylist.getIsAvailable())
+                .yearsExperience(stylist.getYearsExperience())
+                .certifications(copy(stylist.getCertifications()))
+                .languages(copy(stylist.getLanguages()))
+                .createdAt(stylist.getCreatedAt())
+                .updatedAt(stylist.getUpdatedAt())
+                .lastActive(stylist.getLastActive())
+                .build();
+    }
+
+    /**
+     * Approximate heap footprint, used for the store's memory cap
+     */
+    public long estimatedBytes() {
+        long bytes = BASE_BYTES;
+        for (String text : new String[]{id, businessName, description, address, city, state, zipCode, phoneNumber,
+                email, website, instagramHandle, profileImageUrl}) {
+            bytes += textBytes(text);
+        }
+        for (List<String> texts : Arrays.asList(portfolioImages, certifications, languages)) {
+            if (texts != null) {
+                for (String text : texts) {
+                    bytes += ELEMENT_BYTES + textBytes(text);
+                }
+            }
+        }
+        bytes += ELEMENT_BYTES * (size(specialties) + size(services));
+        return bytes;
+    }
+
+    private static long textBytes(String text) {
+        return text != null ? STRING_BYTES + text.length() : 0;
+    }
+
+    private static int size(Collection<?> collection) {
+        return collection != null ? collection.size() : 0;
+    }
+
+    private static List<String> copy(String[] values) {
+        return values != null ? Arrays.stream(values).toList() : null;
+    }
+
+    private static <E> Set<E> copy(Set<E> values) {
+        return values != null ? Set.copyOf(values) : null;
+    }
+}
@@ -0,0 +1,187 @@
+package tech.ceesar.glamme.matching.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tech.ceesar.glamme.matching.entity.Stylist;
+import tech.ceesar.glamme.matching.repository.StylistRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory store of immutable {@link StylistSnapshot}s, so request paths that only read stylist
+ * profiles do not go through Hibernate.
+ *
+ * <p>Active stylists are loaded by the first refresh after startup. Onboarding and profile updates
+ * are applied as soon as they commit, Elo ratings as they are flushed, and changes made by other
+ * instances are picked up by a periodic poll on {@code updated_at}. A stylist missing from the store
+ * is read from the database and added.
+ *
+ * <p>The store holds at most {@code max-bytes} of estimated snapshot size. Past that, new stylists
+ * are still returned to the caller but not kept, and are counted as rejected; stylists already held
+ * are always updated.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StylistSnapshotStore {
+
+    private final StylistRepository stylistRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${matching.snapshots.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${matching.snapshots.refresh-overlap-seconds:60}")
+    private long refreshOverlapSeconds;
+
+    private final ConcurrentHashMap<String, StylistSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // Start of the last successful poll; null until the first full load
+    private volatile LocalDateTime refreshedFrom;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("matching.stylist.snapshots.size", snapshots, Map::size)
+                .description("Stylist snapshots held in memory")
+                .register(meterRegistry);
+        Gauge.builder("matching.stylist.snapshots.bytes", bytes, AtomicLong::get)
+                .description("Estimated size of the stylist snapshots held in memory")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("matching.stylist.snapshots.hits", hits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("matching.stylist.snapshots.misses", misses, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("matching.stylist.snapshots.rejected", rejected, LongAdder::sum)
+                .description("Stylists not kept because the store was at its memory cap")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The stylist's current snapshot, read from the database if the store does not hold it
+     */
+    public Optional<StylistSnapshot> get(String stylistId) {
+        StylistSnapshot snapshot = snapshots.get(stylistId);
+        if (snapshot != null) {
+            hits.increment();
+            return Optional.of(snapshot);
+        }
+        misses.increment();
+        return stylistRepository.findById(stylistId).map(this::apply);
+    }
+
+    /**
+     * Snapshots of the given stylists by id; the ones the store does not hold are read in one query.
+     * Unknown ids are absent from the result.
+     */
+    public Map<String, StylistSnapshot> getAll(Collection<String> stylistIds) {
+        Map<String, StylistSnapshot> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String stylistId : new LinkedHashSet<>(stylistIds)) {
+            StylistSnapshot snapshot = snapshots.get(stylistId);
+            if (snapshot != null) {
+                found.put(stylistId, snapshot);
+            } else {
+                missing.add(stylistId);
+            }
+        }
+        hits.add(found.size());
+        misses.add(missing.size());
+        if (!missing.isEmpty()) {
+            stylistRepository.findAllById(missing).forEach(stylist -> found.put(stylist.getId(), apply(stylist)));
+        }
+        return found;
+    }
+
+    public SnapshotStats getStats() {
+        return new SnapshotStats(snapshots.size(), bytes.get(), hits.sum(), misses.sum(), rejected.sum());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStylistChanged(StylistChangedEvent event) {
+        apply(event.stylist());
+    }
+
+    /**
+     * Replaces the Elo rating of the stylists held; others pick it up when next read
+     */
+    public void updateEloRatings(Map<String, Integer> ratings) {
+        ratings.forEach((stylistId, rating) -> snapshots.computeIfPresent(stylistId, (id, current) ->
+                current.toBuilder().eloRating(rating).version(versions.incrementAndGet()).build()));
+    }
+
+    /**
+     * Loads every active stylist on the first run, then only the rows updated since the previous
+     * poll, with an overlap so late commits are not missed
+     */
+    @Scheduled(fixedDelayString = "${matching.snapshots.refresh-interval-ms:30000}")
+    public void refresh() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            List<Stylist> changed = refreshedFrom == null
+                    ? stylistRepository.findByIsActiveTrue()
+                    : stylistRepository.findByUpdatedAtGreaterThanEqual(
+                            refreshedFrom.minusSeconds(refreshOverlapSeconds));
+            changed.forEach(this::apply);
+            if (refreshedFrom == null) {
+                log.info("Loaded {} stylist snapshots ({} bytes estimated, {} over the cap)",
+                        snapshots.size(), bytes.get(), rejected.sum());
+            }
+            refreshedFrom = startedAt;
+        } catch (Exception e) {
+            log.error("Failed to refresh stylist snapshots", e);
+        }
+    }
+
+    /**
+     * Stores a snapshot of the stylist unless the one held is newer, and returns the current snapshot
+     */
+    StylistSnapshot apply(Stylist stylist) {
+        StylistSnapshot[] current = new StylistSnapshot[1];
+        snapshots.compute(stylist.getId(), (id, held) -> {
+            if (held != null && stylist.getUpdatedAt() != null && held.getUpdatedAt() != null
+                    && stylist.getUpdatedAt().isBefore(held.getUpdatedAt())) {
+                current[0] = held;
+                return held;
+            }
+            StylistSnapshot snapshot = StylistSnapshot.of(stylist, versions.incrementAndGet());
+            current[0] = snapshot;
+            long size = snapshot.estimatedBytes();
+            if (held != null) {
+                bytes.addAndGet(size - held.estimatedBytes());
+                return snapshot;
+            }
+            if (bytes.get() + size > maxBytes) {
+                rejected.increment();
+                return null;
+            }
+            bytes.addAndGet(size);
+            return snapshot;
+        });
+        return current[0];
+    }
+
+    public record SnapshotStats(int size, long bytes, long hits, long misses, long rejected) {
+    }
+}
@@ -0,0 +1,150 @@
+package tech.ceesar.glamme.matching.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tech.ceesar.glamme.matching.entity.Stylist;
+import tech.ceesar.glamme.matching.service.BoundingBox;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the area-filtered stylist queries against an in-memory database, with and without each bound
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.mapping-resources=META-INF/h2-stylist.orm.xml"
+})
+class StylistRepositoryTest {
+
+    private static final double NYC_LAT = 40.7128;
+    private static final double NYC_LNG = -74.0060;
+
+    @Autowired StylistRepository stylistRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private BoundingBox nyc;
+
+    @BeforeEach
+    void setUp() {
+        nyc = BoundingBox.around(NYC_LAT, NYC_LNG, 10);
+        stylistRepository.saveAll(List.of(
+                stylist("near", 40.7200, -74.0000, "50.00", Stylist.Specialty.HAIR_COLORING, "40.00", "80.00", "4.50"),
+                stylist("far", 34.0522, -118.2437, "50.00", Stylist.Specialty.HAIR_COLORING, "40.00", "80.00", "4.50"),
+                stylist("pricey", 40.7300, -73.9900, "200.00", Stylist.Specialty.HAIR_COLORING, "150.00", "300.00", "3.00"),
+                stylist("unrated", 40.7050, -74.0100, "60.00", Stylist.Specialty.HAIR_STYLING, null, null, null),
+                stylist("makeup", 40.7150, -74.0050, "60.00", Stylist.Specialty.MAKEUP, "40.00", "80.00", "4.90")));
+
+        Stylist unavailable = stylist("unavailable", 40.7130, -74.0060, "50.00", Stylist.Specialty.HAIR_COLORING,
+                "40.00", "80.00", "4.50");
+        unavailable.setIsAvailable(false);
+        Stylist inactive = stylist("inactive", 40.7130, -74.0060, "50.00", Stylist.Specialty.HAIR_COLORING,
+                "40.00", "80.00", "4.50");
+        inactive.setIsActive(false);
+        stylistRepository.saveAll(List.of(unavailable, inactive));
+    }
+
+    @Test
+    void findAvailableIdsInArea_AppliesAreaAndRateWhenGiven() {
+        assertEquals(Set.of("near", "unrated", "makeup"), names(stylistRepository.findAvailableIdsInArea(
+                nyc.minLatitude(), nyc.maxLatitude(), nyc.minLongitude(), nyc.maxLongitude(),
+                new BigDecimal("0"), new BigDecimal("100"))));
+    }
+
+    @Test
+    void findAvailableIdsInArea_SkipsNullBounds() {
+        assertEquals(Set.of("near", "pricey", "unrated", "makeup"), names(stylistRepository.findAvailableIdsInArea(
+                nyc.minLatitude(), nyc.maxLatitude(), nyc.minLongitude(), nyc.maxLongitude(), null, null)));
+        assertEquals(Set.of("near", "far", "unrated", "makeup"), names(stylistRepository.findAvailableIdsInArea(
+                null, null, null, null, new BigDecimal("0"), new BigDecimal("100"))));
+        assertEquals(Set.of("near", "far", "pricey", "unrated", "makeup"), names(stylistRepository.findAvailableIdsInArea(
+                null, null, null, null, null, null)));
+    }
+
+    @Test
+    void findAvailableIdsInArea_CoversEveryCustomerOfAUnionedBox() {
+        BoundingBox both = nyc.union(BoundingBox.around(34.0522, -118.2437, 10));
+
+        assertEquals(Set.of("near", "far", "unrated", "makeup"), names(stylistRepository.findAvailableIdsInArea(
+                both.minLatitude(), both.maxLatitude(), both.minLongitude(), both.maxLongitude(),
+                new BigDecimal("0"), new BigDecimal("100"))));
+    }
+
+    @Test
+    void findBySpecialtyInArea_AppliesAreaPriceAndRatingWhenGiven() {
+        // Stylists without prices or a rating pass those checks; availability is not a search filter
+        assertEquals(Set.of("near", "unavailable", "unrated"), ids(stylistRepository.findBySpecialtyInArea("hair_",
+                nyc.minLatitude(), nyc.maxLatitude(), nyc.minLongitude(), nyc.maxLongitude(),
+                new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("4.0"))));
+        assertEquals(Set.of("near", "unavailable"), ids(stylistRepository.findBySpecialtyInArea("COLOR",
+                nyc.minLatitude(), nyc.maxLatitude(), nyc.minLongitude(), nyc.maxLongitude(),
+                new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("4.0"))));
+    }
+
+    @Test
+    void findBySpecialtyInArea_SkipsNullBounds() {
+        assertEquals(Set.of("near", "far", "pricey", "unavailable"), ids(stylistRepository.findBySpecialtyInArea(
+                "coloring", null, null, null, null, null, null, null)));
+        assertEquals(Set.of("near", "pricey", "unavailable"), ids(stylistRepository.findBySpecialtyInArea("coloring",
+                nyc.minLatitude(), nyc.maxLatitude(), nyc.minLongitude(), nyc.maxLongitude(), null, null, null)));
+        // One missing price bound skips the price check
+        assertEquals(Set.of("near", "far", "pricey", "unavailable"), ids(stylistRepository.findBySpecialtyInArea(
+                "coloring", null, null, null, null, new BigDecimal("50"), null, null)));
+        assertEquals(Set.of("near", "far", "unavailable"), ids(stylistRepository.findBySpecialtyInArea("coloring",
+                null, null, null, null, null, null, new BigDecimal("4.0"))));
+    }
+
+    @Test
+    void save_LeavesTheEloRatingToTheRatingEngine() {
+        Stylist stylist = stylist("rated", 40.7200, -74.0000, "50.00", Stylist.Specialty.MAKEUP, null, null, null);
+        stylist.setEloRating(1500);
+        stylist = stylistRepository.saveAndFlush(stylist);
+        assertEquals(1500, eloRating(stylist.getId()));
+
+        // A match is rated while a profile edit holds the old value
+        jdbcTemplate.update("UPDATE stylists SET elo_rating = ? WHERE id = ?", 1532, stylist.getId());
+        stylist.setBusinessName("renamed");
+        stylistRepository.saveAndFlush(stylist);
+
+        assertEquals(1532, eloRating(stylist.getId()));
+        assertEquals("renamed", jdbcTemplate.queryForObject(
+                "SELECT business_name FROM stylists WHERE id = ?", String.class, stylist.getId()));
+    }
+
+    private int eloRating(String id) {
+        return jdbcTemplate.queryForObject("SELECT elo_rating FROM stylists WHERE id = ?", Integer.class, id);
+    }
+
+    private Set<String> names(List<String> ids) {
+        return ids(stylistRepository.findAllById(ids));
+    }
+
+    private static Set<String> ids(List<Stylist> stylists) {
+        return Set.copyOf(stylists.stream().map(Stylist::getBusinessName).toList());
+    }
+
+    private static Stylist stylist(String name, double latitude, double longitude, String hourlyRate,
+                                   Stylist.Specialty specialty, String priceMin, String priceMax, String rating) {
+        return Stylist.builder()
+                .id(UUID.randomUUID().toString())
+                .businessName(name)
+                .latitude(BigDecimal.valueOf(latitude))
+                .longitude(BigDecimal.valueOf(longitude))
+                .hourlyRate(new BigDecimal(hourlyRate))
+                .specialties(Set.of(specialty))
+                .priceRangeMin(priceMin != null ? new BigDecimal(priceMin) : null)
+                .priceRangeMax(priceMax != null ? new BigDecimal(priceMax) : null)
+                .averageRating(rating != null ? new BigDecimal(rating) : null)
+                .isActive(true)
+                .isVerified(true)
+                .isAvailable(true)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundingBoxTest {
+
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    @Test
+    void around_ContainsTheCircle() {
+        BoundingBox box = BoundingBox.around(40.7128, -74.0060, 25);
+
+        // 25 km is about 0.225 degrees of latitude, and wider in longitude at this latitude
+        assertEquals(40.4880, box.minLatitude().doubleValue(), 1e-3);
+        assertEquals(40.9376, box.maxLatitude().doubleValue(), 1e-3);
+        assertTrue(box.maxLongitude().doubleValue() - box.minLongitude().doubleValue() > 0.59);
+        for (int bearing = 0; bearing < 360; bearing += 5) {
+            assertContains(box, destination(40.7128, -74.0060, 25, bearing));
+        }
+    }
+
+    @Test
+    void around_TakesEveryLongitudeWhenTheCircleCoversAPole() {
+        BoundingBox north = BoundingBox.around(89.5, 10, 100);
+        assertEquals(90, north.maxLatitude().doubleValue());
+        assertEquals(BoundingBox.WORLD.minLongitude(), north.minLongitude());
+        assertEquals(BoundingBox.WORLD.maxLongitude(), north.maxLongitude());
+        assertEquals(89.5 - Math.toDegrees(100 / EARTH_RADIUS_KM), north.minLatitude().doubleValue(), 1e-9);
+
+        BoundingBox south = BoundingBox.around(-89.9, -170, 50);
+        assertEquals(-90, south.minLatitude().doubleValue());
+        assertEquals(BoundingBox.WORLD.minLongitude(), south.minLongitude());
+        assertEquals(BoundingBox.WORLD.maxLongitude(), south.maxLongitude());
+    }
+
+    @Test
+    void around_StaysWithinRangeNearButNotOverAPole() {
+        // The circle reaches 89.9 degrees: the longitude span is at its widest but still bounded
+        double latitude = 89.9 - Math.toDegrees(10 / EARTH_RADIUS_KM);
+        BoundingBox box = BoundingBox.around(latitude, 0, 10);
+
+        assertTrue(box.maxLatitude().doubleValue() < 90);
+        assertTrue(box.minLongitude().doubleValue() >= -180 && box.maxLongitude().doubleValue() <= 180);
+        for (int bearing = 0; bearing < 360; bearing += 5) {
+            assertContains(box, destination(latitude, 0, 10, bearing));
+        }
+    }
+
+    @Test
+    void around_TakesEveryLongitudeWhenCrossingTheAntimeridian() {
+        BoundingBox east = BoundingBox.around(-17.7, 179.9, 50);
+        assertEquals(-180, east.minLongitude().doubleValue());
+        assertEquals(180, east.maxLongitude().doubleValue());
+        assertTrue(east.maxLatitude().doubleValue() < -17);
+
+        BoundingBox west = BoundingBox.around(51.9, -179.95, 20);
+        assertEquals(-180, west.minLongitude().doubleValue());
+        assertEquals(180, west.maxLongitude().doubleValue());
+
+        // Close to the antimeridian without crossing it keeps a narrow range
+        BoundingBox inside = BoundingBox.around(0, 179, 50);
+        assertTrue(inside.minLongitude().doubleValue() > 178);
+        assertTrue(inside.maxLongitude().doubleValue() < 180);
+    }
+
+    @Test
+    void union_IsTheSmallestBoxContainingBoth() {
+        BoundingBox nyc = BoundingBox.around(40.7128, -74.0060, 10);
+        BoundingBox la = BoundingBox.around(34.0522, -118.2437, 10);
+
+        BoundingBox both = nyc.union(la);
+
+        assertEquals(la.minLatitude(), both.minLatitude());
+        assertEquals(nyc.maxLatitude(), both.maxLatitude());
+        assertEquals(la.minLongitude(), both.minLongitude());
+        assertEquals(nyc.maxLongitude(), both.maxLongitude());
+        assertEquals(both, la.union(nyc));
+        assertEquals(nyc, nyc.union(nyc));
+        assertEquals(BoundingBox.WORLD, nyc.union(BoundingBox.WORLD));
+    }
+
+    @Test
+    void union_WithAFullLongitudeBoxKeepsEveryLongitude() {
+        BoundingBox antimeridian = BoundingBox.around(-17.7, 179.9, 50);
+        BoundingBox nyc = BoundingBox.around(40.7128, -74.0060, 10);
+
+        BoundingBox both = antimeridian.union(nyc);
+
+        assertEquals(-180, both.minLongitude().doubleValue());
+        assertEquals(180, both.maxLongitude().doubleValue());
+        assertEquals(antimeridian.minLatitude(), both.minLatitude());
+        assertEquals(nyc.maxLatitude(), both.maxLatitude());
+    }
+
+    private static void assertContains(BoundingBox box, double[] point) {
+        assertTrue(point[0] >= box.minLatitude().doubleValue() && point[0] <= box.maxLatitude().doubleValue(),
+                "latitude " + point[0] + " outside " + box);
+        assertTrue(point[1] >= box.minLongitude().doubleValue() && point[1] <= box.maxLongitude().doubleValue(),
+                "longitude " + point[1] + " outside " + box);
+    }
+
+    /**
+     * Point reached by travelling {@code distanceKm} from the start on the given bearing
+     */
+    private static double[] destination(double latitude, double longitude, double distanceKm, double bearingDegrees) {
+        double angular = distanceKm / EARTH_RADIUS_KM;
+        double bearing = Math.toRadians(bearingDegrees);
+        double lat1 = Math.toRadians(latitude);
+        double lng1 = Math.toRadians(longitude);
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angular)
+                + Math.cos(lat1) * Math.sin(angular) * Math.cos(bearing));
+        double lng2 = lng1 + Math.atan2(Math.sin(bearing) * Math.sin(angular) * Math.cos(lat1),
+                Math.cos(angular) - Math.sin(lat1) * Math.sin(lat2));
+        return new double[]{Math.toDegrees(lat2), Math.toDegrees(lng2)};
+    }
+}
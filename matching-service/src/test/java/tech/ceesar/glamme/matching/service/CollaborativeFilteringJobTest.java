@@ -0,0 +1,232 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.common.service.RedisLockService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class CollaborativeFilteringJobTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private StylistRecommendationStore store;
+    private CollaborativeFilteringJob job;
+    // Watermark the mocked store holds, shared by every job in a test like the Redis key
+    private LocalDateTime publishedUpTo;
+
+    @BeforeEach
+    void init() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("""
+                CREATE TABLE matches (id BIGINT AUTO_INCREMENT PRIMARY KEY, customer_id VARCHAR(64),
+                    stylist_id VARCHAR(64), match_type VARCHAR(32), status VARCHAR(32),
+                    created_at TIMESTAMP, responded_at TIMESTAMP)""");
+        store = mock(StylistRecommendationStore.class);
+        publishedUpTo = null;
+        resetStore();
+        job = newJob();
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void refresh_incrementalRunsMatchOneFullRun() {
+        insert("c1", "s1", "MANUAL", "ACCEPTED", 0, 5);
+        insert("c1", "s2", "DIRECT", "PENDING", 1, null);
+        insert("c2", "s1", "HAIRSTYLE_QUERY", "DECLINED", 2, 3);
+        insert("c2", "s2", "MANUAL", "PENDING", 3, null);
+        insert("c3", "s3", "ALGORITHMIC", "POTENTIAL", 4, null);
+        insert("c3", "s2", "IMAGE_BASED", "ACCEPTED", 12, 25);
+        insert("c4", "s3", "MANUAL", "PENDING", 15, null);
+        insert("c4", "s1", "MANUAL", "PENDING", 20, null);
+
+        job.refresh(T0.plusMinutes(10));
+        job.refresh(T0.plusMinutes(30));
+        Map<String, List<InteractionMatrix.ScoredStylist>> incremental = published();
+
+        resetStore();
+        publishedUpTo = null;
+        CollaborativeFilteringJob fullRun = newJob();
+        fullRun.refresh(T0.plusMinutes(30));
+
+        assertEquals(published(), incremental);
+        // The acceptance at minute 25 is counted once, on top of the request at minute 12
+        assertEquals(List.of(new InteractionMatrix.ScoredStylist("s2", 3.0)), history(fullRun, "c3"));
+    }
+
+    @Test
+    void refresh_republishesOnlyWhatNewEventsTouch() {
+        insert("c1", "s1", "MANUAL", "PENDING", 0, null);
+        insert("c1", "s2", "MANUAL", "PENDING", 1, null);
+        insert("c2", "s3", "MANUAL", "PENDING", 2, null);
+        insert("c2", "s4", "MANUAL", "PENDING", 3, null);
+        job.refresh(T0.plusMinutes(10));
+
+        resetStore();
+        insert("c3", "s3", "DIRECT", "PENDING", 11, null);
+        job.refresh(T0.plusMinutes(20));
+
+        assertEquals(Map.of("s3", List.of(new InteractionMatrix.ScoredStylist("s4", 1 / Math.sqrt(10))),
+                        "s4", List.of(new InteractionMatrix.ScoredStylist("s3", 1 / Math.sqrt(10)))),
+                lastSimilar());
+    }
+
+    @Test
+    void refresh_afterFailedPublishRepublishesWithoutRecounting() {
+        insert("c1", "s1", "MANUAL", "PENDING", 0, null);
+        insert("c1", "s2", "DIRECT", "PENDING", 1, null);
+        doThrow(new IllegalStateException("redis down")).when(store).saveSimilar(anyMap());
+
+        assertThrows(IllegalStateException.class, () -> job.refresh(T0.plusMinutes(10)));
+
+        resetStore();
+        job.refresh(T0.plusMinutes(20));
+
+        assertEquals(Map.of("s1", List.of(new InteractionMatrix.ScoredStylist("s2", 1.0)),
+                "s2", List.of(new InteractionMatrix.ScoredStylist("s1", 1.0))), lastSimilar());
+        assertEquals(List.of(new InteractionMatrix.ScoredStylist("s2", 3.0), new InteractionMatrix.ScoredStylist("s1", 1.0)),
+                history(job, "c1"));
+    }
+
+    @Test
+    void refresh_restartedJobCatchesUpWithoutRepublishing() {
+        insert("c1", "s1", "MANUAL", "PENDING", 0, null);
+        insert("c1", "s2", "MANUAL", "PENDING", 1, null);
+        insert("c2", "s3", "MANUAL", "PENDING", 2, null);
+        insert("c2", "s4", "MANUAL", "PENDING", 3, null);
+        job.refresh(T0.plusMinutes(10));
+        assertEquals(T0.plusMinutes(10), publishedUpTo);
+
+        resetStore();
+        CollaborativeFilteringJob restarted = newJob();
+        insert("c3", "s3", "DIRECT", "PENDING", 11, null);
+        restarted.refresh(T0.plusMinutes(20));
+
+        // Only the stylists the new event touched are written, computed over the whole history
+        assertEquals(Map.of("s3", List.of(new InteractionMatrix.ScoredStylist("s4", 1 / Math.sqrt(10))),
+                        "s4", List.of(new InteractionMatrix.ScoredStylist("s3", 1 / Math.sqrt(10)))),
+                lastSimilar());
+        assertEquals(Set.of(new InteractionMatrix.ScoredStylist("s1", 1.0), new InteractionMatrix.ScoredStylist("s2", 1.0)),
+                Set.copyOf(history(restarted, "c1")));
+        assertEquals(T0.plusMinutes(20), publishedUpTo);
+    }
+
+    @Test
+    void refresh_alternatingInstancesMatchOneFullRun() {
+        insert("c1", "s1", "MANUAL", "ACCEPTED", 0, 5);
+        insert("c1", "s2", "DIRECT", "PENDING", 1, null);
+        insert("c2", "s1", "MANUAL", "PENDING", 12, null);
+        insert("c2", "s2", "MANUAL", "ACCEPTED", 14, 22);
+        insert("c3", "s2", "IMAGE_BASED", "PENDING", 25, null);
+        insert("c3", "s3", "MANUAL", "PENDING", 26, null);
+
+        CollaborativeFilteringJob other = newJob();
+        job.refresh(T0.plusMinutes(10));
+        other.refresh(T0.plusMinutes(20));
+        job.refresh(T0.plusMinutes(30));
+        Map<String, List<InteractionMatrix.ScoredStylist>> alternating = published();
+
+        resetStore();
+        publishedUpTo = null;
+        newJob().refresh(T0.plusMinutes(30));
+
+        assertEquals(published(), alternating);
+        // The replayed window is counted once in the instance that skipped it
+        assertEquals(List.of(new InteractionMatrix.ScoredStylist("s2", 3.0), new InteractionMatrix.ScoredStylist("s1", 1.0)),
+                history(job, "c2"));
+    }
+
+    @Test
+    void refresh_rebuildsWhenThePublishedWatermarkIsGone() {
+        insert("c1", "s1", "MANUAL", "PENDING", 0, null);
+        insert("c1", "s2", "MANUAL", "PENDING", 1, null);
+        job.refresh(T0.plusMinutes(10));
+
+        // Redis lost the published sets and their watermark
+        resetStore();
+        publishedUpTo = null;
+        job.refresh(T0.plusMinutes(20));
+
+        assertEquals(Map.of("s1", List.of(new InteractionMatrix.ScoredStylist("s2", 1.0)),
+                "s2", List.of(new InteractionMatrix.ScoredStylist("s1", 1.0))), lastSimilar());
+        assertEquals(Set.of(new InteractionMatrix.ScoredStylist("s1", 1.0), new InteractionMatrix.ScoredStylist("s2", 1.0)),
+                Set.copyOf(history(job, "c1")));
+    }
+
+    private void resetStore() {
+        reset(store);
+        when(store.watermark()).thenAnswer(invocation -> Optional.ofNullable(publishedUpTo));
+        doAnswer(invocation -> publishedUpTo = invocation.getArgument(0)).when(store).saveWatermark(any());
+    }
+
+    private CollaborativeFilteringJob newJob() {
+        CollaborativeFilteringJob job = new CollaborativeFilteringJob(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(database)), mock(RedisLockService.class), store);
+        ReflectionTestUtils.setField(job, "neighbors", 10);
+        ReflectionTestUtils.setField(job, "historySize", 20);
+        ReflectionTestUtils.setField(job, "fetchSize", 2);
+        return job;
+    }
+
+    private void insert(String customerId, String stylistId, String type, String status, int createdMinute,
+                        Integer respondedMinute) {
+        jdbcTemplate.update("INSERT INTO matches (customer_id, stylist_id, match_type, status, created_at, responded_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)", customerId, stylistId, type, status,
+                Timestamp.valueOf(T0.plusMinutes(createdMinute)),
+                respondedMinute != null ? Timestamp.valueOf(T0.plusMinutes(respondedMinute)) : null);
+    }
+
+    // Latest neighbour list published for each stylist, across all saveSimilar calls
+    @SuppressWarnings("unchecked")
+    private Map<String, List<InteractionMatrix.ScoredStylist>> published() {
+        ArgumentCaptor<Map<String, List<InteractionMatrix.ScoredStylist>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(store, atLeastOnce()).saveSimilar(captor.capture());
+        Map<String, List<InteractionMatrix.ScoredStylist>> latest = new HashMap<>();
+        captor.getAllValues().forEach(latest::putAll);
+        return latest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, List<InteractionMatrix.ScoredStylist>> lastSimilar() {
+        ArgumentCaptor<Map<String, List<InteractionMatrix.ScoredStylist>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(store, atLeastOnce()).saveSimilar(captor.capture());
+        return captor.getValue();
+    }
+
+    private static List<InteractionMatrix.ScoredStylist> history(CollaborativeFilteringJob job, String customerId) {
+        InteractionMatrix matrix = (InteractionMatrix) ReflectionTestUtils.getField(job, "matrix");
+        for (int customer = 0; customer < matrix.customerCount(); customer++) {
+            if (matrix.customerId(customer).equals(customerId)) {
+                return matrix.history(customer);
+            }
+        }
+        return List.of();
+    }
+}
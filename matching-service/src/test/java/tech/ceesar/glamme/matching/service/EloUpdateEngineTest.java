@@ -0,0 +1,172 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.common.service.CacheService;
+import tech.ceesar.glamme.matching.repository.StylistRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class EloUpdateEngineTest {
+
+    private static final int INITIAL_RATING = 1500;
+    private static final List<String> STYLISTS = List.of("s1", "s2", "s3", "s4", "s5");
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void init() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        jdbcTemplate.execute("CREATE TABLE stylists (id VARCHAR(64) PRIMARY KEY, elo_rating INT, updated_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO stylists (id, elo_rating) VALUES ('s1', 1600), ('s2', NULL), ('s3', 1500), "
+                + "('s4', 1500), ('s5', 1500)");
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void flush_appliesOutcomesInSubmissionOrder() {
+        EloRatingService eloRatingService = eloRatingService();
+        EloUpdateEngine engine = new EloUpdateEngine(jdbcTemplate, transactionTemplate, eloRatingService::nextRating,
+                INITIAL_RATING, 4, 2);
+
+        SplittableRandom random = new SplittableRandom(7);
+        int s1 = 1600;
+        int s2 = INITIAL_RATING;
+        for (int i = 0; i < 50; i++) {
+            boolean won = random.nextBoolean();
+            int opponent = 1200 + random.nextInt(600);
+            engine.submit("s1", won, opponent);
+            engine.submit("s2", !won, opponent);
+            s1 = eloRatingService.nextRating(s1, opponent, won);
+            s2 = eloRatingService.nextRating(s2, opponent, !won);
+        }
+        engine.submit("unknown", true, 1500);
+
+        assertEquals(Map.of("s1", s1, "s2", s2), engine.flush());
+        assertEquals(s1, rating("s1"));
+        assertEquals(s2, rating("s2"));
+        assertEquals(Map.of(), engine.flush());
+        engine.close();
+    }
+
+    @Test
+    void flush_replaysOutcomesOnARatingChangedMeanwhile() {
+        AtomicBoolean interfered = new AtomicBoolean();
+        // The first fold runs after the stored rating was read; another writer changes it right then
+        EloUpdateEngine engine = new EloUpdateEngine(jdbcTemplate, transactionTemplate, (current, opponent, won) -> {
+            if (interfered.compareAndSet(false, true)) {
+                jdbcTemplate.update("UPDATE stylists SET elo_rating = 1700 WHERE id = 's1'");
+            }
+            return current + (won ? 10 : -10);
+        }, INITIAL_RATING, 1, 10);
+
+        engine.submit("s1", true, 1500);
+        engine.submit("s1", true, 1500);
+
+        assertEquals(Map.of(), engine.flush());
+        assertEquals(1700, rating("s1"));
+        assertEquals(Map.of("s1", 1720), engine.flush());
+        assertEquals(1720, rating("s1"));
+        engine.close();
+    }
+
+    @Test
+    void concurrentResolution_losesNoUpdates() throws Exception {
+        // A linear rule makes the final rating independent of order, so any lost update shows
+        EloUpdateEngine.RatingRule rule = (current, opponent, won) -> current + (won ? 3 : -1);
+        // Two engines play two service instances writing the same rows
+        List<EloUpdateEngine> engines = List.of(
+                new EloUpdateEngine(jdbcTemplate, transactionTemplate, rule, INITIAL_RATING, 3, 2),
+                new EloUpdateEngine(jdbcTemplate, transactionTemplate, rule, INITIAL_RATING, 2, 3));
+        int threads = 8;
+        int outcomesPerThread = 2_000;
+        AtomicInteger[] expectedDelta = new AtomicInteger[STYLISTS.size()];
+        for (int i = 0; i < expectedDelta.length; i++) {
+            expectedDelta[i] = new AtomicInteger();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean resolving = new AtomicBoolean(true);
+        Future<?> flusher = pool.submit(() -> {
+            while (resolving.get()) {
+                engines.parallelStream().forEach(EloUpdateEngine::flush);
+            }
+        });
+        List<Future<?>> resolvers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            resolvers.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                start.await();
+                for (int i = 0; i < outcomesPerThread; i++) {
+                    int stylist = random.nextInt(STYLISTS.size());
+                    boolean won = random.nextBoolean();
+                    engines.get(random.nextInt(engines.size())).submit(STYLISTS.get(stylist), won, 1500);
+                    expectedDelta[stylist].addAndGet(won ? 3 : -1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> resolver : resolvers) {
+            resolver.get();
+        }
+        resolving.set(false);
+        flusher.get();
+        pool.shutdown();
+        // A flush that lost a race replays on the next one
+        for (int round = 0; round < 3; round++) {
+            engines.forEach(EloUpdateEngine::flush);
+        }
+
+        assertEquals(1600 + expectedDelta[0].get(), rating("s1"));
+        assertEquals(INITIAL_RATING + expectedDelta[1].get(), rating("s2"));
+        for (int i = 2; i < STYLISTS.size(); i++) {
+            assertEquals(1500 + expectedDelta[i].get(), rating(STYLISTS.get(i)), STYLISTS.get(i));
+        }
+        engines.forEach(EloUpdateEngine::close);
+    }
+
+    private EloRatingService eloRatingService() {
+        EloRatingService eloRatingService = new EloRatingService(mock(StylistRepository.class),
+                mock(CacheService.class), jdbcTemplate, transactionTemplate, mock(StylistSnapshotStore.class));
+        ReflectionTestUtils.setField(eloRatingService, "initialRating", INITIAL_RATING);
+        ReflectionTestUtils.setField(eloRatingService, "kFactor", 32);
+        ReflectionTestUtils.setField(eloRatingService, "minRating", 100);
+        ReflectionTestUtils.setField(eloRatingService, "maxRating", 3000);
+        return eloRatingService;
+    }
+
+    private int rating(String stylistId) {
+        return jdbcTemplate.queryForObject("SELECT elo_rating FROM stylists WHERE id = ?", Integer.class, stylistId);
+    }
+}
@@ -0,0 +1,152 @@
+package tech.ceesar.glamme.matching.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.common.event.EventPublisher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class EventOutboxTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private EventPublisher eventPublisher;
+    private EventOutbox outbox;
+
+    @BeforeEach
+    void init() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        jdbcTemplate.execute("CREATE TABLE outbox_events (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "detail_type VARCHAR(255) NOT NULL, payload TEXT NOT NULL, attempts INT NOT NULL, "
+                + "created_at TIMESTAMP NOT NULL)");
+        eventPublisher = mock(EventPublisher.class);
+        outbox = new EventOutbox(jdbcTemplate, transactionTemplate, eventPublisher, new ObjectMapper());
+        ReflectionTestUtils.setField(outbox, "relayBatchSize", 2);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 3);
+        // H2 has no SKIP LOCKED
+        ReflectionTestUtils.setField(outbox, "skipLocked", false);
+    }
+
+    @AfterEach
+    void shutdown() {
+        outbox.stop();
+        database.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void commit_publishesStagedEventsInOneBatch() {
+        when(eventPublisher.publishBatch(anyList())).thenAnswer(call -> accepted(call.getArgument(0, List.class).size()));
+        ReflectionTestUtils.setField(outbox, "relayBatchSize", 10);
+
+        transactionTemplate.executeWithoutResult(status -> outbox.addAll(List.of(
+                new EventOutbox.OutboxEntry("match.created", Map.of("matchId", 1, "stylistId", "s1")),
+                new EventOutbox.OutboxEntry("match.created", Map.of("matchId", 2, "stylistId", "s2")))));
+
+        ArgumentCaptor<List<EventPublisher.OutgoingEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(eventPublisher, timeout(5_000)).publishBatch(events.capture());
+        assertEquals(List.of(
+                new EventPublisher.OutgoingEvent("match.created", Map.of("matchId", 1, "stylistId", "s1")),
+                new EventPublisher.OutgoingEvent("match.created", Map.of("matchId", 2, "stylistId", "s2"))),
+                events.getValue());
+        outbox.stop();
+        assertEquals(0, pending());
+    }
+
+    @Test
+    void rollback_leavesNothingToPublish() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outbox.addAll(List.of(new EventOutbox.OutboxEntry("match.created", Map.of("matchId", 1))));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, pending());
+        assertEquals(0, outbox.relay());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void relay_keepsRejectedEventsForTheNextRun() {
+        jdbcTemplate.update("INSERT INTO outbox_events (detail_type, payload, attempts, created_at) VALUES "
+                + "('match.created', '{\"matchId\":1}', 0, NOW()), ('match.created', '{\"matchId\":2}', 0, NOW()), "
+                + "('match.created', '{\"matchId\":3}', 0, NOW())");
+        when(eventPublisher.publishBatch(anyList()))
+                .thenReturn(new boolean[]{true, false})
+                .thenReturn(new boolean[]{true})
+                .thenReturn(new boolean[]{true});
+
+        // Batches of two: the rejected event is not retried within the same run
+        assertEquals(2, outbox.relay());
+        assertEquals(List.of(2L), jdbcTemplate.queryForList("SELECT id FROM outbox_events", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT attempts FROM outbox_events", Integer.class));
+
+        assertEquals(1, outbox.relay());
+        assertEquals(0, pending());
+        verify(eventPublisher, times(3)).publishBatch(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relay_parksUnreadablePayloadsWithoutBlockingLaterEvents() {
+        jdbcTemplate.update("INSERT INTO outbox_events (detail_type, payload, attempts, created_at) VALUES "
+                + "('match.created', '{\"matchId\":1}', 0, NOW()), ('match.created', 'not json', 0, NOW()), "
+                + "('match.created', '{\"matchId\":3}', 0, NOW())");
+        when(eventPublisher.publishBatch(anyList())).thenAnswer(call -> accepted(call.getArgument(0, List.class).size()));
+
+        assertEquals(2, outbox.relay());
+
+        assertEquals(List.of(2L), jdbcTemplate.queryForList("SELECT id FROM outbox_events", Long.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT attempts FROM outbox_events", Integer.class));
+        // Parked rows are not claimed again
+        assertEquals(0, outbox.relay());
+        verify(eventPublisher, times(2)).publishBatch(anyList());
+    }
+
+    @Test
+    void relay_parksEventsRejectedMaxAttemptsTimes() {
+        jdbcTemplate.update("INSERT INTO outbox_events (detail_type, payload, attempts, created_at) VALUES "
+                + "('match.created', '{\"matchId\":1}', 0, NOW()), ('match.created', '{\"matchId\":2}', 0, NOW())");
+        when(eventPublisher.publishBatch(anyList()))
+                .thenReturn(new boolean[]{false, true})
+                .thenReturn(new boolean[]{false})
+                .thenReturn(new boolean[]{false});
+
+        for (int run = 0; run < 3; run++) {
+            outbox.relay();
+        }
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT attempts FROM outbox_events WHERE id = 1", Integer.class));
+
+        assertEquals(0, outbox.relay());
+        verify(eventPublisher, times(3)).publishBatch(anyList());
+        assertEquals(1, pending());
+    }
+
+    private int pending() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Integer.class);
+    }
+
+    private static boolean[] accepted(int size) {
+        boolean[] accepted = new boolean[size];
+        Arrays.fill(accepted, true);
+        return accepted;
+    }
+}
@@ -0,0 +1,109 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.matching.dto.MatchDto;
+import tech.ceesar.glamme.matching.dto.MatchingRequest;
+import tech.ceesar.glamme.matching.entity.Match;
+import tech.ceesar.glamme.matching.repository.MatchRepository;
+import tech.ceesar.glamme.matching.repository.StylistRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GaleShapleyServiceTest {
+
+    private StylistRepository stylistRepository;
+    private StylistSnapshotStore stylistSnapshots;
+    private GaleShapleyService galeShapleyService;
+
+    @BeforeEach
+    void init() {
+        stylistRepository = mock(StylistRepository.class);
+        stylistSnapshots = mock(StylistSnapshotStore.class);
+
+        ScoringService scoringService = new ScoringService(mock(EloRatingService.class));
+        ReflectionTestUtils.setField(scoringService, "eloWeight", 0.4);
+        ReflectionTestUtils.setField(scoringService, "distanceWeight", 0.3);
+        ReflectionTestUtils.setField(scoringService, "priceWeight", 0.2);
+        ReflectionTestUtils.setField(scoringService, "availabilityWeight", 0.1);
+        ReflectionTestUtils.setField(scoringService, "parallelThreshold", 16384);
+
+        MatchRepository matchRepository = mock(MatchRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(matchRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Match> matches = invocation.getArgument(0);
+            matches.forEach(match -> match.setId(ids.incrementAndGet()));
+            return matches;
+        });
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        galeShapleyService = new GaleShapleyService(stylistRepository, matchRepository, scoringService,
+                transactionTemplate, mock(EventOutbox.class), stylistSnapshots);
+        ReflectionTestUtils.setField(galeShapleyService, "stylistCapacity", 1);
+        ReflectionTestUtils.setField(galeShapleyService, "preferenceListSize", 50);
+    }
+
+    @Test
+    void performBatchMatching_ScoresSnapshotsOfTheStylistsInTheArea() {
+        when(stylistRepository.findAvailableIdsInArea(any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of("near", "farther", "deleted"));
+        when(stylistSnapshots.getAll(List.of("near", "farther", "deleted"))).thenReturn(Map.of(
+                "near", snapshot("near", 40.0010, -105.0010),
+                "farther", snapshot("farther", 40.0500, -105.0500)));
+
+        List<MatchDto> matches = galeShapleyService.performBatchMatching(List.of(
+                request("first", 40.0, -105.0), request("second", 40.0, -105.0)));
+
+        assertEquals(Map.of("first", "near", "second", "farther"), Map.of(
+                matches.get(0).getCustomerId(), matches.get(0).getStylistId(),
+                matches.get(1).getCustomerId(), matches.get(1).getStylistId()));
+        // Both customers share the box and budget, so the query gets them as bounds
+        verify(stylistRepository).findAvailableIdsInArea(notNull(), notNull(), notNull(), notNull(),
+                eq(BigDecimal.valueOf(40)), eq(BigDecimal.valueOf(150)));
+        verifyNoMoreInteractions(stylistRepository);
+    }
+
+    @Test
+    void performBatchMatching_MatchesNobodyWithoutCandidates() {
+        when(stylistRepository.findAvailableIdsInArea(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+        when(stylistSnapshots.getAll(List.of())).thenReturn(Map.of());
+
+        assertTrue(galeShapleyService.performBatchMatching(List.of(request("first", 40.0, -105.0))).isEmpty());
+    }
+
+    private static StylistSnapshot snapshot(String id, double latitude, double longitude) {
+        return StylistSnapshot.builder()
+                .id(id)
+                .latitude(BigDecimal.valueOf(latitude))
+                .longitude(BigDecimal.valueOf(longitude))
+                .hourlyRate(BigDecimal.valueOf(80))
+                .eloRating(1500)
+                .isAvailable(true)
+                .build();
+    }
+
+    private static MatchingRequest request(String customerId, double latitude, double longitude) {
+        return MatchingRequest.builder()
+                .customerId(customerId)
+                .customerLatitude(BigDecimal.valueOf(latitude))
+                .customerLongitude(BigDecimal.valueOf(longitude))
+                .maxDistance(25)
+                .budgetMin(BigDecimal.valueOf(40))
+                .budgetMax(BigDecimal.valueOf(150))
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InteractionMatrixTest {
+
+    private static final int CUSTOMERS = 300;
+    private static final int STYLISTS = 80;
+
+    @Test
+    void similarTo_isTopCosineSimilarity() {
+        InteractionMatrix matrix = new InteractionMatrix();
+        double[][] weights = new double[CUSTOMERS][STYLISTS];
+        for (double[] event : events(3, 2000)) {
+            matrix.add("c" + (int) event[0], "s" + (int) event[1], event[2]);
+            weights[(int) event[0]][(int) event[1]] += event[2];
+        }
+
+        for (int stylist = 0; stylist < matrix.stylistCount(); stylist++) {
+            int s = Integer.parseInt(matrix.stylistId(stylist).substring(1));
+            List<InteractionMatrix.ScoredStylist> similar = matrix.similarTo(stylist, 10);
+
+            assertTrue(similar.size() <= 10);
+            for (int i = 0; i < similar.size(); i++) {
+                int other = Integer.parseInt(similar.get(i).stylistId().substring(1));
+                assertNotEquals(s, other);
+                assertEquals(cosine(weights, s, other), similar.get(i).score(), 1e-9);
+                if (i > 0) {
+                    assertTrue(similar.get(i - 1).score() >= similar.get(i).score());
+                }
+            }
+        }
+    }
+
+    @Test
+    void affectedStylists_coverEveryListAnIncrementMoves() {
+        InteractionMatrix matrix = new InteractionMatrix();
+        events(5, 1500).forEach(e -> matrix.add("c" + (int) e[0], "s" + (int) e[1], e[2]));
+        matrix.clearChanges();
+        Map<String, List<InteractionMatrix.ScoredStylist>> before = allSimilar(matrix);
+
+        matrix.add("c7", "s3", 2.0);
+        matrix.add("c250", "s61", 1.0);
+        BitSet affected = matrix.affectedStylists();
+
+        Map<String, List<InteractionMatrix.ScoredStylist>> after = allSimilar(matrix);
+        for (int stylist = 0; stylist < matrix.stylistCount(); stylist++) {
+            String id = matrix.stylistId(stylist);
+            if (!affected.get(stylist)) {
+                assertEquals(before.get(id), after.get(id), id);
+            }
+        }
+        assertTrue(affected.cardinality() < matrix.stylistCount());
+        assertEquals(2, matrix.changedCustomers().cardinality());
+    }
+
+    @Test
+    void history_ordersCustomerWeightsDescending() {
+        InteractionMatrix matrix = new InteractionMatrix();
+        matrix.add("c1", "s1", 1.0);
+        matrix.add("c1", "s2", 3.0);
+        matrix.add("c1", "s1", 1.0);
+        matrix.add("c2", "s3", 1.0);
+
+        assertEquals(List.of(new InteractionMatrix.ScoredStylist("s2", 3.0), new InteractionMatrix.ScoredStylist("s1", 2.0)),
+                matrix.history(0));
+    }
+
+    private static Map<String, List<InteractionMatrix.ScoredStylist>> allSimilar(InteractionMatrix matrix) {
+        Map<String, List<InteractionMatrix.ScoredStylist>> similar = new HashMap<>();
+        for (int stylist = 0; stylist < matrix.stylistCount(); stylist++) {
+            similar.put(matrix.stylistId(stylist), matrix.similarTo(stylist, 10));
+        }
+        return similar;
+    }
+
+    // {customer, stylist, weight}; each customer sticks to a small neighbourhood of stylists
+    private static List<double[]> events(long seed, int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<double[]> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int customer = random.nextInt(CUSTOMERS);
+            int stylist = Math.floorMod(customer / 4 + random.nextInt(-3, 4), STYLISTS);
+            events.add(new double[]{customer, stylist, 1 + random.nextInt(3)});
+        }
+        return events;
+    }
+
+    private static double cosine(double[][] weights, int a, int b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (double[] customer : weights) {
+            dot += customer[a] * customer[b];
+            normA += customer[a] * customer[a];
+            normB += customer[b] * customer[b];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
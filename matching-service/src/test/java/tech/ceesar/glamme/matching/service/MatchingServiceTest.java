@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import tech.ceesar.glamme.common.enums.SubscriptionType;
 import tech.ceesar.glamme.matching.dto.*;
 import tech.ceesar.glamme.matching.entity.*;
@@ -31,6 +32,8 @@ public class MatchingServiceTest {
     @Mock MatchRepository matchRepository;
     @Mock MatchingAlgorithmService matchingAlgorithmService;
     @Mock EventService eventService;
+    @Mock ApplicationEventPublisher applicationEventPublisher;
+    @Mock StylistSnapshotStore stylistSnapshots;
     @InjectMocks MatchingService matchingService;
 
     private Stylist stylist1, stylist2;
@@ -84,7 +87,7 @@ public class MatchingServiceTest {
                 .notes("Test booking")
                 .build();
 
-        when(stylistRepository.findById("stylist-1")).thenReturn(Optional.of(stylist1));
+        when(stylistSnapshots.get("stylist-1")).thenReturn(Optional.of(StylistSnapshot.of(stylist1, 1)));
         when(customerPreferenceRepository.findByCustomerId(customerId)).thenReturn(Optional.of(customerPreference));
         when(matchRepository.findByCustomerIdAndStylistIdAndStatus(customerId, "stylist-1", Match.Status.PENDING))
                 .thenReturn(Optional.empty());
@@ -118,7 +121,8 @@ public class MatchingServiceTest {
         String hairstyleQuery = "braids";
         
         when(customerPreferenceRepository.findByCustomerId(customerId)).thenReturn(Optional.of(customerPreference));
-        when(stylistRepository.findBySpecialtiesContainingIgnoreCase(hairstyleQuery)).thenReturn(List.of(stylist1, stylist2));
+        when(stylistRepository.findBySpecialtyInArea(eq(hairstyleQuery), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(stylist1, stylist2));
         when(matchingAlgorithmService.calculateMatchScore(eq(customerId), anyString(), any(), any())).thenReturn(85.0);
 
         // Act
@@ -142,7 +146,7 @@ public class MatchingServiceTest {
                 .notes("Direct booking test")
                 .build();
 
-        when(stylistRepository.findById("stylist-1")).thenReturn(Optional.of(stylist1));
+        when(stylistSnapshots.get("stylist-1")).thenReturn(Optional.of(StylistSnapshot.of(stylist1, 1)));
 
         Match savedMatch = Match.builder()
                 .id(1L)
@@ -0,0 +1,147 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.ceesar.glamme.matching.dto.MatchingRequest;
+import tech.ceesar.glamme.matching.dto.StylistDto;
+import tech.ceesar.glamme.matching.entity.Stylist;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ScoringServiceTest {
+
+    private ScoringService scoringService;
+    private List<Stylist> stylists;
+
+    @BeforeEach
+    void init() {
+        scoringService = new ScoringService(mock(EloRatingService.class));
+        ReflectionTestUtils.setField(scoringService, "eloWeight", 0.4);
+        ReflectionTestUtils.setField(scoringService, "distanceWeight", 0.3);
+        ReflectionTestUtils.setField(scoringService, "priceWeight", 0.2);
+        ReflectionTestUtils.setField(scoringService, "availabilityWeight", 0.1);
+        ReflectionTestUtils.setField(scoringService, "parallelThreshold", 16384);
+
+        SplittableRandom random = new SplittableRandom(3);
+        stylists = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            boolean located = random.nextInt(10) != 0;
+            stylists.add(Stylist.builder()
+                    .id("stylist-" + i)
+                    .latitude(located ? BigDecimal.valueOf(40 + random.nextDouble(-0.5, 0.5)) : null)
+                    .longitude(located ? BigDecimal.valueOf(-105 + random.nextDouble(-0.5, 0.5)) : null)
+                    .hourlyRate(random.nextInt(10) != 0 ? BigDecimal.valueOf(random.nextInt(20, 200)) : null)
+                    .eloRating(random.nextInt(10) != 0 ? random.nextInt(800, 2400) : null)
+                    .isAvailable(random.nextInt(10) != 0 ? random.nextBoolean() : null)
+                    .build());
+        }
+    }
+
+    @Test
+    void scoreAll_matchesPerStylistScores() {
+        for (MatchingRequest request : requests()) {
+            double[] scores = scoringService.scoreAll(columns(), request);
+
+            for (int i = 0; i < stylists.size(); i++) {
+                assertEquals(scoringService.calculateCustomerScore(toDto(stylists.get(i)), request), scores[i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void scoreAll_parallelMatchesSerial() {
+        MatchingRequest request = requests().get(0);
+        StylistColumns columns = columns();
+        double[] serial = scoringService.scoreAll(columns, request);
+
+        ReflectionTestUtils.setField(scoringService, "parallelThreshold", 1);
+        double[] parallel = scoringService.scoreAll(columns, request);
+
+        assertArrayEquals(serial, parallel);
+    }
+
+    @Test
+    void scoreCandidates_dropsStylistsOutsideBudgetOrDistance() {
+        MatchingRequest request = requests().get(0);
+
+        double[] scores = scoringService.scoreCandidates(columns(), request);
+
+        for (int i = 0; i < stylists.size(); i++) {
+            Stylist stylist = stylists.get(i);
+            boolean inBudget = stylist.getHourlyRate() != null
+                    && stylist.getHourlyRate().compareTo(request.getBudgetMin()) >= 0
+                    && stylist.getHourlyRate().compareTo(request.getBudgetMax()) <= 0;
+            // Within the radius the distance score is positive
+            boolean near = stylist.getLatitude() != null
+                    && distanceScore(stylist, request) > 0;
+            assertEquals(inBudget && near, !Double.isNaN(scores[i]), "stylist " + i);
+        }
+    }
+
+    @Test
+    void topK_returnsBestScoresInOrder() {
+        double[] scores = scoringService.scoreCandidates(columns(), requests().get(0));
+
+        int[] top = ScoringService.topK(scores, 10);
+
+        List<Integer> expected = IntStream.range(0, scores.length)
+                .filter(i -> !Double.isNaN(scores[i]))
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed().thenComparing(i -> i))
+                .limit(10)
+                .toList();
+        assertEquals(expected, IntStream.of(top).boxed().toList());
+    }
+
+    @Test
+    void topK_handlesFewerCandidatesThanK() {
+        double[] scores = {3, Double.NaN, 7, 7};
+
+        assertArrayEquals(new int[]{2, 3, 0}, ScoringService.topK(scores, 5));
+        assertArrayEquals(new int[0], ScoringService.topK(scores, 0));
+    }
+
+    private StylistColumns columns() {
+        return StylistColumns.of(stylists.stream().map(stylist -> StylistSnapshot.of(stylist, 0)).toList());
+    }
+
+    private List<MatchingRequest> requests() {
+        return List.of(
+                MatchingRequest.builder().customerId("c1")
+                        .customerLatitude(BigDecimal.valueOf(40.1)).customerLongitude(BigDecimal.valueOf(-105.1))
+                        .maxDistance(30).budgetMin(BigDecimal.valueOf(50)).budgetMax(BigDecimal.valueOf(120)).build(),
+                MatchingRequest.builder().customerId("c2")
+                        .customerLatitude(BigDecimal.valueOf(39.8)).customerLongitude(BigDecimal.valueOf(-104.9)).build(),
+                MatchingRequest.builder().customerId("c3").build());
+    }
+
+    private double distanceScore(Stylist stylist, MatchingRequest request) {
+        MatchingRequest locationOnly = MatchingRequest.builder()
+                .customerLatitude(request.getCustomerLatitude()).customerLongitude(request.getCustomerLongitude())
+                .maxDistance(request.getMaxDistance()).build();
+        Stylist unrated = Stylist.builder().latitude(stylist.getLatitude()).longitude(stylist.getLongitude())
+                .eloRating(100).isAvailable(false).build();
+        // With Elo, price and availability pinned, the score is the distance part plus a constant price part
+        return scoringService.calculateCustomerScore(toDto(unrated), locationOnly) - 50 * 0.2;
+    }
+
+    private static StylistDto toDto(Stylist stylist) {
+        return StylistDto.builder()
+                .id(stylist.getId())
+                .latitude(stylist.getLatitude())
+                .longitude(stylist.getLongitude())
+                .hourlyRate(stylist.getHourlyRate())
+                .eloRating(stylist.getEloRating())
+                .isAvailable(stylist.getIsAvailable())
+                .build();
+    }
+}
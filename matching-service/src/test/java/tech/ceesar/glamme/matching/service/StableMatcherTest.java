@@ -0,0 +1,114 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StableMatcherTest {
+
+    @Test
+    void match_customersGetTheirFavouriteWhenStylistsHaveRoom() {
+        int[][] preferences = {{0, 1}, {0, 1}, {1, 0}};
+        int[][] ranks = {{0, 1, 2}, {0, 1, 2}};
+
+        int[] assignment = StableMatcher.match(preferences, ranks, new int[]{2, 1});
+
+        assertArrayEquals(new int[]{0, 0, 1}, assignment);
+    }
+
+    @Test
+    void match_fullStylistKeepsItsPreferredCustomers() {
+        // Both want stylist 0, which has one place and prefers customer 1
+        int[][] preferences = {{0, 1}, {0, 1}};
+        int[][] ranks = {{1, 0}, {0, 1}};
+
+        int[] assignment = StableMatcher.match(preferences, ranks, new int[]{1, 1});
+
+        assertArrayEquals(new int[]{1, 0}, assignment);
+    }
+
+    @Test
+    void match_unacceptablePairsAreNeverMatched() {
+        int[][] preferences = {{0}, {0}};
+        int[][] ranks = {{StableMatcher.UNACCEPTABLE, 0}};
+
+        int[] assignment = StableMatcher.match(preferences, ranks, new int[]{5});
+
+        assertArrayEquals(new int[]{StableMatcher.UNMATCHED, 0}, assignment);
+    }
+
+    @Test
+    void preferencesAndRanksFromScores_orderBestFirstAndSkipNaN() {
+        double[][] scores = {
+                {10, Double.NaN, 30},
+                {20, 5, 5},
+        };
+
+        int[][] preferences = StableMatcher.preferencesFromScores(scores);
+        int[][] ranks = StableMatcher.ranksFromScores(scores, 3);
+
+        assertArrayEquals(new int[]{2, 0}, preferences[0]);
+        // Tie between stylists 1 and 2 goes to the lower index
+        assertArrayEquals(new int[]{0, 1, 2}, preferences[1]);
+        assertArrayEquals(new int[]{1, 0}, ranks[0]);
+        assertArrayEquals(new int[]{StableMatcher.UNACCEPTABLE, 0}, ranks[1]);
+        assertArrayEquals(new int[]{0, 1}, ranks[2]);
+    }
+
+    @Test
+    void match_randomInstancesAreStableAndWithinCapacity() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int round = 0; round < 50; round++) {
+            int customers = 1 + random.nextInt(60);
+            int stylists = 1 + random.nextInt(20);
+            double[][] scores = new double[customers][stylists];
+            for (int c = 0; c < customers; c++) {
+                for (int s = 0; s < stylists; s++) {
+                    scores[c][s] = random.nextInt(4) == 0 ? Double.NaN : random.nextInt(50);
+                }
+            }
+            int[] capacities = new int[stylists];
+            for (int s = 0; s < stylists; s++) {
+                capacities[s] = random.nextInt(4);
+            }
+            int[][] preferences = StableMatcher.preferencesFromScores(scores);
+            int[][] ranks = StableMatcher.ranksFromScores(scores, stylists);
+
+            int[] assignment = StableMatcher.match(preferences, ranks, capacities);
+
+            assertStable(preferences, ranks, capacities, assignment);
+        }
+    }
+
+    private static void assertStable(int[][] preferences, int[][] ranks, int[] capacities, int[] assignment) {
+        int stylists = ranks.length;
+        int[] load = new int[stylists];
+        int[] worstRank = new int[stylists];
+        for (int c = 0; c < assignment.length; c++) {
+            int s = assignment[c];
+            if (s != StableMatcher.UNMATCHED) {
+                assertNotEquals(StableMatcher.UNACCEPTABLE, ranks[s][c]);
+                load[s]++;
+                worstRank[s] = Math.max(worstRank[s], ranks[s][c]);
+            }
+        }
+        for (int s = 0; s < stylists; s++) {
+            assertTrue(load[s] <= capacities[s], "stylist " + s + " over capacity");
+        }
+
+        // No customer and stylist would both rather be matched to each other
+        for (int c = 0; c < assignment.length; c++) {
+            for (int s : preferences[c]) {
+                if (s == assignment[c]) {
+                    break;
+                }
+                int rank = ranks[s][c];
+                boolean stylistWouldTake = rank != StableMatcher.UNACCEPTABLE
+                        && (load[s] < capacities[s] || rank < worstRank[s]);
+                assertFalse(stylistWouldTake, "customer " + c + " and stylist " + s + " block the matching");
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.ceesar.glamme.matching.entity.CustomerPreference;
+import tech.ceesar.glamme.matching.entity.Stylist;
+import tech.ceesar.glamme.matching.repository.StylistRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class StylistCandidateIndexTest {
+
+    private StylistRepository stylistRepository;
+    private StylistCandidateIndex index;
+    private List<Stylist> stylists;
+
+    @BeforeEach
+    void init() {
+        stylistRepository = mock(StylistRepository.class);
+        index = new StylistCandidateIndex(stylistRepository);
+        ReflectionTestUtils.setField(index, "cellDegrees", 0.1);
+        ReflectionTestUtils.setField(index, "defaultRadiusKm", 50);
+        ReflectionTestUtils.setField(index, "refreshOverlapSeconds", 60L);
+
+        SplittableRandom random = new SplittableRandom(5);
+        Stylist.Specialty[] specialties = Stylist.Specialty.values();
+        stylists = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            boolean located = random.nextInt(20) != 0;
+            boolean priced = random.nextInt(10) != 0;
+            int minPrice = random.nextInt(10, 400);
+            Set<Stylist.Specialty> offered = EnumSet.noneOf(Stylist.Specialty.class);
+            for (int s = random.nextInt(4); s > 0; s--) {
+                offered.add(specialties[random.nextInt(specialties.length)]);
+            }
+            stylists.add(Stylist.builder()
+                    .id("stylist-" + i)
+                    .latitude(located ? BigDecimal.valueOf(40 + random.nextDouble(-1, 1)) : null)
+                    .longitude(located ? BigDecimal.valueOf(-105 + random.nextDouble(-1, 1)) : null)
+                    .priceRangeMin(priced ? BigDecimal.valueOf(minPrice) : null)
+                    .priceRangeMax(priced ? BigDecimal.valueOf(minPrice + random.nextInt(200)) : null)
+                    .specialties(offered)
+                    .isActive(random.nextInt(10) != 0)
+                    .build());
+        }
+        when(stylistRepository.findByIsActiveTrue()).thenReturn(
+                stylists.stream().filter(Stylist::getIsActive).toList());
+        index.refresh();
+    }
+
+    @Test
+    void findCandidates_matchesFullScan() {
+        for (CustomerPreference preferences : preferences()) {
+            assertEquals(expected(preferences), ids(index.findCandidates(preferences)));
+        }
+    }
+
+    @Test
+    void apply_movesAndRemovesStylists() {
+        CustomerPreference denver = CustomerPreference.builder()
+                .latitude(BigDecimal.valueOf(39.74)).longitude(BigDecimal.valueOf(-104.99)).maxDistanceKm(5)
+                .preferredSpecialties(Set.of(Stylist.Specialty.BRIDAL)).build();
+        Stylist stylist = stylists.stream().filter(Stylist::getIsActive).findFirst().orElseThrow();
+
+        stylist.setLatitude(BigDecimal.valueOf(39.75));
+        stylist.setLongitude(BigDecimal.valueOf(-105.0));
+        stylist.setSpecialties(Set.of(Stylist.Specialty.BRIDAL));
+        index.onStylistChanged(new StylistChangedEvent(stylist));
+        assertTrue(ids(index.findCandidates(denver)).contains(stylist.getId()));
+
+        stylist.setLatitude(BigDecimal.valueOf(40.9));
+        index.onStylistChanged(new StylistChangedEvent(stylist));
+        assertFalse(ids(index.findCandidates(denver)).contains(stylist.getId()));
+        assertEquals(expected(denver), ids(index.findCandidates(denver)));
+
+        int size = index.size();
+        stylist.setIsActive(false);
+        index.onStylistChanged(new StylistChangedEvent(stylist));
+        assertEquals(size - 1, index.size());
+        for (CustomerPreference preferences : preferences()) {
+            assertFalse(ids(index.findCandidates(preferences)).contains(stylist.getId()));
+        }
+    }
+
+    @Test
+    void refresh_appliesOnlyRecentChangesAfterTheFirstLoad() {
+        Stylist deactivated = stylists.stream().filter(Stylist::getIsActive).findFirst().orElseThrow();
+        deactivated.setIsActive(false);
+        when(stylistRepository.findByUpdatedAtGreaterThanEqual(any(LocalDateTime.class)))
+                .thenReturn(List.of(deactivated));
+
+        index.refresh();
+
+        verify(stylistRepository, times(1)).findByIsActiveTrue();
+        verify(stylistRepository).findByUpdatedAtGreaterThanEqual(any(LocalDateTime.class));
+        for (CustomerPreference preferences : preferences()) {
+            assertEquals(expected(preferences), ids(index.findCandidates(preferences)));
+        }
+    }
+
+    private List<CustomerPreference> preferences() {
+        return List.of(
+                CustomerPreference.builder().latitude(BigDecimal.valueOf(40.1)).longitude(BigDecimal.valueOf(-105.1))
+                        .maxDistanceKm(25).priceRangeMin(BigDecimal.valueOf(60)).priceRangeMax(BigDecimal.valueOf(140))
+                        .preferredSpecialties(Set.of(Stylist.Specialty.HAIR_STYLING, Stylist.Specialty.MAKEUP))
+                        .build(),
+                // Default radius, every specialty and price
+                CustomerPreference.builder().latitude(BigDecimal.valueOf(39.6)).longitude(BigDecimal.valueOf(-104.7))
+                        .build(),
+                // Wider than the cell limit, answered by a scan
+                CustomerPreference.builder().latitude(BigDecimal.valueOf(40)).longitude(BigDecimal.valueOf(-105))
+                        .maxDistanceKm(1000).priceRangeMin(BigDecimal.valueOf(500)).priceRangeMax(BigDecimal.valueOf(900))
+                        .build(),
+                CustomerPreference.builder().preferredSpecialties(Set.of(Stylist.Specialty.NAIL_ART)).build());
+    }
+
+    private Set<String> expected(CustomerPreference preferences) {
+        return stylists.stream()
+                .filter(Stylist::getIsActive)
+                .filter(s -> preferences.getPreferredSpecialties() == null
+                        || s.getSpecialties().stream().anyMatch(preferences.getPreferredSpecialties()::contains))
+                .filter(s -> preferences.getPriceRangeMin() == null || s.getPriceRangeMin() == null
+                        || (s.getPriceRangeMax().compareTo(preferences.getPriceRangeMin()) >= 0
+                        && s.getPriceRangeMin().compareTo(preferences.getPriceRangeMax()) <= 0))
+                .filter(s -> preferences.getLatitude() == null
+                        || (s.getLatitude() != null && distanceKm(preferences, s) <= radiusKm(preferences)))
+                .map(Stylist::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static int radiusKm(CustomerPreference preferences) {
+        return preferences.getMaxDistanceKm() != null ? preferences.getMaxDistanceKm() : 50;
+    }
+
+    private static double distanceKm(CustomerPreference preferences, Stylist stylist) {
+        double lat1 = Math.toRadians(preferences.getLatitude().doubleValue());
+        double lat2 = Math.toRadians(stylist.getLatitude().doubleValue());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(stylist.getLongitude().doubleValue() - preferences.getLongitude().doubleValue());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private static Set<String> ids(List<Stylist> stylists) {
+        return stylists.stream().map(Stylist::getId).collect(Collectors.toSet());
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import tech.ceesar.glamme.matching.client.AuthClient;
@@ -29,6 +30,8 @@ class StylistOnboardingServiceTest {
     ServiceOfferingRepository offeringRepo;
     @Mock
     AuthClient authClient;               // <-- mock only this!
+    @Mock
+    ApplicationEventPublisher applicationEventPublisher;
 
     @InjectMocks
     StylistOnboardingService service;
@@ -75,5 +78,6 @@ class StylistOnboardingServiceTest {
         verify(stylistRepository).save(any(Stylist.class));
         verify(offeringRepo).save(any());
         verify(authClient).grantRole(userId, "STYLIST");
+        verify(applicationEventPublisher).publishEvent(new StylistChangedEvent(savedStylist));
     }
 }
@@ -0,0 +1,137 @@
+package tech.ceesar.glamme.matching.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StylistRecommendationStoreTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private StylistRecommendationStore store;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        store = new StylistRecommendationStore(redisTemplate);
+        ReflectionTestUtils.setField(store, "historySize", 20);
+    }
+
+    @Test
+    void recommend_RanksUnseenNeighboursByWeightedSimilarity() {
+        store.saveHistory(Map.of("c1", List.of(scored("s1", 3.0), scored("s2", 1.0))));
+        store.saveSimilar(Map.of(
+                "s1", List.of(scored("s3", 0.5), scored("s2", 0.9), scored("s4", 0.1)),
+                "s2", List.of(scored("s4", 0.8), scored("s1", 0.9))));
+
+        // s3: 3 * 0.5 = 1.5, s4: 3 * 0.1 + 1 * 0.8 = 1.1; s1 and s2 are already in the history
+        assertEquals(List.of("s3", "s4"), store.recommend("c1", 10));
+        assertEquals(List.of("s3"), store.recommend("c1", 1));
+    }
+
+    @Test
+    void recommend_IsEmptyWithoutHistory() {
+        store.saveSimilar(Map.of("s1", List.of(scored("s2", 1.0))));
+
+        assertEquals(List.of(), store.recommend("unknown", 10));
+    }
+
+    @Test
+    void recommend_SkipsHistoryStylistsWithoutNeighbours() {
+        store.saveHistory(Map.of("c1", List.of(scored("s1", 2.0), scored("lonely", 5.0))));
+        store.saveSimilar(Map.of("s1", List.of(scored("s2", 0.5))));
+
+        assertEquals(List.of("s2"), store.recommend("c1", 10));
+    }
+
+    @Test
+    void saveSimilar_ReplacesTheWholeSetAndLeavesNoStagingKey() {
+        store.saveSimilar(Map.of("s1", List.of(scored("s2", 0.9), scored("s3", 0.8))));
+        store.saveSimilar(Map.of("s1", List.of(scored("s4", 0.7))));
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            assertEquals(1L, connection.zSetCommands().zCard(raw("recommend:similar:{s1}")));
+            assertEquals(0.7, connection.zSetCommands().zScore(raw("recommend:similar:{s1}"), raw("s4")));
+            assertFalse(connection.keyCommands().exists(raw("recommend:similar:{s1}:staging")));
+        }
+    }
+
+    @Test
+    void saveSimilar_RemovesTheKeyForAnEmptyList() {
+        Map<String, List<InteractionMatrix.ScoredStylist>> similar = new LinkedHashMap<>();
+        similar.put("s1", List.of(scored("s2", 0.9)));
+        similar.put("s2", List.of(scored("s1", 0.9)));
+        store.saveSimilar(similar);
+
+        store.saveSimilar(Map.of("s1", List.of()));
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            assertFalse(connection.keyCommands().exists(raw("recommend:similar:{s1}")));
+            assertTrue(connection.keyCommands().exists(raw("recommend:similar:{s2}")));
+        }
+    }
+
+    @Test
+    void watermark_RoundTrips() {
+        assertEquals(Optional.empty(), store.watermark());
+
+        LocalDateTime watermark = LocalDateTime.of(2025, 3, 1, 9, 30, 15, 123_000_000);
+        store.saveWatermark(watermark);
+
+        assertEquals(Optional.of(watermark), store.watermark());
+    }
+
+    private static InteractionMatrix.ScoredStylist scored(String stylistId, double score) {
+        return new InteractionMatrix.ScoredStylist(stylistId, score);
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+package tech.ceesar.glamme.matching.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.ceesar.glamme.matching.entity.Stylist;
+import tech.ceesar.glamme.matching.repository.StylistRepository;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StylistSnapshotStoreTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    private StylistRepository stylistRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private StylistSnapshotStore store;
+
+    @BeforeEach
+    void init() {
+        stylistRepository = mock(StylistRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        store = new StylistSnapshotStore(stylistRepository, meterRegistry);
+        ReflectionTestUtils.setField(store, "maxBytes", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(store, "refreshOverlapSeconds", 60L);
+        store.registerMetrics();
+    }
+
+    @Test
+    void reads_areServedFromMemoryAfterTheFirstLoad() {
+        when(stylistRepository.findByIsActiveTrue()).thenReturn(List.of(stylist("s1", T0), stylist("s2", T0)));
+        when(stylistRepository.findAllById(List.of("s3"))).thenReturn(List.of(stylist("s3", T0)));
+        store.refresh();
+
+        assertEquals("Studio s1", store.get("s1").orElseThrow().getBusinessName());
+        Map<String, StylistSnapshot> found = store.getAll(List.of("s2", "s3", "s2"));
+        assertEquals(2, found.size());
+        assertSame(found.get("s3"), store.get("s3").orElseThrow());
+
+        verify(stylistRepository, never()).findById(any());
+        verify(stylistRepository, times(1)).findAllById(any());
+        assertEquals(new StylistSnapshotStore.SnapshotStats(3, store.getStats().bytes(), 3, 1, 0), store.getStats());
+        assertEquals(3.0, meterRegistry.get("matching.stylist.snapshots.size").gauge().value());
+        assertEquals(3.0, meterRegistry.get("matching.stylist.snapshots.hits").functionCounter().count());
+    }
+
+    @Test
+    void apply_keepsTheNewestVersion() {
+        StylistSnapshot first = store.apply(stylist("s1", T0));
+        Stylist renamed = stylist("s1", T0.plusMinutes(5));
+        renamed.setBusinessName("Renamed");
+        StylistSnapshot second = store.apply(renamed);
+
+        // A poll that read the row before the rename lands afterwards
+        assertSame(second, store.apply(stylist("s1", T0)));
+        assertEquals("Renamed", store.get("s1").orElseThrow().getBusinessName());
+        assertTrue(second.getVersion() > first.getVersion());
+
+        store.updateEloRatings(Map.of("s1", 1650, "unknown", 1400));
+        StylistSnapshot rated = store.get("s1").orElseThrow();
+        assertEquals(1650, rated.getEloRating());
+        assertEquals("Renamed", rated.getBusinessName());
+        assertTrue(rated.getVersion() > second.getVersion());
+        assertEquals(1, store.getStats().size());
+    }
+
+    @Test
+    void apply_stopsAdmittingStylistsAtTheMemoryCap() {
+        long size = StylistSnapshot.of(stylist("s1", T0), 1).estimatedBytes();
+        ReflectionTestUtils.setField(store, "maxBytes", 2 * size);
+        when(stylistRepository.findByIsActiveTrue())
+                .thenReturn(List.of(stylist("s1", T0), stylist("s2", T0), stylist("s3", T0)));
+        store.refresh();
+
+        assertEquals(2, store.getStats().size());
+        assertEquals(2 * size, store.getStats().bytes());
+        assertEquals(1, store.getStats().rejected());
+
+        // Held stylists still follow their changes, and one over the cap is still served
+        Stylist renamed = stylist("s1", T0.plusMinutes(1));
+        renamed.setBusinessName("Renamed");
+        store.apply(renamed);
+        assertEquals("Renamed", store.get("s1").orElseThrow().getBusinessName());
+        when(stylistRepository.findById("s3")).thenReturn(Optional.of(stylist("s3", T0)));
+        assertEquals("Studio s3", store.get("s3").orElseThrow().getBusinessName());
+        assertEquals(2, store.getStats().size());
+        assertEquals(store.getStats().bytes(),
+                meterRegistry.get("matching.stylist.snapshots.bytes").gauge().value());
+    }
+
+    private static Stylist stylist(String id, LocalDateTime updatedAt) {
+        return Stylist.builder()
+                .id(id)
+                .businessName("Studio " + id)
+                .specialties(EnumSet.of(Stylist.Specialty.HAIR_CUTTING))
+                .portfolioImages(new String[]{"https://img.example/" + id})
+                .eloRating(1500)
+                .isActive(true)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
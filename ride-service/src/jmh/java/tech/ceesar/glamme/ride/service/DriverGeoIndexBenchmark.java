@@ -0,0 +1,107 @@
+package tech.ceesar.glamme.ride.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.ceesar.glamme.ride.entity.DriverProfile;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares dispatch lookups against the grid index with the linear Haversine scan
+ * {@code RideService.dispatchInternalRide} and {@code DriverTrackingService.getAvailableDriversInArea}
+ * used to run over every available driver.
+ *
+ * <p>Run with {@code ./gradlew :ride-service:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DriverGeoIndexBenchmark {
+
+    // Roughly the extent of a large metro market (~55 km x 45 km around Manhattan)
+    private static final double CENTER_LAT = 40.7128;
+    private static final double CENTER_LNG = -74.0060;
+    private static final double SPAN_DEGREES = 0.5;
+    private static final double SEARCH_RADIUS_KM = 3.0;
+
+    @Param({"1000", "10000", "100000"})
+    private int drivers;
+
+    private List<DriverProfile> availableDrivers;
+    private DriverGeoIndex index;
+    private double[][] pickups;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        availableDrivers = new ArrayList<>(drivers);
+        index = new DriverGeoIndex(0.01);
+        for (int i = 0; i < drivers; i++) {
+            DriverProfile driver = DriverProfile.builder()
+                    .driverId(UUID.randomUUID())
+                    .currentLatitude(BigDecimal.valueOf(CENTER_LAT + (random.nextDouble() - 0.5) * SPAN_DEGREES))
+                    .currentLongitude(BigDecimal.valueOf(CENTER_LNG + (random.nextDouble() - 0.5) * SPAN_DEGREES))
+                    .available(true)
+                    .online(true)
+                    .build();
+            availableDrivers.add(driver);
+            index.update(driver.getDriverId(), driver.getCurrentLatitude(), driver.getCurrentLongitude());
+        }
+
+        pickups = new double[1024][];
+        for (int i = 0; i < pickups.length; i++) {
+            pickups[i] = new double[]{
+                    CENTER_LAT + (random.nextDouble() - 0.5) * SPAN_DEGREES,
+                    CENTER_LNG + (random.nextDouble() - 0.5) * SPAN_DEGREES
+            };
+        }
+    }
+
+    private double[] nextPickup() {
+        return pickups[next++ & (pickups.length - 1)];
+    }
+
+    @Benchmark
+    public DriverProfile nearestLinearScan() {
+        double[] pickup = nextPickup();
+        return availableDrivers.stream()
+                .min(Comparator.comparingDouble(d -> DriverGeoIndex.distanceKm(
+                        pickup[0], pickup[1], d.getCurrentLatitude(), d.getCurrentLongitude())))
+                .orElse(null);
+    }
+
+    @Benchmark
+    public List<DriverGeoIndex.Neighbor> nearestIndexed() {
+        double[] pickup = nextPickup();
+        return index.nearest(pickup[0], pickup[1], 5);
+    }
+
+    @Benchmark
+    public List<DriverProfile> radiusLinearScan() {
+        double[] pickup = nextPickup();
+        return availableDrivers.stream()
+                .filter(d -> DriverGeoIndex.distanceKm(pickup[0], pickup[1],
+                        d.getCurrentLatitude(), d.getCurrentLongitude()) <= SEARCH_RADIUS_KM)
+                .toList();
+    }
+
+    @Benchmark
+    public List<DriverGeoIndex.Neighbor> radiusIndexed() {
+        double[] pickup = nextPickup();
+        return index.withinRadius(pickup[0], pickup[1], SEARCH_RADIUS_KM);
+    }
+}
@@ -0,0 +1,134 @@
+package tech.ceesar.glamme.ride.service;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.ceesar.glamme.common.service.aws.CloudWatchMetricsService;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sustained driver ping throughput of the batched ingest path against one ping = one set of
+ * database round trips, which is what {@code RideTrackingService.updateDriverLocation} used to do.
+ *
+ * <p>The database is modelled as a fixed cost per statement execution plus a small cost per row
+ * ({@code roundTripMicros}, {@code perRowMicros}), so the numbers show how batching changes the
+ * number of round trips rather than real Postgres throughput. {@code persisted} is the sustained
+ * rate: pings whose tracking row was queued for the writer instead of being dropped.
+ *
+ * <p>Run with {@code ./gradlew :ride-service:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class DriverLocationIngestBenchmark {
+
+    private static final int DRIVERS = 5_000;
+
+    @Param({"500"})
+    private long roundTripMicros;
+
+    @Param({"2"})
+    private long perRowMicros;
+
+    private UUID[] driverIds;
+    private SimulatedJdbcTemplate jdbcTemplate;
+    private DriverLocationIngestor ingestor;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcome {
+        public long persisted;
+        public long dropped;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            persisted = 0;
+            dropped = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        driverIds = new UUID[DRIVERS];
+        for (int i = 0; i < DRIVERS; i++) {
+            driverIds[i] = UUID.randomUUID();
+        }
+        jdbcTemplate = new SimulatedJdbcTemplate(roundTripMicros, perRowMicros);
+        ingestor = new DriverLocationIngestor(jdbcTemplate, Mockito.mock(CloudWatchMetricsService.class));
+        ReflectionTestUtils.setField(ingestor, "batchSize", 500);
+        ReflectionTestUtils.setField(ingestor, "flushIntervalMs", 250L);
+        ReflectionTestUtils.setField(ingestor, "queueCapacity", 50_000);
+        ReflectionTestUtils.setField(ingestor, "profileWritebackIntervalMs", 5_000L);
+        ingestor.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ingestor.stop();
+    }
+
+    @Benchmark
+    public boolean batchedIngest(Outcome outcome) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean queued = ingestor.record(driverIds[random.nextInt(DRIVERS)], null,
+                40.7 + random.nextDouble() * 0.1, -74.0 + random.nextDouble() * 0.1, 90, null, null);
+        if (queued) {
+            outcome.persisted++;
+        } else {
+            outcome.dropped++;
+        }
+        return queued;
+    }
+
+    @Benchmark
+    public void perPingWrites(Outcome outcome) {
+        // findById + profile UPDATE + tracking INSERT, each its own round trip
+        jdbcTemplate.roundTrip(1);
+        jdbcTemplate.roundTrip(1);
+        jdbcTemplate.roundTrip(1);
+        outcome.persisted++;
+    }
+
+    static final class SimulatedJdbcTemplate extends JdbcTemplate {
+        private final long roundTripNanos;
+        private final long perRowNanos;
+
+        SimulatedJdbcTemplate(long roundTripMicros, long perRowMicros) {
+            this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+            this.perRowNanos = TimeUnit.MICROSECONDS.toNanos(perRowMicros);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+            int rows = pss.getBatchSize();
+            roundTrip(rows);
+            return new int[rows];
+        }
+
+        void roundTrip(int rows) {
+            long until = System.nanoTime() + roundTripNanos + rows * perRowNanos;
+            long remaining;
+            while ((remaining = until - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+}
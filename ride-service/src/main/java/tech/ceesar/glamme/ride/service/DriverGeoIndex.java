@@ -0,0 +1,271 @@
+package tech.ceesar.glamme.ride.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory grid index of available drivers, bucketed into fixed-size lat/lng cells
+ * (geohash-style) so dispatch and area queries only look at nearby cells instead of
+ * scanning every driver. Only sees the drivers updated on this instance, so it is meant
+ * for single-instance deployments ({@code ride.matching.index=local}).
+ */
+@Component
+@ConditionalOnProperty(name = "ride.matching.index", havingValue = "local")
+public class DriverGeoIndex implements DriverLocationIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private final double cellDegrees;
+    private final long lngCells;
+    private final Map<UUID, Position> positions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<UUID>> cells = new ConcurrentHashMap<>();
+
+    public DriverGeoIndex(@Value("${ride.matching.index-cell-degrees:0.01}") double cellDegrees) {
+        if (cellDegrees <= 0 || cellDegrees > 10) {
+            throw new IllegalArgumentException("Cell size must be in (0, 10] degrees: " + cellDegrees);
+        }
+        this.cellDegrees = cellDegrees;
+        this.lngCells = (long) Math.ceil(360.0 / cellDegrees);
+    }
+
+    @Override
+    public void update(UUID driverId, double latitude, double longitude) {
+        long latCell = latCell(latitude);
+        long lngCell = lngCell(longitude);
+        long cellKey = cellKey(latCell, lngCell);
+
+        positions.compute(driverId, (id, previous) -> {
+            if (previous == null || previous.cellKey() != cellKey) {
+                if (previous != null) {
+                    removeFromCell(previous.cellKey(), id);
+                }
+                cells.computeIfAbsent(cellKey, key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            return new Position(latitude, longitude, cellKey);
+        });
+    }
+
+    @Override
+    public void remove(UUID driverId) {
+        positions.computeIfPresent(driverId, (id, previous) -> {
+            removeFromCell(previous.cellKey(), id);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean contains(UUID driverId) {
+        return positions.containsKey(driverId);
+    }
+
+    @Override
+    public int size() {
+        return positions.size();
+    }
+
+    public void clear() {
+        positions.clear();
+        cells.clear();
+    }
+
+    @Override
+    public List<Neighbor> nearest(double latitude, double longitude, int k, double maxRadiusKm) {
+        if (k <= 0 || positions.isEmpty()) {
+            return List.of();
+        }
+
+        // Max-heap on distance holding the best k candidates seen so far
+        PriorityQueue<Neighbor> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Neighbor::distanceKm).reversed());
+
+        long centerLat = latCell(latitude);
+        long centerLng = lngCell(longitude);
+        long maxRing = Math.min(lngCells / 2, (long) Math.ceil(180.0 / cellDegrees));
+
+        for (long ring = 0; ring <= maxRing; ring++) {
+            double ringLowerBoundKm = ringLowerBoundKm(latitude, ring);
+            if (ringLowerBoundKm > maxRadiusKm) {
+                break;
+            }
+            if (best.size() == k && ringLowerBoundKm > best.peek().distanceKm()) {
+                break;
+            }
+            long side = 2 * ring + 1;
+            if (side * side > cells.size()) {
+                // Walking empty cells would now cost more than visiting every occupied one
+                return scanAll(latitude, longitude, k, maxRadiusKm);
+            }
+            visitRing(centerLat, centerLng, ring, latitude, longitude, k, maxRadiusKm, best);
+        }
+
+        return sorted(best);
+    }
+
+    @Override
+    public List<Neighbor> withinRadius(double latitude, double longitude, double radiusKm) {
+        if (radiusKm < 0 || positions.isEmpty()) {
+            return List.of();
+        }
+
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double lngSpan = maxLongitudeDelta(Math.abs(latitude) + latSpan, radiusKm);
+
+        long minLat = latCell(Math.max(-90.0, latitude - latSpan));
+        long maxLat = latCell(Math.min(90.0, latitude + latSpan));
+        long lngSteps = Math.min(lngCells, 2 * (long) Math.ceil(lngSpan / cellDegrees) + 1);
+        long startLng = lngCell(longitude) - lngSteps / 2;
+
+        List<Neighbor> result = new ArrayList<>();
+        if ((maxLat - minLat + 1) * lngSteps > cells.size()) {
+            positions.forEach((id, position) -> collectIfWithin(id, position, latitude, longitude, radiusKm, result));
+        } else {
+            for (long lat = minLat; lat <= maxLat; lat++) {
+                for (long step = 0; step < lngSteps; step++) {
+                    Set<UUID> members = cells.get(cellKey(lat, Math.floorMod(startLng + step, lngCells)));
+                    if (members == null) {
+                        continue;
+                    }
+                    for (UUID id : members) {
+                        Position position = positions.get(id);
+                        if (position != null) {
+                            collectIfWithin(id, position, latitude, longitude, radiusKm, result);
+                        }
+                    }
+                }
+            }
+        }
+        result.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return result;
+    }
+
+    /**
+     * Great-circle distance in kilometres (Haversine formula)
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Smallest possible distance from the query point to any driver in the given ring of cells.
+     * Ring members differ by at least (ring - 1) cells in latitude or in longitude; the longitude
+     * case is bounded by two points on the same parallel at the highest latitude the ring reaches.
+     */
+    private double ringLowerBoundKm(double latitude, long ring) {
+        if (ring <= 1) {
+            return 0.0;
+        }
+        double delta = Math.toRadians((ring - 1) * cellDegrees);
+        double maxLat = Math.toRadians(Math.min(90.0, Math.abs(latitude) + (ring + 1) * cellDegrees));
+        double alongMeridian = EARTH_RADIUS_KM * delta;
+        double alongParallel = 2 * EARTH_RADIUS_KM
+                * Math.asin(Math.min(1.0, Math.cos(maxLat) * Math.sin(Math.min(Math.PI, delta) / 2)));
+        return Math.min(alongMeridian, alongParallel);
+    }
+
+    /**
+     * Widest longitude difference (degrees) two points within {@code radiusKm} can have when
+     * neither is poleward of {@code maxAbsLatitude}
+     */
+    private static double maxLongitudeDelta(double maxAbsLatitude, double radiusKm) {
+        double cosLat = Math.cos(Math.toRadians(Math.min(90.0, maxAbsLatitude)));
+        double ratio = Math.sin(Math.min(Math.PI, radiusKm / EARTH_RADIUS_KM) / 2) / cosLat;
+        if (cosLat <= 0 || ratio >= 1.0) {
+            return 360.0;
+        }
+        return Math.toDegrees(2 * Math.asin(ratio));
+    }
+
+    private void visitRing(long centerLat, long centerLng, long ring, double latitude, double longitude,
+                           int k, double maxRadiusKm, PriorityQueue<Neighbor> best) {
+        for (long dLat = -ring; dLat <= ring; dLat++) {
+            boolean edgeRow = Math.abs(dLat) == ring;
+            // Interior rows of the ring only contribute their two edge columns
+            long step = edgeRow ? 1 : Math.max(1, 2 * ring);
+            for (long dLng = -ring; dLng <= ring; dLng += step) {
+                Set<UUID> members = cells.get(cellKey(centerLat + dLat, Math.floorMod(centerLng + dLng, lngCells)));
+                if (members == null) {
+                    continue;
+                }
+                for (UUID id : members) {
+                    Position position = positions.get(id);
+                    if (position != null) {
+                        offer(best, k, id, position, latitude, longitude, maxRadiusKm);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Neighbor> scanAll(double latitude, double longitude, int k, double maxRadiusKm) {
+        PriorityQueue<Neighbor> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Neighbor::distanceKm).reversed());
+        positions.forEach((id, position) -> offer(best, k, id, position, latitude, longitude, maxRadiusKm));
+        return sorted(best);
+    }
+
+    private static void offer(PriorityQueue<Neighbor> best, int k, UUID id, Position position,
+                              double latitude, double longitude, double maxRadiusKm) {
+        double distance = distanceKm(latitude, longitude, position.latitude(), position.longitude());
+        if (distance > maxRadiusKm) {
+            return;
+        }
+        if (best.size() < k) {
+            best.add(new Neighbor(id, position.latitude(), position.longitude(), distance));
+        } else if (distance < best.peek().distanceKm()) {
+            best.poll();
+            best.add(new Neighbor(id, position.latitude(), position.longitude(), distance));
+        }
+    }
+
+    private static void collectIfWithin(UUID id, Position position, double latitude, double longitude,
+                                        double radiusKm, List<Neighbor> result) {
+        double distance = distanceKm(latitude, longitude, position.latitude(), position.longitude());
+        if (distance <= radiusKm) {
+            result.add(new Neighbor(id, position.latitude(), position.longitude(), distance));
+        }
+    }
+
+    private static List<Neighbor> sorted(PriorityQueue<Neighbor> best) {
+        List<Neighbor> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return result;
+    }
+
+    private void removeFromCell(long cellKey, UUID driverId) {
+        cells.computeIfPresent(cellKey, (key, members) -> {
+            members.remove(driverId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private long latCell(double latitude) {
+        return (long) Math.floor((latitude + 90.0) / cellDegrees);
+    }
+
+    private long lngCell(double longitude) {
+        return Math.floorMod((long) Math.floor((longitude + 180.0) / cellDegrees), lngCells);
+    }
+
+    private static long cellKey(long latCell, long lngCell) {
+        return (latCell << 32) | (lngCell & 0xffffffffL);
+    }
+
+    private record Position(double latitude, double longitude, long cellKey) {
+    }
+}
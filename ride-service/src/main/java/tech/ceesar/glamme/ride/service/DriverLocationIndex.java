@@ -0,0 +1,68 @@
+package tech.ceesar.glamme.ride.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Spatial index of drivers that are online and available, used for dispatch and area queries.
+ * Selected with {@code ride.matching.index}: {@code redis} (shared by all replicas) or {@code local}.
+ */
+public interface DriverLocationIndex {
+
+    /**
+     * Insert a driver or move it to its new position
+     */
+    void update(UUID driverId, double latitude, double longitude);
+
+    /**
+     * Insert or move many drivers at once, e.g. to re-seed a cold index from the database
+     */
+    default void updateAll(Collection<Position> positions) {
+        positions.forEach(position -> update(position.driverId(), position.latitude(), position.longitude()));
+    }
+
+    /**
+     * Remove a driver that went offline, became busy or ended their shift
+     */
+    void remove(UUID driverId);
+
+    /**
+     * Move a driver that is already in the index, leaving drivers that are not indexed out.
+     * Returns whether the driver was moved.
+     */
+    default boolean updateIfPresent(UUID driverId, double latitude, double longitude) {
+        if (!contains(driverId)) {
+            return false;
+        }
+        update(driverId, latitude, longitude);
+        return true;
+    }
+
+    boolean contains(UUID driverId);
+
+    int size();
+
+    /**
+     * Find up to {@code k} drivers closest to the given point, nearest first
+     */
+    default List<Neighbor> nearest(double latitude, double longitude, int k) {
+        return nearest(latitude, longitude, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Find up to {@code k} drivers closest to the given point within {@code maxRadiusKm}, nearest first
+     */
+    List<Neighbor> nearest(double latitude, double longitude, int k, double maxRadiusKm);
+
+    /**
+     * Find all drivers within {@code radiusKm} of the given point, nearest first
+     */
+    List<Neighbor> withinRadius(double latitude, double longitude, double radiusKm);
+
+    record Position(UUID driverId, double latitude, double longitude) {
+    }
+
+    record Neighbor(UUID driverId, double latitude, double longitude, double distanceKm) {
+    }
+}
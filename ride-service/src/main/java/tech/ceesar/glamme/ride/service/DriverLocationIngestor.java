@@ -0,0 +1,291 @@
+package tech.ceesar.glamme.ride.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tech.ceesar.glamme.common.service.aws.CloudWatchMetricsService;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingest path for driver GPS pings that keeps JPA and per-ping transactions off the hot path.
+ *
+ * The latest position per driver is held in memory and served from there. Pings sent during a ride
+ * are also queued as tracking rows; ride_tracking is ride history, so pings without a ride only
+ * move the driver. Queued rows are written by a single background writer with JDBC batch inserts, every
+ * {@code flush-interval-ms} or as soon as {@code batch-size} rows are waiting. Driver profile
+ * positions are written back lazily, one batched UPDATE for all drivers that moved since the
+ * last write-back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DriverLocationIngestor {
+
+    private static final String INSERT_TRACKING_SQL = """
+            INSERT INTO ride_tracking (ride_id, driver_id, latitude, longitude, heading, speed_mph,
+                                       accuracy_meters, timestamp, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    // Never moves a profile back to an older position than the one already stored
+    private static final String UPDATE_PROFILE_SQL = """
+            UPDATE driver_profiles
+               SET current_latitude = ?, current_longitude = ?, last_location_update = ?
+             WHERE driver_id = ?
+               AND (last_location_update IS NULL OR last_location_update < ?)
+            """;
+
+    // Positions not refreshed for this long are dropped from memory
+    private static final long STALE_POSITION_MINUTES = 30;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CloudWatchMetricsService metricsService;
+
+    @Value("${ride.tracking.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ride.tracking.ingest.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    @Value("${ride.tracking.ingest.queue-capacity:50000}")
+    private int queueCapacity;
+
+    @Value("${ride.tracking.ingest.profile-writeback-interval-ms:5000}")
+    private long profileWritebackIntervalMs;
+
+    private final Map<UUID, DriverPosition> latest = new ConcurrentHashMap<>();
+    private final Set<UUID> moved = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeup = new Semaphore(0);
+    private final LongAdder droppedRows = new LongAdder();
+    // Only touched by the writer thread
+    private long reportedDrops;
+    private BlockingQueue<TrackingRow> rows;
+    private ExecutorService writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        rows = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "driver-location-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.execute(this::writeLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        wakeup.release();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Driver location writer stopped with {} tracking rows pending", rows.size());
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.shutdownNow();
+        }
+    }
+
+    /**
+     * Record a ping. Updates the in-memory position immediately and, when the ping belongs to a ride,
+     * queues a tracking row; returns false if the row had to be dropped because the writer is behind.
+     */
+    public boolean record(UUID driverId, String rideId, double latitude, double longitude,
+                          Integer heading, BigDecimal speedMph, BigDecimal accuracyMeters) {
+        LocalDateTime now = LocalDateTime.now();
+        latest.put(driverId, new DriverPosition(latitude, longitude, heading, speedMph, now));
+        moved.add(driverId);
+        if (rideId == null) {
+            return true;
+        }
+
+        boolean queued = rows.offer(new TrackingRow(rideId, driverId.toString(), latitude, longitude,
+                heading, speedMph, accuracyMeters, now));
+        if (!queued) {
+            droppedRows.increment();
+        } else if (rows.size() >= batchSize && wakeup.availablePermits() == 0) {
+            wakeup.release();
+        }
+        return queued;
+    }
+
+    /**
+     * Most recent position reported by a driver, if seen since startup
+     */
+    public Optional<DriverPosition> latest(UUID driverId) {
+        return Optional.ofNullable(latest.get(driverId));
+    }
+
+    /**
+     * Tracking rows waiting to be written
+     */
+    public int pendingRows() {
+        return rows.size();
+    }
+
+    /**
+     * Tracking rows dropped since startup because the writer was behind or an insert failed
+     */
+    public long droppedRows() {
+        return droppedRows.sum();
+    }
+
+    public record DriverPosition(double latitude, double longitude, Integer heading,
+                                 BigDecimal speedMph, LocalDateTime updatedAt) {
+    }
+
+    private void writeLoop() {
+        long nextWriteback = System.currentTimeMillis() + profileWritebackIntervalMs;
+        while (running || !rows.isEmpty()) {
+            try {
+                wakeup.tryAcquire(flushIntervalMs, TimeUnit.MILLISECONDS);
+                wakeup.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            flushRows();
+            if (!running || System.currentTimeMillis() >= nextWriteback) {
+                writeBackPositions();
+                nextWriteback = System.currentTimeMillis() + profileWritebackIntervalMs;
+            }
+        }
+        flushRows();
+        writeBackPositions();
+    }
+
+    private void flushRows() {
+        // Bounded by what is queued now so a constant stream of pings cannot starve the write-back
+        int remaining = rows.size();
+        while (remaining > 0) {
+            List<TrackingRow> batch = new ArrayList<>(Math.min(remaining, batchSize));
+            if (rows.drainTo(batch, batchSize) == 0) {
+                break;
+            }
+            remaining -= batch.size();
+            long started = System.nanoTime();
+            try {
+                insertTracking(batch);
+                metricsService.recordDatabaseQuery("RideTrackingBatchInsert", (System.nanoTime() - started) / 1_000_000.0);
+            } catch (Exception e) {
+                droppedRows.add(batch.size());
+                log.error("Failed to insert {} ride tracking rows", batch.size(), e);
+            }
+        }
+        metricsService.recordQueueDepth("ride-tracking-ingest", rows.size());
+        long dropped = droppedRows.sum() - reportedDrops;
+        reportedDrops += dropped;
+        if (dropped > 0) {
+            metricsService.publishMetric("GlamMe/Ride", "TrackingRowsDropped", dropped);
+            log.warn("Dropped {} ride tracking rows", dropped);
+        }
+    }
+
+    private void insertTracking(List<TrackingRow> batch) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_TRACKING_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TrackingRow row = batch.get(i);
+                ps.setString(1, row.rideId());
+                ps.setString(2, row.driverId());
+                ps.setDouble(3, row.latitude());
+                ps.setDouble(4, row.longitude());
+                if (row.heading() != null) {
+                    ps.setInt(5, row.heading());
+                } else {
+                    ps.setNull(5, Types.INTEGER);
+                }
+                ps.setBigDecimal(6, row.speedMph());
+                ps.setBigDecimal(7, row.accuracyMeters());
+                ps.setObject(8, row.timestamp());
+                ps.setObject(9, createdAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+
+    private void writeBackPositions() {
+        List<UUID> driverIds = new ArrayList<>(moved.size());
+        List<DriverPosition> positions = new ArrayList<>(moved.size());
+        for (UUID driverId : moved) {
+            moved.remove(driverId);
+            DriverPosition position = latest.get(driverId);
+            if (position != null) {
+                driverIds.add(driverId);
+                positions.add(position);
+            }
+        }
+
+        if (!driverIds.isEmpty()) {
+            long started = System.nanoTime();
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_PROFILE_SQL, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        DriverPosition position = positions.get(i);
+                        ps.setDouble(1, position.latitude());
+                        ps.setDouble(2, position.longitude());
+                        ps.setObject(3, position.updatedAt());
+                        ps.setObject(4, driverIds.get(i));
+                        ps.setObject(5, position.updatedAt());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return driverIds.size();
+                    }
+                });
+                metricsService.recordDatabaseQuery("DriverPositionWriteback", (System.nanoTime() - started) / 1_000_000.0);
+            } catch (Exception e) {
+                // Retry with the next write-back; the in-memory position stays authoritative meanwhile
+                moved.addAll(driverIds);
+                log.error("Failed to write back {} driver positions", driverIds.size(), e);
+            }
+        }
+
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(STALE_POSITION_MINUTES);
+        latest.values().removeIf(position -> position.updatedAt().isBefore(staleBefore));
+    }
+
+    private record TrackingRow(String rideId, String driverId, double latitude, double longitude, Integer heading,
+                               BigDecimal speedMph, BigDecimal accuracyMeters, LocalDateTime timestamp) {
+    }
+}
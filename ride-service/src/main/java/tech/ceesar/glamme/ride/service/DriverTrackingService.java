@@ -2,6 +2,8 @@ package tech.ceesar.glamme.ride.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -18,9 +20,12 @@ import tech.ceesar.glamme.ride.repository.RideRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +40,21 @@ public class DriverTrackingService {
     private final RideRepository rideRepository;
     private final SimpMessagingTemplate messagingTemplate;
     private final EventPublisher eventPublisher;
+    private final DriverLocationIndex driverGeoIndex;
+    private final DriverLocationIngestor locationIngestor;
+
+    /**
+     * Seed the dispatch index with drivers that are already available
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadDriverIndex() {
+        List<DriverProfile> availableDrivers = driverRepository.findByAvailableTrue();
+        availableDrivers.stream()
+                .filter(DriverProfile::getOnline)
+                .forEach(driver -> driverGeoIndex.update(driver.getDriverId(),
+                        driver.getCurrentLatitude(), driver.getCurrentLongitude()));
+        log.info("Loaded {} available drivers into the dispatch index", driverGeoIndex.size());
+    }
 
     /**
      * Update driver status and availability
@@ -58,6 +78,11 @@ public class DriverTrackingService {
             }
 
             driverRepository.save(driver);
+            if (driver.getAvailable()) {
+                indexDriver(driver);
+            } else {
+                driverGeoIndex.remove(driver.getDriverId());
+            }
 
             // Broadcast driver status update
             DriverTrackingDto trackingDto = DriverTrackingDto.builder()
@@ -107,6 +132,7 @@ public class DriverTrackingService {
             driver.setHoursOnlineToday(0);
 
             driverRepository.save(driver);
+            indexDriver(driver);
 
             // Publish shift start event
             eventPublisher.publishEvent("glamme-bus",
@@ -145,6 +171,7 @@ public class DriverTrackingService {
             }
 
             driverRepository.save(driver);
+            driverGeoIndex.remove(driver.getDriverId());
 
             // Publish shift end event
             eventPublisher.publishEvent("glamme-bus",
@@ -175,15 +202,16 @@ public class DriverTrackingService {
                 currentRideId = activeRides.get(0).getRideId();
             }
 
+            DriverLocationIngestor.DriverPosition position = currentPosition(driver);
             DriverTrackingDto trackingDto = DriverTrackingDto.builder()
                     .driverId(driverId)
                     .rideId(currentRideId)
                     .currentLocation(LocationDto.builder()
-                            .latitude(BigDecimal.valueOf(driver.getCurrentLatitude()))
-                            .longitude(BigDecimal.valueOf(driver.getCurrentLongitude()))
+                            .latitude(BigDecimal.valueOf(position.latitude()))
+                            .longitude(BigDecimal.valueOf(position.longitude()))
                             .build())
                     .status(driver.getAvailable() ? "AVAILABLE" : "BUSY")
-                    .lastUpdated(driver.getLastLocationUpdate())
+                    .lastUpdated(position.updatedAt())
                     .lastRideCompleted(driver.getLastRideCompleted())
                     .ridesCompletedToday(driver.getRidesCompletedToday())
                     .earningsToday(driver.getEarningsToday())
@@ -206,28 +234,41 @@ public class DriverTrackingService {
      * Get all available drivers in an area
      */
     public List<DriverTrackingDto> getAvailableDriversInArea(BigDecimal latitude, BigDecimal longitude, double radiusKm) {
-        List<DriverProfile> allDrivers = driverRepository.findAll();
+        List<UUID> nearbyIds = driverGeoIndex.withinRadius(latitude.doubleValue(), longitude.doubleValue(), radiusKm)
+                .stream()
+                .map(DriverLocationIndex.Neighbor::driverId)
+                .toList();
+
+        List<DriverProfile> nearby;
+        if (nearbyIds.isEmpty() && driverGeoIndex.size() == 0) {
+            // Index is cold or unreachable: scan and re-seed it, as dispatch does
+            nearby = availableDriversFromDatabase(latitude.doubleValue(), longitude.doubleValue(), radiusKm);
+        } else {
+            Map<UUID, DriverProfile> drivers = driverRepository.findAllById(nearbyIds).stream()
+                    .collect(Collectors.toMap(DriverProfile::getDriverId, Function.identity()));
+            // Keep the index's nearest-first order
+            nearby = nearbyIds.stream()
+                    .map(drivers::get)
+                    .filter(driver -> driver != null && driver.getAvailable() && driver.getOnline())
+                    .toList();
+        }
 
-        return allDrivers.stream()
-                .filter(driver -> driver.getAvailable() && driver.getOnline())
-                .filter(driver -> isWithinRadius(
-                        latitude.doubleValue(),
-                        longitude.doubleValue(),
-                        driver.getCurrentLatitude(),
-                        driver.getCurrentLongitude(),
-                        radiusKm))
-                .map(driver -> DriverTrackingDto.builder()
-                        .driverId(driver.getDriverId().toString())
-                        .currentLocation(LocationDto.builder()
-                                .latitude(BigDecimal.valueOf(driver.getCurrentLatitude()))
-                                .longitude(BigDecimal.valueOf(driver.getCurrentLongitude()))
-                                .build())
-                        .status("AVAILABLE")
-                        .rating(driver.getRating())
-                        .vehicleType(driver.getVehicleModel())
-                        .lastUpdated(driver.getLastLocationUpdate())
-                        .online(true)
-                        .build())
+        return nearby.stream()
+                .map(driver -> {
+                    DriverLocationIngestor.DriverPosition position = currentPosition(driver);
+                    return DriverTrackingDto.builder()
+                            .driverId(driver.getDriverId().toString())
+                            .currentLocation(LocationDto.builder()
+                                    .latitude(BigDecimal.valueOf(position.latitude()))
+                                    .longitude(BigDecimal.valueOf(position.longitude()))
+                                    .build())
+                            .status("AVAILABLE")
+                            .rating(driver.getRating())
+                            .vehicleType(driver.getVehicleModel())
+                            .lastUpdated(position.updatedAt())
+                            .online(true)
+                            .build();
+                })
                 .collect(Collectors.toList());
     }
 
@@ -324,23 +365,6 @@ public class DriverTrackingService {
         driverRepository.save(driver);
     }
 
-    /**
-     * Check if a location is within a radius of another location
-     */
-    private boolean isWithinRadius(double lat1, double lon1, double lat2, double lon2, double radiusKm) {
-        final int R = 6371; // Radius of the earth in km
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c;
-
-        return distance <= radiusKm;
-    }
-
     /**
      * Get driver performance metrics
      */
@@ -365,4 +389,45 @@ public class DriverTrackingService {
         }
         return null;
     }
+
+    /**
+     * Available, online drivers within the radius, nearest first, read from the database
+     */
+    private List<DriverProfile> availableDriversFromDatabase(double latitude, double longitude, double radiusKm) {
+        Map<UUID, DriverProfile> drivers = driverRepository.findByAvailableTrue().stream()
+                .filter(DriverProfile::getOnline)
+                .collect(Collectors.toMap(DriverProfile::getDriverId, Function.identity()));
+        List<DriverLocationIndex.Position> positions = drivers.values().stream()
+                .map(driver -> {
+                    DriverLocationIngestor.DriverPosition position = currentPosition(driver);
+                    return new DriverLocationIndex.Position(driver.getDriverId(),
+                            position.latitude(), position.longitude());
+                })
+                .toList();
+        driverGeoIndex.updateAll(positions);
+
+        return positions.stream()
+                .filter(position -> DriverGeoIndex.distanceKm(latitude, longitude,
+                        position.latitude(), position.longitude()) <= radiusKm)
+                .sorted(Comparator.comparingDouble(position -> DriverGeoIndex.distanceKm(latitude, longitude,
+                        position.latitude(), position.longitude())))
+                .map(position -> drivers.get(position.driverId()))
+                .toList();
+    }
+
+    private void indexDriver(DriverProfile driver) {
+        DriverLocationIngestor.DriverPosition position = currentPosition(driver);
+        driverGeoIndex.update(driver.getDriverId(), position.latitude(), position.longitude());
+    }
+
+    /**
+     * Driver position from the latest ping when it is newer than the profile, which is written back lazily
+     */
+    private DriverLocationIngestor.DriverPosition currentPosition(DriverProfile driver) {
+        return locationIngestor.latest(driver.getDriverId())
+                .filter(latest -> driver.getLastLocationUpdate() == null
+                        || latest.updatedAt().isAfter(driver.getLastLocationUpdate()))
+                .orElseGet(() -> new DriverLocationIngestor.DriverPosition(driver.getCurrentLatitude(),
+                        driver.getCurrentLongitude(), null, null, driver.getLastLocationUpdate()));
+    }
 }
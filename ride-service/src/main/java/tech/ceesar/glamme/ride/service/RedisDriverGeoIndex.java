@@ -0,0 +1,279 @@
+package tech.ceesar.glamme.ride.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.domain.geo.GeoReference;
+import org.springframework.data.redis.domain.geo.GeoShape;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Driver index kept in a Redis GEO set, so every ride-service replica dispatches from the same view.
+ *
+ * A companion sorted set holds each driver's last update time. Entries older than
+ * {@code ride.matching.index-ttl-seconds} are ignored by queries and evicted periodically, so a
+ * driver whose app stopped pinging drops out without waiting for the inactivity monitor to mark
+ * them offline.
+ */
+@Component
+@ConditionalOnProperty(name = "ride.matching.index", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisDriverGeoIndex implements DriverLocationIndex {
+
+    // The hash tag keeps both keys in one cluster slot for the eviction script
+    static final String GEO_KEY = "ride:{driver-index}:geo";
+    static final String SEEN_KEY = "ride:{driver-index}:seen";
+
+    // GEOSEARCH needs a finite radius; half the Earth's circumference reaches any point
+    private static final double UNBOUNDED_RADIUS_KM = 20_038;
+    // Extra candidates fetched for nearest-N so entries awaiting eviction don't shrink the result
+    private static final int STALE_SLACK = 5;
+    private static final int EVICTION_BATCH_SIZE = 1_000;
+
+    /**
+     * Remove up to ARGV[2] members last seen at or before ARGV[1] from both sets.
+     * KEYS[1] = GEO set, KEYS[2] = last-seen sorted set
+     */
+    private static final byte[] EVICT_SCRIPT = """
+            local stale = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+            if #stale > 0 then
+                redis.call('ZREM', KEYS[1], unpack(stale))
+                redis.call('ZREM', KEYS[2], unpack(stale))
+            end
+            return #stale
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Move ARGV[1] to longitude ARGV[2], latitude ARGV[3] and mark it seen at ARGV[4], only if it is
+     * still in the index. KEYS[1] = GEO set, KEYS[2] = last-seen sorted set
+     */
+    private static final byte[] UPDATE_IF_PRESENT_SCRIPT = """
+            if not redis.call('ZSCORE', KEYS[2], ARGV[1]) then
+                return 0
+            end
+            redis.call('GEOADD', KEYS[1], ARGV[2], ARGV[3], ARGV[1])
+            redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1])
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] RAW_GEO_KEY = GEO_KEY.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RAW_SEEN_KEY = SEEN_KEY.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final long ttlMillis;
+
+    public RedisDriverGeoIndex(RedisTemplate<String, Object> redisTemplate,
+                               @Value("${ride.matching.index-ttl-seconds:300}") long ttlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    @Override
+    public void update(UUID driverId, double latitude, double longitude) {
+        byte[] member = member(driverId);
+        double now = System.currentTimeMillis();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.geoCommands().geoAdd(RAW_GEO_KEY, new Point(longitude, latitude), member);
+                connection.zSetCommands().zAdd(RAW_SEEN_KEY, now, member);
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Failed to update driver {} in the dispatch index", driverId, e);
+        }
+    }
+
+    /**
+     * Every driver in one pipeline, so re-seeding the index is a single round trip
+     */
+    @Override
+    public void updateAll(Collection<Position> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        double now = System.currentTimeMillis();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Position position : positions) {
+                    byte[] member = member(position.driverId());
+                    connection.geoCommands().geoAdd(RAW_GEO_KEY,
+                            new Point(position.longitude(), position.latitude()), member);
+                    connection.zSetCommands().zAdd(RAW_SEEN_KEY, now, member);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Failed to re-seed the dispatch index with {} drivers", positions.size(), e);
+        }
+    }
+
+    /**
+     * Membership check and move in one script, so a location ping costs a single round trip
+     */
+    @Override
+    public boolean updateIfPresent(UUID driverId, double latitude, double longitude) {
+        byte[] longitudeArg = String.valueOf(longitude).getBytes(StandardCharsets.UTF_8);
+        byte[] latitudeArg = String.valueOf(latitude).getBytes(StandardCharsets.UTF_8);
+        byte[] now = String.valueOf(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8);
+        try {
+            Long moved = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                    .eval(UPDATE_IF_PRESENT_SCRIPT, ReturnType.INTEGER, 2, RAW_GEO_KEY, RAW_SEEN_KEY,
+                            member(driverId), longitudeArg, latitudeArg, now));
+            return moved != null && moved == 1;
+        } catch (Exception e) {
+            log.error("Failed to update driver {} in the dispatch index", driverId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void remove(UUID driverId) {
+        byte[] member = member(driverId);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.zSetCommands().zRem(RAW_GEO_KEY, member);
+                connection.zSetCommands().zRem(RAW_SEEN_KEY, member);
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Failed to remove driver {} from the dispatch index", driverId, e);
+        }
+    }
+
+    @Override
+    public boolean contains(UUID driverId) {
+        try {
+            Double lastSeen = redisTemplate.execute((RedisCallback<Double>) connection ->
+                    connection.zSetCommands().zScore(RAW_SEEN_KEY, member(driverId)));
+            // Still a member until evicted, so a late ping keeps the driver in the index
+            return lastSeen != null;
+        } catch (Exception e) {
+            log.error("Failed to look up driver {} in the dispatch index", driverId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public int size() {
+        try {
+            Long size = redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.zSetCommands().zCount(RAW_SEEN_KEY, freshAfter(), Double.POSITIVE_INFINITY));
+            return size != null ? size.intValue() : 0;
+        } catch (Exception e) {
+            log.error("Failed to size the dispatch index", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public List<Neighbor> nearest(double latitude, double longitude, int k, double maxRadiusKm) {
+        if (k <= 0) {
+            return List.of();
+        }
+        List<Neighbor> result = search(latitude, longitude, Math.min(maxRadiusKm, UNBOUNDED_RADIUS_KM), k + STALE_SLACK);
+        return result.size() > k ? result.subList(0, k) : result;
+    }
+
+    @Override
+    public List<Neighbor> withinRadius(double latitude, double longitude, double radiusKm) {
+        if (radiusKm < 0) {
+            return List.of();
+        }
+        return search(latitude, longitude, radiusKm, 0);
+    }
+
+    /**
+     * Drop drivers that have not been updated within the TTL
+     */
+    @Scheduled(fixedDelayString = "${ride.matching.index-eviction-interval-ms:30000}")
+    public void evictStale() {
+        byte[] cutoff = String.valueOf(freshAfter()).getBytes(StandardCharsets.UTF_8);
+        byte[] batch = String.valueOf(EVICTION_BATCH_SIZE).getBytes(StandardCharsets.UTF_8);
+        try {
+            long total = 0;
+            Long evicted;
+            do {
+                evicted = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                        .eval(EVICT_SCRIPT, ReturnType.INTEGER, 2, RAW_GEO_KEY, RAW_SEEN_KEY, cutoff, batch));
+                total += evicted != null ? evicted : 0;
+            } while (evicted != null && evicted == EVICTION_BATCH_SIZE);
+            if (total > 0) {
+                log.info("Evicted {} stale drivers from the dispatch index", total);
+            }
+        } catch (Exception e) {
+            log.error("Failed to evict stale drivers from the dispatch index", e);
+        }
+    }
+
+    /**
+     * GEOSEARCH nearest first, keeping only drivers updated within the TTL. A limit of 0 means no limit.
+     */
+    private List<Neighbor> search(double latitude, double longitude, double radiusKm, int limit) {
+        RedisGeoCommands.GeoSearchCommandArgs args = RedisGeoCommands.GeoSearchCommandArgs.newGeoSearchArgs()
+                .includeCoordinates()
+                .includeDistance()
+                .sortAscending();
+        if (limit > 0) {
+            args = args.limit(limit);
+        }
+        RedisGeoCommands.GeoSearchCommandArgs searchArgs = args;
+
+        try {
+            GeoResults<RedisGeoCommands.GeoLocation<byte[]>> results = redisTemplate.execute(
+                    (RedisCallback<GeoResults<RedisGeoCommands.GeoLocation<byte[]>>>) connection ->
+                            connection.geoCommands().geoSearch(RAW_GEO_KEY,
+                                    GeoReference.fromCoordinate(longitude, latitude),
+                                    GeoShape.byRadius(new Distance(radiusKm, Metrics.KILOMETERS)),
+                                    searchArgs));
+            if (results == null || results.getContent().isEmpty()) {
+                return List.of();
+            }
+
+            List<GeoResult<RedisGeoCommands.GeoLocation<byte[]>>> matches = results.getContent();
+            byte[][] members = matches.stream().map(match -> match.getContent().getName()).toArray(byte[][]::new);
+            List<Double> lastSeen = redisTemplate.execute((RedisCallback<List<Double>>) connection ->
+                    connection.zSetCommands().zMScore(RAW_SEEN_KEY, members));
+
+            double freshAfter = freshAfter();
+            List<Neighbor> neighbors = new ArrayList<>(matches.size());
+            for (int i = 0; i < matches.size(); i++) {
+                Double seen = lastSeen != null ? lastSeen.get(i) : null;
+                if (seen == null || seen <= freshAfter) {
+                    continue;
+                }
+                GeoResult<RedisGeoCommands.GeoLocation<byte[]>> match = matches.get(i);
+                Point point = match.getContent().getPoint();
+                neighbors.add(new Neighbor(UUID.fromString(new String(members[i], StandardCharsets.UTF_8)),
+                        point.getY(), point.getX(), match.getDistance().getValue()));
+            }
+            return neighbors;
+        } catch (Exception e) {
+            log.error("Failed to search the dispatch index", e);
+            return List.of();
+        }
+    }
+
+    private double freshAfter() {
+        return System.currentTimeMillis() - ttlMillis;
+    }
+
+    private static byte[] member(UUID driverId) {
+        return driverId.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -28,6 +28,8 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -43,6 +45,10 @@ public class RideService {
     private final RedisCacheService cacheService;
     private final RedisIdempotencyService idempotencyService;
     private final EventPublisher eventPublisher;
+    private final DriverLocationIndex driverGeoIndex;
+
+    // Nearest indexed drivers re-checked against the database before one is claimed
+    private static final int DISPATCH_CANDIDATES = 5;
 
     /**
      * Create a new ride, either internal or external.
@@ -241,6 +247,7 @@ public class RideService {
                 driverRepo.findById(ride.getDriverId()).ifPresent(driver -> {
                     driver.setAvailable(true);
                     driverRepo.save(driver);
+                    driverGeoIndex.update(driver.getDriverId(), driver.getCurrentLatitude(), driver.getCurrentLongitude());
                 });
             }
         } else {
@@ -342,6 +349,7 @@ public class RideService {
             driverRepo.findById(ride.getDriverId()).ifPresent(driver -> {
                 driver.setAvailable(true);
                 driverRepo.save(driver);
+                driverGeoIndex.update(driver.getDriverId(), driver.getCurrentLatitude(), driver.getCurrentLongitude());
             });
         }
 
@@ -375,19 +383,47 @@ public class RideService {
 
     // Internal dispatch: pick nearest available driver
     private DriverProfile dispatchInternalRide(RideRequest ride) {
-        var available = driverRepo.findByAvailableTrue();
+        List<DriverLocationIndex.Neighbor> candidates = driverGeoIndex.nearest(
+                ride.getPickupLatitude(), ride.getPickupLongitude(), DISPATCH_CANDIDATES);
+        if (!candidates.isEmpty()) {
+            Map<UUID, DriverProfile> drivers = driverRepo.findAllById(
+                            candidates.stream().map(DriverLocationIndex.Neighbor::driverId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(DriverProfile::getDriverId, Function.identity()));
+            for (DriverLocationIndex.Neighbor candidate : candidates) {
+                DriverProfile driver = drivers.get(candidate.driverId());
+                if (driver != null && driver.getAvailable() && driver.getOnline()) {
+                    return claimDriver(driver);
+                }
+                // Index entry outlived the driver's availability
+                driverGeoIndex.remove(candidate.driverId());
+            }
+        }
+
+        // Index is cold or only held stale entries: scan and re-seed it
+        List<DriverProfile> available = driverRepo.findByAvailableTrue().stream()
+                .filter(DriverProfile::getOnline)
+                .toList();
         if (available.isEmpty()) {
             throw new BadRequestException("No available drivers");
         }
+        driverGeoIndex.updateAll(available.stream()
+                .map(d -> new DriverLocationIndex.Position(d.getDriverId(), d.getCurrentLatitude(), d.getCurrentLongitude()))
+                .toList());
         DriverProfile nearest = available.stream()
                 .min(Comparator.comparingDouble(
                         d -> distance(ride.getPickupLatitude(), ride.getPickupLongitude(),
                                 d.getCurrentLatitude(), d.getCurrentLongitude())
                 )).get();
 
-        nearest.setAvailable(false);
-        driverRepo.save(nearest);
-        return nearest;
+        return claimDriver(nearest);
+    }
+
+    private DriverProfile claimDriver(DriverProfile driver) {
+        driver.setAvailable(false);
+        driverRepo.save(driver);
+        driverGeoIndex.remove(driver.getDriverId());
+        return driver;
     }
 
     // Haversine formula
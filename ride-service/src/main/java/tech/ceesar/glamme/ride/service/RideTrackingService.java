@@ -38,38 +38,26 @@ public class RideTrackingService {
     private final DriverProfileRepository driverRepository;
     private final SimpMessagingTemplate messagingTemplate;
     private final EventPublisher eventPublisher;
+    private final DriverLocationIndex driverGeoIndex;
+    private final DriverLocationIngestor locationIngestor;
 
     /**
-     * Update driver location and broadcast to subscribers
+     * Update driver location and broadcast to subscribers.
+     *
+     * Runs without a transaction: the position is taken by the ingestor, which persists the tracking
+     * row and the driver profile position in background batches.
      */
-    @Transactional
     public void updateDriverLocation(String driverId, LocationDto location, Integer heading,
                                    BigDecimal speed, BigDecimal accuracy) {
-        log.info("Updating location for driver: {} - Lat: {}, Lng: {}",
+        log.debug("Updating location for driver: {} - Lat: {}, Lng: {}",
                 driverId, location.getLatitude(), location.getLongitude());
 
-        // Update driver profile location
-        Optional<DriverProfile> driverOpt = driverRepository.findById(UUID.fromString(driverId));
-        if (driverOpt.isPresent()) {
-            DriverProfile driver = driverOpt.get();
-            driver.setCurrentLatitude(location.getLatitude());
-            driver.setCurrentLongitude(location.getLongitude());
-            driver.setLastLocationUpdate(LocalDateTime.now());
-            driverRepository.save(driver);
-        }
-
-        // Create tracking record
-        RideTracking tracking = RideTracking.builder()
-                .driverId(driverId)
-                .latitude(BigDecimal.valueOf(location.getLatitude()))
-                .longitude(BigDecimal.valueOf(location.getLongitude()))
-                .heading(heading)
-                .speedMph(speed)
-                .accuracyMeters(accuracy)
-                .timestamp(LocalDateTime.now())
-                .build();
+        UUID driverUuid = UUID.fromString(driverId);
+        locationIngestor.record(driverUuid, null, location.getLatitude(), location.getLongitude(),
+                heading, speed, accuracy);
 
-        rideTrackingRepository.save(tracking);
+        // Only drivers that are available and online are in the index; status changes add and remove them
+        driverGeoIndex.updateIfPresent(driverUuid, location.getLatitude(), location.getLongitude());
 
         // Broadcast location update via WebSocket
         DriverTrackingDto trackingDto = DriverTrackingDto.builder()
@@ -83,8 +71,8 @@ public class RideTrackingService {
 
         messagingTemplate.convertAndSend("/topic/driver/" + driverId + "/location", trackingDto);
 
-        // Publish location update event
-        eventPublisher.publishEvent("glamme-bus",
+        // Publish location update event; buffered so GPS pings never wait on EventBridge
+        eventPublisher.publishEventAsync("glamme-bus",
                 java.util.Map.of(
                         "driverId", driverId,
                         "latitude", String.valueOf(location.getLatitude()),
@@ -94,7 +82,7 @@ public class RideTrackingService {
                         "timestamp", LocalDateTime.now().toString()
                 ));
 
-        log.info("Driver location updated and broadcasted: {}", driverId);
+        log.debug("Driver location updated and broadcasted: {}", driverId);
     }
 
     /**
@@ -116,15 +104,8 @@ public class RideTrackingService {
             rideRepository.save(ride);
 
             // Create tracking record
-            RideTracking tracking = RideTracking.builder()
-                    .rideId(rideId)
-                    .driverId(driverId)
-                    .latitude(BigDecimal.valueOf(currentLocation.getLatitude()))
-                    .longitude(BigDecimal.valueOf(currentLocation.getLongitude()))
-                    .timestamp(LocalDateTime.now())
-                    .build();
-
-            rideTrackingRepository.save(tracking);
+            locationIngestor.record(UUID.fromString(driverId), rideId,
+                    currentLocation.getLatitude(), currentLocation.getLongitude(), null, null, null);
 
             // Broadcast ride progress update
             RideTrackingDto progressDto = RideTrackingDto.builder()
@@ -139,7 +120,7 @@ public class RideTrackingService {
             messagingTemplate.convertAndSend("/topic/ride/" + rideId + "/progress", progressDto);
 
             // Publish ride progress event
-            eventPublisher.publishEvent("glamme-bus",
+            eventPublisher.publishEventAsync("glamme-bus",
                     java.util.Map.of(
                             "rideId", rideId,
                             "driverId", driverId,
@@ -161,14 +142,19 @@ public class RideTrackingService {
         Optional<DriverProfile> driverOpt = driverRepository.findById(UUID.fromString(driverId));
         if (driverOpt.isPresent()) {
             DriverProfile driver = driverOpt.get();
+            // The profile position is written back lazily; prefer the latest ping
+            Optional<DriverLocationIngestor.DriverPosition> latest = locationIngestor.latest(driver.getDriverId());
 
             DriverTrackingDto trackingDto = DriverTrackingDto.builder()
                     .driverId(driverId)
                     .currentLocation(LocationDto.builder()
-                              .latitude(BigDecimal.valueOf(driver.getCurrentLatitude()))
-                            .longitude(BigDecimal.valueOf(driver.getCurrentLongitude()))
+                            .latitude(BigDecimal.valueOf(latest.map(DriverLocationIngestor.DriverPosition::latitude)
+                                    .orElse(driver.getCurrentLatitude())))
+                            .longitude(BigDecimal.valueOf(latest.map(DriverLocationIngestor.DriverPosition::longitude)
+                                    .orElse(driver.getCurrentLongitude())))
                             .build())
-                    .lastUpdated(driver.getLastLocationUpdate())
+                    .lastUpdated(latest.map(DriverLocationIngestor.DriverPosition::updatedAt)
+                            .orElse(driver.getLastLocationUpdate()))
                     .status(driver.getAvailable() ? "AVAILABLE" : "BUSY")
                     .online(driver.getOnline())
                     .rating(driver.getRating())
@@ -263,6 +249,7 @@ public class RideTrackingService {
                 // Mark driver as potentially offline
                 driver.setOnline(false);
                 driverRepository.save(driver);
+                driverGeoIndex.remove(driver.getDriverId());
 
                 log.warn("Driver {} marked as offline due to inactivity", driver.getDriverId());
             }
@@ -0,0 +1,121 @@
+package tech.ceesar.glamme.ride.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriverGeoIndexTest {
+
+    private static final double PICKUP_LAT = 40.7128;
+    private static final double PICKUP_LNG = -74.0060;
+
+    private DriverGeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new DriverGeoIndex(0.01);
+    }
+
+    @Test
+    void nearest_ReturnsClosestDriversFirst() {
+        UUID near = UUID.randomUUID();
+        UUID middle = UUID.randomUUID();
+        UUID far = UUID.randomUUID();
+        index.update(far, 40.7831, -73.9712);
+        index.update(near, 40.7130, -74.0059);
+        index.update(middle, 40.7306, -73.9866);
+
+        List<DriverGeoIndex.Neighbor> result = index.nearest(PICKUP_LAT, PICKUP_LNG, 2);
+
+        assertEquals(List.of(near, middle), result.stream().map(DriverGeoIndex.Neighbor::driverId).toList());
+        assertTrue(result.get(0).distanceKm() < result.get(1).distanceKm());
+    }
+
+    @Test
+    void nearest_RespectsMaxRadius() {
+        index.update(UUID.randomUUID(), 40.7831, -73.9712);
+
+        assertTrue(index.nearest(PICKUP_LAT, PICKUP_LNG, 1, 5.0).isEmpty());
+        assertEquals(1, index.nearest(PICKUP_LAT, PICKUP_LNG, 1, 10.0).size());
+    }
+
+    @Test
+    void update_MovesDriverBetweenCells() {
+        UUID driverId = UUID.randomUUID();
+        index.update(driverId, 40.7831, -73.9712);
+        index.update(driverId, 40.7129, -74.0061);
+
+        assertEquals(1, index.size());
+        List<DriverGeoIndex.Neighbor> result = index.withinRadius(PICKUP_LAT, PICKUP_LNG, 1.0);
+        assertEquals(1, result.size());
+        assertEquals(driverId, result.get(0).driverId());
+        assertTrue(index.withinRadius(40.7831, -73.9712, 1.0).isEmpty());
+    }
+
+    @Test
+    void remove_DropsDriverFromQueries() {
+        UUID driverId = UUID.randomUUID();
+        index.update(driverId, PICKUP_LAT, PICKUP_LNG);
+
+        index.remove(driverId);
+
+        assertFalse(index.contains(driverId));
+        assertTrue(index.nearest(PICKUP_LAT, PICKUP_LNG, 1).isEmpty());
+    }
+
+    @Test
+    void nearest_WrapsAcrossAntimeridian() {
+        UUID east = UUID.randomUUID();
+        UUID west = UUID.randomUUID();
+        index.update(east, -17.0, 179.995);
+        index.update(west, -17.0, 170.0);
+
+        List<DriverGeoIndex.Neighbor> result = index.nearest(-17.0, -179.995, 1);
+
+        assertEquals(east, result.get(0).driverId());
+        assertEquals(1, index.withinRadius(-17.0, -179.995, 5.0).size());
+    }
+
+    @Test
+    void queries_MatchLinearScan() {
+        Random random = new Random(42);
+        List<double[]> points = new ArrayList<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            double lat = PICKUP_LAT + (random.nextDouble() - 0.5) * 0.6;
+            double lng = PICKUP_LNG + (random.nextDouble() - 0.5) * 0.6;
+            UUID id = UUID.randomUUID();
+            index.update(id, lat, lng);
+            points.add(new double[]{lat, lng});
+            ids.add(id);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            double lat = PICKUP_LAT + (random.nextDouble() - 0.5) * 0.8;
+            double lng = PICKUP_LNG + (random.nextDouble() - 0.5) * 0.8;
+
+            double[] distances = new double[points.size()];
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < points.size(); i++) {
+                distances[i] = DriverGeoIndex.distanceKm(lat, lng, points.get(i)[0], points.get(i)[1]);
+                order.add(i);
+            }
+            order.sort(Comparator.comparingDouble(i -> distances[i]));
+            List<UUID> byDistance = order.stream().map(ids::get).toList();
+
+            assertEquals(byDistance.subList(0, 10),
+                    index.nearest(lat, lng, 10).stream().map(DriverGeoIndex.Neighbor::driverId).toList());
+
+            long expectedInRadius = Arrays.stream(distances).filter(d -> d <= 3.0).count();
+            assertEquals(expectedInRadius, index.withinRadius(lat, lng, 3.0).size());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package tech.ceesar.glamme.ride.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tech.ceesar.glamme.common.service.aws.CloudWatchMetricsService;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the ingestor's SQL against the schema generated from the entities
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.data.jpa.repositories.enabled=false"
+})
+// The writer thread commits on its own connection
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DriverLocationIngestorJdbcTest {
+
+    // Only the schema is needed; the application's repositories are left out
+    @SpringBootConfiguration
+    @EntityScan("tech.ceesar.glamme.ride.entity")
+    static class Schema {
+    }
+
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private DriverLocationIngestor ingestor;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM ride_tracking");
+        jdbcTemplate.update("DELETE FROM driver_profiles");
+        ingestor = new DriverLocationIngestor(jdbcTemplate, mock(CloudWatchMetricsService.class));
+        ReflectionTestUtils.setField(ingestor, "batchSize", 4);
+        ReflectionTestUtils.setField(ingestor, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(ingestor, "queueCapacity", 100);
+        ReflectionTestUtils.setField(ingestor, "profileWritebackIntervalMs", 60_000L);
+    }
+
+    @Test
+    void stop_InsertsRidePingsAndWritesBackEveryDriver() {
+        UUID onRide = driver();
+        UUID idle = driver();
+        ingestor.start();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ingestor.record(onRide, "ride-1", 40.71 + i * 0.001, -74.00, 90, BigDecimal.TEN, null));
+        }
+        // Pings outside a ride share batches with ride pings and must not fail them
+        assertTrue(ingestor.record(idle, null, 40.80, -73.95, null, null, BigDecimal.ONE));
+        ingestor.stop();
+
+        assertEquals(0, ingestor.droppedRows());
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT ride_id, driver_id, heading FROM ride_tracking ORDER BY id");
+        assertEquals(5, rows.size());
+        assertTrue(rows.stream().allMatch(row -> "ride-1".equals(row.get("ride_id"))
+                && onRide.toString().equals(row.get("driver_id")) && Integer.valueOf(90).equals(row.get("heading"))));
+
+        // The generated column keeps two decimal places
+        assertEquals(40.714, latitude(onRide).doubleValue(), 0.005);
+        assertEquals(40.8, latitude(idle).doubleValue(), 0.005);
+    }
+
+    @Test
+    void writeBack_NeverMovesAProfileToAnOlderPosition() {
+        UUID driverId = driver();
+        ingestor.start();
+        ingestor.record(driverId, null, 40.75, -74.00, null, null, null);
+        // The profile was updated after the ping, e.g. by a status change carrying a location
+        jdbcTemplate.update("UPDATE driver_profiles SET current_latitude = 41.0, last_location_update = ? "
+                + "WHERE driver_id = ?", Timestamp.valueOf(LocalDateTime.now().plusMinutes(1)), driverId);
+        ingestor.stop();
+
+        assertEquals(41.0, latitude(driverId).doubleValue(), 0.005);
+    }
+
+    private UUID driver() {
+        UUID driverId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO driver_profiles (driver_id, driver_name, phone_number, current_latitude, "
+                + "current_longitude, available, created_at) VALUES (?, 'Driver', '555-0100', 0, 0, TRUE, NOW())", driverId);
+        return driverId;
+    }
+
+    private BigDecimal latitude(UUID driverId) {
+        return jdbcTemplate.queryForObject("SELECT current_latitude FROM driver_profiles WHERE driver_id = ?",
+                BigDecimal.class, driverId);
+    }
+}
@@ -0,0 +1,111 @@
+package tech.ceesar.glamme.ride.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.ceesar.glamme.common.service.aws.CloudWatchMetricsService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DriverLocationIngestorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CloudWatchMetricsService metricsService;
+
+    @InjectMocks
+    private DriverLocationIngestor ingestor;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestor, "batchSize", 4);
+        ReflectionTestUtils.setField(ingestor, "flushIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(ingestor, "queueCapacity", 10);
+        ReflectionTestUtils.setField(ingestor, "profileWritebackIntervalMs", 60_000L);
+    }
+
+    @Test
+    void record_KeepsLatestPositionInMemory() {
+        // Arrange
+        ingestor.start();
+        UUID driverId = UUID.randomUUID();
+
+        // Act
+        ingestor.record(driverId, null, 40.71, -74.00, 90, BigDecimal.TEN, null);
+        ingestor.record(driverId, null, 40.72, -74.01, 95, BigDecimal.ONE, null);
+
+        // Assert
+        DriverLocationIngestor.DriverPosition position = ingestor.latest(driverId).orElseThrow();
+        assertEquals(40.72, position.latitude());
+        assertEquals(-74.01, position.longitude());
+        assertEquals(95, position.heading());
+        verifyNoInteractions(jdbcTemplate);
+        ingestor.stop();
+    }
+
+    @Test
+    void stop_FlushesRowsInBatchesAndWritesBackEachDriverOnce() {
+        // Arrange
+        ingestor.start();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            ingestor.record(first, "ride-1", 40.71 + i * 0.001, -74.00, null, null, null);
+        }
+        for (int i = 0; i < 3; i++) {
+            ingestor.record(second, null, 40.80, -73.95 + i * 0.001, null, null, null);
+        }
+
+        // Act
+        ingestor.stop();
+
+        // Assert
+        ArgumentCaptor<BatchPreparedStatementSetter> inserts = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(contains("INSERT INTO ride_tracking"), inserts.capture());
+        List<Integer> batchSizes = inserts.getAllValues().stream().map(BatchPreparedStatementSetter::getBatchSize).toList();
+        // Only the ride's pings become tracking rows; both drivers' positions are written back
+        assertEquals(5, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+
+        ArgumentCaptor<BatchPreparedStatementSetter> updates = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE driver_profiles"), updates.capture());
+        assertEquals(2, updates.getValue().getBatchSize());
+        assertEquals(0, ingestor.droppedRows());
+    }
+
+    @Test
+    void record_DropsRowsWhenQueueIsFull() {
+        // Arrange: writer not started, so nothing drains the queue
+        ReflectionTestUtils.setField(ingestor, "rows", new java.util.concurrent.ArrayBlockingQueue<>(2));
+        UUID driverId = UUID.randomUUID();
+
+        // Act
+        boolean first = ingestor.record(driverId, "ride-1", 40.71, -74.00, null, null, null);
+        boolean second = ingestor.record(driverId, "ride-1", 40.71, -74.00, null, null, null);
+        boolean third = ingestor.record(driverId, "ride-1", 40.72, -74.00, null, null, null);
+
+        // Assert
+        assertTrue(first && second);
+        assertFalse(third);
+        assertEquals(1, ingestor.droppedRows());
+        assertEquals(40.72, ingestor.latest(driverId).orElseThrow().latitude());
+        verify(jdbcTemplate, never()).batchUpdate(any(String.class), any(BatchPreparedStatementSetter.class));
+    }
+}
@@ -0,0 +1,134 @@
+package tech.ceesar.glamme.ride.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import tech.ceesar.glamme.common.event.EventPublisher;
+import tech.ceesar.glamme.ride.dto.DriverTrackingDto;
+import tech.ceesar.glamme.ride.entity.DriverProfile;
+import tech.ceesar.glamme.ride.repositories.DriverProfileRepository;
+import tech.ceesar.glamme.ride.repository.RideRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DriverTrackingServiceTest {
+
+    private static final BigDecimal PICKUP_LAT = BigDecimal.valueOf(40.7128);
+    private static final BigDecimal PICKUP_LNG = BigDecimal.valueOf(-74.0060);
+
+    @Mock
+    private DriverProfileRepository driverRepository;
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private EventPublisher eventPublisher;
+
+    @Mock
+    private DriverLocationIndex driverGeoIndex;
+
+    @Mock
+    private DriverLocationIngestor locationIngestor;
+
+    @InjectMocks
+    private DriverTrackingService driverTrackingService;
+
+    private DriverProfile near;
+    private DriverProfile far;
+    private DriverProfile offline;
+
+    @BeforeEach
+    void setUp() {
+        near = driver(40.7130, -74.0059, true);
+        far = driver(40.7831, -73.9712, true);
+        offline = driver(40.7129, -74.0061, false);
+    }
+
+    @Test
+    void getAvailableDriversInArea_UsesTheIndexOrder() {
+        when(driverGeoIndex.withinRadius(anyDouble(), anyDouble(), eq(10.0))).thenReturn(List.of(
+                new DriverLocationIndex.Neighbor(near.getDriverId(), 40.7130, -74.0059, 0.1),
+                new DriverLocationIndex.Neighbor(far.getDriverId(), 40.7831, -73.9712, 8.4)));
+        when(driverRepository.findAllById(anyList())).thenReturn(List.of(far, near));
+
+        List<DriverTrackingDto> result = driverTrackingService.getAvailableDriversInArea(PICKUP_LAT, PICKUP_LNG, 10.0);
+
+        assertEquals(List.of(near.getDriverId().toString(), far.getDriverId().toString()),
+                result.stream().map(DriverTrackingDto::getDriverId).toList());
+        verify(driverRepository, never()).findByAvailableTrue();
+    }
+
+    @Test
+    void getAvailableDriversInArea_FallsBackToTheDatabaseWhenTheIndexIsEmpty() {
+        // A cold or unreachable Redis index reports no neighbours and no entries
+        when(driverGeoIndex.withinRadius(anyDouble(), anyDouble(), anyDouble())).thenReturn(List.of());
+        when(driverGeoIndex.size()).thenReturn(0);
+        when(driverRepository.findByAvailableTrue()).thenReturn(List.of(far, offline, near));
+
+        List<DriverTrackingDto> result = driverTrackingService.getAvailableDriversInArea(PICKUP_LAT, PICKUP_LNG, 5.0);
+
+        assertEquals(List.of(near.getDriverId().toString()),
+                result.stream().map(DriverTrackingDto::getDriverId).toList());
+        // Online drivers are written back in one call so the index recovers
+        verify(driverGeoIndex).updateAll(argThat(positions -> positions.size() == 2 && positions.containsAll(List.of(
+                new DriverLocationIndex.Position(near.getDriverId(), 40.7130, -74.0059),
+                new DriverLocationIndex.Position(far.getDriverId(), 40.7831, -73.9712)))));
+        verify(driverGeoIndex, never()).update(any(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void getAvailableDriversInArea_ReturnsNothingForAnEmptyAreaOfAWarmIndex() {
+        when(driverGeoIndex.withinRadius(anyDouble(), anyDouble(), anyDouble())).thenReturn(List.of());
+        when(driverGeoIndex.size()).thenReturn(42);
+
+        assertTrue(driverTrackingService.getAvailableDriversInArea(PICKUP_LAT, PICKUP_LNG, 5.0).isEmpty());
+        verify(driverRepository, never()).findByAvailableTrue();
+        verify(driverGeoIndex, never()).updateAll(any());
+    }
+
+    @Test
+    void getAvailableDriversInArea_FallbackUsesTheLatestPing() {
+        // The profile still holds a far position that the ingestor has not written back yet
+        when(driverGeoIndex.withinRadius(anyDouble(), anyDouble(), anyDouble())).thenReturn(List.of());
+        when(driverRepository.findByAvailableTrue()).thenReturn(List.of(far));
+        when(locationIngestor.latest(far.getDriverId())).thenReturn(Optional.of(
+                new DriverLocationIngestor.DriverPosition(40.7131, -74.0058, null, null, LocalDateTime.now())));
+
+        List<DriverTrackingDto> result = driverTrackingService.getAvailableDriversInArea(PICKUP_LAT, PICKUP_LNG, 5.0);
+
+        assertEquals(List.of(far.getDriverId().toString()),
+                result.stream().map(DriverTrackingDto::getDriverId).toList());
+        assertEquals(40.7131, result.get(0).getCurrentLocation().getLatitude(), 1e-9);
+        verify(driverGeoIndex).updateAll(List.of(new DriverLocationIndex.Position(far.getDriverId(), 40.7131, -74.0058)));
+    }
+
+    private static DriverProfile driver(double latitude, double longitude, boolean online) {
+        DriverProfile driver = DriverProfile.builder()
+                .driverId(UUID.randomUUID())
+                .driverName("Driver")
+                .phoneNumber("555-0100")
+                .build();
+        driver.setCurrentLatitude(latitude);
+        driver.setCurrentLongitude(longitude);
+        driver.setAvailable(true);
+        driver.setOnline(online);
+        return driver;
+    }
+}
@@ -0,0 +1,208 @@
+package tech.ceesar.glamme.ride.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisDriverGeoIndexTest {
+
+    private static final double PICKUP_LAT = 40.7128;
+    private static final double PICKUP_LNG = -74.0060;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private RedisDriverGeoIndex index;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        index = new RedisDriverGeoIndex(redisTemplate, 300);
+    }
+
+    @Test
+    void keysShareOneHashTag() {
+        assertEquals(hashTag(RedisDriverGeoIndex.GEO_KEY), hashTag(RedisDriverGeoIndex.SEEN_KEY));
+
+        index.update(UUID.randomUUID(), PICKUP_LAT, PICKUP_LNG);
+
+        assertEquals(1L, redisTemplate.opsForZSet().zCard(RedisDriverGeoIndex.GEO_KEY));
+        assertEquals(1L, redisTemplate.opsForZSet().zCard(RedisDriverGeoIndex.SEEN_KEY));
+    }
+
+    @Test
+    void nearest_ReturnsClosestDriversFirstWithinRadius() {
+        UUID near = UUID.randomUUID();
+        UUID middle = UUID.randomUUID();
+        UUID far = UUID.randomUUID();
+        index.update(far, 40.7831, -73.9712);
+        index.update(near, 40.7130, -74.0059);
+        index.update(middle, 40.7306, -73.9866);
+
+        List<DriverLocationIndex.Neighbor> result = index.nearest(PICKUP_LAT, PICKUP_LNG, 2);
+        assertEquals(List.of(near, middle), result.stream().map(DriverLocationIndex.Neighbor::driverId).toList());
+        assertEquals(40.7130, result.get(0).latitude(), 1e-4);
+        assertEquals(-74.0059, result.get(0).longitude(), 1e-4);
+        assertTrue(result.get(0).distanceKm() < result.get(1).distanceKm());
+
+        assertEquals(List.of(near, middle), index.withinRadius(PICKUP_LAT, PICKUP_LNG, 5.0).stream()
+                .map(DriverLocationIndex.Neighbor::driverId).toList());
+        assertTrue(index.nearest(PICKUP_LAT, PICKUP_LNG, 1, 0.001).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void updateIfPresent_OnlyMovesIndexedDrivers() {
+        UUID indexed = UUID.randomUUID();
+        UUID unindexed = UUID.randomUUID();
+        index.update(indexed, 40.7831, -73.9712);
+
+        assertTrue(index.updateIfPresent(indexed, 40.7129, -74.0061));
+        assertFalse(index.updateIfPresent(unindexed, 40.7129, -74.0061));
+
+        assertTrue(index.contains(indexed));
+        assertFalse(index.contains(unindexed));
+        List<DriverLocationIndex.Neighbor> result = index.withinRadius(PICKUP_LAT, PICKUP_LNG, 1.0);
+        assertEquals(List.of(indexed), result.stream().map(DriverLocationIndex.Neighbor::driverId).toList());
+        assertTrue(index.withinRadius(40.7831, -73.9712, 1.0).isEmpty());
+    }
+
+    @Test
+    void updateAll_IndexesEveryDriverAndMovesExistingOnes() {
+        UUID near = UUID.randomUUID();
+        UUID far = UUID.randomUUID();
+        UUID moved = UUID.randomUUID();
+        index.update(moved, 40.7831, -73.9712);
+
+        index.updateAll(List.of(
+                new DriverLocationIndex.Position(far, 40.7831, -73.9712),
+                new DriverLocationIndex.Position(near, 40.7130, -74.0059),
+                new DriverLocationIndex.Position(moved, 40.7306, -73.9866)));
+        index.updateAll(List.of());
+
+        assertEquals(3, index.size());
+        assertEquals(List.of(near, moved, far), index.nearest(PICKUP_LAT, PICKUP_LNG, 3).stream()
+                .map(DriverLocationIndex.Neighbor::driverId).toList());
+        assertTrue(index.updateIfPresent(far, PICKUP_LAT, PICKUP_LNG));
+    }
+
+    @Test
+    void remove_DropsDriverFromBothSets() {
+        UUID driverId = UUID.randomUUID();
+        index.update(driverId, PICKUP_LAT, PICKUP_LNG);
+
+        index.remove(driverId);
+
+        assertFalse(index.contains(driverId));
+        assertFalse(index.updateIfPresent(driverId, PICKUP_LAT, PICKUP_LNG));
+        assertEquals(0L, redisTemplate.opsForZSet().zCard(RedisDriverGeoIndex.GEO_KEY));
+        assertEquals(0L, redisTemplate.opsForZSet().zCard(RedisDriverGeoIndex.SEEN_KEY));
+    }
+
+    @Test
+    void staleDrivers_AreIgnoredByQueriesUntilEvicted() {
+        UUID fresh = UUID.randomUUID();
+        UUID stale = UUID.randomUUID();
+        index.update(fresh, 40.7130, -74.0059);
+        addStale(Map.of(stale, new Point(-74.0060, 40.7128)));
+
+        assertEquals(List.of(fresh), index.nearest(PICKUP_LAT, PICKUP_LNG, 5).stream()
+                .map(DriverLocationIndex.Neighbor::driverId).toList());
+        assertEquals(1, index.size());
+        // Still a member until evicted, so a late ping brings the driver back
+        assertTrue(index.contains(stale));
+
+        index.evictStale();
+
+        assertFalse(index.contains(stale));
+        assertTrue(index.contains(fresh));
+        assertEquals(1L, redisTemplate.opsForZSet().zCard(RedisDriverGeoIndex.GEO_KEY));
+        assertFalse(index.updateIfPresent(stale, PICKUP_LAT, PICKUP_LNG));
+    }
+
+    @Test
+    void evictStale_RemovesMoreThanOneScriptBatch() {
+        Map<UUID, Point> stale = new HashMap<>();
+        for (int i = 0; i < 2_500; i++) {
+            stale.put(UUID.randomUUID(), new Point(-74.0 + i * 1e-5, 40.7));
+        }
+        addStale(stale);
+        UUID fresh = UUID.randomUUID();
+        index.update(fresh, PICKUP_LAT, PICKUP_LNG);
+
+        index.evictStale();
+
+        assertEquals(1L, redisTemplate.opsForZSet().zCard(RedisDriverGeoIndex.GEO_KEY));
+        assertEquals(1L, redisTemplate.opsForZSet().zCard(RedisDriverGeoIndex.SEEN_KEY));
+        assertTrue(index.contains(fresh));
+    }
+
+    /**
+     * Index drivers as last seen an hour ago, well past the TTL
+     */
+    private static void addStale(Map<UUID, Point> drivers) {
+        double lastSeen = System.currentTimeMillis() - 3_600_000;
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            byte[] geoKey = RedisDriverGeoIndex.GEO_KEY.getBytes(StandardCharsets.UTF_8);
+            byte[] seenKey = RedisDriverGeoIndex.SEEN_KEY.getBytes(StandardCharsets.UTF_8);
+            drivers.forEach((driverId, point) -> {
+                byte[] member = driverId.toString().getBytes(StandardCharsets.UTF_8);
+                connection.geoCommands().geoAdd(geoKey, point, member);
+                connection.zSetCommands().zAdd(seenKey, lastSeen, member);
+            });
+            return null;
+        });
+    }
+
+    private static String hashTag(String key) {
+        int open = key.indexOf('{');
+        int close = key.indexOf('}', open + 1);
+        assertTrue(open >= 0 && close > open + 1, "no hash tag in " + key);
+        return key.substring(open + 1, close);
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import tech.ceesar.glamme.common.event.EventPublisher;
@@ -61,6 +62,9 @@ class RideServiceTest {
     @Mock
     private EventPublisher eventPublisher;
 
+    @Spy
+    private DriverGeoIndex driverGeoIndex = new DriverGeoIndex(0.01);
+
     @InjectMocks
     private RideService rideService;
     
@@ -426,5 +430,61 @@ class RideServiceTest {
 
         // Verify driver is made available again
         verify(driverProfileRepository).save(argThat(driver -> driver.getAvailable()));
+        assertTrue(driverGeoIndex.contains(sampleDriver.getDriverId()));
+    }
+
+    @Test
+    void createRide_DispatchesNearestIndexedDriver() {
+        // Arrange
+        DriverProfile farDriver = sampleDriver.toBuilder()
+                .driverId(UUID.randomUUID())
+                .currentLatitude(BigDecimal.valueOf(40.7831))
+                .currentLongitude(BigDecimal.valueOf(-73.9712))
+                .build();
+        driverGeoIndex.update(farDriver.getDriverId(), farDriver.getCurrentLatitude(), farDriver.getCurrentLongitude());
+        driverGeoIndex.update(sampleDriver.getDriverId(), sampleDriver.getCurrentLatitude(), sampleDriver.getCurrentLongitude());
+
+        when(idempotencyService.startRideOperation(anyString(), anyString(), any())).thenReturn(true);
+        when(driverProfileRepository.findAllById(any())).thenReturn(List.of(farDriver, sampleDriver));
+        when(rideRequestRepository.save(any(RideRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        rideService.createRide(createRideRequest);
+
+        // Assert
+        verify(driverProfileRepository, never()).findByAvailableTrue();
+        verify(driverProfileRepository).save(argThat(driver ->
+                driver.getDriverId().equals(sampleDriver.getDriverId()) && !driver.getAvailable()));
+        assertFalse(driverGeoIndex.contains(sampleDriver.getDriverId()));
+        assertTrue(driverGeoIndex.contains(farDriver.getDriverId()));
+    }
+
+    @Test
+    void createRide_ColdIndexDispatchesNearestOnlineDriverAndReseedsOnce() {
+        // Arrange
+        DriverProfile offlineDriver = sampleDriver.toBuilder()
+                .driverId(UUID.randomUUID())
+                .online(false)
+                .build();
+        DriverProfile farDriver = sampleDriver.toBuilder()
+                .driverId(UUID.randomUUID())
+                .currentLatitude(BigDecimal.valueOf(40.7831))
+                .currentLongitude(BigDecimal.valueOf(-73.9712))
+                .build();
+
+        when(idempotencyService.startRideOperation(anyString(), anyString(), any())).thenReturn(true);
+        when(driverProfileRepository.findByAvailableTrue()).thenReturn(List.of(offlineDriver, farDriver, sampleDriver));
+        when(rideRequestRepository.save(any(RideRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        rideService.createRide(createRideRequest);
+
+        // Assert
+        verify(driverProfileRepository).save(argThat(driver ->
+                driver.getDriverId().equals(sampleDriver.getDriverId()) && !driver.getAvailable()));
+        verify(driverGeoIndex).updateAll(anyCollection());
+        assertFalse(driverGeoIndex.contains(offlineDriver.getDriverId()));
+        assertFalse(driverGeoIndex.contains(sampleDriver.getDriverId()));
+        assertTrue(driverGeoIndex.contains(farDriver.getDriverId()));
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,10 @@ package tech.ceesar.glamme.social;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "tech.ceesar.glamme")
+@EnableScheduling
 public class SocialServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(SocialServiceApplication.class, args);
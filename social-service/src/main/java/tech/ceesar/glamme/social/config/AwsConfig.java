@@ -3,8 +3,10 @@ package tech.ceesar.glamme.social.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 
 @Configuration
@@ -19,4 +21,19 @@ public class AwsConfig {
                 .credentialsProvider(DefaultCredentialsProvider.create())
                 .build();
     }
+
+    // Media uploads; files above the threshold go up as parallel multipart parts
+    @Bean
+    public S3AsyncClient s3AsyncClient(
+            @Value("${social.media.multipart-threshold:8MB}") DataSize multipartThreshold,
+            @Value("${social.media.multipart-part-size:8MB}") DataSize partSize) {
+        return S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .multipartEnabled(true)
+                .multipartConfiguration(multipart -> multipart
+                        .thresholdInBytes(multipartThreshold.toBytes())
+                        .minimumPartSizeInBytes(partSize.toBytes()))
+                .build();
+    }
 }
@@ -8,7 +8,9 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "blocks", uniqueConstraints = @UniqueConstraint(columnNames = {"blocker_id", "blocked_id"}))
+@Table(name = "blocks",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"blocker_id", "blocked_id"}),
+        indexes = @Index(name = "idx_blocks_blocked_id", columnList = "blocked_id"))
 @Getter
 @Setter
 @NoArgsConstructor
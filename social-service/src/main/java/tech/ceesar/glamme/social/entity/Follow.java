@@ -8,7 +8,9 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "follows", uniqueConstraints = @UniqueConstraint(columnNames = {"follower_id", "followed_id"}))
+@Table(name = "follows",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"follower_id", "followed_id"}),
+        indexes = @Index(name = "idx_follows_followed_id", columnList = "followed_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -8,7 +8,7 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "media")
+@Table(name = "media", indexes = @Index(name = "idx_media_post_id", columnList = "post_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -2,6 +2,7 @@ package tech.ceesar.glamme.social.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.Instant;
@@ -10,7 +11,7 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = @Index(name = "idx_posts_original_post_id", columnList = "original_post_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -36,6 +37,19 @@ public class Post {
     @JoinColumn(name = "original_post_id")
     private Post originalPost;
 
+    // Engagement totals, maintained by EngagementCounterService in periodic batches
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long likeCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long commentCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long repostCount;
+
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Media> media = new ArrayList<>();
@@ -6,7 +6,7 @@ import lombok.*;
 import java.util.UUID;
 
 @Entity
-@Table(name = "post_tags")
+@Table(name = "post_tags", indexes = @Index(name = "idx_post_tags_post_id", columnList = "post_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -1,12 +1,20 @@
 package tech.ceesar.glamme.social.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import tech.ceesar.glamme.social.entity.Block;
 
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface BlockRepository extends JpaRepository<Block, UUID> {
     boolean existsByBlockerIdAndBlockedId(UUID blocker, UUID blocked);
     Optional<Block> findByBlockerIdAndBlockedId(UUID blockerId, UUID blockedId);
+
+    // Users hidden from each other in either direction
+    @Query("SELECT CASE WHEN b.blockerId = :userId THEN b.blockedId ELSE b.blockerId END FROM Block b " +
+           "WHERE b.blockerId = :userId OR b.blockedId = :userId")
+    Set<UUID> findBlockRelatedUserIds(@Param("userId") UUID userId);
 }
@@ -7,6 +7,5 @@ import java.util.List;
 import java.util.UUID;
 
 public interface CommentRepository extends JpaRepository<Comment, UUID> {
-    List<Comment> findByPostId(UUID postId);
-    long countByPostId(UUID postId);
+    List<Comment> findByPostPostId(UUID postId);
 }
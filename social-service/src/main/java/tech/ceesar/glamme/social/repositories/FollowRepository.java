@@ -1,6 +1,8 @@
 package tech.ceesar.glamme.social.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import tech.ceesar.glamme.social.entity.Follow;
 
 import java.util.List;
@@ -11,4 +13,8 @@ public interface FollowRepository extends JpaRepository<Follow, UUID> {
     boolean existsByFollowerIdAndFollowedId(UUID follower, UUID followed);
     List<Follow> findByFollowerId(UUID followerId);
     Optional<Follow> findByFollowerIdAndFollowedId(UUID followerId, UUID followedId);
+    long countByFollowedId(UUID followedId);
+
+    @Query("SELECT f.followerId FROM Follow f WHERE f.followedId = :userId")
+    List<UUID> findFollowerIds(@Param("userId") UUID userId);
 }
@@ -3,9 +3,10 @@ package tech.ceesar.glamme.social.repositories;
 import org.springframework.data.jpa.repository.JpaRepository;
 import tech.ceesar.glamme.social.entity.Media;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface MediaRepository extends JpaRepository<Media, UUID> {
-    List<Media> findAllByPostId(UUID postId);
+    List<Media> findAllByPostPostIdIn(Collection<UUID> postIds);
 }
@@ -3,12 +3,27 @@ package tech.ceesar.glamme.social.repositories;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import tech.ceesar.glamme.social.entity.Post;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface PostRepository extends JpaRepository<Post, UUID> {
     Page<Post> findByUserIdIn(List<UUID> userIds, Pageable pageable);
-    long countByOriginalPostId(UUID originalPostId);
+
+    // Newest posts by the given authors, ids and timestamps only, for the timeline cache
+    @Query("SELECT p.postId AS postId, p.createdAt AS createdAt FROM Post p " +
+           "WHERE p.userId IN :userIds ORDER BY p.createdAt DESC")
+    List<TimelineEntry> findTimelineEntries(@Param("userIds") Collection<UUID> userIds, Pageable pageable);
+
+    long countByUserIdIn(Collection<UUID> userIds);
+
+    interface TimelineEntry {
+        UUID getPostId();
+        Instant getCreatedAt();
+    }
 }
@@ -0,0 +1,530 @@
+package tech.ceesar.glamme.social.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ceesar.glamme.common.service.RedisLockService;
+import tech.ceesar.glamme.common.service.SocialSearchService;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Like, comment and repost counters for posts, kept off the post row on the write path.
+ *
+ * Changes are added to striped in-memory counters, pushed every {@code push-interval-ms} to a
+ * Redis hash of pending deltas per post shared by all replicas, and applied to the post's count
+ * columns every {@code flush-interval-ms} as one batched UPDATE per flush, so a hot post costs
+ * one row update per flush however often it is liked. Flushed totals are mirrored to the search
+ * index in the same batches. A read is the post's stored count plus the pending deltas.
+ *
+ * A flush claims a post's deltas by moving them to {@code flushing:*} fields of the same hash under a
+ * lease, and deletes them only after the UPDATE commits; if the update fails they are folded back
+ * into the pending deltas. Claims are also registered in a lease set, so the deltas of a flusher
+ * that died mid-flush are taken over by another replica once {@code flush-lease-ms} passes. The
+ * lease must outlast any flush: a flush that commits after losing its lease is applied twice.
+ *
+ * The first replica to start against posts whose counts were never built recounts them from the
+ * source tables and records that in {@code post-counters:recounted}; deleting that key rebuilds the
+ * counts again on the next startup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EngagementCounterService {
+
+    public enum Counter {
+        LIKES, COMMENTS, REPOSTS;
+
+        private final byte[] field = name().toLowerCase().getBytes(StandardCharsets.UTF_8);
+        // Deltas claimed by a flush that has not committed yet
+        private final byte[] flushingField = ("flushing:" + name().toLowerCase()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final String DIRTY_KEY = "post-counters:dirty";
+    private static final String LEASES_KEY = "post-counters:leases";
+    private static final String RECOUNTED_KEY = "post-counters:recounted";
+    private static final String RECOUNT_LOCK = "post-counters:recount";
+
+    private static final long CLAIMED = 1;
+    private static final long BUSY = -1;
+
+    /**
+     * Claim a post's pending deltas for a flush: add them to the flushing fields, taking over a claim
+     * whose lease ran out, and lease the claim to ARGV[1] for ARGV[2] ms. Returns {1, likes, comments,
+     * reposts} when claimed, {0} when there is nothing to flush, {-1} while another flush holds the lease.
+     * KEYS[1] = the post's delta hash
+     */
+    private static final byte[] CLAIM_SCRIPT = """
+            local fields = {'likes', 'comments', 'reposts'}
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local leaseUntil = tonumber(redis.call('HGET', KEYS[1], 'flushing:until'))
+            if leaseUntil and leaseUntil > now then
+                return {-1}
+            end
+            local claimed = {1}
+            local any = false
+            for i, field in ipairs(fields) do
+                local value = tonumber(redis.call('HGET', KEYS[1], field) or '0')
+                        + tonumber(redis.call('HGET', KEYS[1], 'flushing:' .. field) or '0')
+                claimed[i + 1] = value
+                any = any or value ~= 0
+            end
+            if not any then
+                redis.call('DEL', KEYS[1])
+                return {0}
+            end
+            for i, field in ipairs(fields) do
+                redis.call('HDEL', KEYS[1], field)
+                redis.call('HSET', KEYS[1], 'flushing:' .. field, claimed[i + 1])
+            end
+            redis.call('HSET', KEYS[1], 'flushing:owner', ARGV[1], 'flushing:until', now + tonumber(ARGV[2]))
+            return claimed
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * End a claim held by ARGV[1]: drop the flushed deltas, or fold them back into the pending deltas
+     * when ARGV[2] is 1. Does nothing if the claim was taken over. KEYS[1] = the post's delta hash
+     */
+    private static final byte[] RELEASE_SCRIPT = """
+            if redis.call('HGET', KEYS[1], 'flushing:owner') ~= ARGV[1] then
+                return 0
+            end
+            for _, field in ipairs({'likes', 'comments', 'reposts'}) do
+                local value = redis.call('HGET', KEYS[1], 'flushing:' .. field)
+                if ARGV[2] == '1' and value and value ~= '0' then
+                    redis.call('HINCRBY', KEYS[1], field, value)
+                end
+                redis.call('HDEL', KEYS[1], 'flushing:' .. field)
+            end
+            redis.call('HDEL', KEYS[1], 'flushing:owner', 'flushing:until')
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private static final String APPLY_SQL = """
+            UPDATE posts
+               SET like_count = like_count + ?, comment_count = comment_count + ?, repost_count = repost_count + ?
+             WHERE post_id = ?
+            """;
+
+    private static final String RECOUNT_SQL = """
+            UPDATE posts p
+               SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = p.post_id),
+                   comment_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.post_id),
+                   repost_count = (SELECT COUNT(*) FROM posts r WHERE r.original_post_id = p.post_id)
+            """;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SocialSearchService searchService;
+    private final RedisLockService redisLockService;
+
+    @Value("${social.counters.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${social.counters.flush-lease-ms:600000}")
+    private long flushLeaseMs;
+
+    // Generation taking increments, and the one being pushed, if any, which reads still count
+    private volatile State state = new State(new Generation(), null);
+    // Held by a push while it moves deltas to Redis, so no read counts them in both places
+    private final ReadWriteLock pushLock = new ReentrantReadWriteLock();
+
+    /**
+     * Builds the posts' counts from the likes, comments and reposts if that was never done
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recount() {
+        String owner = UUID.randomUUID().toString();
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(RECOUNTED_KEY))
+                    || !redisLockService.acquireLock(RECOUNT_LOCK, owner, Duration.ofMinutes(10))) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("Engagement recount skipped: {}", e.getMessage());
+            return;
+        }
+        try {
+            // Another replica may have finished between the check and taking the lock
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(RECOUNTED_KEY))) {
+                int updated = jdbcTemplate.update(RECOUNT_SQL);
+                redisTemplate.opsForValue().set(RECOUNTED_KEY, Instant.now().toString());
+                log.info("Recounted engagement for {} posts", updated);
+            }
+        } catch (Exception e) {
+            log.warn("Engagement recount failed: {}", e.getMessage());
+        } finally {
+            redisLockService.releaseLock(RECOUNT_LOCK, owner);
+        }
+    }
+
+    /**
+     * Add {@code delta} to a post's counter once the surrounding transaction commits
+     */
+    public void increment(UUID postId, Counter counter, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(postId, counter, delta);
+                }
+            });
+        } else {
+            add(postId, counter, delta);
+        }
+    }
+
+    /**
+     * Changes not yet applied to the posts' stored counts, indexed by {@link Counter#ordinal()}.
+     * Posts without pending changes are absent.
+     */
+    public Map<UUID, long[]> pending(Collection<UUID> postIds) {
+        Map<UUID, long[]> pending = new HashMap<>();
+        if (postIds.isEmpty()) {
+            return pending;
+        }
+        List<UUID> ids = List.copyOf(postIds);
+        pushLock.readLock().lock();
+        try {
+            try {
+                List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (UUID postId : ids) {
+                        connection.hashCommands().hMGet(counterKey(postId),
+                                COUNTERS[0].field, COUNTERS[1].field, COUNTERS[2].field,
+                                COUNTERS[0].flushingField, COUNTERS[1].flushingField, COUNTERS[2].flushingField);
+                    }
+                    return null;
+                }, null);
+                for (int i = 0; i < ids.size(); i++) {
+                    List<?> values = (List<?>) replies.get(i);
+                    for (int field = 0; field < values.size(); field++) {
+                        Object value = values.get(field);
+                        if (value != null) {
+                            addTo(pending, ids.get(i), field % COUNTERS.length,
+                                    Long.parseLong(new String((byte[]) value, StandardCharsets.UTF_8)));
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Failed to read pending engagement counts", e);
+            }
+
+            State snapshot = state;
+            for (UUID postId : ids) {
+                LongAdder[] local = snapshot.current().deltas.get(postId);
+                LongAdder[] draining = snapshot.draining() != null ? snapshot.draining().deltas.get(postId) : null;
+                for (Counter counter : COUNTERS) {
+                    int i = counter.ordinal();
+                    long delta = (local != null ? local[i].sum() : 0) + (draining != null ? draining[i].sum() : 0);
+                    if (delta != 0) {
+                        addTo(pending, postId, i, delta);
+                    }
+                }
+            }
+        } finally {
+            pushLock.readLock().unlock();
+        }
+        return pending;
+    }
+
+    /**
+     * Move in-memory deltas to the shared Redis tier
+     */
+    @Scheduled(fixedDelayString = "${social.counters.push-interval-ms:1000}")
+    public void pushToRedis() {
+        Generation drained = state.current();
+        // Reads keep counting the drained generation until its deltas are in Redis
+        state = new State(new Generation(), drained);
+        // An increment that saw the old generation finishes before its deltas are read
+        while (drained.writers.sum() != 0) {
+            Thread.onSpinWait();
+        }
+
+        Map<UUID, long[]> deltas = new HashMap<>();
+        drained.deltas.forEach((postId, adders) -> {
+            long[] values = new long[COUNTERS.length];
+            boolean changed = false;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = adders[i].sum();
+                changed |= values[i] != 0;
+            }
+            if (changed) {
+                deltas.put(postId, values);
+            }
+        });
+        if (deltas.isEmpty()) {
+            state = new State(state.current(), null);
+            return;
+        }
+
+        pushLock.writeLock().lock();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                deltas.forEach((postId, values) -> {
+                    byte[] key = counterKey(postId);
+                    for (Counter counter : COUNTERS) {
+                        if (values[counter.ordinal()] != 0) {
+                            connection.hashCommands().hIncrBy(key, counter.field, values[counter.ordinal()]);
+                        }
+                    }
+                    connection.setCommands().sAdd(raw(DIRTY_KEY), raw(postId.toString()));
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            // Keep the deltas in memory and try again with the next push
+            log.error("Failed to push engagement deltas for {} posts", deltas.size(), e);
+            deltas.forEach((postId, values) -> {
+                for (Counter counter : COUNTERS) {
+                    if (values[counter.ordinal()] != 0) {
+                        add(postId, counter, values[counter.ordinal()]);
+                    }
+                }
+            });
+        } finally {
+            state = new State(state.current(), null);
+            pushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply pending deltas to the posts table and the search index in batches
+     */
+    @Scheduled(fixedDelayString = "${social.counters.flush-interval-ms:15000}")
+    public void flush() {
+        try {
+            recoverAbandonedClaims();
+            int flushed;
+            do {
+                flushed = flushBatch();
+            } while (flushed == flushBatchSize);
+        } catch (Exception e) {
+            log.error("Failed to flush engagement counters", e);
+        }
+    }
+
+    private int flushBatch() {
+        List<byte[]> members = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.setCommands().sPop(raw(DIRTY_KEY), flushBatchSize));
+        if (members == null || members.isEmpty()) {
+            return 0;
+        }
+        List<UUID> postIds = members.stream().map(m -> UUID.fromString(new String(m, StandardCharsets.UTF_8))).toList();
+        byte[] token = raw(UUID.randomUUID().toString());
+        byte[] lease = raw(String.valueOf(flushLeaseMs));
+
+        // Registered before claiming, so a claim left by a flusher that dies is found by the recovery pass
+        double leaseExpiry = System.currentTimeMillis() + flushLeaseMs;
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[] member : members) {
+                connection.zSetCommands().zAdd(raw(LEASES_KEY), leaseExpiry, member, RedisZSetCommands.ZAddArgs.ifNotExists());
+            }
+            return null;
+        });
+        // Each claim is atomic, so concurrent flushes on other replicas never apply the same deltas
+        List<Object> claims = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (UUID postId : postIds) {
+                connection.scriptingCommands().eval(CLAIM_SCRIPT, ReturnType.MULTI, 1, counterKey(postId), token, lease);
+            }
+            return null;
+        }, null);
+
+        List<UUID> ids = new ArrayList<>(postIds.size());
+        List<long[]> deltas = new ArrayList<>(postIds.size());
+        List<UUID> busy = new ArrayList<>();
+        List<UUID> empty = new ArrayList<>();
+        for (int i = 0; i < postIds.size(); i++) {
+            List<?> claim = (List<?>) claims.get(i);
+            long outcome = (Long) claim.get(0);
+            if (outcome == CLAIMED) {
+                ids.add(postIds.get(i));
+                long[] values = new long[COUNTERS.length];
+                for (int counter = 0; counter < values.length; counter++) {
+                    values[counter] = (Long) claim.get(counter + 1);
+                }
+                deltas.add(values);
+            } else if (outcome == BUSY) {
+                busy.add(postIds.get(i));
+            } else {
+                empty.add(postIds.get(i));
+            }
+        }
+        if (!busy.isEmpty() || !empty.isEmpty()) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                // Another flush holds these; look again next time for deltas that arrived after its claim
+                busy.forEach(postId -> connection.setCommands().sAdd(raw(DIRTY_KEY), raw(postId.toString())));
+                empty.forEach(postId -> connection.zSetCommands().zRem(raw(LEASES_KEY), raw(postId.toString())));
+                return null;
+            });
+        }
+        if (ids.isEmpty()) {
+            return members.size();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(APPLY_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    long[] values = deltas.get(i);
+                    ps.setLong(1, values[Counter.LIKES.ordinal()]);
+                    ps.setLong(2, values[Counter.COMMENTS.ordinal()]);
+                    ps.setLong(3, values[Counter.REPOSTS.ordinal()]);
+                    ps.setObject(4, ids.get(i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return ids.size();
+                }
+            }));
+        } catch (Exception e) {
+            // Put the deltas back so the next flush applies them
+            log.error("Failed to apply engagement deltas for {} posts", ids.size(), e);
+            release(ids, token, true);
+            return members.size();
+        }
+
+        release(ids, token, false);
+        indexTotals(ids);
+        return members.size();
+    }
+
+    /**
+     * Queue posts whose flush lease ran out, so the next flush takes over their claimed deltas
+     */
+    private void recoverAbandonedClaims() {
+        Set<byte[]> abandoned = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+                connection.zSetCommands().zRangeByScore(raw(LEASES_KEY), Double.NEGATIVE_INFINITY, System.currentTimeMillis()));
+        if (abandoned == null || abandoned.isEmpty()) {
+            return;
+        }
+        log.warn("Recovering engagement deltas of {} posts from expired flush claims", abandoned.size());
+        byte[][] members = abandoned.toArray(byte[][]::new);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.setCommands().sAdd(raw(DIRTY_KEY), members);
+            connection.zSetCommands().zRem(raw(LEASES_KEY), members);
+            return null;
+        });
+    }
+
+    private void indexTotals(List<UUID> postIds) {
+        try {
+            String placeholders = String.join(",", Collections.nCopies(postIds.size(), "?"));
+            Map<String, SocialSearchService.PostMetrics> metrics = new HashMap<>();
+            jdbcTemplate.query("SELECT post_id, like_count, comment_count, repost_count FROM posts WHERE post_id IN ("
+                            + placeholders + ")",
+                    rs -> {
+                        metrics.put(rs.getString("post_id"), new SocialSearchService.PostMetrics(
+                                rs.getLong("like_count"), rs.getLong("comment_count"), rs.getLong("repost_count")));
+                    },
+                    postIds.toArray());
+            searchService.updatePostMetrics(metrics);
+        } catch (Exception e) {
+            // The next change to these posts carries their totals to the index again
+            log.error("Failed to index engagement totals for {} posts", postIds.size(), e);
+        }
+    }
+
+    /**
+     * End this flush's claims, dropping the applied deltas or, when {@code restore} is set, putting
+     * them back to be flushed again
+     */
+    private void release(List<UUID> postIds, byte[] token, boolean restore) {
+        byte[] restoreFlag = raw(restore ? "1" : "0");
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (UUID postId : postIds) {
+                    byte[] member = raw(postId.toString());
+                    connection.scriptingCommands().eval(RELEASE_SCRIPT, ReturnType.INTEGER, 1, counterKey(postId),
+                            token, restoreFlag);
+                    if (restore) {
+                        connection.setCommands().sAdd(raw(DIRTY_KEY), member);
+                    }
+                    connection.zSetCommands().zRem(raw(LEASES_KEY), member);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // The claims stay leased and are taken over once the lease runs out
+            log.error("Failed to release flush claims for {} posts", postIds.size(), e);
+        }
+    }
+
+    private void add(UUID postId, Counter counter, long delta) {
+        while (true) {
+            Generation generation = state.current();
+            generation.writers.increment();
+            try {
+                // Lost the race with a push: the old generation may already be drained
+                if (generation != state.current()) {
+                    continue;
+                }
+                generation.deltas.computeIfAbsent(postId, id -> newAdders())[counter.ordinal()].add(delta);
+                return;
+            } finally {
+                generation.writers.decrement();
+            }
+        }
+    }
+
+    private static void addTo(Map<UUID, long[]> totals, UUID postId, int index, long delta) {
+        totals.computeIfAbsent(postId, id -> new long[COUNTERS.length])[index] += delta;
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[COUNTERS.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static byte[] counterKey(UUID postId) {
+        return raw("post-counters:" + postId);
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Generation {
+        private final Map<UUID, LongAdder[]> deltas = new ConcurrentHashMap<>();
+        // Increments in progress against this generation
+        private final LongAdder writers = new LongAdder();
+    }
+
+    private record State(Generation current, Generation draining) {
+    }
+}
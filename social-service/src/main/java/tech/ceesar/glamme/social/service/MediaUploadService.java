@@ -0,0 +1,127 @@
+package tech.ceesar.glamme.social.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import tech.ceesar.glamme.common.exception.BadRequestException;
+import tech.ceesar.glamme.social.entity.MediaType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads a post's media files to S3 side by side on the async client, so a post takes as long
+ * as its slowest file rather than the sum of all of them. Files above the client's multipart
+ * threshold are sent in parallel parts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MediaUploadService {
+
+    public record UploadedMedia(String key, MediaType type) {}
+
+    private final S3AsyncClient s3;
+
+    @Value("${aws.s3.bucket}")
+    private String bucket;
+
+    @Value("${social.media.upload-timeout-seconds:120}")
+    private long uploadTimeoutSeconds;
+
+    // Reads request bodies from the multipart streams; the SDK's event loop must never block on them
+    private final ExecutorService streamReaders = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "media-upload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        streamReaders.shutdown();
+    }
+
+    /**
+     * Upload all files under the post's prefix and wait for them, returning them in the given order.
+     * If any upload fails the others are abandoned and whatever was stored is deleted again.
+     */
+    public List<UploadedMedia> upload(UUID postId, List<MultipartFile> files) {
+        if (files.isEmpty()) {
+            return List.of();
+        }
+        List<UploadedMedia> media = new ArrayList<>(files.size());
+        List<CompletableFuture<?>> uploads = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                String ext = Optional.ofNullable(file.getOriginalFilename())
+                        .filter(n -> n.contains("."))
+                        .map(n -> n.substring(n.lastIndexOf('.'))).orElse("");
+                String key = "posts/" + postId + "/" + UUID.randomUUID() + ext;
+                MediaType type = file.getContentType() != null && file.getContentType().startsWith("video")
+                        ? MediaType.VIDEO : MediaType.IMAGE;
+                uploads.add(s3.putObject(PutObjectRequest.builder()
+                                .bucket(bucket)
+                                .key(key)
+                                .contentType(file.getContentType())
+                                .build(),
+                        AsyncRequestBody.fromInputStream(file.getInputStream(), file.getSize(), streamReaders)));
+                media.add(new UploadedMedia(key, type));
+            }
+            CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new))
+                    .get(uploadTimeoutSeconds, TimeUnit.SECONDS);
+            return media;
+        } catch (IOException | TimeoutException | ExecutionException e) {
+            log.error("Failed to upload media for post {}", postId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        uploads.forEach(upload -> upload.cancel(true));
+        deleteQuietly(media);
+        throw new BadRequestException("Failed to upload media");
+    }
+
+    private void deleteQuietly(List<UploadedMedia> media) {
+        if (media.isEmpty()) {
+            return;
+        }
+        s3.deleteObjects(DeleteObjectsRequest.builder()
+                        .bucket(bucket)
+                        .delete(Delete.builder()
+                                .quiet(true)
+                                .objects(media.stream()
+                                        .map(m -> ObjectIdentifier.builder().key(m.key()).build())
+                                        .toList())
+                                .build())
+                        .build())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        log.warn("Failed to clean up {} uploaded media objects", media.size(), error);
+                    }
+                });
+    }
+}
@@ -3,15 +3,12 @@ package tech.ceesar.glamme.social.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import tech.ceesar.glamme.common.dto.PagedResponse;
 import tech.ceesar.glamme.common.exception.BadRequestException;
 import tech.ceesar.glamme.common.exception.ResourceNotFoundException;
@@ -19,13 +16,16 @@ import tech.ceesar.glamme.social.dto.*;
 import tech.ceesar.glamme.social.entity.*;
 import tech.ceesar.glamme.social.repositories.*;
 
-import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,8 +38,10 @@ public class SocialService {
     private final CommentRepository commentRepo;
     private final FollowRepository followRepo;
     private final BlockRepository blockRepo;
+    private final TimelineService timelineService;
+    private final EngagementCounterService counters;
+    private final MediaUploadService mediaUploads;
 
-    private final S3Client s3;
     @Value("${aws.s3.bucket}")
     private String bucket;
 
@@ -54,45 +56,29 @@ public class SocialService {
             CreatePostRequest req,
             List<MultipartFile> files
     ) {
-        Post post = Post.builder()
+        Post post = postRepo.save(Post.builder()
                 .userId(userId)
                 .caption(req.getCaption())
-                .build();
-        post = postRepo.save(post);
-
-        // handle tags
-        for (UUID sty : req.getStylistIds()) {
-            tagRepo.save(PostTag.builder()
-                    .post(post)
-                    .stylistId(sty)
-                    .build());
-        }
+                .build());
 
-        // handle media upload
-        for (MultipartFile file : files) {
-            String ext = Optional.ofNullable(file.getOriginalFilename())
-                    .filter(n -> n.contains("."))
-                    .map(n -> n.substring(n.lastIndexOf('.'))).orElse("");
-            String key = "posts/" + post.getPostId() + "/" + UUID.randomUUID() + ext;
-            try {
-                s3.putObject(PutObjectRequest.builder()
-                                .bucket(bucket)
-                                .key(key)
-                                .contentType(file.getContentType())
-                                .build(),
-                        RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-            } catch (IOException e) {
-                throw new BadRequestException("Failed to upload media");
-            }
-            MediaType type = file.getContentType().startsWith("video")
-                    ? MediaType.VIDEO : MediaType.IMAGE;
-            mediaRepo.save(Media.builder()
-                    .post(post)
-                    .mediaUrl(buildUrl(key))
-                    .mediaType(type)
-                    .build());
-        }
+        // Tags and media are inserted in JDBC batches when the transaction flushes
+        tagRepo.saveAll(req.getStylistIds().stream()
+                .map(sty -> PostTag.builder()
+                        .post(post)
+                        .stylistId(sty)
+                        .build())
+                .toList());
 
+        // Uploads run concurrently; this waits for the slowest one
+        mediaRepo.saveAll(mediaUploads.upload(post.getPostId(), files).stream()
+                .map(m -> Media.builder()
+                        .post(post)
+                        .mediaUrl(buildUrl(m.key()))
+                        .mediaType(m.type())
+                        .build())
+                .toList());
+
+        timelineService.publish(post);
         return new CreatePostResponse(post.getPostId());
     }
 
@@ -104,30 +90,7 @@ public class SocialService {
                 || blockRepo.existsByBlockerIdAndBlockedId(userId, p.getUserId())) {
             throw new BadRequestException("Post not accessible");
         }
-        List<MediaDto> medias = mediaRepo.findAllByPostId(postId).stream()
-                .map(m -> MediaDto.builder()
-                        .id(m.getMediaId())
-                        .url(m.getMediaUrl())
-                        .type(m.getMediaType().name())
-                        .build())
-                .toList();
-        List<UUID> tags = tagRepo.findByPostId(postId).stream()
-                .map(PostTag::getStylistId).toList();
-        long likeCount = likeRepo.countByPostId(postId);
-        long commentCount = commentRepo.countByPostId(postId);
-        long repostCount = postRepo.countByOriginalPostId(postId);
-        return PostResponse.builder()
-                .id(p.getPostId())
-                .userId(p.getUserId())
-                .caption(p.getCaption())
-                .createdAt(p.getCreatedAt())
-                .media(medias)
-                .tags(tags)
-                .likeCount(likeCount)
-                .commentCount(commentCount)
-                .repostCount(repostCount)
-                .originalPostId(Optional.ofNullable(p.getOriginalPost()).map(Post::getPostId).orElse(null))
-                .build();
+        return toResponses(List.of(p)).get(0);
     }
 
     public PagedResponse<PostResponse> getFeed(UUID userId, int page, int size) {
@@ -137,37 +100,73 @@ public class SocialService {
                 .collect(Collectors.toCollection(ArrayList::new));
         followees.add(userId);
 
-        // 2) Page through posts by those users
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Post> postsPage = postRepo.findByUserIdIn(followees, pageable);
-
-        // 3) Map each Post entity *directly* to PostResponse, filtering out blocked posts
-        List<PostResponse> dtos = postsPage.getContent().stream()
-            .filter(p -> {
-                // Block-check: skip posts from/to blocked users
-                return !blockRepo.existsByBlockerIdAndBlockedId(p.getUserId(), userId) &&
-                       !blockRepo.existsByBlockerIdAndBlockedId(userId, p.getUserId());
-            })
-            .map(p -> {
-
-            // Media
-            List<MediaDto> mediaDtos = mediaRepo.findAllByPostId(p.getPostId()).stream()
-                    .map(m -> MediaDto.builder()
-                            .id(m.getMediaId())
-                            .url(m.getMediaUrl())
-                            .type(m.getMediaType().name())
-                            .build())
-                    .toList();
-
-            // Tags
-            List<UUID> tagIds = tagRepo.findByPostId(p.getPostId()).stream()
-                    .map(PostTag::getStylistId)
-                    .toList();
-
-            // Counts
-            long likeCount    = likeRepo.countByPostId(p.getPostId());
-            long commentCount = commentRepo.countByPostId(p.getPostId());
-            long repostCount  = postRepo.countByOriginalPostId(p.getPostId());
+        // 2) Page through posts by those users, from the cached timeline when it reaches this deep
+        Page<Post> postsPage = timelineService.readPage(userId, followees, page, size)
+                .map(this::loadPosts)
+                .orElseGet(() -> postRepo.findByUserIdIn(followees,
+                        PageRequest.of(page, size, Sort.by("createdAt").descending())));
+
+        // 3) Skip posts from/to blocked users, loading the viewer's block set once
+        Set<UUID> blocked = blockRepo.findBlockRelatedUserIds(userId);
+        List<Post> visible = postsPage.getContent().stream()
+                .filter(p -> !blocked.contains(p.getUserId()))
+                .toList();
+
+        // 4) Hydrate the whole page at once
+        List<PostResponse> dtos = toResponses(visible);
+
+        // 5) Return paged response
+        return PagedResponse.of(
+                dtos,
+                postsPage.getNumber(),
+                postsPage.getSize(),
+                postsPage.getTotalElements()
+        );
+    }
+
+    /**
+     * Load the posts for a page of timeline ids, keeping timeline order and skipping deleted posts
+     */
+    private Page<Post> loadPosts(Page<UUID> postIds) {
+        Map<UUID, Post> posts = postRepo.findAllById(postIds.getContent()).stream()
+                .collect(Collectors.toMap(Post::getPostId, Function.identity()));
+        List<Post> ordered = postIds.getContent().stream()
+                .map(posts::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(ordered, postIds.getPageable(), postIds.getTotalElements());
+    }
+
+    /**
+     * Map posts to responses with media, tags and counts loaded for all of them together,
+     * so the number of queries stays the same whatever the page size
+     */
+    private List<PostResponse> toResponses(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+        List<UUID> postIds = posts.stream().map(Post::getPostId).toList();
+
+        // Media
+        Map<UUID, List<MediaDto>> mediaByPost = mediaRepo.findAllByPostPostIdIn(postIds).stream()
+                .collect(Collectors.groupingBy(m -> m.getPost().getPostId(),
+                        Collectors.mapping(m -> MediaDto.builder()
+                                .id(m.getMediaId())
+                                .url(m.getMediaUrl())
+                                .type(m.getMediaType().name())
+                                .build(), Collectors.toList())));
+
+        // Tags
+        Map<UUID, List<UUID>> tagsByPost = tagRepo.findByPostPostIdIn(postIds).stream()
+                .collect(Collectors.groupingBy(t -> t.getPost().getPostId(),
+                        Collectors.mapping(PostTag::getStylistId, Collectors.toList())));
+
+        // Counts: stored totals plus changes not yet flushed to the post rows
+        Map<UUID, long[]> pending = counters.pending(postIds);
+        long[] none = new long[EngagementCounterService.Counter.values().length];
+
+        return posts.stream().map(p -> {
+            long[] delta = pending.getOrDefault(p.getPostId(), none);
 
             // Original
             UUID originalId = Optional.ofNullable(p.getOriginalPost())
@@ -180,22 +179,14 @@ public class SocialService {
                     .userId(p.getUserId())
                     .caption(p.getCaption())
                     .createdAt(p.getCreatedAt())
-                    .media(mediaDtos)
-                    .tags(tagIds)
-                    .likeCount(likeCount)
-                    .commentCount(commentCount)
-                    .repostCount(repostCount)
+                    .media(mediaByPost.getOrDefault(p.getPostId(), List.of()))
+                    .tags(tagsByPost.getOrDefault(p.getPostId(), List.of()))
+                    .likeCount(p.getLikeCount() + delta[EngagementCounterService.Counter.LIKES.ordinal()])
+                    .commentCount(p.getCommentCount() + delta[EngagementCounterService.Counter.COMMENTS.ordinal()])
+                    .repostCount(p.getRepostCount() + delta[EngagementCounterService.Counter.REPOSTS.ordinal()])
                     .originalPostId(originalId)
                     .build();
         }).toList();
-
-        // 4) Return paged response
-        return PagedResponse.of(
-                dtos,
-                postsPage.getNumber(),
-                postsPage.getSize(),
-                postsPage.getTotalElements()
-        );
     }
 
     @Transactional
@@ -206,6 +197,9 @@ public class SocialService {
             throw new BadRequestException("Not authorized");
         }
         postRepo.delete(p);
+        if (p.getOriginalPost() != null) {
+            counters.increment(p.getOriginalPost().getPostId(), EngagementCounterService.Counter.REPOSTS, -1);
+        }
     }
 
     @Transactional
@@ -215,12 +209,15 @@ public class SocialService {
                 .userId(userId)
                 .postId(postId)
                 .build());
+        counters.increment(postId, EngagementCounterService.Counter.LIKES, 1);
     }
 
     @Transactional
     public void unlikePost(UUID userId, UUID postId) {
-        likeRepo.findByUserIdAndPostId(userId, postId)
-                .ifPresent(likeRepo::delete);
+        likeRepo.findByUserIdAndPostId(userId, postId).ifPresent(like -> {
+            likeRepo.delete(like);
+            counters.increment(postId, EngagementCounterService.Counter.LIKES, -1);
+        });
     }
 
     @Transactional
@@ -232,11 +229,12 @@ public class SocialService {
                 .post(p)
                 .content(req.getContent())
                 .build());
+        counters.increment(postId, EngagementCounterService.Counter.COMMENTS, 1);
         return new CommentResponse(c.getCommentId(), c.getUserId(), c.getContent(), c.getCreatedAt());
     }
 
     public List<CommentResponse> getComments(UUID postId) {
-        return commentRepo.findByPostId(postId).stream()
+        return commentRepo.findByPostPostId(postId).stream()
                 .map(c -> new CommentResponse(c.getCommentId(), c.getUserId(), c.getContent(), c.getCreatedAt()))
                 .toList();
     }
@@ -253,6 +251,7 @@ public class SocialService {
                 .build();
         // persist, but ignore returned value so tests don't NPE
         followRepo.save(toSave);
+        timelineService.refresh(follower);
         return new FollowResponse(follower, followee);
     }
 
@@ -260,6 +259,7 @@ public class SocialService {
     public void unfollow(UUID follower, UUID followee) {
         followRepo.findByFollowerIdAndFollowedId(follower, followee)
                 .ifPresent(followRepo::delete);
+        timelineService.refresh(follower);
     }
 
     @Transactional
@@ -272,6 +272,7 @@ public class SocialService {
                 .blockedId(blocked)
                 .build();
         blockRepo.save(toSave);
+        timelineService.refresh(blocker, blocked);
         return new BlockResponse(blocker, blocked);
     }
 
@@ -279,6 +280,7 @@ public class SocialService {
     public void unblock(UUID blocker, UUID blocked) {
         blockRepo.findByBlockerIdAndBlockedId(blocker, blocked)
                 .ifPresent(blockRepo::delete);
+        timelineService.refresh(blocker, blocked);
     }
 
     @Transactional
@@ -291,6 +293,8 @@ public class SocialService {
                 .originalPost(original)
                 .build();
         rp = postRepo.save(rp);
+        counters.increment(postId, EngagementCounterService.Counter.REPOSTS, 1);
+        timelineService.publish(rp);
         return new CreatePostResponse(rp.getPostId());
     }
 }
@@ -0,0 +1,394 @@
+package tech.ceesar.glamme.social.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tech.ceesar.glamme.social.entity.Follow;
+import tech.ceesar.glamme.social.entity.Post;
+import tech.ceesar.glamme.social.repositories.BlockRepository;
+import tech.ceesar.glamme.social.repositories.FollowRepository;
+import tech.ceesar.glamme.social.repositories.PostRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Home timelines kept in Redis, one bounded sorted set of post ids per user scored by creation time.
+ *
+ * New posts are pushed to the timelines of the author's followers when they are written. Authors
+ * with more than {@code social.timeline.fanout-threshold} followers are not pushed; their posts
+ * are pulled from the database at read time and merged in. When an author crosses the threshold the
+ * cached timelines of their followers are dropped, so posts pushed before the switch are not also
+ * pulled; those timelines are rebuilt without the author on the next read. Timelines are only kept for users who
+ * read them: a missing timeline is rebuilt from the database on the next read and expires after
+ * {@code social.timeline.ttl-hours} without reads. Follow, unfollow, block and unblock rebuild the
+ * affected timelines so they gain or lose the other user's posts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineService {
+
+    private static final String PULL_AUTHORS_KEY = "timeline:pull-authors";
+
+    // Marks a timeline that was built but holds no posts, so it is not rebuilt on every read
+    private static final byte[] EMPTY_MARKER = "-".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Add a post to a timeline that already exists and trim it to its bound.
+     * KEYS[1] = timeline, ARGV[1] = score, ARGV[2] = post id, ARGV[3] = max entries, ARGV[4] = TTL ms
+     */
+    private static final byte[] PUSH_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -tonumber(ARGV[3]) - 1)
+            redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final PostRepository postRepo;
+    private final FollowRepository followRepo;
+    private final BlockRepository blockRepo;
+
+    @Value("${social.timeline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${social.timeline.max-entries:800}")
+    private int maxEntries;
+
+    @Value("${social.timeline.fanout-threshold:10000}")
+    private long fanoutThreshold;
+
+    @Value("${social.timeline.fanout-batch-size:500}")
+    private int fanoutBatchSize;
+
+    @Value("${social.timeline.ttl-hours:72}")
+    private long ttlHours;
+
+    @Value("${social.timeline.worker-threads:4}")
+    private int workerThreads;
+
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // When the queue is full the committing request thread does the work itself
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(10_000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "timeline-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Push a new post to its author's followers once the surrounding transaction commits
+     */
+    public void publish(Post post) {
+        if (enabled) {
+            afterCommit(() -> fanOut(post));
+        }
+    }
+
+    /**
+     * Rebuild the timelines of users whose follows or blocks changed, once the change commits.
+     * Users without a cached timeline are skipped; theirs is built on their next read.
+     */
+    public void refresh(UUID... userIds) {
+        if (enabled) {
+            afterCommit(() -> {
+                for (UUID userId : userIds) {
+                    try {
+                        if (Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                                connection.keyCommands().exists(timelineKey(userId))))) {
+                            rebuild(userId, followeesOf(userId));
+                        }
+                    } catch (Exception e) {
+                        log.error("Failed to refresh timeline for user {}", userId, e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * One page of post ids for the user's home timeline, newest first. Empty when the timeline
+     * cache is disabled or unavailable, or the page is deeper than the cached timeline reaches,
+     * in which case the caller should read the page from the database.
+     *
+     * @param followees the users the reader follows, including the reader
+     */
+    public Optional<Page<UUID>> readPage(UUID userId, List<UUID> followees, int page, int size) {
+        if (!enabled || size <= 0) {
+            return Optional.empty();
+        }
+        long needed = (long) (page + 1) * size;
+        try {
+            byte[] key = timelineKey(userId);
+            List<UUID> pullAuthors = pullAuthorsAmong(followees);
+
+            Long cached = redisTemplate.execute((RedisCallback<Long>) connection -> connection.zSetCommands().zCard(key));
+            if (cached == null || cached == 0) {
+                cached = (long) rebuild(userId, followees, pullAuthors);
+            }
+            if (cached >= maxEntries && needed > maxEntries) {
+                return Optional.empty();
+            }
+
+            List<Entry> entries = new ArrayList<>();
+            boolean hasMarker = Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection -> {
+                boolean marker = false;
+                for (Tuple tuple : connection.zSetCommands().zRevRangeWithScores(key, 0, needed - 1)) {
+                    if (isEmptyMarker(tuple.getValue())) {
+                        marker = true;
+                    } else {
+                        entries.add(new Entry(toUuid(tuple.getValue()), tuple.getScore()));
+                    }
+                }
+                connection.keyCommands().pExpire(key, ttlMillis());
+                return marker || connection.zSetCommands().zScore(key, EMPTY_MARKER) != null;
+            }));
+            long total = cached - (hasMarker ? 1 : 0);
+
+            if (!pullAuthors.isEmpty()) {
+                List<PostRepository.TimelineEntry> pulled = postRepo.findTimelineEntries(pullAuthors,
+                        PageRequest.of(0, (int) needed));
+                // A post pushed just before its author switched to pull can still be cached; count it once
+                Set<UUID> pulledIds = pulled.stream()
+                        .map(PostRepository.TimelineEntry::getPostId)
+                        .collect(Collectors.toSet());
+                int before = entries.size();
+                entries.removeIf(entry -> pulledIds.contains(entry.postId()));
+                total -= before - entries.size();
+                pulled.forEach(entry -> entries.add(new Entry(entry.getPostId(), score(entry.getCreatedAt()))));
+                total += postRepo.countByUserIdIn(pullAuthors);
+            }
+
+            List<UUID> postIds = entries.stream()
+                    .sorted(Comparator.comparingDouble(Entry::score).reversed())
+                    .skip((long) page * size)
+                    .limit(size)
+                    .map(Entry::postId)
+                    .toList();
+            return Optional.of(new PageImpl<>(postIds, PageRequest.of(page, size), total));
+        } catch (Exception e) {
+            log.error("Failed to read timeline for user {}", userId, e);
+            return Optional.empty();
+        }
+    }
+
+    private void fanOut(Post post) {
+        UUID authorId = post.getUserId();
+        try {
+            if (isPullAuthor(authorId)) {
+                return;
+            }
+            if (followRepo.countByFollowedId(authorId) >= fanoutThreshold) {
+                // Sticky, so the author's posts never go back to being pushed
+                Long added = redisTemplate.execute((RedisCallback<Long>) connection ->
+                        connection.setCommands().sAdd(raw(PULL_AUTHORS_KEY), raw(authorId.toString())));
+                if (added != null && added > 0) {
+                    dropTimelines(audienceOf(authorId));
+                }
+                return;
+            }
+
+            List<UUID> recipients = audienceOf(authorId);
+            byte[] score = raw(String.valueOf(score(Optional.ofNullable(post.getCreatedAt()).orElseGet(Instant::now))));
+            byte[] member = raw(post.getPostId().toString());
+            byte[] max = raw(String.valueOf(maxEntries));
+            byte[] ttl = raw(String.valueOf(ttlMillis()));
+            for (int from = 0; from < recipients.size(); from += fanoutBatchSize) {
+                List<UUID> batch = recipients.subList(from, Math.min(from + fanoutBatchSize, recipients.size()));
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (UUID recipient : batch) {
+                        connection.scriptingCommands().eval(PUSH_SCRIPT, ReturnType.INTEGER, 1,
+                                timelineKey(recipient), score, member, max, ttl);
+                    }
+                    return null;
+                });
+            }
+            if (isPullAuthor(authorId)) {
+                // The author switched to pull while this post was being pushed and the switch may have
+                // dropped the timelines before the push reached them
+                dropTimelines(recipients);
+            }
+        } catch (Exception e) {
+            // Followers still see the post once their timeline is rebuilt
+            log.error("Failed to fan out post {} by {}", post.getPostId(), authorId, e);
+        }
+    }
+
+    /**
+     * The author's followers and the author, whose timelines include the author's posts
+     */
+    private List<UUID> audienceOf(UUID authorId) {
+        List<UUID> audience = new ArrayList<>(followRepo.findFollowerIds(authorId));
+        audience.add(authorId);
+        return audience;
+    }
+
+    /**
+     * Delete cached timelines so they are rebuilt from the database on the next read
+     */
+    private void dropTimelines(List<UUID> userIds) {
+        for (int from = 0; from < userIds.size(); from += fanoutBatchSize) {
+            List<UUID> batch = userIds.subList(from, Math.min(from + fanoutBatchSize, userIds.size()));
+            redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.keyCommands().unlink(batch.stream().map(TimelineService::timelineKey).toArray(byte[][]::new)));
+        }
+    }
+
+    /**
+     * Replace the user's timeline with the newest posts by the pushed authors they follow.
+     * Returns the number of entries written, including the empty marker.
+     */
+    private int rebuild(UUID userId, List<UUID> followees) {
+        return rebuild(userId, followees, pullAuthorsAmong(followees));
+    }
+
+    private int rebuild(UUID userId, List<UUID> followees, List<UUID> pullAuthors) {
+        Set<UUID> authors = new LinkedHashSet<>(followees);
+        pullAuthors.forEach(authors::remove);
+        authors.removeAll(blockRepo.findBlockRelatedUserIds(userId));
+
+        Set<Tuple> tuples = new LinkedHashSet<>();
+        if (!authors.isEmpty()) {
+            postRepo.findTimelineEntries(authors, PageRequest.of(0, maxEntries)).forEach(entry ->
+                    tuples.add(new DefaultTuple(raw(entry.getPostId().toString()), score(entry.getCreatedAt()))));
+        }
+        if (tuples.size() < maxEntries) {
+            tuples.add(new DefaultTuple(EMPTY_MARKER, 0d));
+        }
+
+        // Built under a temporary key and renamed so readers never see a half-written timeline
+        byte[] key = timelineKey(userId);
+        byte[] staging = raw("timeline:{" + userId + "}:staging");
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.keyCommands().del(staging);
+            connection.zSetCommands().zAdd(staging, tuples);
+            connection.keyCommands().pExpire(staging, ttlMillis());
+            connection.keyCommands().rename(staging, key);
+            return null;
+        });
+        return tuples.size();
+    }
+
+    private List<UUID> followeesOf(UUID userId) {
+        List<UUID> followees = followRepo.findByFollowerId(userId).stream()
+                .map(Follow::getFollowedId)
+                .collect(Collectors.toCollection(ArrayList::new));
+        followees.add(userId);
+        return followees;
+    }
+
+    private List<UUID> pullAuthorsAmong(List<UUID> followees) {
+        if (followees.isEmpty()) {
+            return List.of();
+        }
+        byte[][] members = followees.stream().map(id -> raw(id.toString())).toArray(byte[][]::new);
+        List<Boolean> flags = redisTemplate.execute((RedisCallback<List<Boolean>>) connection ->
+                connection.setCommands().sMIsMember(raw(PULL_AUTHORS_KEY), members));
+        if (flags == null) {
+            return List.of();
+        }
+        List<UUID> pullAuthors = new ArrayList<>();
+        for (int i = 0; i < flags.size(); i++) {
+            if (Boolean.TRUE.equals(flags.get(i))) {
+                pullAuthors.add(followees.get(i));
+            }
+        }
+        return pullAuthors;
+    }
+
+    private boolean isPullAuthor(UUID userId) {
+        return Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.setCommands().sIsMember(raw(PULL_AUTHORS_KEY), raw(userId.toString()))));
+    }
+
+    private void afterCommit(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    workers.execute(task);
+                }
+            });
+        } else {
+            workers.execute(task);
+        }
+    }
+
+    private long ttlMillis() {
+        return TimeUnit.HOURS.toMillis(ttlHours);
+    }
+
+    // Hash tag keeps a timeline and its staging key in one cluster slot for the rename
+    private static byte[] timelineKey(UUID userId) {
+        return raw("timeline:{" + userId + "}");
+    }
+
+    private static double score(Instant createdAt) {
+        return createdAt.toEpochMilli();
+    }
+
+    private static boolean isEmptyMarker(byte[] value) {
+        return Arrays.equals(value, EMPTY_MARKER);
+    }
+
+    private static UUID toUuid(byte[] value) {
+        return UUID.fromString(new String(value, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Entry(UUID postId, double score) {
+    }
+}
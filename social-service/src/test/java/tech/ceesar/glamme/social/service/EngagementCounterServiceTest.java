@@ -0,0 +1,358 @@
+package tech.ceesar.glamme.social.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+import tech.ceesar.glamme.common.service.RedisLockService;
+import tech.ceesar.glamme.common.service.SocialSearchService;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EngagementCounterServiceTest {
+
+    private static final int LIKES = EngagementCounterService.Counter.LIKES.ordinal();
+    private static final int COMMENTS = EngagementCounterService.Counter.COMMENTS.ordinal();
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private SocialSearchService searchService;
+    private UUID post;
+    private UUID otherPost;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE posts (post_id UUID PRIMARY KEY, like_count BIGINT NOT NULL, "
+                + "comment_count BIGINT NOT NULL, repost_count BIGINT NOT NULL)");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        searchService = mock(SocialSearchService.class);
+        post = insertPost();
+        otherPost = insertPost();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void flush_appliesPushedDeltasInOneUpdatePerPost() {
+        EngagementCounterService counters = replica(jdbcTemplate);
+        counters.increment(post, EngagementCounterService.Counter.LIKES, 1);
+        counters.increment(post, EngagementCounterService.Counter.LIKES, 1);
+        counters.increment(post, EngagementCounterService.Counter.COMMENTS, 1);
+        counters.increment(otherPost, EngagementCounterService.Counter.LIKES, -1);
+
+        // Pending in memory, then in Redis
+        assertArrayEquals(new long[]{2, 1, 0}, counters.pending(List.of(post)).get(post));
+        counters.pushToRedis();
+        assertArrayEquals(new long[]{2, 1, 0}, counters.pending(List.of(post)).get(post));
+
+        counters.flush();
+
+        assertArrayEquals(new long[]{2, 1, 0}, stored(post));
+        assertArrayEquals(new long[]{-1, 0, 0}, stored(otherPost));
+        assertTrue(counters.pending(List.of(post, otherPost)).isEmpty());
+        verify(searchService).updatePostMetrics(argThat(metrics -> metrics.size() == 2));
+        assertEquals(0L, redisTemplate.opsForSet().size("post-counters:dirty"));
+        assertEquals(0L, redisTemplate.opsForZSet().zCard("post-counters:leases"));
+    }
+
+    @Test
+    void concurrentIncrementsDuringPushes_AreNeitherLostNorDoubled() throws InterruptedException {
+        EngagementCounterService counters = replica(jdbcTemplate);
+        int threads = 4;
+        int incrementsPerThread = 5_000;
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread pusher = new Thread(() -> {
+            while (running.get()) {
+                counters.pushToRedis();
+            }
+        });
+        pusher.start();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    counters.increment(i % 2 == 0 ? post : otherPost, EngagementCounterService.Counter.LIKES, 1);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        running.set(false);
+        pusher.join();
+
+        long expectedPerPost = threads * incrementsPerThread / 2;
+        Map<UUID, long[]> pending = counters.pending(List.of(post, otherPost));
+        assertEquals(expectedPerPost, pending.get(post)[LIKES]);
+        assertEquals(expectedPerPost, pending.get(otherPost)[LIKES]);
+
+        counters.pushToRedis();
+        counters.flush();
+        assertEquals(expectedPerPost, stored(post)[LIKES]);
+        assertEquals(expectedPerPost, stored(otherPost)[LIKES]);
+    }
+
+    @Test
+    void pending_SeesEachDeltaOnceWhileAPushSwapsGenerations() throws InterruptedException {
+        EngagementCounterService counters = replica(jdbcTemplate);
+        AtomicReference<String> mismatch = new AtomicReference<>();
+        long expected = 0;
+        for (int round = 0; round < 200 && mismatch.get() == null; round++) {
+            counters.increment(post, EngagementCounterService.Counter.LIKES, 3);
+            expected += 3;
+            long total = expected;
+
+            CountDownLatch ready = new CountDownLatch(1);
+            AtomicBoolean pushed = new AtomicBoolean();
+            Thread reader = new Thread(() -> {
+                ready.countDown();
+                // Keep reading until the push is over, so reads overlap every step of it
+                do {
+                    long[] seen = counters.pending(List.of(post)).get(post);
+                    if (seen == null || seen[LIKES] != total) {
+                        mismatch.compareAndSet(null, "expected " + total + " but read "
+                                + (seen == null ? "nothing" : seen[LIKES]));
+                    }
+                } while (!pushed.get());
+            });
+            reader.start();
+            ready.await();
+            counters.pushToRedis();
+            pushed.set(true);
+            reader.join();
+        }
+        assertNull(mismatch.get());
+    }
+
+    @Test
+    void replicasFlushingTogether_ApplyEachDeltaOnce() throws InterruptedException {
+        EngagementCounterService first = replica(jdbcTemplate);
+        EngagementCounterService second = replica(jdbcTemplate);
+        List<UUID> posts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            posts.add(insertPost());
+        }
+        for (int round = 0; round < 5; round++) {
+            for (UUID postId : posts) {
+                first.increment(postId, EngagementCounterService.Counter.LIKES, 1);
+                second.increment(postId, EngagementCounterService.Counter.LIKES, 1);
+                second.increment(postId, EngagementCounterService.Counter.COMMENTS, 1);
+            }
+            first.pushToRedis();
+            second.pushToRedis();
+
+            Thread flushFirst = new Thread(first::flush);
+            Thread flushSecond = new Thread(second::flush);
+            flushFirst.start();
+            flushSecond.start();
+            flushFirst.join();
+            flushSecond.join();
+        }
+        // Posts skipped while the other replica held their claim are picked up by the next flush
+        first.flush();
+
+        for (UUID postId : posts) {
+            assertArrayEquals(new long[]{10, 5, 0}, stored(postId), postId.toString());
+        }
+        assertTrue(first.pending(posts).isEmpty());
+    }
+
+    @Test
+    void failedUpdate_PutsTheDeltasBackForTheNextFlush() {
+        JdbcTemplate failing = spy(jdbcTemplate);
+        doThrow(new IllegalStateException("database down"))
+                .when(failing).batchUpdate(anyString(), any(org.springframework.jdbc.core.BatchPreparedStatementSetter.class));
+        EngagementCounterService broken = replica(failing);
+        broken.increment(post, EngagementCounterService.Counter.LIKES, 4);
+        broken.pushToRedis();
+
+        broken.flush();
+
+        assertArrayEquals(new long[]{0, 0, 0}, stored(post));
+        assertArrayEquals(new long[]{4, 0, 0}, broken.pending(List.of(post)).get(post));
+        assertEquals(1L, redisTemplate.opsForSet().size("post-counters:dirty"));
+
+        EngagementCounterService healthy = replica(jdbcTemplate);
+        healthy.flush();
+        assertArrayEquals(new long[]{4, 0, 0}, stored(post));
+        assertTrue(healthy.pending(List.of(post)).isEmpty());
+    }
+
+    @Test
+    void claimOfAFlusherThatDied_IsTakenOverOnceItsLeaseRunsOut() {
+        EngagementCounterService counters = replica(jdbcTemplate);
+        // What a replica that died between claiming and committing leaves behind
+        leaveClaim(post, "dead-replica", System.currentTimeMillis() - 1);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.zSetCommands().zAdd(raw("post-counters:leases"), System.currentTimeMillis() - 1, raw(post.toString()));
+        }
+        counters.increment(post, EngagementCounterService.Counter.LIKES, 2);
+        counters.pushToRedis();
+
+        // Claimed deltas still count towards reads while they are unapplied
+        assertEquals(7, counters.pending(List.of(post)).get(post)[LIKES]);
+        counters.flush();
+
+        assertArrayEquals(new long[]{7, 0, 0}, stored(post));
+        assertTrue(counters.pending(List.of(post)).isEmpty());
+        assertEquals(0L, redisTemplate.opsForZSet().zCard("post-counters:leases"));
+    }
+
+    @Test
+    void liveClaim_IsLeftToItsFlusher() {
+        EngagementCounterService counters = replica(jdbcTemplate);
+        leaveClaim(post, "other-replica", System.currentTimeMillis() + 60_000);
+        counters.increment(post, EngagementCounterService.Counter.COMMENTS, 1);
+        counters.pushToRedis();
+
+        counters.flush();
+
+        assertArrayEquals(new long[]{0, 0, 0}, stored(post));
+        assertArrayEquals(new long[]{5, 1, 0}, counters.pending(List.of(post)).get(post));
+        // Queued again for the deltas that arrived after the other replica's claim
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            assertTrue(connection.setCommands().sIsMember(raw("post-counters:dirty"), raw(post.toString())));
+        }
+        assertEquals(1, counters.pending(List.of(post)).get(post)[COMMENTS]);
+    }
+
+    @Test
+    void recount_BuildsTheCountsOnceAcrossReplicasAndRestarts() {
+        jdbcTemplate.execute("ALTER TABLE posts ADD COLUMN original_post_id UUID");
+        jdbcTemplate.execute("CREATE TABLE likes (post_id UUID NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE comments (post_id UUID NOT NULL)");
+        jdbcTemplate.update("INSERT INTO likes (post_id) VALUES (?), (?), (?)", post, post, otherPost);
+        jdbcTemplate.update("INSERT INTO comments (post_id) VALUES (?)", post);
+        UUID repost = insertPost();
+        jdbcTemplate.update("UPDATE posts SET original_post_id = ? WHERE post_id = ?", post, repost);
+
+        replica(jdbcTemplate).recount();
+
+        assertArrayEquals(new long[]{2, 1, 1}, stored(post));
+        assertArrayEquals(new long[]{1, 0, 0}, stored(otherPost));
+        assertTrue(redisTemplate.hasKey("post-counters:recounted"));
+        assertFalse(redisTemplate.hasKey("lock:post-counters:recount"));
+
+        // Flushed totals are kept by later startups
+        jdbcTemplate.update("UPDATE posts SET like_count = 7 WHERE post_id = ?", post);
+        replica(jdbcTemplate).recount();
+        assertEquals(7, stored(post)[LIKES]);
+    }
+
+    @Test
+    void recount_IsLeftToTheReplicaHoldingTheLock() {
+        jdbcTemplate.execute("CREATE TABLE likes (post_id UUID NOT NULL)");
+        jdbcTemplate.update("INSERT INTO likes (post_id) VALUES (?)", post);
+        new RedisLockService(redisTemplate).acquireLock("post-counters:recount", "other", Duration.ofMinutes(1));
+
+        replica(jdbcTemplate).recount();
+
+        assertArrayEquals(new long[]{0, 0, 0}, stored(post));
+        assertFalse(redisTemplate.hasKey("post-counters:recounted"));
+    }
+
+    private EngagementCounterService replica(JdbcTemplate jdbc) {
+        EngagementCounterService counters = new EngagementCounterService(redisTemplate, jdbc, transactionTemplate, searchService,
+                new RedisLockService(redisTemplate));
+        ReflectionTestUtils.setField(counters, "flushBatchSize", 500);
+        ReflectionTestUtils.setField(counters, "flushLeaseMs", 60_000L);
+        return counters;
+    }
+
+    /**
+     * Write a flush claim of 5 likes straight into the post's delta hash
+     */
+    private static void leaveClaim(UUID postId, String owner, long leaseUntil) {
+        Map<String, String> fields = Map.of("flushing:likes", "5", "flushing:comments", "0", "flushing:reposts", "0",
+                "flushing:owner", owner, "flushing:until", String.valueOf(leaseUntil));
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            fields.forEach((field, value) -> connection.hashCommands().hSet(raw("post-counters:" + postId),
+                    raw(field), raw(value)));
+        }
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private UUID insertPost() {
+        UUID postId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO posts (post_id, like_count, comment_count, repost_count) VALUES (?, 0, 0, 0)", postId);
+        return postId;
+    }
+
+    private long[] stored(UUID postId) {
+        return jdbcTemplate.queryForObject("SELECT like_count, comment_count, repost_count FROM posts WHERE post_id = ?",
+                (rs, row) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}, postId);
+    }
+}
@@ -0,0 +1,104 @@
+package tech.ceesar.glamme.social.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import tech.ceesar.glamme.common.dto.PagedResponse;
+import tech.ceesar.glamme.social.dto.PostResponse;
+import tech.ceesar.glamme.social.entity.*;
+import tech.ceesar.glamme.social.repositories.*;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Counts the SQL statements {@link SocialService#getFeed} issues against an in-memory database,
+ * to show that hydrating a page costs the same number of queries whatever its size.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class FeedQueryCountTest {
+
+    @Autowired PostRepository postRepo;
+    @Autowired MediaRepository mediaRepo;
+    @Autowired PostTagRepository tagRepo;
+    @Autowired LikeRepository likeRepo;
+    @Autowired CommentRepository commentRepo;
+    @Autowired FollowRepository followRepo;
+    @Autowired BlockRepository blockRepo;
+    @Autowired EntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+
+    private SocialService service;
+    private Statistics statistics;
+    private final UUID viewer = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        service = new SocialService(postRepo, mediaRepo, tagRepo, likeRepo, commentRepo,
+                followRepo, blockRepo, mock(TimelineService.class),
+                mock(EngagementCounterService.class), mock(MediaUploadService.class));
+        ReflectionTestUtils.setField(service, "bucket", "bucket");
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        UUID followed = UUID.randomUUID();
+        UUID blocked = UUID.randomUUID();
+        followRepo.save(Follow.builder().followerId(viewer).followedId(followed).build());
+        followRepo.save(Follow.builder().followerId(viewer).followedId(blocked).build());
+        blockRepo.save(Block.builder().blockerId(blocked).blockedId(viewer).build());
+
+        Post original = postRepo.save(Post.builder().userId(followed).caption("original").build());
+        for (int i = 0; i < 60; i++) {
+            UUID author = i % 10 == 0 ? blocked : followed;
+            Post post = postRepo.save(Post.builder().userId(author).caption("post " + i)
+                    .originalPost(i % 7 == 0 ? original : null).likeCount(1).commentCount(1).build());
+            mediaRepo.save(Media.builder().post(post).mediaUrl("url-" + i).mediaType(MediaType.IMAGE).build());
+            tagRepo.save(PostTag.builder().post(post).stylistId(UUID.randomUUID()).build());
+            likeRepo.save(Like.builder().userId(UUID.randomUUID()).postId(post.getPostId()).build());
+            commentRepo.save(Comment.builder().userId(viewer).post(post).content("nice").build());
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void getFeed_issuesSameNumberOfQueriesForAnyPageSize() {
+        long small = queriesFor(2);
+        long medium = queriesFor(20);
+        long large = queriesFor(50);
+
+        assertEquals(small, medium);
+        assertEquals(small, large);
+    }
+
+    @Test
+    void getFeed_hydratesMediaTagsAndCounts() {
+        entityManager.clear();
+        PagedResponse<PostResponse> feed = service.getFeed(viewer, 0, 20);
+
+        // Every tenth post is from a user who blocked the viewer
+        assertEquals(18, feed.getContent().size());
+        for (PostResponse post : feed.getContent()) {
+            assertEquals(1, post.getMedia().size());
+            assertEquals(1, post.getTags().size());
+            assertEquals(1L, post.getLikeCount());
+            assertEquals(1L, post.getCommentCount());
+        }
+    }
+
+    private long queriesFor(int pageSize) {
+        entityManager.clear();
+        statistics.clear();
+        service.getFeed(viewer, 0, pageSize);
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,114 @@
+package tech.ceesar.glamme.social.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import tech.ceesar.glamme.common.exception.BadRequestException;
+import tech.ceesar.glamme.social.entity.MediaType;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MediaUploadServiceTest {
+
+    private S3AsyncClient s3;
+    private MediaUploadService service;
+    private final List<CompletableFuture<PutObjectResponse>> puts = new CopyOnWriteArrayList<>();
+    private final List<String> keys = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void init() {
+        s3 = mock(S3AsyncClient.class);
+        when(s3.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenAnswer(i -> {
+            keys.add(i.getArgument(0, PutObjectRequest.class).key());
+            CompletableFuture<PutObjectResponse> put = new CompletableFuture<>();
+            puts.add(put);
+            return put;
+        });
+        when(s3.deleteObjects(any(DeleteObjectsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build()));
+        service = new MediaUploadService(s3);
+        ReflectionTestUtils.setField(service, "bucket", "bucket");
+        ReflectionTestUtils.setField(service, "uploadTimeoutSeconds", 10L);
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void upload_startsAllFilesBeforeWaitingOnAny() throws Exception {
+        UUID postId = UUID.randomUUID();
+        List<MultipartFile> files = List.of(
+                file("a.jpg", "image/jpeg"), file("b.png", "image/png"), file("clip.mp4", "video/mp4"));
+
+        CompletableFuture<List<MediaUploadService.UploadedMedia>> result =
+                CompletableFuture.supplyAsync(() -> service.upload(postId, files));
+
+        // All three requests are in flight while none has completed
+        waitFor(() -> puts.size() == 3);
+        assertFalse(result.isDone());
+        puts.forEach(put -> put.complete(PutObjectResponse.builder().build()));
+
+        List<MediaUploadService.UploadedMedia> media = result.get(5, TimeUnit.SECONDS);
+        assertEquals(keys, media.stream().map(MediaUploadService.UploadedMedia::key).toList());
+        assertEquals(List.of(MediaType.IMAGE, MediaType.IMAGE, MediaType.VIDEO),
+                media.stream().map(MediaUploadService.UploadedMedia::type).toList());
+        assertTrue(media.get(2).key().startsWith("posts/" + postId + "/") && media.get(2).key().endsWith(".mp4"));
+        verify(s3, never()).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @Test
+    void upload_failureDeletesWhatWasStored() throws Exception {
+        List<MultipartFile> files = List.of(file("a.jpg", "image/jpeg"), file("b.jpg", "image/jpeg"));
+
+        CompletableFuture<List<MediaUploadService.UploadedMedia>> result =
+                CompletableFuture.supplyAsync(() -> service.upload(UUID.randomUUID(), files));
+        waitFor(() -> puts.size() == 2);
+        puts.get(0).complete(PutObjectResponse.builder().build());
+        puts.get(1).completeExceptionally(new IllegalStateException("boom"));
+
+        Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BadRequestException.class, e.getCause());
+        verify(s3).deleteObjects(argThat((DeleteObjectsRequest request) -> request.delete().objects().stream()
+                .map(ObjectIdentifier::key).toList().equals(keys)));
+    }
+
+    @Test
+    void upload_withoutFiles_doesNothing() {
+        assertEquals(List.of(), service.upload(UUID.randomUUID(), List.of()));
+        verifyNoInteractions(s3);
+    }
+
+    private static MultipartFile file(String name, String contentType) {
+        return new MockMultipartFile("files", name, contentType, new byte[]{1, 2, 3});
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for uploads to start");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -5,9 +5,6 @@ import org.mockito.*;
 import org.springframework.data.domain.*;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.*;
 import tech.ceesar.glamme.common.dto.PagedResponse;
 import tech.ceesar.glamme.common.exception.BadRequestException;
 import tech.ceesar.glamme.social.dto.CreatePostRequest;
@@ -16,16 +13,22 @@ import tech.ceesar.glamme.social.dto.PostResponse;
 import tech.ceesar.glamme.social.entity.Block;
 import tech.ceesar.glamme.social.entity.Follow;
 import tech.ceesar.glamme.social.entity.Like;
+import tech.ceesar.glamme.social.entity.Media;
+import tech.ceesar.glamme.social.entity.MediaType;
 import tech.ceesar.glamme.social.entity.Post;
+import tech.ceesar.glamme.social.entity.PostTag;
 import tech.ceesar.glamme.social.repositories.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -43,7 +46,9 @@ public class SocialServiceTest {
     @Mock
     FollowRepository followRepo;
     @Mock BlockRepository blockRepo;
-    @Mock S3Client s3;
+    @Mock MediaUploadService mediaUploads;
+    @Mock TimelineService timelineService;
+    @Mock EngagementCounterService counters;
     @InjectMocks SocialService service;
 
     @BeforeEach
@@ -63,20 +68,22 @@ public class SocialServiceTest {
         Post savedPost = new Post();
         savedPost.setPostId(UUID.randomUUID());
         when(postRepo.save(any())).thenReturn(savedPost);
-        when(tagRepo.save(any())).thenAnswer(i -> i.getArgument(0));
-        when(mediaRepo.save(any())).thenAnswer(i -> i.getArgument(0));
-        // stub S3 putObject
-        when(s3.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
-                .thenReturn(PutObjectResponse.builder().build());
-
         MockMultipartFile file = new MockMultipartFile(
                 "files", "pic.jpg", "image/jpeg", "data".getBytes());
+        when(mediaUploads.upload(savedPost.getPostId(), List.of(file)))
+                .thenReturn(List.of(new MediaUploadService.UploadedMedia("posts/pic.jpg", MediaType.IMAGE)));
+
         CreatePostResponse resp = service.createPost(
                 userId, req, List.of(file));
 
         assertEquals(savedPost.getPostId(), resp.getPostId());
-        verify(s3).putObject(any(PutObjectRequest.class), any(RequestBody.class));
-        verify(tagRepo).save(any());
+        verify(mediaUploads).upload(savedPost.getPostId(), List.of(file));
+        // One batched insert per relation rather than a save per row
+        verify(tagRepo).saveAll(argThat(tags -> ((List<?>) tags).size() == 1));
+        verify(mediaRepo).saveAll(argThat(media -> ((List<Media>) media).get(0).getMediaUrl()
+                .equals("https://bucket.s3.amazonaws.com/posts%2Fpic.jpg")));
+        verify(tagRepo, never()).save(any());
+        verify(mediaRepo, never()).save(any());
     }
 
     @Test
@@ -131,6 +138,8 @@ public class SocialServiceTest {
 
         CreatePostResponse r = service.repost(u1, orig);
         assertEquals(newp.getPostId(), r.getPostId());
+        verify(timelineService).publish(newp);
+        verify(counters).increment(orig, EngagementCounterService.Counter.REPOSTS, 1);
     }
 
     @Test
@@ -144,11 +153,8 @@ public class SocialServiceTest {
         when(postRepo.findByUserIdIn(List.of(u2,u1), PageRequest.of(0,1,Sort.by("createdAt").descending())))
                 .thenReturn(page);
         when(blockRepo.existsByBlockerIdAndBlockedId(any(),any())).thenReturn(false);
-        when(mediaRepo.findAllByPostId(p.getPostId())).thenReturn(List.of());
-        when(tagRepo.findByPostId(p.getPostId())).thenReturn(List.of());
-        when(likeRepo.countByPostId(p.getPostId())).thenReturn(0L);
-        when(commentRepo.countByPostId(p.getPostId())).thenReturn(0L);
-        when(postRepo.countByOriginalPostId(p.getPostId())).thenReturn(0L);
+        when(mediaRepo.findAllByPostPostIdIn(List.of(p.getPostId()))).thenReturn(List.of());
+        when(tagRepo.findByPostPostIdIn(List.of(p.getPostId()))).thenReturn(List.of());
 
         PagedResponse<PostResponse> feed = service.getFeed(u1,0,1);
         assertEquals(1, feed.getContent().size());
@@ -171,8 +177,8 @@ public class SocialServiceTest {
 
         assertEquals(savedPost.getPostId(), resp.getPostId());
         verify(postRepo).save(any());
-        // Should not upload any media
-        verify(s3, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        // Should not store any media
+        verify(mediaRepo).saveAll(List.of());
     }
 
     @Test
@@ -222,27 +228,111 @@ public class SocialServiceTest {
                     new Follow(null, u1, u3, null)
                 ));
         
-        Post p2 = new Post(); p2.setPostId(UUID.randomUUID()); p2.setUserId(u2);
+        Post p2 = new Post(); p2.setPostId(UUID.randomUUID()); p2.setUserId(u2); p2.setLikeCount(4L);
         Post p3 = new Post(); p3.setPostId(UUID.randomUUID()); p3.setUserId(u3);
         
         Page<Post> page = new PageImpl<>(List.of(p2, p3), PageRequest.of(0, 10), 2);
         when(postRepo.findByUserIdIn(any(), any())).thenReturn(page);
         
         // u1 has blocked u3
-        when(blockRepo.existsByBlockerIdAndBlockedId(u1, u2)).thenReturn(false);
-        when(blockRepo.existsByBlockerIdAndBlockedId(u1, u3)).thenReturn(true);
+        when(blockRepo.findBlockRelatedUserIds(u1)).thenReturn(Set.of(u3));
         
         // Mock other dependencies for p2 only (p3 should be filtered out)
-        when(mediaRepo.findAllByPostId(p2.getPostId())).thenReturn(List.of());
-        when(tagRepo.findByPostId(p2.getPostId())).thenReturn(List.of());
-        when(likeRepo.countByPostId(p2.getPostId())).thenReturn(5L);
-        when(commentRepo.countByPostId(p2.getPostId())).thenReturn(2L);
-        when(postRepo.countByOriginalPostId(p2.getPostId())).thenReturn(1L);
+        when(mediaRepo.findAllByPostPostIdIn(List.of(p2.getPostId()))).thenReturn(List.of());
+        when(tagRepo.findByPostPostIdIn(List.of(p2.getPostId()))).thenReturn(List.of());
+        // Stored totals plus deltas not yet flushed
+        when(counters.pending(List.of(p2.getPostId())))
+                .thenReturn(Map.of(p2.getPostId(), new long[]{1L, 2L, 1L}));
 
         PagedResponse<PostResponse> feed = service.getFeed(u1, 0, 10);
         
         // Should only contain post from u2 (u3 is blocked)
         assertEquals(1, feed.getContent().size());
+        assertEquals(5L, feed.getContent().get(0).getLikeCount());
+        assertEquals(2L, feed.getContent().get(0).getCommentCount());
+        assertEquals(1L, feed.getContent().get(0).getRepostCount());
+    }
+
+    @Test
+    void getFeed_hydratesWholePageWithOneQueryPerRelation() {
+        UUID u1 = UUID.randomUUID(), u2 = UUID.randomUUID();
+        when(followRepo.findByFollowerId(u1))
+                .thenReturn(List.of(new Follow(null, u1, u2, null)));
+
+        List<Post> posts = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Post p = new Post(); p.setPostId(UUID.randomUUID()); p.setUserId(u2);
+            posts.add(p);
+        }
+        Post first = posts.get(0);
+        first.setLikeCount(3L);
+        when(postRepo.findByUserIdIn(any(), any())).thenReturn(new PageImpl<>(posts, PageRequest.of(0, 20), 20));
+        when(mediaRepo.findAllByPostPostIdIn(any())).thenReturn(List.of(
+                Media.builder().mediaId(UUID.randomUUID()).post(first).mediaUrl("url").mediaType(MediaType.IMAGE).build()));
+        UUID stylist = UUID.randomUUID();
+        when(tagRepo.findByPostPostIdIn(any())).thenReturn(List.of(
+                PostTag.builder().tagId(UUID.randomUUID()).post(first).stylistId(stylist).build()));
+
+        PagedResponse<PostResponse> feed = service.getFeed(u1, 0, 20);
+
+        assertEquals(20, feed.getContent().size());
+        assertEquals(1, feed.getContent().get(0).getMedia().size());
+        assertEquals(List.of(stylist), feed.getContent().get(0).getTags());
+        assertEquals(3L, feed.getContent().get(0).getLikeCount());
+        assertTrue(feed.getContent().get(1).getMedia().isEmpty());
+        verify(blockRepo).findBlockRelatedUserIds(u1);
+        verify(mediaRepo).findAllByPostPostIdIn(any());
+        verify(tagRepo).findByPostPostIdIn(any());
+        verify(counters).pending(any());
+        verify(blockRepo, never()).existsByBlockerIdAndBlockedId(any(), any());
+        verifyNoInteractions(likeRepo, commentRepo);
+    }
+
+    @Test
+    void getFeed_fromTimeline_keepsTimelineOrderAndSkipsDeletedPosts() {
+        UUID u1 = UUID.randomUUID(), u2 = UUID.randomUUID();
+        when(followRepo.findByFollowerId(u1)).thenReturn(List.of(new Follow(null, u1, u2, null)));
+        Post newer = new Post(); newer.setPostId(UUID.randomUUID()); newer.setUserId(u2);
+        Post older = new Post(); older.setPostId(UUID.randomUUID()); older.setUserId(u1);
+        UUID deleted = UUID.randomUUID();
+        List<UUID> ids = List.of(newer.getPostId(), deleted, older.getPostId());
+        when(timelineService.readPage(u1, List.of(u2, u1), 0, 3))
+                .thenReturn(Optional.of(new PageImpl<>(ids, PageRequest.of(0, 3), 3)));
+        when(postRepo.findAllById(ids)).thenReturn(List.of(older, newer));
+
+        PagedResponse<PostResponse> feed = service.getFeed(u1, 0, 3);
+
+        assertEquals(List.of(newer.getPostId(), older.getPostId()),
+                feed.getContent().stream().map(PostResponse::getId).toList());
+        verify(postRepo, never()).findByUserIdIn(any(), any());
+    }
+
+    @Test
+    void followAndBlock_refreshTimelines() {
+        UUID u1 = UUID.randomUUID(), u2 = UUID.randomUUID();
+
+        service.follow(u1, u2);
+        service.block(u1, u2);
+
+        verify(timelineService).refresh(u1);
+        verify(timelineService).refresh(u1, u2);
+    }
+
+    @Test
+    void likeAndUnlike_adjustCounterOnlyOnChange() {
+        UUID uid = UUID.randomUUID(), pid = UUID.randomUUID();
+        Like like = Like.builder().likeId(UUID.randomUUID()).userId(uid).postId(pid).build();
+        when(likeRepo.findByUserIdAndPostId(uid, pid))
+                .thenReturn(Optional.empty(), Optional.of(like), Optional.of(like), Optional.empty());
+
+        service.likePost(uid, pid);
+        service.likePost(uid, pid);
+        service.unlikePost(uid, pid);
+        service.unlikePost(uid, pid);
+
+        verify(counters).increment(pid, EngagementCounterService.Counter.LIKES, 1);
+        verify(counters).increment(pid, EngagementCounterService.Counter.LIKES, -1);
+        verifyNoMoreInteractions(counters);
     }
 
     @Test
@@ -0,0 +1,205 @@
+package tech.ceesar.glamme.social.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+import tech.ceesar.glamme.social.entity.Post;
+import tech.ceesar.glamme.social.repositories.BlockRepository;
+import tech.ceesar.glamme.social.repositories.FollowRepository;
+import tech.ceesar.glamme.social.repositories.PostRepository;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TimelineServiceTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private PostRepository postRepo;
+    private FollowRepository followRepo;
+    private BlockRepository blockRepo;
+    private TimelineService timelineService;
+
+    private final List<Post> posts = new ArrayList<>();
+    private final UUID author = UUID.randomUUID();
+    private final UUID reader = UUID.randomUUID();
+    private final UUID otherAuthor = UUID.randomUUID();
+    private long followers = 1;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        postRepo = mock(PostRepository.class);
+        followRepo = mock(FollowRepository.class);
+        blockRepo = mock(BlockRepository.class);
+
+        // Posts table backed by the list, newest first
+        when(postRepo.findTimelineEntries(anyCollection(), any(Pageable.class))).thenAnswer(invocation -> {
+            Collection<UUID> authors = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            return posts.stream()
+                    .filter(post -> authors.contains(post.getUserId()))
+                    .sorted(Comparator.comparing(Post::getCreatedAt).reversed())
+                    .limit(pageable.getPageSize())
+                    .map(post -> (PostRepository.TimelineEntry) new Entry(post.getPostId(), post.getCreatedAt()))
+                    .toList();
+        });
+        when(postRepo.countByUserIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<UUID> authors = invocation.getArgument(0);
+            return posts.stream().filter(post -> authors.contains(post.getUserId())).count();
+        });
+        when(followRepo.countByFollowedId(author)).thenAnswer(invocation -> followers);
+        when(followRepo.findFollowerIds(author)).thenReturn(List.of(reader));
+        when(blockRepo.findBlockRelatedUserIds(any())).thenReturn(Set.of());
+
+        timelineService = new TimelineService(redisTemplate, postRepo, followRepo, blockRepo);
+        ReflectionTestUtils.setField(timelineService, "enabled", true);
+        ReflectionTestUtils.setField(timelineService, "maxEntries", 800);
+        ReflectionTestUtils.setField(timelineService, "fanoutThreshold", 2L);
+        ReflectionTestUtils.setField(timelineService, "fanoutBatchSize", 500);
+        ReflectionTestUtils.setField(timelineService, "ttlHours", 1L);
+        ReflectionTestUtils.setField(timelineService, "workerThreads", 1);
+        timelineService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        timelineService.stop();
+    }
+
+    @Test
+    void pushedPosts_AreAddedToCachedTimelines() {
+        Post first = post(author, 1);
+        Post other = post(otherAuthor, 2);
+        assertEquals(List.of(other.getPostId(), first.getPostId()), read().getContent());
+
+        Post second = post(author, 3);
+        fanOut(second);
+
+        Page<UUID> page = read();
+        assertEquals(List.of(second.getPostId(), other.getPostId(), first.getPostId()), page.getContent());
+        assertEquals(3, page.getTotalElements());
+    }
+
+    @Test
+    void switchingAnAuthorToPull_DoesNotDuplicateTheirPushedPosts() {
+        Post first = post(author, 1);
+        Post other = post(otherAuthor, 2);
+        read();
+        Post second = post(author, 3);
+        fanOut(second);
+        assertEquals(3, read().getTotalElements());
+
+        // The author crosses the fan-out threshold with their next post
+        followers = 2;
+        Post third = post(author, 4);
+        fanOut(third);
+
+        Page<UUID> page = read();
+        assertEquals(List.of(third.getPostId(), second.getPostId(), other.getPostId(), first.getPostId()),
+                page.getContent());
+        assertEquals(4, page.getTotalElements());
+
+        // Later posts stay pulled and still show once
+        Post fourth = post(author, 5);
+        fanOut(fourth);
+        page = read();
+        assertEquals(List.of(fourth.getPostId(), third.getPostId(), second.getPostId(), other.getPostId(),
+                first.getPostId()), page.getContent());
+        assertEquals(5, page.getTotalElements());
+    }
+
+    @Test
+    void readPage_CountsAPostBothCachedAndPulledOnce() {
+        Post first = post(author, 1);
+        Post other = post(otherAuthor, 2);
+        read();
+        // Pulled without dropping the cached timeline, as when a push races the switch
+        redisTemplate.opsForSet().add("timeline:pull-authors", author.toString());
+
+        Page<UUID> page = read();
+
+        assertEquals(List.of(other.getPostId(), first.getPostId()), page.getContent());
+        assertEquals(2, page.getTotalElements());
+    }
+
+    private Page<UUID> read() {
+        return timelineService.readPage(reader, List.of(author, otherAuthor, reader), 0, 10).orElseThrow();
+    }
+
+    private void fanOut(Post post) {
+        ReflectionTestUtils.invokeMethod(timelineService, "fanOut", post);
+    }
+
+    private Post post(UUID userId, long second) {
+        Post post = Post.builder()
+                .postId(UUID.randomUUID())
+                .userId(userId)
+                .createdAt(Instant.ofEpochSecond(1_700_000_000L + second))
+                .build();
+        posts.add(post);
+        return post;
+    }
+
+    private record Entry(UUID postId, Instant createdAt) implements PostRepository.TimelineEntry {
+
+        @Override
+        public UUID getPostId() {
+            return postId;
+        }
+
+        @Override
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+    }
+}